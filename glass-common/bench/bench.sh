@@ -0,0 +1,17 @@
+#!/bin/bash
+# Build and run the Http conformance checks on the desktop JVM against a local server
+# Usage: ./bench.sh
+
+set -e
+
+DIR="$(cd "$(dirname "$0")" && pwd)"
+SRC="$DIR/../src/main/java"
+OUT="$DIR/build"
+
+mkdir -p "$OUT"
+# shim/ stands in for android.util.Log and android.content.Context
+javac -encoding UTF-8 -d "$OUT" -sourcepath "$DIR/shim:$SRC" \
+    $(find "$SRC" -name "*.java") \
+    "$DIR"/src/com/glasscommon/bench/*.java
+
+exec java -cp "$OUT" com.glasscommon.bench.HttpConformance
@@ -0,0 +1,16 @@
+package android.content;
+
+import java.io.File;
+
+/** Desktop stand-in for android.content.Context: only the cache dir Http.init asks for. */
+public class Context {
+    private final File cacheDir;
+
+    public Context(File cacheDir) {
+        this.cacheDir = cacheDir;
+    }
+
+    public File getCacheDir() {
+        return cacheDir;
+    }
+}
@@ -0,0 +1,291 @@
+package com.glasscommon.bench;
+
+import android.content.Context;
+
+import com.glasscommon.net.Http;
+import com.glasscommon.net.HttpMetrics;
+import com.glasscommon.net.Request;
+import com.glasscommon.net.Response;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Conformance checks for Http and its response cache, run on the desktop
+ * JVM against a local server:
+ *
+ *   1. gzip bodies are decoded, and the metrics count the compressed size.
+ *   2. A max-age response is served from memory, then from disk by a fresh
+ *      JVM over the same cache dir.
+ *   3. An ETag response marked no-cache is revalidated with If-None-Match
+ *      and served from the cache on 304, also after a restart.
+ *   4. no-store and bodies too large for the cache always hit the server.
+ *   5. A 404 throws.
+ *   6. Requests in one JVM reuse the same connection. The JDK's test
+ *      server closes it after each 304, so those start a new one.
+ *
+ *   bench.sh
+ */
+public class HttpConformance {
+
+    private static final String ETAG = "\"v1\"";
+    private static final int LARGE_BYTES = 3 * 1024 * 1024 / 2;
+
+    private static int failures = 0;
+
+    // Requests per path, client connections seen and 304s sent, written on the server thread
+    private static final Map<String, Integer> hits = new HashMap<String, Integer>();
+    private static final Set<String> connections = new HashSet<String>();
+    private static int notModifiedSent;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("--restart")) {
+            restarted(new File(args[1]), args[2]);
+            return;
+        }
+
+        File cacheDir = createCacheDir();
+        HttpServer server = startServer();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        try {
+            Http.init(new Context(cacheDir));
+            checks(base);
+            int connectionCount;
+            int expected;
+            synchronized (hits) {
+                connectionCount = connections.size();
+                expected = 1 + notModifiedSent;
+            }
+            check("connections reused", connectionCount == expected,
+                    connectionCount + " connections, expected " + expected);
+            restartChecks(cacheDir, base);
+        } finally {
+            server.stop(0);
+            deleteTree(cacheDir);
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " conformance check(s) FAILED");
+            System.exit(1);
+        }
+        System.out.println("All conformance checks passed");
+    }
+
+    // --- Checks ---
+
+    private static void checks(String base) throws IOException {
+        String text = Http.fetchString(base + "/gzip");
+        check("gzip decoded", text.equals(gzipText()), "got " + text.length() + " chars");
+        HttpMetrics.Endpoint gzip = endpoint("/gzip");
+        check("gzip wire bytes below body bytes", gzip != null && gzip.wireBytes < gzip.bodyBytes,
+                gzip == null ? "no metrics" : gzip.wireBytes + " wire, " + gzip.bodyBytes + " body");
+
+        Response first = Http.get(base + "/fresh");
+        boolean firstCached = first.fromCache;
+        String firstBody = first.string();
+        Response second = Http.get(base + "/fresh");
+        boolean secondCached = second.fromCache;
+        String secondBody = second.string();
+        check("max-age: first from network", !firstCached, "fromCache");
+        check("max-age: second from cache", secondCached && hits("/fresh") == 1, hits("/fresh") + " hits");
+        check("max-age: same body", "fresh".equals(firstBody) && "fresh".equals(secondBody), secondBody);
+
+        Http.fetchString(base + "/etag");
+        Response revalidated = Http.get(base + "/etag");
+        boolean revalidatedCached = revalidated.fromCache;
+        String revalidatedBody = revalidated.string();
+        check("no-cache: revalidated every time", hits("/etag") == 2, hits("/etag") + " hits");
+        check("304: served from cache", revalidatedCached && "etag".equals(revalidatedBody), revalidatedBody);
+        HttpMetrics.Endpoint etag = endpoint("/etag");
+        check("304: counted", etag != null && etag.notModified == 1,
+                etag == null ? "no metrics" : etag.notModified + " not modified");
+
+        Response own = Http.execute(new Request(base + "/etag").header("If-None-Match", ETAG));
+        boolean ownNotModified = own.isNotModified();
+        String ownBody = own.string();
+        check("caller's own validators bypass the cache", ownNotModified && ownBody == null,
+                "code " + own.code);
+
+        Http.fetchString(base + "/nostore");
+        Response noStore = Http.get(base + "/nostore");
+        boolean noStoreCached = noStore.fromCache;
+        noStore.string();
+        check("no-store: never cached", !noStoreCached && hits("/nostore") == 2, hits("/nostore") + " hits");
+
+        byte[] large = Http.get(base + "/large").bytes();
+        Response largeAgain = Http.get(base + "/large");
+        boolean largeCached = largeAgain.fromCache;
+        largeAgain.bytes();
+        check("large body read whole", large.length == LARGE_BYTES, large.length + " bytes");
+        check("large body not cached", !largeCached && hits("/large") == 2, hits("/large") + " hits");
+
+        boolean threw = false;
+        try {
+            Http.fetchString(base + "/missing");
+        } catch (IOException e) {
+            threw = e.getMessage().contains("404");
+        }
+        check("404 throws", threw, "no exception");
+    }
+
+    /** Run this class again in a new JVM over the same cache dir, as after an app restart. */
+    private static void restartChecks(File cacheDir, String base) throws Exception {
+        int freshHits = hits("/fresh");
+        int etagHits = hits("/etag");
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                HttpConformance.class.getName(), "--restart", cacheDir.getPath(), base)
+                .inheritIO()
+                .start();
+        int exit = child.waitFor();
+        check("restart: checks ran", exit == 0, "exit " + exit);
+        check("restart: max-age served from disk", hits("/fresh") == freshHits,
+                (hits("/fresh") - freshHits) + " new hits");
+        check("restart: stored ETag revalidated", hits("/etag") == etagHits + 1,
+                (hits("/etag") - etagHits) + " new hits");
+    }
+
+    /** The --restart half: exits non-zero if a check fails. */
+    private static void restarted(File cacheDir, String base) throws IOException {
+        Http.init(new Context(cacheDir));
+        Response fresh = Http.get(base + "/fresh");
+        boolean freshCached = fresh.fromCache;
+        String freshBody = fresh.string();
+        check("restart: max-age from cache", freshCached && "fresh".equals(freshBody), freshBody);
+
+        Response etag = Http.get(base + "/etag");
+        boolean etagCached = etag.fromCache;
+        String etagBody = etag.string();
+        check("restart: 304 from cache", etagCached && "etag".equals(etagBody), etagBody);
+        System.exit(failures > 0 ? 1 : 0);
+    }
+
+    private static void check(String name, boolean ok, String detail) {
+        if (!ok) {
+            System.out.println("FAIL " + name + ": " + detail);
+            failures++;
+        }
+    }
+
+    private static HttpMetrics.Endpoint endpoint(String path) {
+        for (HttpMetrics.Endpoint e : Http.metrics().snapshot()) {
+            if (e.name.endsWith(path)) return e;
+        }
+        return null;
+    }
+
+    // --- Server ---
+
+    private static HttpServer startServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                synchronized (hits) {
+                    Integer n = hits.get(path);
+                    hits.put(path, n == null ? 1 : n + 1);
+                    connections.add(exchange.getRemoteAddress().toString());
+                }
+                serve(path, exchange);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void serve(String path, HttpExchange exchange) throws IOException {
+        byte[] body;
+        if (path.equals("/gzip")) {
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            body = gzip(gzipText().getBytes(StandardCharsets.UTF_8));
+        } else if (path.equals("/fresh")) {
+            exchange.getResponseHeaders().set("Cache-Control", "max-age=60");
+            body = "fresh".getBytes(StandardCharsets.UTF_8);
+        } else if (path.equals("/etag")) {
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                synchronized (hits) {
+                    notModifiedSent++;
+                }
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            body = "etag".getBytes(StandardCharsets.UTF_8);
+        } else if (path.equals("/nostore")) {
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            body = "nostore".getBytes(StandardCharsets.UTF_8);
+        } else if (path.equals("/large")) {
+            exchange.getResponseHeaders().set("Cache-Control", "max-age=60");
+            body = new byte[LARGE_BYTES];
+        } else {
+            body = "not found".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(404, body.length);
+            write(exchange, body);
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        write(exchange, body);
+    }
+
+    private static void write(HttpExchange exchange, byte[] body) throws IOException {
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+        out.close();
+    }
+
+    private static int hits(String path) {
+        synchronized (hits) {
+            Integer n = hits.get(path);
+            return n == null ? 0 : n;
+        }
+    }
+
+    // --- Helpers ---
+
+    private static String gzipText() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            sb.append("line ").append(i).append(" of a compressible body\n");
+        }
+        return sb.toString();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(bytes);
+        out.write(data);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private static File createCacheDir() throws IOException {
+        File dir = File.createTempFile("glass-http", "");
+        if (!dir.delete() || !dir.mkdir()) throw new IOException("cannot create " + dir);
+        return dir;
+    }
+
+    private static void deleteTree(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File c : children) deleteTree(c);
+        }
+        f.delete();
+    }
+}
@@ -0,0 +1,161 @@
+package com.glasscommon.io;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A directory of cache files bounded in bytes, evicted least recently used
+ * first. Callers choose the format; this only names, indexes and deletes.
+ *
+ * An entry is one file per suffix given to the constructor, named by the
+ * SHA-1 of its key, e.g. {@code <sha1>.png} next to {@code <sha1>.meta}.
+ * The first suffix is the entry's main file: its mtime is the entry's place
+ * in the LRU order across restarts, and an entry without one does not
+ * exist. Names can collide, so a caller should store the key inside the
+ * entry and check it on read.
+ *
+ * To store, write every file to its {@link #tmpFile} and {@link #commit};
+ * files left over from an interrupted store are deleted on the next start.
+ */
+public class DiskLruStore {
+
+    private static final String TAG = "GlassCache";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final File dir;
+    private final long maxBytes;
+    private final String[] suffixes;
+
+    // Base name -> bytes of all its files, access-ordered, loaded from the directory on first use
+    private LinkedHashMap<String, Long> index;
+    private long totalBytes;
+
+    public DiskLruStore(File dir, long maxBytes, String... suffixes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+        this.suffixes = suffixes;
+    }
+
+    /** True if the store holds an entry for the key. */
+    public synchronized boolean contains(String key) {
+        loadIndex();
+        return index.containsKey(IoUtils.sha1(key));
+    }
+
+    /** Where part {@code part} (index into the suffixes) of an entry is kept. */
+    public File file(String key, int part) {
+        return new File(dir, IoUtils.sha1(key) + suffixes[part]);
+    }
+
+    /**
+     * Where to write part {@code part} of an entry before {@link #commit}.
+     * Creates the directory on first use.
+     */
+    public synchronized File tmpFile(String key, int part) {
+        loadIndex();
+        return new File(dir, IoUtils.sha1(key) + suffixes[part] + TMP_SUFFIX);
+    }
+
+    /** Mark an entry as just used, here and in its main file's mtime. */
+    public synchronized void touch(String key) {
+        loadIndex();
+        String name = IoUtils.sha1(key);
+        if (index.get(name) == null) return;
+        new File(dir, name + suffixes[0]).setLastModified(System.currentTimeMillis());
+    }
+
+    /**
+     * Move every written tmp file of an entry into place, replacing the old
+     * ones, then evict down to the byte budget. On failure the entry is
+     * removed entirely rather than left half old, half new.
+     */
+    public synchronized void commit(String key) throws IOException {
+        loadIndex();
+        String name = IoUtils.sha1(key);
+        for (int i = 0; i < suffixes.length; i++) {
+            File tmp = tmpFile(key, i);
+            if (tmp.exists() && !tmp.renameTo(new File(dir, name + suffixes[i]))) {
+                for (int j = i; j < suffixes.length; j++) tmpFile(key, j).delete();
+                delete(name);
+                throw new IOException("rename failed");
+            }
+        }
+        Long old = index.put(name, sizeOf(name));
+        if (old != null) totalBytes -= old;
+        totalBytes += index.get(name);
+        trim();
+    }
+
+    public synchronized void remove(String key) {
+        loadIndex();
+        delete(IoUtils.sha1(key));
+    }
+
+    private void loadIndex() {
+        if (index != null) return;
+        index = new LinkedHashMap<String, Long>(16, 0.75f, true);
+        totalBytes = 0;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Cannot create cache dir " + dir);
+            return;
+        }
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        // Oldest access first, so iteration order is eviction order
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                return Long.compare(a.lastModified(), b.lastModified());
+            }
+        });
+        for (File f : files) {
+            String fileName = f.getName();
+            if (fileName.endsWith(TMP_SUFFIX)) {
+                f.delete();
+            } else if (fileName.endsWith(suffixes[0])) {
+                String name = fileName.substring(0, fileName.length() - suffixes[0].length());
+                long size = sizeOf(name);
+                index.put(name, size);
+                totalBytes += size;
+            }
+        }
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<String, Long>> it = index.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> e = it.next();
+            totalBytes -= e.getValue();
+            deleteFiles(e.getKey());
+            it.remove();
+        }
+    }
+
+    private void delete(String name) {
+        Long size = index.remove(name);
+        if (size != null) totalBytes -= size;
+        deleteFiles(name);
+    }
+
+    private void deleteFiles(String name) {
+        for (String suffix : suffixes) {
+            new File(dir, name + suffix).delete();
+        }
+    }
+
+    private long sizeOf(String name) {
+        long size = 0;
+        for (String suffix : suffixes) {
+            size += new File(dir, name + suffix).length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,72 @@
+package com.glasscommon.io;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Replaces a whole file atomically: the contents go to a .tmp file next to
+ * it, which is then renamed over the old one, so a reader sees either the
+ * old file or the new one, never half of either.
+ *
+ * {@link #saveAsync} runs saves on one background thread shared by every
+ * caller, in the order they were queued, so an older save of a file never
+ * lands after a newer one.
+ */
+public final class FileSaver {
+
+    private static final String TAG = "GlassCache";
+
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    /** Writes a file's contents. */
+    public interface Contents {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private FileSaver() {}
+
+    /**
+     * Save on the background writer; a failure is logged and leaves the old
+     * file. {@code contents} must not depend on anything the caller changes
+     * afterwards.
+     */
+    public static void saveAsync(final File file, final Contents contents) {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    save(file, contents);
+                } catch (IOException e) {
+                    Log.w(TAG, "Failed to save " + file.getName() + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /** Save on the calling thread. On failure the old file is left as it was. */
+    public static void save(File file, Contents contents) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            contents.writeTo(out);
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file)) {
+                throw new IOException("rename failed");
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        } finally {
+            IoUtils.closeQuietly(out);
+        }
+    }
+}
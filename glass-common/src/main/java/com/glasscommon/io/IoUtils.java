@@ -0,0 +1,61 @@
+package com.glasscommon.io;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Small helpers shared by the apps' binary cache files.
+ *
+ * Strings are written as an int byte count and UTF-8 bytes, -1 for null.
+ * Unlike writeUTF() that has no 64 KB cap, so it suits response bodies and
+ * long feed descriptions alike.
+ */
+public final class IoUtils {
+
+    private IoUtils() {}
+
+    public static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Lowercase hex SHA-1 of a string, for turning URLs into file names. */
+    public static String sha1(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            // SHA-1 is always available; fall back to something stable anyway
+            return Integer.toHexString(s.hashCode());
+        }
+    }
+
+    public static void closeQuietly(Closeable c) {
+        if (c == null) return;
+        try {
+            c.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,321 @@
+package com.glasscommon.net;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.glasscommon.io.IoUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+/**
+ * HTTP GET shared by the Glass apps, with the SSL trust-all workaround for
+ * Glass's outdated CA certs.
+ *
+ * Connections are kept alive and reused between requests to the same
+ * host, bodies are requested gzip-compressed and streamed rather than
+ * buffered, and once {@link #init} has been called responses are cached in
+ * memory and on disk for as long as their Cache-Control allows, then
+ * revalidated with a conditional request. Every request is timed per
+ * endpoint in {@link #metrics()}.
+ *
+ * All requests block — call from a background thread.
+ */
+public final class Http {
+
+    private static final String TAG = "GlassHttp";
+
+    public static final int DEFAULT_TIMEOUT_MS = 10000;
+    private static final long MEMORY_CACHE_BYTES = 1024 * 1024;
+    private static final long DISK_CACHE_BYTES = 8 * 1024 * 1024;
+    // Unread bytes worth skipping to keep a connection alive
+    private static final int DRAIN_LIMIT = 64 * 1024;
+
+    // One instance for every request: pooled connections are only reused for
+    // requests whose socket factory is the same object
+    private static SSLSocketFactory sslSocketFactory;
+    private static volatile ResponseCache cache;
+    private static final HttpMetrics metrics = new HttpMetrics();
+
+    static {
+        try {
+            TrustManager[] trustAll = new TrustManager[] {
+                new X509TrustManager() {
+                    public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
+                    public void checkClientTrusted(X509Certificate[] certs, String type) {}
+                    public void checkServerTrusted(X509Certificate[] certs, String type) {}
+                }
+            };
+            SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, trustAll, new java.security.SecureRandom());
+            sslSocketFactory = sslContext.getSocketFactory();
+        } catch (Exception e) {
+            Log.e(TAG, "SSL init failed", e);
+        }
+    }
+
+    private Http() {}
+
+    /**
+     * Enable the response cache, under the app's cache dir. Without it every
+     * request goes to the network. Safe to call more than once.
+     */
+    public static synchronized void init(Context context) {
+        if (cache != null) return;
+        cache = new ResponseCache(new File(context.getCacheDir(), "http"), MEMORY_CACHE_BYTES, DISK_CACHE_BYTES);
+    }
+
+    public static HttpMetrics metrics() {
+        return metrics;
+    }
+
+    /** GET with default timeout, through the cache. Close the response. */
+    public static Response get(String url) throws IOException {
+        return execute(new Request(url));
+    }
+
+    /** GET the body as text. */
+    public static String fetchString(String url) throws IOException {
+        return get(url).string();
+    }
+
+    /**
+     * Perform a GET. A fresh cached response is returned without touching
+     * the network; a stale one with validators is revalidated and returned
+     * if the server answers 304. Throws for 4xx and 5xx statuses.
+     */
+    public static Response execute(Request request) throws IOException {
+        long start = System.nanoTime();
+        String url = request.url;
+        ResponseCache cache = request.useCache && !request.isConditional() ? Http.cache : null;
+
+        ResponseCache.Entry cached = null;
+        if (cache != null) {
+            cached = cache.get(url);
+            if (cached != null && cached.isFresh(System.currentTimeMillis())) {
+                return new Response(url, cached, HttpMetrics.Outcome.CACHE_HIT, start);
+            }
+        }
+
+        try {
+            HttpURLConnection conn = open(request);
+            if (cached != null) {
+                if (cached.etag != null) conn.setRequestProperty("If-None-Match", cached.etag);
+                if (cached.lastModified != null) conn.setRequestProperty("If-Modified-Since", cached.lastModified);
+            }
+
+            int code = conn.getResponseCode();
+            long now = System.currentTimeMillis();
+
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                CountingInputStream wire = new CountingInputStream(conn.getInputStream());
+                if (cached == null) {
+                    // Answer to the caller's own validators
+                    return new Response(url, code, conn, null, wire, HttpMetrics.Outcome.NOT_MODIFIED, start);
+                }
+                closeForReuse(wire);
+                long expiresAt = expiresAt(conn, now);
+                if (expiresAt < 0) {
+                    cache.remove(url);
+                } else if (expiresAt != cached.expiresAt) {
+                    cached = cached.withExpiresAt(expiresAt);
+                    cache.put(cached);
+                }
+                return new Response(url, cached, HttpMetrics.Outcome.REVALIDATED, start);
+            }
+
+            if (code >= 400) {
+                InputStream error = conn.getErrorStream();
+                if (error != null) closeForReuse(error);
+                throw new IOException("HTTP " + code + " " + conn.getResponseMessage());
+            }
+
+            CountingInputStream wire = new CountingInputStream(conn.getInputStream());
+            InputStream body = wire;
+            if ("gzip".equalsIgnoreCase(conn.getContentEncoding())) {
+                body = new GZIPInputStream(body, 8192);
+            }
+            if (cache != null && code == HttpURLConnection.HTTP_OK) {
+                long expiresAt = expiresAt(conn, now);
+                String etag = conn.getHeaderField("ETag");
+                String lastModified = conn.getHeaderField("Last-Modified");
+                if (expiresAt < 0) {
+                    cache.remove(url);
+                } else if (expiresAt > now || etag != null || lastModified != null) {
+                    // Copy into the cache as the caller reads; stored once read to the end
+                    ResponseCache.Entry entry = new ResponseCache.Entry(url, etag, lastModified,
+                            conn.getContentType(), expiresAt, null);
+                    body = new CachingInputStream(body, cache, entry);
+                }
+            }
+            return new Response(url, code, conn, body, wire, HttpMetrics.Outcome.NETWORK, start);
+        } catch (IOException e) {
+            metrics.record(url, HttpMetrics.Outcome.ERROR, (System.nanoTime() - start) / 1000000, 0, 0);
+            throw e;
+        }
+    }
+
+    private static HttpURLConnection open(Request request) throws IOException {
+        URL url = new URL(request.url);
+        HttpURLConnection conn;
+
+        if (request.url.startsWith("https")) {
+            HttpsURLConnection httpsConn = (HttpsURLConnection) url.openConnection();
+            if (sslSocketFactory != null) httpsConn.setSSLSocketFactory(sslSocketFactory);
+            conn = httpsConn;
+        } else {
+            conn = (HttpURLConnection) url.openConnection();
+        }
+
+        conn.setConnectTimeout(request.timeoutMs);
+        conn.setReadTimeout(request.timeoutMs);
+        conn.setRequestProperty("User-Agent", "Mozilla/5.0");
+        // Asked for explicitly, so decoding happens here and metrics see the wire size
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        conn.setInstanceFollowRedirects(true);
+        for (Map.Entry<String, String> h : request.headers.entrySet()) {
+            conn.setRequestProperty(h.getKey(), h.getValue());
+        }
+        return conn;
+    }
+
+    private static long expiresAt(HttpURLConnection conn, long now) {
+        long expires = conn.getHeaderField("Expires") != null ? conn.getHeaderFieldDate("Expires", 0) : -1;
+        return ResponseCache.expiresAt(conn.getHeaderField("Cache-Control"), conn.getHeaderField("Age"),
+                conn.getHeaderFieldDate("Date", 0), expires, conn.getHeaderFieldDate("Last-Modified", 0), now);
+    }
+
+    // --- Streams ---
+
+    /** Skip up to {@link #DRAIN_LIMIT} unread bytes. */
+    static void drain(InputStream stream) {
+        if (stream == null) return;
+        try {
+            byte[] buf = new byte[4096];
+            int left = DRAIN_LIMIT;
+            int n;
+            while (left > 0 && (n = stream.read(buf, 0, Math.min(buf.length, left))) != -1) {
+                left -= n;
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Close a response body so its connection can be reused for the next
+     * request to the same host. A connection only goes back to the pool once
+     * its body has been read to the end, so a short unread tail is skipped
+     * first; a long one is cheaper to drop along with the connection.
+     */
+    static void closeForReuse(InputStream stream) {
+        drain(stream);
+        IoUtils.closeQuietly(stream);
+    }
+
+    /** Counts the bytes read through it. */
+    static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            if (skipped > 0) count += skipped;
+            return skipped;
+        }
+    }
+
+    /**
+     * Copies a body into the response cache as it is read, and stores it on
+     * reaching the end. A body larger than the cache's entry limit is passed
+     * through uncopied.
+     */
+    private static class CachingInputStream extends FilterInputStream {
+        private final ResponseCache cache;
+        private final ResponseCache.Entry headers;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream(8192);
+
+        CachingInputStream(InputStream in, ResponseCache cache, ResponseCache.Entry headers) {
+            super(in);
+            this.cache = cache;
+            this.headers = headers;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                if (copy != null) copy.write(b);
+                checkSize();
+            } else {
+                commit();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            int n = super.read(buf, off, len);
+            if (n > 0) {
+                if (copy != null) copy.write(buf, off, n);
+                checkSize();
+            } else if (n < 0) {
+                commit();
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes would leave a hole in the copy
+            byte[] buf = new byte[(int) Math.min(n, 4096)];
+            int read = read(buf, 0, buf.length);
+            return Math.max(read, 0);
+        }
+
+        private void checkSize() {
+            if (copy != null && copy.size() > cache.maxEntryBytes()) {
+                copy = null;
+            }
+        }
+
+        private void commit() {
+            if (copy == null) return;
+            ResponseCache.Entry h = headers;
+            cache.put(new ResponseCache.Entry(h.url, h.etag, h.lastModified, h.contentType, h.expiresAt,
+                    copy.toByteArray()));
+            copy = null;
+        }
+    }
+}
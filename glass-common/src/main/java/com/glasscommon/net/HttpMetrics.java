@@ -0,0 +1,178 @@
+package com.glasscommon.net;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Per-endpoint request counts and latency, for finding the slow or
+ * uncacheable calls. An endpoint is the URL's host and path, with digit
+ * runs in the path folded to '#' so that /voyeur1.png and /voyeur2.png
+ * count together; query strings are ignored.
+ *
+ * Latencies go into power-of-two millisecond buckets, so percentiles are
+ * reported as the bucket's upper bound and recording allocates nothing.
+ */
+public class HttpMetrics {
+
+    private static final String TAG = "GlassHttp";
+    // Bucket i holds latencies below 2^i ms; the last one everything above
+    private static final int BUCKETS = 17;
+
+    /** How a request was answered. */
+    enum Outcome { NETWORK, CACHE_HIT, REVALIDATED, NOT_MODIFIED, ERROR }
+
+    /** Counters for one endpoint. */
+    public static class Endpoint {
+        public final String name;
+        public int requests;
+        public int errors;
+        /** Served from the cache without touching the network. */
+        public int cacheHits;
+        /** Answered 304 and served from the cache or the caller's own copy. */
+        public int notModified;
+        /** Bytes received over the network, before gzip decoding. */
+        public long wireBytes;
+        /** Bodies after decoding. */
+        public long bodyBytes;
+        public long totalMs;
+        public long maxMs;
+        final int[] buckets = new int[BUCKETS];
+
+        Endpoint(String name) {
+            this.name = name;
+        }
+
+        /** Upper bound in ms of the given percentile (0-100) of network requests. */
+        public long percentileMs(int percentile) {
+            int count = 0;
+            for (int b : buckets) count += b;
+            if (count == 0) return 0;
+            int rank = (int) Math.ceil(count * percentile / 100.0);
+            int seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= Math.max(1, rank)) return i < BUCKETS - 1 ? 1L << i : maxMs;
+            }
+            return maxMs;
+        }
+
+        Endpoint copy() {
+            Endpoint e = new Endpoint(name);
+            e.requests = requests;
+            e.errors = errors;
+            e.cacheHits = cacheHits;
+            e.notModified = notModified;
+            e.wireBytes = wireBytes;
+            e.bodyBytes = bodyBytes;
+            e.totalMs = totalMs;
+            e.maxMs = maxMs;
+            System.arraycopy(buckets, 0, e.buckets, 0, BUCKETS);
+            return e;
+        }
+
+        @Override
+        public String toString() {
+            int network = requests - cacheHits;
+            return String.format(Locale.US,
+                    "%s: %d req, %d cached, %d 304, %d err, avg %dms p50<=%dms p90<=%dms max %dms, %s wire / %s body",
+                    name, requests, cacheHits, notModified, errors,
+                    network > 0 ? totalMs / network : 0, percentileMs(50), percentileMs(90), maxMs,
+                    formatBytes(wireBytes), formatBytes(bodyBytes));
+        }
+    }
+
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<String, Endpoint>();
+
+    synchronized void record(String url, Outcome outcome, long elapsedMs, long wireBytes, long bodyBytes) {
+        String name = endpointOf(url);
+        Endpoint e = endpoints.get(name);
+        if (e == null) {
+            e = new Endpoint(name);
+            endpoints.put(name, e);
+        }
+        e.requests++;
+        e.wireBytes += wireBytes;
+        e.bodyBytes += bodyBytes;
+        switch (outcome) {
+            case CACHE_HIT:
+                e.cacheHits++;
+                // No network time to account for
+                return;
+            case REVALIDATED:
+            case NOT_MODIFIED:
+                e.notModified++;
+                break;
+            case ERROR:
+                e.errors++;
+                break;
+            default:
+                break;
+        }
+        e.totalMs += elapsedMs;
+        if (elapsedMs > e.maxMs) e.maxMs = elapsedMs;
+        e.buckets[bucketOf(elapsedMs)]++;
+    }
+
+    /** Copy of the counters, in order of first request. */
+    public synchronized List<Endpoint> snapshot() {
+        List<Endpoint> list = new ArrayList<Endpoint>(endpoints.size());
+        for (Endpoint e : endpoints.values()) list.add(e.copy());
+        return list;
+    }
+
+    public synchronized void reset() {
+        endpoints.clear();
+    }
+
+    /** Write one line per endpoint to logcat under the GlassHttp tag. */
+    public void log() {
+        for (Endpoint e : snapshot()) {
+            Log.i(TAG, e.toString());
+        }
+    }
+
+    static String endpointOf(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = url.length();
+        for (int i = start; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        int path = url.indexOf('/', start);
+        if (path < 0 || path > end) path = end;
+        StringBuilder sb = new StringBuilder(end - start);
+        sb.append(url, start, path);
+        boolean digits = false;
+        for (int i = path; i < end; i++) {
+            char c = url.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (!digits) sb.append('#');
+                digits = true;
+            } else {
+                sb.append(c);
+                digits = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int bucketOf(long ms) {
+        int b = 64 - Long.numberOfLeadingZeros(Math.max(0, ms));
+        return Math.min(b, BUCKETS - 1);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + "B";
+        if (bytes < 1024 * 1024) return (bytes / 1024) + "KB";
+        return String.format(Locale.US, "%.1fMB", bytes / (1024.0 * 1024.0));
+    }
+}
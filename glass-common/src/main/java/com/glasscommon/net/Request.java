@@ -0,0 +1,62 @@
+package com.glasscommon.net;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A GET request for {@link Http#execute}. Setters return the request so
+ * they can be chained:
+ *
+ * <pre>
+ * Http.execute(new Request(url).timeout(8000).header("If-None-Match", etag))
+ * </pre>
+ */
+public class Request {
+
+    final String url;
+    final Map<String, String> headers = new LinkedHashMap<String, String>();
+    int timeoutMs = Http.DEFAULT_TIMEOUT_MS;
+    boolean useCache = true;
+
+    public Request(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /** Connect and read timeout. */
+    public Request timeout(int timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        return this;
+    }
+
+    /**
+     * Add a request header. Sending If-None-Match or If-Modified-Since
+     * yourself bypasses the response cache; a 304 then comes back as a
+     * Response without a body.
+     */
+    public Request header(String name, String value) {
+        if (value != null) headers.put(name, value);
+        return this;
+    }
+
+    /**
+     * Neither read from nor write to the response cache, for responses
+     * the caller caches itself or that are never requested twice.
+     */
+    public Request noCache() {
+        useCache = false;
+        return this;
+    }
+
+    boolean isConditional() {
+        for (String name : headers.keySet()) {
+            if (name.equalsIgnoreCase("If-None-Match") || name.equalsIgnoreCase("If-Modified-Since")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
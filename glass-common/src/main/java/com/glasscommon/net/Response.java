@@ -0,0 +1,164 @@
+package com.glasscommon.net;
+
+import android.util.Log;
+
+import com.glasscommon.io.IoUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Result of {@link Http#execute}: a status, headers and a body that
+ * streams straight off the connection, already gzip-decoded.
+ *
+ * Always close it, best in a finally block. Closing skips a short unread
+ * tail of the body so the connection goes back to the keep-alive pool, and
+ * records the request's timing in {@link Http#metrics()}.
+ * {@link #string()} and {@link #bytes()} close it themselves.
+ */
+public class Response implements Closeable {
+
+    private static final String TAG = "GlassHttp";
+
+    public final int code;
+    /** True when the body came from the response cache, fresh or after a 304. */
+    public final boolean fromCache;
+
+    private final String url;
+    // Headers come from the connection, or from the cache entry when served from it
+    private final HttpURLConnection conn;
+    private final ResponseCache.Entry entry;
+    private final Http.CountingInputStream body;
+    private final Http.CountingInputStream wire;
+    private final HttpMetrics.Outcome outcome;
+    private final long startNanos;
+    private boolean closed;
+
+    Response(String url, int code, HttpURLConnection conn, InputStream body, Http.CountingInputStream wire,
+             HttpMetrics.Outcome outcome, long startNanos) {
+        this.url = url;
+        this.code = code;
+        this.fromCache = false;
+        this.conn = conn;
+        this.entry = null;
+        this.body = body != null ? new Http.CountingInputStream(body) : null;
+        this.wire = wire;
+        this.outcome = outcome;
+        this.startNanos = startNanos;
+    }
+
+    Response(String url, ResponseCache.Entry entry, HttpMetrics.Outcome outcome, long startNanos) {
+        this.url = url;
+        this.code = HttpURLConnection.HTTP_OK;
+        this.fromCache = true;
+        this.conn = null;
+        this.entry = entry;
+        this.body = new Http.CountingInputStream(new ByteArrayInputStream(entry.body));
+        this.wire = null;
+        this.outcome = outcome;
+        this.startNanos = startNanos;
+    }
+
+    /** True when the server answered 304 to the caller's own If-None-Match / If-Modified-Since. */
+    public boolean isNotModified() {
+        return code == HttpURLConnection.HTTP_NOT_MODIFIED;
+    }
+
+    public String header(String name) {
+        if (entry != null) return entry.header(name);
+        return conn != null ? conn.getHeaderField(name) : null;
+    }
+
+    /** The decoded body, or null when {@link #isNotModified()}. */
+    public InputStream body() {
+        return body;
+    }
+
+    /** Read the whole body as text and close. Null when {@link #isNotModified()}. */
+    public String string() throws IOException {
+        try {
+            if (body == null) return null;
+            if (entry != null) return new String(entry.body, charset());
+            Reader reader = new InputStreamReader(body, charset());
+            StringBuilder sb = new StringBuilder(sizeHint());
+            char[] buf = new char[4096];
+            int n;
+            while ((n = reader.read(buf)) != -1) {
+                sb.append(buf, 0, n);
+            }
+            return sb.toString();
+        } finally {
+            close();
+        }
+    }
+
+    /** Read the whole body and close. Null when {@link #isNotModified()}. */
+    public byte[] bytes() throws IOException {
+        try {
+            if (body == null) return null;
+            if (entry != null) return entry.body.clone();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(sizeHint());
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = body.read(buf)) != -1) {
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (wire != null) {
+            // Finish the decoded body first so a gzip trailer and a cache copy complete
+            Http.drain(body);
+            Http.closeForReuse(wire);
+        } else if (body != null) {
+            IoUtils.closeQuietly(body);
+        }
+
+        long elapsedMs = (System.nanoTime() - startNanos) / 1000000;
+        long wireBytes = wire != null ? wire.count : 0;
+        long bodyBytes = entry != null ? entry.body.length : body != null ? body.count : 0;
+        Http.metrics().record(url, outcome, elapsedMs, wireBytes, bodyBytes);
+        Log.d(TAG, outcome + " " + code + " " + elapsedMs + "ms " + wireBytes + "/" + bodyBytes + "B " + url);
+    }
+
+    private Charset charset() {
+        String type = header("Content-Type");
+        if (type != null) {
+            int i = type.toLowerCase(Locale.US).indexOf("charset=");
+            if (i >= 0) {
+                String name = type.substring(i + 8).trim();
+                int end = name.indexOf(';');
+                if (end >= 0) name = name.substring(0, end).trim();
+                try {
+                    return Charset.forName(name.replace("\"", ""));
+                } catch (Exception ignored) {
+                    // Unknown charset: fall through to UTF-8
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private int sizeHint() {
+        if (conn == null) return 8192;
+        int length = conn.getContentLength();
+        // Compressed length: the decoded body is usually several times larger
+        return length > 0 ? Math.min(length * 4, 1024 * 1024) : 8192;
+    }
+}
@@ -0,0 +1,237 @@
+package com.glasscommon.net;
+
+import android.util.Log;
+
+import com.glasscommon.io.DiskLruStore;
+import com.glasscommon.io.IoUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+
+/**
+ * Response bodies kept in memory and on disk, each bounded in bytes and
+ * evicted least recently used first.
+ *
+ * Only complete 200 responses are stored, along with their validators and
+ * the time their Cache-Control / Expires freshness runs out. Memory holds
+ * the most recently used bodies for instant reuse; the disk copy survives
+ * restarts. One file per URL, replaced atomically on every store.
+ */
+class ResponseCache {
+
+    private static final String TAG = "GlassHttp";
+    private static final int MAGIC = 0x48545031; // "HTP1"
+    private static final String SUFFIX = ".http";
+    // Freshness guessed from Last-Modified alone is capped at this
+    private static final long MAX_HEURISTIC_MS = 24 * 60 * 60 * 1000L;
+
+    /** A stored response. Immutable; a revalidation stores a copy. */
+    static class Entry {
+        final String url;
+        final String etag;
+        final String lastModified;
+        final String contentType;
+        /** Wall-clock time the response stops being fresh; 0 to revalidate before every use. */
+        final long expiresAt;
+        final byte[] body;
+
+        Entry(String url, String etag, String lastModified, String contentType, long expiresAt, byte[] body) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.expiresAt = expiresAt;
+            this.body = body;
+        }
+
+        boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+
+        Entry withExpiresAt(long expiresAt) {
+            return new Entry(url, etag, lastModified, contentType, expiresAt, body);
+        }
+
+        /** The stored headers a caller may ask for. */
+        String header(String name) {
+            if ("ETag".equalsIgnoreCase(name)) return etag;
+            if ("Last-Modified".equalsIgnoreCase(name)) return lastModified;
+            if ("Content-Type".equalsIgnoreCase(name)) return contentType;
+            return null;
+        }
+    }
+
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+
+    // Access-ordered, least recently used first
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long memoryBytes;
+    private final DiskLruStore disk;
+
+    ResponseCache(File dir, long maxMemoryBytes, long maxDiskBytes) {
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.disk = new DiskLruStore(dir, maxDiskBytes, SUFFIX);
+    }
+
+    /** Largest body worth storing. */
+    int maxEntryBytes() {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(maxMemoryBytes, maxDiskBytes / 8));
+    }
+
+    /** Stored response for a URL, fresh or not, or null. */
+    synchronized Entry get(String url) {
+        Entry entry = memory.get(url);
+        if (entry != null) return entry;
+
+        entry = readFile(url);
+        if (entry != null) putMemory(entry);
+        return entry;
+    }
+
+    /** Store or replace the response for its URL. */
+    synchronized void put(Entry entry) {
+        putMemory(entry);
+        writeFile(entry);
+    }
+
+    synchronized void remove(String url) {
+        Entry old = memory.remove(url);
+        if (old != null) memoryBytes -= old.body.length;
+        disk.remove(url);
+    }
+
+    // --- Freshness ---
+
+    /**
+     * When a response stops being fresh, from its caching headers: 0 if it
+     * may be stored but must be revalidated before use, -1 if it must not be
+     * stored at all.
+     *
+     * @param date      Date header in millis, 0 if absent
+     * @param expires   Expires header in millis, 0 if unparseable, -1 if absent
+     * @param lastModified Last-Modified header in millis, 0 if absent
+     */
+    static long expiresAt(String cacheControl, String age, long date, long expires, long lastModified,
+                          long now) {
+        long maxAge = -1;
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase(Locale.US).split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-store")) {
+                    return -1;
+                } else if (directive.equals("no-cache")) {
+                    return 0;
+                } else if (directive.startsWith("max-age=")) {
+                    maxAge = parseSeconds(directive.substring(8));
+                }
+            }
+        }
+
+        long lifetime;
+        if (maxAge >= 0) {
+            lifetime = maxAge * 1000;
+        } else if (expires >= 0) {
+            // Both from the server's clock, so the device clock does not matter
+            lifetime = Math.max(0, expires - (date > 0 ? date : now));
+        } else if (lastModified > 0 && date > 0) {
+            // A tenth of the time since the last change, as browsers do
+            lifetime = Math.min((date - lastModified) / 10, MAX_HEURISTIC_MS);
+        } else {
+            lifetime = 0;
+        }
+
+        // Time already spent in upstream caches
+        long ageMs = Math.max(0, parseSeconds(age)) * 1000;
+        return lifetime > ageMs ? now + lifetime - ageMs : 0;
+    }
+
+    private static long parseSeconds(String s) {
+        if (s == null) return -1;
+        try {
+            return Long.parseLong(s.trim().replace("\"", ""));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // --- Memory ---
+
+    private void putMemory(Entry entry) {
+        Entry old = memory.remove(entry.url);
+        if (old != null) memoryBytes -= old.body.length;
+        // One big body should not flush everything else
+        if (entry.body.length > maxMemoryBytes / 4) return;
+
+        memory.put(entry.url, entry);
+        memoryBytes += entry.body.length;
+        Iterator<Entry> it = memory.values().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            memoryBytes -= it.next().body.length;
+            it.remove();
+        }
+    }
+
+    // --- Disk ---
+
+    private Entry readFile(String url) {
+        if (!disk.contains(url)) return null;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(disk.file(url, 0))));
+            if (in.readInt() != MAGIC) throw new IOException("bad magic");
+            // Guard against a hash collision with another URL
+            if (!url.equals(IoUtils.readString(in))) return null;
+            String etag = IoUtils.readString(in);
+            String lastModified = IoUtils.readString(in);
+            String contentType = IoUtils.readString(in);
+            long expiresAt = in.readLong();
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            disk.touch(url);
+            return new Entry(url, etag, lastModified, contentType, expiresAt, body);
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable cache for " + url + ": " + e.getMessage());
+            IoUtils.closeQuietly(in);
+            in = null;
+            disk.remove(url);
+            return null;
+        } finally {
+            IoUtils.closeQuietly(in);
+        }
+    }
+
+    private void writeFile(Entry entry) {
+        File tmp = disk.tmpFile(entry.url, 0);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            IoUtils.writeString(out, entry.url);
+            IoUtils.writeString(out, entry.etag);
+            IoUtils.writeString(out, entry.lastModified);
+            IoUtils.writeString(out, entry.contentType);
+            out.writeLong(entry.expiresAt);
+            out.writeInt(entry.body.length);
+            out.write(entry.body);
+            out.close();
+            out = null;
+            disk.commit(entry.url);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to cache " + entry.url + ": " + e.getMessage());
+            tmp.delete();
+        } finally {
+            IoUtils.closeQuietly(out);
+        }
+    }
+}
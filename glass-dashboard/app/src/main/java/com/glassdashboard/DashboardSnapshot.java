@@ -0,0 +1,233 @@
+package com.glassdashboard;
+
+import android.util.Log;
+
+import com.glasscommon.io.FileSaver;
+import com.glasscommon.io.IoUtils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The last data shown on every page, saved so the next launch can draw it
+ * at once instead of starting on "Loading...".
+ *
+ * Only what the pages render is kept: headline and date of the stories
+ * shown, symbol and numbers of each quote, and the games of each league,
+ * along with when each source was fetched and goes stale. That makes one
+ * binary file of a few KB, read on the UI thread in onCreate and written
+ * with FileSaver on its background thread.
+ */
+class DashboardSnapshot {
+
+    private static final String TAG = "GlassDashboard";
+    private static final int MAGIC = 0x44534833; // "DSH3"
+
+    static final int KIND_NEWS = 1;
+    static final int KIND_QUOTES = 2;
+    static final int KIND_LEAGUE = 3;
+
+    /** The saved value of one source. */
+    static class Entry {
+        final String name;
+        final int kind;
+        final Object value; // JSONArray for news and quotes, LeagueData for a league
+        final long fetchedAt;
+        final long staleAt;
+
+        Entry(String name, int kind, Object value, long fetchedAt, long staleAt) {
+            this.name = name;
+            this.kind = kind;
+            this.value = value;
+            this.fetchedAt = fetchedAt;
+            this.staleAt = staleAt;
+        }
+    }
+
+    private DashboardSnapshot() {}
+
+    /** Saved entries by source name; empty if there is no snapshot or it is unreadable. */
+    static Map<String, Entry> load(File file) {
+        Map<String, Entry> entries = new HashMap<String, Entry>();
+        if (!file.exists()) return entries;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC) return entries;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int kind = in.readByte();
+                long fetchedAt = in.readLong();
+                long staleAt = in.readLong();
+                Object value;
+                switch (kind) {
+                    case KIND_NEWS: value = readNews(in); break;
+                    case KIND_QUOTES: value = readQuotes(in); break;
+                    case KIND_LEAGUE: value = readLeague(in, name); break;
+                    default: throw new IOException("Unknown kind " + kind);
+                }
+                entries.put(name, new Entry(name, kind, value, fetchedAt, staleAt));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable snapshot: " + e.getMessage());
+            entries.clear();
+            file.delete();
+        } catch (JSONException e) {
+            Log.w(TAG, "Dropping unreadable snapshot: " + e.getMessage());
+            entries.clear();
+            file.delete();
+        } finally {
+            IoUtils.closeQuietly(in);
+        }
+        return entries;
+    }
+
+    /**
+     * Write the entries on the background writer. The values must not be
+     * changed afterwards; sources replace theirs rather than edit them.
+     */
+    static void saveAsync(File file, final List<Entry> entries) {
+        FileSaver.saveAsync(file, new FileSaver.Contents() {
+            @Override
+            public void writeTo(DataOutputStream out) throws IOException {
+                out.writeInt(MAGIC);
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeUTF(entry.name);
+                    out.writeByte(entry.kind);
+                    out.writeLong(entry.fetchedAt);
+                    out.writeLong(entry.staleAt);
+                    switch (entry.kind) {
+                        case KIND_NEWS: writeNews(out, (JSONArray) entry.value); break;
+                        case KIND_QUOTES: writeQuotes(out, (JSONArray) entry.value); break;
+                        case KIND_LEAGUE: writeLeague(out, (LeagueData) entry.value); break;
+                    }
+                }
+            }
+        });
+    }
+
+    // --- News: the stories the page shows ---
+
+    private static void writeNews(DataOutputStream out, JSONArray items) throws IOException {
+        List<JSONObject> shown = objects(items, MainActivity.MAX_NEWS_ITEMS);
+        out.writeInt(shown.size());
+        for (JSONObject item : shown) {
+            writeString(out, item.optString("title", ""));
+            writeString(out, item.optString("date_published", ""));
+        }
+    }
+
+    private static JSONArray readNews(DataInputStream in) throws IOException, JSONException {
+        int count = in.readInt();
+        JSONArray items = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            JSONObject item = new JSONObject();
+            item.put("title", readString(in));
+            item.put("date_published", readString(in));
+            items.put(item);
+        }
+        return items;
+    }
+
+    // --- Quotes ---
+
+    private static void writeQuotes(DataOutputStream out, JSONArray results) throws IOException {
+        List<JSONObject> quotes = objects(results, Integer.MAX_VALUE);
+        out.writeInt(quotes.size());
+        for (JSONObject q : quotes) {
+            writeString(out, q.optString("symbol", "??"));
+            out.writeDouble(q.optDouble("regularMarketPrice", 0));
+            out.writeDouble(q.optDouble("regularMarketChange", 0));
+            out.writeDouble(q.optDouble("regularMarketChangePercent", 0));
+        }
+    }
+
+    private static JSONArray readQuotes(DataInputStream in) throws IOException, JSONException {
+        int count = in.readInt();
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            JSONObject q = new JSONObject();
+            q.put("symbol", readString(in));
+            q.put("regularMarketPrice", in.readDouble());
+            q.put("regularMarketChange", in.readDouble());
+            q.put("regularMarketChangePercent", in.readDouble());
+            results.put(q);
+        }
+        return results;
+    }
+
+    // --- Leagues ---
+
+    private static void writeLeague(DataOutputStream out, LeagueData league) throws IOException {
+        out.writeBoolean(league.live);
+        out.writeLong(league.nextStartMs);
+        out.writeInt(league.games.size());
+        for (GameData game : league.games) {
+            writeString(out, game.awayAbbr);
+            writeString(out, game.homeAbbr);
+            writeString(out, game.awayScore);
+            writeString(out, game.homeScore);
+            out.writeShort(game.statusId);
+            writeString(out, game.state);
+            writeString(out, game.statusText);
+            out.writeLong(game.startMs);
+        }
+    }
+
+    private static LeagueData readLeague(DataInputStream in, String name) throws IOException {
+        LeagueData league = new LeagueData();
+        league.name = name;
+        league.live = in.readBoolean();
+        league.nextStartMs = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            GameData game = new GameData();
+            game.awayAbbr = readString(in);
+            game.homeAbbr = readString(in);
+            game.awayScore = readString(in);
+            game.homeScore = readString(in);
+            game.statusId = in.readShort();
+            game.state = readString(in);
+            game.statusText = readString(in);
+            game.startMs = in.readLong();
+            league.games.add(game);
+        }
+        return league;
+    }
+
+    // --- Encoding ---
+
+    /** The first {@code limit} elements that are objects. */
+    private static List<JSONObject> objects(JSONArray array, int limit) {
+        List<JSONObject> result = new ArrayList<JSONObject>();
+        for (int i = 0; i < array.length() && result.size() < limit; i++) {
+            JSONObject obj = array.optJSONObject(i);
+            if (obj != null) result.add(obj);
+        }
+        return result;
+    }
+
+    // Strings here are short; writeUTF's 64 KB cap never applies
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) out.writeUTF(s);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.glassdashboard;
+
+/**
+ * One game row on the sports page.
+ */
+public class GameData {
+    public String awayAbbr, homeAbbr;
+    public String awayScore, homeScore;
+    public int statusId; // 1=scheduled, 2=in-progress, 3=final; halftime, delays etc. have others
+    public String state; // "pre", "in" or "post"; null if the scoreboard gave none
+    public String statusText;
+    public long startMs; // 0 if the event has no date
+}
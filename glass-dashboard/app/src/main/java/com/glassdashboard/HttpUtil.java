@@ -1,74 +0,0 @@
-package com.glassdashboard;
-
-import android.util.Log;
-
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.security.cert.X509Certificate;
-
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
-
-/**
- * HTTP helper with SSL trust-all workaround for Glass's outdated CA certs.
- */
-public class HttpUtil {
-
-    private static final String TAG = "HttpUtil";
-
-    private static SSLContext sslContext;
-
-    static {
-        try {
-            TrustManager[] trustAll = new TrustManager[] {
-                new X509TrustManager() {
-                    public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
-                    public void checkClientTrusted(X509Certificate[] certs, String type) {}
-                    public void checkServerTrusted(X509Certificate[] certs, String type) {}
-                }
-            };
-            sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(null, trustAll, new java.security.SecureRandom());
-        } catch (Exception e) {
-            Log.e(TAG, "SSL init failed", e);
-        }
-    }
-
-    /**
-     * Fetch URL content as String. Blocks — call from background thread.
-     */
-    public static String fetchUrl(String urlStr) throws Exception {
-        URL url = new URL(urlStr);
-        HttpURLConnection conn;
-
-        if (urlStr.startsWith("https")) {
-            HttpsURLConnection httpsConn = (HttpsURLConnection) url.openConnection();
-            httpsConn.setSSLSocketFactory(sslContext.getSocketFactory());
-            conn = httpsConn;
-        } else {
-            conn = (HttpURLConnection) url.openConnection();
-        }
-
-        conn.setConnectTimeout(10000);
-        conn.setReadTimeout(10000);
-        conn.setRequestProperty("User-Agent", "Mozilla/5.0");
-
-        try {
-            BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(conn.getInputStream()));
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line);
-            }
-            reader.close();
-            return sb.toString();
-        } finally {
-            conn.disconnect();
-        }
-    }
-}
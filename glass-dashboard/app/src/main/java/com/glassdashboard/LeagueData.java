@@ -0,0 +1,16 @@
+package com.glassdashboard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Games of one league from an ESPN scoreboard.
+ */
+public class LeagueData {
+    public String name;
+    public List<GameData> games = new ArrayList<GameData>();
+
+    // Over every event on the scoreboard, not just the games kept
+    public boolean live;
+    public long nextStartMs; // earliest start of a game not yet begun, 0 if none
+}
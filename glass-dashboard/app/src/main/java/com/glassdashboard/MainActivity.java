@@ -16,19 +16,33 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.ViewFlipper;
 
+import com.glasscommon.net.Http;
+import com.glasscommon.net.Request;
+import com.glasscommon.net.Response;
+
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Map;
 
 public class MainActivity extends Activity {
 
     private static final String TAG = "GlassDashboard";
-    private static final long REFRESH_FAST_MS = 5 * 60 * 1000;   // 5 min for sports/stocks
+    private static final long REFRESH_FAST_MS = 5 * 60 * 1000;   // 5 min for live sports/stocks
     private static final long REFRESH_SLOW_MS = 15 * 60 * 1000;  // 15 min for news
+    // A league with nothing live or scheduled, e.g. out of season or done for the day
+    private static final long REFRESH_IDLE_MS = 60 * 60 * 1000;
+
+    private static final int PAGE_NEWS = 0;
+    private static final int PAGE_SPORTS = 1;
+    private static final int PAGE_STOCKS = 2;
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    // Gathers the pages updated by one refresh into a single write
+    private static final long SNAPSHOT_DELAY_MS = 2000;
 
     private static final String PREFS_NAME = "dashboard_prefs";
     private static final String PREF_SYMBOLS = "symbols";
@@ -41,6 +55,8 @@ public class MainActivity extends Activity {
         "https://site.api.espn.com/apis/site/v2/sports/hockey/nhl/scoreboard"
     };
     private static final String[] LEAGUE_NAMES = { "NFL", "NBA", "MLB", "NHL" };
+    private static final int MAX_GAMES_PER_LEAGUE = 4;
+    static final int MAX_NEWS_ITEMS = 8;
 
     private static final String NEWS_URL =
             "https://www.toptal.com/developers/feed2json/convert?url=https://news.google.com/rss?hl=en-US";
@@ -60,27 +76,29 @@ public class MainActivity extends Activity {
     private PowerManager.WakeLock wakeLock;
     private String symbols;
 
-    private float touchDownX;
-    private float touchDownY;
-    private long touchDownTime;
+    private RefreshScheduler scheduler;
+    private RefreshScheduler.Source<JSONArray> newsSource;
+    private RefreshScheduler.Source<JSONArray> stocksSource;
+    private final List<LeagueSource> leagueSources = new ArrayList<LeagueSource>();
+    private boolean snapshotPending;
 
-    // Auto-refresh runnables
-    private final Runnable refreshSportsStocks = new Runnable() {
+    private final Runnable saveSnapshot = new Runnable() {
         @Override
         public void run() {
-            fetchSports();
-            fetchStocks();
-            handler.postDelayed(this, REFRESH_FAST_MS);
+            snapshotPending = false;
+            List<DashboardSnapshot.Entry> entries = new ArrayList<DashboardSnapshot.Entry>();
+            addEntry(entries, newsSource, DashboardSnapshot.KIND_NEWS);
+            for (LeagueSource source : leagueSources) {
+                addEntry(entries, source, DashboardSnapshot.KIND_LEAGUE);
+            }
+            addEntry(entries, stocksSource, DashboardSnapshot.KIND_QUOTES);
+            DashboardSnapshot.saveAsync(new File(getFilesDir(), SNAPSHOT_FILE), entries);
         }
     };
 
-    private final Runnable refreshNews = new Runnable() {
-        @Override
-        public void run() {
-            fetchNews();
-            handler.postDelayed(this, REFRESH_SLOW_MS);
-        }
-    };
+    private float touchDownX;
+    private float touchDownY;
+    private long touchDownTime;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -98,200 +116,165 @@ public class MainActivity extends Activity {
         dotContainer = findViewById(R.id.dotContainer);
 
         handler = new Handler(Looper.getMainLooper());
+        Http.init(this);
 
         // Load symbols from intent or prefs
+        String savedSymbols = getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
+                .getString(PREF_SYMBOLS, DEFAULT_SYMBOLS);
         String intentSymbols = getIntent().getStringExtra("symbols");
         if (intentSymbols != null && !intentSymbols.isEmpty()) {
             symbols = intentSymbols.toUpperCase().replaceAll("\\s+", "");
             getSharedPreferences(PREFS_NAME, MODE_PRIVATE).edit()
                     .putString(PREF_SYMBOLS, symbols).apply();
         } else {
-            symbols = getSharedPreferences(PREFS_NAME, MODE_PRIVATE)
-                    .getString(PREF_SYMBOLS, DEFAULT_SYMBOLS);
+            symbols = savedSymbols;
         }
 
         // WakeLock
         PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
         wakeLock = pm.newWakeLock(PowerManager.SCREEN_DIM_WAKE_LOCK, TAG + ":wake");
 
-        // Start all fetches
-        fetchSports();
-        fetchNews();
-        fetchStocks();
-
-        // Schedule auto-refresh
-        handler.postDelayed(refreshSportsStocks, REFRESH_FAST_MS);
-        handler.postDelayed(refreshNews, REFRESH_SLOW_MS);
+        createSources();
+        // Last run's pages, drawn before any refresh starts
+        restoreSnapshot(symbols.equals(savedSymbols));
     }
 
     @Override
     protected void onResume() {
         super.onResume();
         wakeLock.acquire();
+        // Refreshes whatever went stale while paused, visible page first
+        scheduler.start();
     }
 
     @Override
     protected void onPause() {
         super.onPause();
         if (wakeLock.isHeld()) wakeLock.release();
-    }
-
-    @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        handler.removeCallbacks(refreshSportsStocks);
-        handler.removeCallbacks(refreshNews);
+        scheduler.stop();
+        if (snapshotPending) {
+            handler.removeCallbacks(saveSnapshot);
+            saveSnapshot.run();
+        }
+        Http.metrics().log();
     }
 
     // ========== DATA FETCHING ==========
 
-    private void fetchSports() {
-        new Thread(new Runnable() {
+    private void createSources() {
+        scheduler = new RefreshScheduler(handler, 3, new RefreshScheduler.Listener() {
             @Override
-            public void run() {
-                final List<LeagueData> leagues = new ArrayList<LeagueData>();
-                final CountDownLatch latch = new CountDownLatch(ESPN_URLS.length);
-
-                for (int i = 0; i < ESPN_URLS.length; i++) {
-                    final int idx = i;
-                    new Thread(new Runnable() {
-                        @Override
-                        public void run() {
-                            try {
-                                String json = HttpUtil.fetchUrl(ESPN_URLS[idx]);
-                                JSONObject obj = new JSONObject(json);
-                                JSONArray events = obj.getJSONArray("events");
-                                if (events.length() > 0) {
-                                    LeagueData ld = new LeagueData();
-                                    ld.name = LEAGUE_NAMES[idx];
-                                    ld.games = new ArrayList<GameData>();
-                                    int limit = Math.min(events.length(), 4);
-                                    for (int g = 0; g < limit; g++) {
-                                        JSONObject event = events.getJSONObject(g);
-                                        JSONArray competitions = event.getJSONArray("competitions");
-                                        JSONObject comp = competitions.getJSONObject(0);
-                                        JSONArray competitors = comp.getJSONArray("competitors");
-
-                                        JSONObject home = null, away = null;
-                                        for (int c = 0; c < competitors.length(); c++) {
-                                            JSONObject team = competitors.getJSONObject(c);
-                                            if ("home".equals(team.getString("homeAway"))) {
-                                                home = team;
-                                            } else {
-                                                away = team;
-                                            }
-                                        }
-
-                                        if (home != null && away != null) {
-                                            GameData gd = new GameData();
-                                            gd.awayAbbr = away.getJSONObject("team").getString("abbreviation");
-                                            gd.homeAbbr = home.getJSONObject("team").getString("abbreviation");
-                                            gd.awayScore = away.optString("score", "0");
-                                            gd.homeScore = home.optString("score", "0");
-
-                                            // Status
-                                            JSONObject status = comp.getJSONObject("status");
-                                            JSONObject statusType = status.getJSONObject("type");
-                                            gd.statusId = statusType.optInt("id", 1);
-                                            gd.statusText = statusType.optString("shortDetail", "");
-                                            gd.games = ld.games; // not used
-                                            ld.games.add(gd);
-                                        }
-                                    }
-                                    synchronized (leagues) {
-                                        leagues.add(ld);
-                                    }
-                                }
-                            } catch (Exception e) {
-                                Log.e(TAG, "ESPN fetch failed for " + LEAGUE_NAMES[idx], e);
-                            } finally {
-                                latch.countDown();
-                            }
-                        }
-                    }).start();
-                }
+            public void onPageUpdated(int page) {
+                renderPage(page);
+                snapshotPending = true;
+                handler.removeCallbacks(saveSnapshot);
+                handler.postDelayed(saveSnapshot, SNAPSHOT_DELAY_MS);
+            }
 
-                try {
-                    latch.await();
-                } catch (InterruptedException e) {
-                    Log.e(TAG, "Latch interrupted", e);
-                }
+            @Override
+            public void onSourceFailed(RefreshScheduler.Source<?> source, Exception e) {
+                showError(source.getName() + ": " + e.getMessage());
+                // Bring the page's "Updated ... ago" up to date
+                if (source.value() != null) renderPage(source.getPage());
+            }
+        });
 
-                // Sort leagues in standard order
-                final List<LeagueData> sorted = new ArrayList<LeagueData>();
-                for (String name : LEAGUE_NAMES) {
-                    for (LeagueData ld : leagues) {
-                        if (name.equals(ld.name)) {
-                            sorted.add(ld);
-                            break;
-                        }
-                    }
-                }
+        newsSource = new RefreshScheduler.Source<JSONArray>("News", PAGE_NEWS) {
+            @Override
+            protected JSONArray fetch() throws Exception {
+                return new JSONObject(Http.fetchString(NEWS_URL)).getJSONArray("items");
+            }
 
-                handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        renderSports(sorted);
-                    }
-                });
+            @Override
+            protected long expiresAt(JSONArray items, long now) {
+                return now + REFRESH_SLOW_MS;
             }
-        }).start();
-    }
+        };
+        scheduler.add(newsSource);
 
-    private void fetchNews() {
-        new Thread(new Runnable() {
+        for (int i = 0; i < ESPN_URLS.length; i++) {
+            LeagueSource source = new LeagueSource(ESPN_URLS[i], LEAGUE_NAMES[i]);
+            leagueSources.add(source);
+            scheduler.add(source);
+        }
+
+        stocksSource = new RefreshScheduler.Source<JSONArray>("Stocks", PAGE_STOCKS) {
             @Override
-            public void run() {
-                try {
-                    String json = HttpUtil.fetchUrl(NEWS_URL);
-                    JSONObject obj = new JSONObject(json);
-                    final JSONArray items = obj.getJSONArray("items");
-                    handler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            renderNews(items);
-                        }
-                    });
-                } catch (final Exception e) {
-                    Log.e(TAG, "News fetch failed", e);
-                    handler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            showError("News: " + e.getMessage());
-                        }
-                    });
-                }
+            protected JSONArray fetch() throws Exception {
+                JSONObject obj = new JSONObject(Http.fetchString(YAHOO_BASE + symbols));
+                return obj.getJSONObject("quoteResponse").getJSONArray("result");
             }
-        }).start();
-    }
 
-    private void fetchStocks() {
-        new Thread(new Runnable() {
             @Override
-            public void run() {
-                try {
-                    String url = YAHOO_BASE + symbols;
-                    String json = HttpUtil.fetchUrl(url);
-                    JSONObject obj = new JSONObject(json);
-                    final JSONArray results = obj.getJSONObject("quoteResponse")
-                            .getJSONArray("result");
-                    handler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            renderStocks(results);
-                        }
-                    });
-                } catch (final Exception e) {
-                    Log.e(TAG, "Stocks fetch failed", e);
-                    handler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            showError("Stocks: " + e.getMessage());
-                        }
-                    });
-                }
+            protected long expiresAt(JSONArray results, long now) {
+                return now + REFRESH_FAST_MS;
             }
-        }).start();
+        };
+        scheduler.add(stocksSource);
+    }
+
+    private void restoreSnapshot(boolean sameSymbols) {
+        Map<String, DashboardSnapshot.Entry> entries =
+                DashboardSnapshot.load(new File(getFilesDir(), SNAPSHOT_FILE));
+        if (entries.isEmpty()) return;
+        restore(newsSource, entries, JSONArray.class);
+        for (LeagueSource source : leagueSources) {
+            restore(source, entries, LeagueData.class);
+        }
+        // Quotes for the old watchlist would be shown as the new one's
+        if (sameSymbols) restore(stocksSource, entries, JSONArray.class);
+        for (int page = PAGE_NEWS; page <= PAGE_STOCKS; page++) {
+            renderPage(page);
+        }
+    }
+
+    private static <T> void restore(RefreshScheduler.Source<T> source,
+                                    Map<String, DashboardSnapshot.Entry> entries, Class<T> type) {
+        DashboardSnapshot.Entry entry = entries.get(source.getName());
+        if (entry != null && type.isInstance(entry.value)) {
+            source.restore(type.cast(entry.value), entry.fetchedAt, entry.staleAt);
+        }
+    }
+
+    private static void addEntry(List<DashboardSnapshot.Entry> entries, RefreshScheduler.Source<?> source,
+                                 int kind) {
+        if (source.value() == null) return;
+        entries.add(new DashboardSnapshot.Entry(source.getName(), kind, source.value(),
+                source.fetchedAt(), source.staleAt()));
+    }
+
+    /**
+     * One league's scoreboard. Refetched every few minutes while a game is
+     * on; otherwise left alone until its next game starts.
+     */
+    private static class LeagueSource extends RefreshScheduler.Source<LeagueData> {
+        private final String url;
+
+        LeagueSource(String url, String league) {
+            super(league, PAGE_SPORTS);
+            this.url = url;
+        }
+
+        @Override
+        protected LeagueData fetch() throws Exception {
+            // Not through the response cache: copying it there would buffer
+            // the whole scoreboard, which is what streaming avoids
+            Response response = Http.execute(new Request(url).noCache());
+            try {
+                return ScoreboardParser.parse(response.body(), getName(), MAX_GAMES_PER_LEAGUE);
+            } finally {
+                response.close();
+            }
+        }
+
+        @Override
+        protected long expiresAt(LeagueData league, long now) {
+            if (league.live) return now + REFRESH_FAST_MS;
+            if (league.nextStartMs > now) return league.nextStartMs;
+            // A game past its start but not yet on is late; check again soon
+            if (league.nextStartMs > 0) return now + REFRESH_FAST_MS;
+            return now + REFRESH_IDLE_MS;
+        }
     }
 
     // ========== RENDERING ==========
@@ -302,6 +285,62 @@ public class MainActivity extends Activity {
         dotContainer.setVisibility(View.VISIBLE);
     }
 
+    private void renderPage(int page) {
+        List<RefreshScheduler.Source<?>> sources = sourcesOn(page);
+        long now = System.currentTimeMillis();
+        long oldest = 0;
+        boolean stale = false;
+        for (RefreshScheduler.Source<?> source : sources) {
+            if (source.value() == null) continue;
+            if (oldest == 0 || source.fetchedAt() < oldest) oldest = source.fetchedAt();
+            if (source.isStale(now)) stale = true;
+        }
+        if (oldest == 0) return; // nothing loaded yet
+
+        LinearLayout container;
+        switch (page) {
+            case PAGE_NEWS:
+                renderNews(newsSource.value());
+                container = newsContainer;
+                break;
+            case PAGE_SPORTS:
+                // Leagues in standard order, those without games left out
+                List<LeagueData> leagues = new ArrayList<LeagueData>();
+                for (LeagueSource source : leagueSources) {
+                    LeagueData league = source.value();
+                    if (league != null && !league.games.isEmpty()) leagues.add(league);
+                }
+                renderSports(leagues);
+                container = sportsContainer;
+                break;
+            default:
+                renderStocks(stocksSource.value());
+                container = stocksContainer;
+                break;
+        }
+
+        // Data past its refresh time, from a snapshot or a failed refresh
+        if (stale) {
+            TextView age = new TextView(this);
+            age.setText("Updated " + ago(oldest));
+            age.setTextColor(0xFFFFB74D);
+            age.setTextSize(13);
+            age.setTypeface(Typeface.create("sans-serif-light", Typeface.NORMAL));
+            age.setPadding(0, 0, 0, dp(4));
+            container.addView(age, 0);
+        }
+    }
+
+    private List<RefreshScheduler.Source<?>> sourcesOn(int page) {
+        List<RefreshScheduler.Source<?>> sources = new ArrayList<RefreshScheduler.Source<?>>();
+        switch (page) {
+            case PAGE_NEWS: sources.add(newsSource); break;
+            case PAGE_SPORTS: sources.addAll(leagueSources); break;
+            case PAGE_STOCKS: sources.add(stocksSource); break;
+        }
+        return sources;
+    }
+
     private void showError(String msg) {
         if (viewFlipper.getVisibility() != View.VISIBLE) {
             statusText.setText(msg);
@@ -390,7 +429,7 @@ public class MainActivity extends Activity {
         header.setPadding(0, 0, 0, dp(8));
         newsContainer.addView(header);
 
-        int limit = Math.min(items.length(), 8);
+        int limit = Math.min(items.length(), MAX_NEWS_ITEMS);
         for (int i = 0; i < limit; i++) {
             try {
                 JSONObject item = items.getJSONObject(i);
@@ -500,20 +539,17 @@ public class MainActivity extends Activity {
     private void showPage(int page) {
         viewFlipper.setDisplayedChild(page);
         updateDots(page);
+        scheduler.setVisiblePage(page);
     }
 
     private void nextPage() {
         int current = viewFlipper.getDisplayedChild();
-        int next = (current + 1) % viewFlipper.getChildCount();
-        viewFlipper.setDisplayedChild(next);
-        updateDots(next);
+        showPage((current + 1) % viewFlipper.getChildCount());
     }
 
     private void prevPage() {
         int current = viewFlipper.getDisplayedChild();
-        int prev = (current - 1 + viewFlipper.getChildCount()) % viewFlipper.getChildCount();
-        viewFlipper.setDisplayedChild(prev);
-        updateDots(prev);
+        showPage((current - 1 + viewFlipper.getChildCount()) % viewFlipper.getChildCount());
     }
 
     private void updateDots(int activePage) {
@@ -523,12 +559,7 @@ public class MainActivity extends Activity {
     }
 
     private void refreshCurrentPage() {
-        int page = viewFlipper.getDisplayedChild();
-        switch (page) {
-            case 0: fetchNews(); break;
-            case 1: fetchSports(); break;
-            case 2: fetchStocks(); break;
-        }
+        scheduler.refreshVisiblePage();
     }
 
     // ========== INPUT HANDLING ==========
@@ -618,21 +649,23 @@ public class MainActivity extends Activity {
             // ISO 8601: "2024-01-15T10:30:00+00:00" or "2024-01-15T10:30:00Z"
             String clean = isoDate.replace("Z", "+00:00");
             // Simple parse — extract date/time parts
-            long pubMs = parseIso8601(clean);
-            long nowMs = System.currentTimeMillis();
-            long diffMin = (nowMs - pubMs) / (60 * 1000);
-
-            if (diffMin < 1) return "just now";
-            if (diffMin < 60) return diffMin + " min ago";
-            long diffHr = diffMin / 60;
-            if (diffHr < 24) return diffHr + (diffHr == 1 ? " hour ago" : " hours ago");
-            long diffDay = diffHr / 24;
-            return diffDay + (diffDay == 1 ? " day ago" : " days ago");
+            return ago(parseIso8601(clean));
         } catch (Exception e) {
             return "";
         }
     }
 
+    private static String ago(long timeMs) {
+        long diffMin = (System.currentTimeMillis() - timeMs) / (60 * 1000);
+
+        if (diffMin < 1) return "just now";
+        if (diffMin < 60) return diffMin + " min ago";
+        long diffHr = diffMin / 60;
+        if (diffHr < 24) return diffHr + (diffHr == 1 ? " hour ago" : " hours ago");
+        long diffDay = diffHr / 24;
+        return diffDay + (diffDay == 1 ? " day ago" : " days ago");
+    }
+
     private static long parseIso8601(String s) throws Exception {
         // Parse "2024-01-15T10:30:00+00:00" manually for API 19 compat
         // Strip timezone for SimpleDateFormat
@@ -661,19 +694,4 @@ public class MainActivity extends Activity {
 
         return sdf.parse(datePart).getTime();
     }
-
-    // ========== DATA CLASSES ==========
-
-    private static class LeagueData {
-        String name;
-        List<GameData> games;
-    }
-
-    private static class GameData {
-        String awayAbbr, homeAbbr;
-        String awayScore, homeScore;
-        int statusId; // 1=scheduled, 2=in-progress, 3=final
-        String statusText;
-        List<GameData> games; // unused field for sync
-    }
 }
@@ -0,0 +1,254 @@
+package com.glassdashboard;
+
+import android.os.Handler;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Refreshes the dashboard's data sources, the visible page first.
+ *
+ * Each {@link Source} keeps its last value and when that value goes stale,
+ * which the source decides per fetch (a league with no game on decides it
+ * is good until its next game starts). Only the visible page's stale
+ * sources are refreshed; hidden pages are loaded once so they have
+ * something to show and then wait until they are swiped to. Fetches run
+ * on one small pool shared by every source, queued in order, so the
+ * visible page's are taken first.
+ *
+ * Everything but {@link Source#fetch()} runs on the handler's thread.
+ */
+public class RefreshScheduler {
+
+    private static final String TAG = "GlassDashboard";
+
+    // Fetches at once; Glass has two cores and one slow radio
+    private static final int FETCH_THREADS = 3;
+    // Wait before retrying a source whose fetch failed
+    private static final long RETRY_MS = 60 * 1000;
+    // Shortest time a value counts as fresh, so a source can't refetch in a loop
+    private static final long MIN_TTL_MS = 30 * 1000;
+
+    private static final ThreadPoolExecutor fetchExecutor = new ThreadPoolExecutor(
+            FETCH_THREADS, FETCH_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), namedThreads("DashFetch"));
+
+    static {
+        // Let the pool drain between refreshes instead of idling for minutes
+        fetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /** Receives results on the handler's thread. */
+    public interface Listener {
+        /** Sources of {@code page} got new values and none of its fetches are still running. */
+        void onPageUpdated(int page);
+        void onSourceFailed(Source<?> source, Exception e);
+    }
+
+    /** One fetched value on a page and how long it stays fresh. */
+    public abstract static class Source<T> {
+        final String name;
+        final int page;
+
+        private T value;
+        private long fetchedAt;
+        private long expiresAt; // 0 until the first fetch completes
+        private boolean inFlight;
+
+        protected Source(String name, int page) {
+            this.name = name;
+            this.page = page;
+        }
+
+        /** Fetch a new value. Runs on a pool thread. */
+        protected abstract T fetch() throws Exception;
+
+        /** Wall clock time at which {@code value}, fetched at {@code now}, goes stale. */
+        protected abstract long expiresAt(T value, long now);
+
+        public String getName() {
+            return name;
+        }
+
+        public int getPage() {
+            return page;
+        }
+
+        /** The last value fetched, or null. */
+        public T value() {
+            return value;
+        }
+
+        /** When {@link #value()} was fetched, 0 if never. */
+        public long fetchedAt() {
+            return fetchedAt;
+        }
+
+        /** When {@link #value()} goes stale, 0 if never fetched. */
+        public long staleAt() {
+            return expiresAt;
+        }
+
+        public boolean isStale(long now) {
+            return now >= expiresAt;
+        }
+
+        /**
+         * Seed the value saved by an earlier run. It counts as fetched, so a
+         * hidden page restored this way is not loaded again until shown.
+         */
+        public void restore(T value, long fetchedAt, long staleAt) {
+            this.value = value;
+            this.fetchedAt = fetchedAt;
+            this.expiresAt = staleAt;
+        }
+    }
+
+    private final Handler handler;
+    private final Listener listener;
+    private final List<Source<?>> sources = new ArrayList<Source<?>>();
+    private final boolean[] pageChanged;
+    private int visiblePage;
+    private boolean running;
+
+    private final Runnable tick = new Runnable() {
+        @Override
+        public void run() {
+            schedule(false);
+        }
+    };
+
+    public RefreshScheduler(Handler handler, int pages, Listener listener) {
+        this.handler = handler;
+        this.listener = listener;
+        this.pageChanged = new boolean[pages];
+    }
+
+    public void add(Source<?> source) {
+        sources.add(source);
+    }
+
+    /** Start refreshing, from stale sources of the visible page. */
+    public void start() {
+        running = true;
+        schedule(false);
+    }
+
+    /** Stop scheduling. Fetches already running still complete and notify. */
+    public void stop() {
+        running = false;
+        handler.removeCallbacks(tick);
+    }
+
+    public void setVisiblePage(int page) {
+        if (page == visiblePage) return;
+        visiblePage = page;
+        if (running) schedule(false);
+    }
+
+    /** Refetch every source of the visible page, fresh or not. */
+    public void refreshVisiblePage() {
+        if (running) schedule(true);
+    }
+
+    private void schedule(boolean force) {
+        handler.removeCallbacks(tick);
+        if (!running) return;
+        long now = System.currentTimeMillis();
+
+        long next = Long.MAX_VALUE;
+        for (Source<?> source : sources) {
+            if (source.page != visiblePage) continue;
+            if (force || source.isStale(now)) {
+                submit(source);
+            } else {
+                next = Math.min(next, source.expiresAt);
+            }
+        }
+        // Hidden pages are loaded once, after the visible one
+        for (Source<?> source : sources) {
+            if (source.page != visiblePage && source.fetchedAt == 0 && source.expiresAt == 0) {
+                submit(source);
+            }
+        }
+
+        // In-flight sources reschedule when they complete
+        if (next != Long.MAX_VALUE) {
+            handler.postDelayed(tick, Math.max(0, next - now));
+        }
+    }
+
+    private <T> void submit(final Source<T> source) {
+        if (source.inFlight) return;
+        source.inFlight = true;
+        fetchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                T value = null;
+                Exception error = null;
+                try {
+                    value = source.fetch();
+                } catch (Exception e) {
+                    error = e;
+                }
+                final T result = value;
+                final Exception failure = error;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        complete(source, result, failure);
+                    }
+                });
+            }
+        });
+    }
+
+    private <T> void complete(Source<T> source, T value, Exception error) {
+        long now = System.currentTimeMillis();
+        source.inFlight = false;
+        if (error == null) {
+            source.value = value;
+            source.fetchedAt = now;
+            source.expiresAt = Math.max(source.expiresAt(value, now), now + MIN_TTL_MS);
+            pageChanged[source.page] = true;
+        } else {
+            Log.e(TAG, source.name + " fetch failed", error);
+            source.expiresAt = now + RETRY_MS;
+            listener.onSourceFailed(source, error);
+        }
+
+        if (pageChanged[source.page] && !isInFlight(source.page)) {
+            pageChanged[source.page] = false;
+            listener.onPageUpdated(source.page);
+        }
+        if (running && source.page == visiblePage && !isInFlight(visiblePage)) {
+            schedule(false);
+        }
+    }
+
+    private boolean isInFlight(int page) {
+        for (Source<?> source : sources) {
+            if (source.page == page && source.inFlight) return true;
+        }
+        return false;
+    }
+
+    private static ThreadFactory namedThreads(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+}
@@ -0,0 +1,244 @@
+package com.glassdashboard;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads an ESPN scoreboard response as a stream with JsonReader.
+ *
+ * A scoreboard is hundreds of KB per league, nearly all of it venues,
+ * logos, links, leaders and headlines. Only the team abbreviations, scores
+ * and status of each game are read; every other subtree is skipped with
+ * skipValue(), which never builds its strings, so memory use is the few
+ * GameData objects plus the reader's buffer however large the payload.
+ *
+ * Status and start time are read for every event, including those past
+ * the games kept, so the league can say whether anything is live and when
+ * the next game starts. Both go by the status state ("pre", "in", "post")
+ * rather than its id, which differs for halftime, delays and the like.
+ */
+public class ScoreboardParser {
+
+    /**
+     * Parse a scoreboard, keeping the first {@code maxGames} games. The rest
+     * of the stream is read through so the connection can be reused.
+     */
+    public static LeagueData parse(InputStream in, String league, int maxGames) throws IOException {
+        LeagueData ld = new LeagueData();
+        ld.name = league;
+
+        JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("events".equals(reader.nextName())) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        GameData game = readEvent(reader);
+                        if (game == null) continue;
+                        if (isLive(game)) {
+                            ld.live = true;
+                        } else if (isPending(game) && game.startMs > 0
+                                && (ld.nextStartMs == 0 || game.startMs < ld.nextStartMs)) {
+                            ld.nextStartMs = game.startMs;
+                        }
+                        if (ld.games.size() < maxGames) ld.games.add(game);
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } finally {
+            reader.close();
+        }
+        return ld;
+    }
+
+    /**
+     * True while a game is on, halftime, breaks and delays included. Those
+     * have status ids of their own, but all share the state "in".
+     */
+    static boolean isLive(GameData game) {
+        if (game.state != null) return game.state.equals("in");
+        return game.statusId == 2;
+    }
+
+    /** True for a game not yet begun, whatever its id says about why. */
+    static boolean isPending(GameData game) {
+        if (game.state != null) return game.state.equals("pre");
+        return game.statusId == 1;
+    }
+
+    /** One element of "events"; null if it lacks two teams. */
+    private static GameData readEvent(JsonReader reader) throws IOException {
+        GameData game = null;
+        long startMs = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("competitions".equals(name) && game == null) {
+                reader.beginArray();
+                // The first competition is the game itself
+                if (reader.hasNext()) game = readCompetition(reader);
+                while (reader.hasNext()) reader.skipValue();
+                reader.endArray();
+            } else if ("date".equals(name)) {
+                startMs = parseDate(nextString(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (game != null) game.startMs = startMs;
+        return game;
+    }
+
+    private static GameData readCompetition(JsonReader reader) throws IOException {
+        GameData game = new GameData();
+        game.awayScore = "0";
+        game.homeScore = "0";
+        game.statusId = 1;
+        game.statusText = "";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("competitors".equals(name)) {
+                reader.beginArray();
+                while (reader.hasNext()) readCompetitor(reader, game);
+                reader.endArray();
+            } else if ("status".equals(name)) {
+                readStatus(reader, game);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return game.homeAbbr != null && game.awayAbbr != null ? game : null;
+    }
+
+    private static void readCompetitor(JsonReader reader, GameData game) throws IOException {
+        String homeAway = null;
+        String abbr = null;
+        String score = "0";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("homeAway".equals(name)) {
+                homeAway = nextString(reader);
+            } else if ("score".equals(name)) {
+                String s = nextString(reader);
+                if (s != null) score = s;
+            } else if ("team".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("abbreviation".equals(reader.nextName())) {
+                        abbr = nextString(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if ("home".equals(homeAway)) {
+            game.homeAbbr = abbr;
+            game.homeScore = score;
+        } else {
+            game.awayAbbr = abbr;
+            game.awayScore = score;
+        }
+    }
+
+    private static void readStatus(JsonReader reader, GameData game) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("type".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if ("id".equals(name)) {
+                        game.statusId = parseInt(nextString(reader), 1);
+                    } else if ("state".equals(name)) {
+                        game.state = nextString(reader);
+                    } else if ("shortDetail".equals(name)) {
+                        String s = nextString(reader);
+                        if (s != null) game.statusText = s;
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /** A string or number as text; null for null, other types skipped. */
+    private static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        return null;
+    }
+
+    /**
+     * ESPN's UTC event time, "2024-10-13T17:00Z" or with seconds, as epoch
+     * ms; 0 if it is missing or in another form.
+     */
+    static long parseDate(String s) {
+        if (s == null || s.length() < 17 || s.charAt(4) != '-' || s.charAt(7) != '-'
+                || s.charAt(10) != 'T' || s.charAt(13) != ':') {
+            return 0;
+        }
+        int year = digits(s, 0, 4), month = digits(s, 5, 2), day = digits(s, 8, 2);
+        int hour = digits(s, 11, 2), minute = digits(s, 14, 2);
+        int second = s.length() >= 20 && s.charAt(16) == ':' ? digits(s, 17, 2) : 0;
+        if (year < 0 || month < 1 || month > 12 || day < 1 || hour < 0 || minute < 0 || second < 0) {
+            return 0;
+        }
+        // Days since the epoch of a proleptic Gregorian date
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long days = era * 146097L + dayOfEra - 719468;
+        return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L;
+    }
+
+    private static int digits(String s, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int parseInt(String s, int fallback) {
+        if (s == null) return fallback;
+        try {
+            return (int) Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+}
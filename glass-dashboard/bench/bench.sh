@@ -0,0 +1,20 @@
+#!/bin/bash
+# Build and run the scoreboard parser benchmark on the desktop JVM
+# Usage: ./bench.sh [--dir DIR] [--games N] [--no-heap-search]
+#   --dir takes saved ESPN scoreboard responses, one file per league
+
+set -e
+
+DIR="$(cd "$(dirname "$0")" && pwd)"
+SRC="$DIR/../app/src/main/java/com/glassdashboard"
+OUT="$DIR/build"
+
+mkdir -p "$OUT"
+# shim/ stands in for android.util.Log, android.util.JsonReader and org.json
+javac -encoding UTF-8 -d "$OUT" -sourcepath "$DIR/shim" \
+    "$SRC/GameData.java" \
+    "$SRC/LeagueData.java" \
+    "$SRC/ScoreboardParser.java" \
+    "$DIR"/src/com/glassdashboard/bench/*.java
+
+exec java -cp "$OUT" com.glassdashboard.bench.ScoreboardBench "$@"
@@ -0,0 +1,349 @@
+package android.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Desktop stand-in for android.util.JsonReader with the same API and the
+ * same costs that matter here: a fixed 1 KB char buffer, strings created
+ * straight from the buffer when they hold no escapes, and skipValue()
+ * consuming values without building their strings. Strict JSON only.
+ */
+public final class JsonReader implements Closeable {
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+    private static final int CLOSED = 7;
+
+    private final Reader in;
+    private final char[] buffer = new char[1024];
+    private int pos;
+    private int limit;
+
+    private int[] stack = new int[32];
+    private int stackSize;
+
+    private JsonToken token;
+    private String value;
+    // Set by skipValue(): scan strings and literals without building them
+    private boolean skipping;
+
+    public JsonReader(Reader in) {
+        this.in = in;
+        push(EMPTY_DOCUMENT);
+    }
+
+    public void beginArray() throws IOException {
+        expect(JsonToken.BEGIN_ARRAY);
+    }
+
+    public void endArray() throws IOException {
+        expect(JsonToken.END_ARRAY);
+    }
+
+    public void beginObject() throws IOException {
+        expect(JsonToken.BEGIN_OBJECT);
+    }
+
+    public void endObject() throws IOException {
+        expect(JsonToken.END_OBJECT);
+    }
+
+    public boolean hasNext() throws IOException {
+        JsonToken t = peek();
+        return t != JsonToken.END_OBJECT && t != JsonToken.END_ARRAY && t != JsonToken.END_DOCUMENT;
+    }
+
+    public String nextName() throws IOException {
+        if (peek() != JsonToken.NAME) throw new IllegalStateException("Expected a name but was " + peek());
+        String result = value;
+        advance();
+        return result;
+    }
+
+    public String nextString() throws IOException {
+        JsonToken t = peek();
+        if (t != JsonToken.STRING && t != JsonToken.NUMBER) {
+            throw new IllegalStateException("Expected a string but was " + t);
+        }
+        String result = value;
+        advance();
+        return result;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        if (peek() != JsonToken.BOOLEAN) throw new IllegalStateException("Expected a boolean but was " + peek());
+        boolean result = "true".equals(value);
+        advance();
+        return result;
+    }
+
+    public void nextNull() throws IOException {
+        if (peek() != JsonToken.NULL) throw new IllegalStateException("Expected null but was " + peek());
+        advance();
+    }
+
+    public double nextDouble() throws IOException {
+        return Double.parseDouble(nextString());
+    }
+
+    public long nextLong() throws IOException {
+        String s = nextString();
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            return (long) Double.parseDouble(s);
+        }
+    }
+
+    public int nextInt() throws IOException {
+        return (int) nextLong();
+    }
+
+    /** Skip the next value, including all nested arrays and objects. */
+    public void skipValue() throws IOException {
+        skipping = true;
+        try {
+            int depth = 0;
+            do {
+                JsonToken t = advance();
+                if (t == JsonToken.BEGIN_ARRAY || t == JsonToken.BEGIN_OBJECT) {
+                    depth++;
+                } else if (t == JsonToken.END_ARRAY || t == JsonToken.END_OBJECT) {
+                    depth--;
+                }
+            } while (depth != 0);
+        } finally {
+            skipping = false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        value = null;
+        token = null;
+        stack[0] = CLOSED;
+        stackSize = 1;
+        in.close();
+    }
+
+    public JsonToken peek() throws IOException {
+        if (token != null) return token;
+
+        switch (stack[stackSize - 1]) {
+            case EMPTY_DOCUMENT:
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                return token = nextValue();
+            case EMPTY_ARRAY:
+                return token = nextInArray(true);
+            case NONEMPTY_ARRAY:
+                return token = nextInArray(false);
+            case EMPTY_OBJECT:
+                return token = nextInObject(true);
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') throw syntaxError("Expected ':'");
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                return token = nextValue();
+            case NONEMPTY_OBJECT:
+                return token = nextInObject(false);
+            case NONEMPTY_DOCUMENT:
+                if (nextNonWhitespace() != -1) throw syntaxError("Expected end of document");
+                return token = JsonToken.END_DOCUMENT;
+            default:
+                throw new IllegalStateException("JsonReader is closed");
+        }
+    }
+
+    // --- Tokens ---
+
+    private void expect(JsonToken expected) throws IOException {
+        if (peek() != expected) throw new IllegalStateException("Expected " + expected + " but was " + peek());
+        advance();
+    }
+
+    private JsonToken advance() throws IOException {
+        JsonToken result = peek();
+        token = null;
+        value = null;
+        return result;
+    }
+
+    private JsonToken nextInArray(boolean first) throws IOException {
+        if (first) {
+            stack[stackSize - 1] = NONEMPTY_ARRAY;
+            if (nextNonWhitespace() == ']') {
+                stackSize--;
+                return JsonToken.END_ARRAY;
+            }
+            pos--;
+        } else {
+            int c = nextNonWhitespace();
+            if (c == ']') {
+                stackSize--;
+                return JsonToken.END_ARRAY;
+            }
+            if (c != ',') throw syntaxError("Unterminated array");
+        }
+        return nextValue();
+    }
+
+    private JsonToken nextInObject(boolean first) throws IOException {
+        int c = nextNonWhitespace();
+        if (c == '}') {
+            stackSize--;
+            return JsonToken.END_OBJECT;
+        }
+        if (!first) {
+            if (c != ',') throw syntaxError("Unterminated object");
+            c = nextNonWhitespace();
+        }
+        if (c != '"') throw syntaxError("Expected name");
+        value = readString();
+        stack[stackSize - 1] = DANGLING_NAME;
+        return JsonToken.NAME;
+    }
+
+    private JsonToken nextValue() throws IOException {
+        int c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                push(EMPTY_OBJECT);
+                return JsonToken.BEGIN_OBJECT;
+            case '[':
+                push(EMPTY_ARRAY);
+                return JsonToken.BEGIN_ARRAY;
+            case '"':
+                value = readString();
+                return JsonToken.STRING;
+            case -1:
+                throw syntaxError("End of input");
+            default:
+                pos--;
+                return readLiteral();
+        }
+    }
+
+    private JsonToken readLiteral() throws IOException {
+        char first = buffer[pos];
+        StringBuilder sb = null;
+        while (true) {
+            int start = pos;
+            while (pos < limit && !isDelimiter(buffer[pos])) pos++;
+            if (pos < limit) {
+                if (!skipping) value = sb == null ? new String(buffer, start, pos - start)
+                        : sb.append(buffer, start, pos - start).toString();
+                break;
+            }
+            if (!skipping) {
+                if (sb == null) sb = new StringBuilder();
+                sb.append(buffer, start, pos - start);
+            }
+            if (!fill(1)) {
+                if (!skipping) value = sb.toString();
+                break;
+            }
+        }
+        if (first == 't' || first == 'f') return JsonToken.BOOLEAN;
+        if (first == 'n') return JsonToken.NULL;
+        return JsonToken.NUMBER;
+    }
+
+    private static boolean isDelimiter(char c) {
+        switch (c) {
+            case ',': case ':': case ']': case '}': case '[': case '{':
+            case ' ': case '\t': case '\n': case '\r': case '"':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** Read up to the closing quote, the opening one already consumed. Null when skipping. */
+    private String readString() throws IOException {
+        StringBuilder sb = null;
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    if (skipping) return null;
+                    if (sb == null) return new String(buffer, start, pos - start - 1);
+                    return sb.append(buffer, start, pos - start - 1).toString();
+                } else if (c == '\\') {
+                    if (!skipping) {
+                        if (sb == null) sb = new StringBuilder();
+                        sb.append(buffer, start, pos - start - 1);
+                    }
+                    char escaped = readEscape();
+                    if (!skipping) sb.append(escaped);
+                    start = pos;
+                }
+            }
+            if (!skipping) {
+                if (sb == null) sb = new StringBuilder();
+                sb.append(buffer, start, pos - start);
+            }
+            if (!fill(1)) throw syntaxError("Unterminated string");
+        }
+    }
+
+    private char readEscape() throws IOException {
+        if (pos == limit && !fill(1)) throw syntaxError("Unterminated escape");
+        char c = buffer[pos++];
+        switch (c) {
+            case 'u':
+                if (pos + 4 > limit && !fill(4)) throw syntaxError("Unterminated escape");
+                char result = (char) Integer.parseInt(new String(buffer, pos, 4), 16);
+                pos += 4;
+                return result;
+            case 't': return '\t';
+            case 'b': return '\b';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 'f': return '\f';
+            default: return c;
+        }
+    }
+
+    // --- Input ---
+
+    private int nextNonWhitespace() throws IOException {
+        while (pos < limit || fill(1)) {
+            char c = buffer[pos++];
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return c;
+        }
+        return -1;
+    }
+
+    /** Move unread chars to the front and read until at least {@code minimum} are available. */
+    private boolean fill(int minimum) throws IOException {
+        limit -= pos;
+        if (limit > 0) System.arraycopy(buffer, pos, buffer, 0, limit);
+        pos = 0;
+        int n;
+        while ((n = in.read(buffer, limit, buffer.length - limit)) != -1) {
+            limit += n;
+            if (limit >= minimum) return true;
+        }
+        return false;
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            int[] grown = new int[stackSize * 2];
+            System.arraycopy(stack, 0, grown, 0, stackSize);
+            stack = grown;
+        }
+        stack[stackSize++] = scope;
+    }
+
+    private IOException syntaxError(String message) {
+        return new IOException(message + " at offset " + pos);
+    }
+}
@@ -0,0 +1,13 @@
+package android.util;
+
+/** Desktop stand-in for android.util.Log: warnings and errors go to stderr, the rest is dropped. */
+public final class Log {
+    private Log() {}
+
+    public static int d(String tag, String msg) { return 0; }
+    public static int i(String tag, String msg) { return 0; }
+    public static int w(String tag, String msg) { System.err.println("W/" + tag + ": " + msg); return 0; }
+    public static int w(String tag, String msg, Throwable t) { return w(tag, msg + ": " + t); }
+    public static int e(String tag, String msg) { System.err.println("E/" + tag + ": " + msg); return 0; }
+    public static int e(String tag, String msg, Throwable t) { return e(tag, msg + ": " + t); }
+}
@@ -0,0 +1,34 @@
+package org.json;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Desktop stand-in for org.json.JSONArray, with the accessors the dashboard uses. */
+public class JSONArray {
+
+    private final List<Object> values = new ArrayList<Object>();
+
+    void put(Object value) {
+        values.add(value);
+    }
+
+    public int length() {
+        return values.size();
+    }
+
+    public Object get(int index) throws JSONException {
+        if (index < 0 || index >= values.size()) throw new JSONException("Index " + index + " out of range");
+        return values.get(index);
+    }
+
+    public JSONObject getJSONObject(int index) throws JSONException {
+        Object value = get(index);
+        if (value instanceof JSONObject) return (JSONObject) value;
+        throw new JSONException("Value at " + index + " is not a JSONObject");
+    }
+
+    public String getString(int index) throws JSONException {
+        Object value = get(index);
+        return value instanceof String ? (String) value : String.valueOf(value);
+    }
+}
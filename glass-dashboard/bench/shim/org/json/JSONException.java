@@ -0,0 +1,10 @@
+package org.json;
+
+/** Desktop stand-in for org.json.JSONException. */
+public class JSONException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public JSONException(String message) {
+        super(message);
+    }
+}
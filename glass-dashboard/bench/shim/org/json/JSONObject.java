@@ -0,0 +1,100 @@
+package org.json;
+
+import java.util.LinkedHashMap;
+
+/** Desktop stand-in for org.json.JSONObject, with the accessors the dashboard uses. */
+public class JSONObject {
+
+    public static final Object NULL = new Object() {
+        @Override
+        public String toString() {
+            return "null";
+        }
+    };
+
+    private final LinkedHashMap<String, Object> nameValuePairs;
+
+    public JSONObject() {
+        nameValuePairs = new LinkedHashMap<String, Object>();
+    }
+
+    public JSONObject(String json) throws JSONException {
+        Object object = new JSONTokener(json).nextValue();
+        if (!(object instanceof JSONObject)) throw new JSONException("Not a JSON object");
+        nameValuePairs = ((JSONObject) object).nameValuePairs;
+    }
+
+    void put(String name, Object value) {
+        nameValuePairs.put(name, value);
+    }
+
+    public int length() {
+        return nameValuePairs.size();
+    }
+
+    public boolean has(String name) {
+        return nameValuePairs.containsKey(name);
+    }
+
+    public Object opt(String name) {
+        return nameValuePairs.get(name);
+    }
+
+    public Object get(String name) throws JSONException {
+        Object result = nameValuePairs.get(name);
+        if (result == null) throw new JSONException("No value for " + name);
+        return result;
+    }
+
+    public String getString(String name) throws JSONException {
+        Object value = get(name);
+        return value instanceof String ? (String) value : String.valueOf(value);
+    }
+
+    public String optString(String name, String fallback) {
+        Object value = opt(name);
+        if (value == null || value == NULL) return fallback;
+        return value instanceof String ? (String) value : String.valueOf(value);
+    }
+
+    public int optInt(String name, int fallback) {
+        Object value = opt(name);
+        if (value instanceof Number) return ((Number) value).intValue();
+        if (value instanceof String) {
+            try {
+                return (int) Double.parseDouble((String) value);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return fallback;
+    }
+
+    public double optDouble(String name, double fallback) {
+        Object value = opt(name);
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble((String) value);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return fallback;
+    }
+
+    public JSONObject getJSONObject(String name) throws JSONException {
+        Object value = get(name);
+        if (value instanceof JSONObject) return (JSONObject) value;
+        throw new JSONException("Value at " + name + " is not a JSONObject");
+    }
+
+    public JSONArray getJSONArray(String name) throws JSONException {
+        Object value = get(name);
+        if (value instanceof JSONArray) return (JSONArray) value;
+        throw new JSONException("Value at " + name + " is not a JSONArray");
+    }
+
+    public JSONArray optJSONArray(String name) {
+        Object value = opt(name);
+        return value instanceof JSONArray ? (JSONArray) value : null;
+    }
+}
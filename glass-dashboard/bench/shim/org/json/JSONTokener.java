@@ -0,0 +1,137 @@
+package org.json;
+
+/**
+ * Desktop stand-in for Android's org.json.JSONTokener, following its
+ * implementation: the whole document is a String, objects become
+ * LinkedHashMaps, arrays ArrayLists, every string value is copied out with
+ * substring() and numbers are boxed.
+ */
+public class JSONTokener {
+
+    private final String in;
+    private int pos;
+
+    public JSONTokener(String in) {
+        this.in = in;
+    }
+
+    public Object nextValue() throws JSONException {
+        int c = nextCleanInternal();
+        switch (c) {
+            case -1:
+                throw new JSONException("End of input at character " + pos);
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case '\'':
+            case '"':
+                return nextString((char) c);
+            default:
+                pos--;
+                return readLiteral();
+        }
+    }
+
+    private int nextCleanInternal() {
+        while (pos < in.length()) {
+            int c = in.charAt(pos++);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') return c;
+        }
+        return -1;
+    }
+
+    public String nextString(char quote) throws JSONException {
+        StringBuilder builder = null;
+        int start = pos;
+        while (pos < in.length()) {
+            int c = in.charAt(pos++);
+            if (c == quote) {
+                if (builder == null) {
+                    // A new string avoids leaking memory, as Android's does
+                    return new String(in.substring(start, pos - 1));
+                }
+                builder.append(in, start, pos - 1);
+                return builder.toString();
+            }
+            if (c == '\\') {
+                if (builder == null) builder = new StringBuilder();
+                builder.append(in, start, pos - 1);
+                builder.append(readEscapeCharacter());
+                start = pos;
+            }
+        }
+        throw new JSONException("Unterminated string");
+    }
+
+    private char readEscapeCharacter() throws JSONException {
+        char escaped = in.charAt(pos++);
+        switch (escaped) {
+            case 'u':
+                if (pos + 4 > in.length()) throw new JSONException("Unterminated escape sequence");
+                String hex = in.substring(pos, pos + 4);
+                pos += 4;
+                return (char) Integer.parseInt(hex, 16);
+            case 't': return '\t';
+            case 'b': return '\b';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 'f': return '\f';
+            default: return escaped;
+        }
+    }
+
+    private Object readLiteral() throws JSONException {
+        int start = pos;
+        while (pos < in.length() && "{}[]/\\:,=;# \t\f\r\n\"".indexOf(in.charAt(pos)) == -1) pos++;
+        String literal = in.substring(start, pos);
+        if (literal.length() == 0) throw new JSONException("Expected literal value at character " + pos);
+        if ("null".equalsIgnoreCase(literal)) return JSONObject.NULL;
+        if ("true".equalsIgnoreCase(literal)) return Boolean.TRUE;
+        if ("false".equalsIgnoreCase(literal)) return Boolean.FALSE;
+        if (literal.indexOf('.') == -1 && literal.indexOf('e') == -1 && literal.indexOf('E') == -1) {
+            try {
+                long longValue = Long.parseLong(literal);
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+                    return (int) longValue;
+                }
+                return longValue;
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        try {
+            return Double.valueOf(literal);
+        } catch (NumberFormatException ignored) {
+        }
+        return new String(literal);
+    }
+
+    private JSONObject readObject() throws JSONException {
+        JSONObject result = new JSONObject();
+        int first = nextCleanInternal();
+        if (first == '}') return result;
+        if (first != -1) pos--;
+        while (true) {
+            Object name = nextValue();
+            if (!(name instanceof String)) throw new JSONException("Names must be strings");
+            if (nextCleanInternal() != ':') throw new JSONException("Expected ':' after " + name);
+            result.put((String) name, nextValue());
+            int c = nextCleanInternal();
+            if (c == '}') return result;
+            if (c != ',' && c != ';') throw new JSONException("Unterminated object at character " + pos);
+        }
+    }
+
+    private JSONArray readArray() throws JSONException {
+        JSONArray result = new JSONArray();
+        int first = nextCleanInternal();
+        if (first == ']') return result;
+        if (first != -1) pos--;
+        while (true) {
+            result.put(nextValue());
+            int c = nextCleanInternal();
+            if (c == ']') return result;
+            if (c != ',' && c != ';') throw new JSONException("Unterminated array at character " + pos);
+        }
+    }
+}
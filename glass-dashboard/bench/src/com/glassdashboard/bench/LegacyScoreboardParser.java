@@ -0,0 +1,73 @@
+package com.glassdashboard.bench;
+
+import com.glassdashboard.GameData;
+import com.glassdashboard.LeagueData;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The scoreboard parsing fetchSports did before ScoreboardParser: read the
+ * whole body into a String as Response.string() does, build the org.json
+ * tree, then pick out the few fields a game row shows.
+ */
+final class LegacyScoreboardParser {
+
+    private LegacyScoreboardParser() {}
+
+    static LeagueData parse(InputStream in, String league, int maxGames) throws Exception {
+        JSONObject obj = new JSONObject(readString(in));
+        JSONArray events = obj.getJSONArray("events");
+        LeagueData ld = new LeagueData();
+        ld.name = league;
+        int limit = Math.min(events.length(), maxGames);
+        for (int g = 0; g < limit; g++) {
+            JSONObject event = events.getJSONObject(g);
+            JSONArray competitions = event.getJSONArray("competitions");
+            JSONObject comp = competitions.getJSONObject(0);
+            JSONArray competitors = comp.getJSONArray("competitors");
+
+            JSONObject home = null, away = null;
+            for (int c = 0; c < competitors.length(); c++) {
+                JSONObject team = competitors.getJSONObject(c);
+                if ("home".equals(team.getString("homeAway"))) {
+                    home = team;
+                } else {
+                    away = team;
+                }
+            }
+
+            if (home != null && away != null) {
+                GameData gd = new GameData();
+                gd.awayAbbr = away.getJSONObject("team").getString("abbreviation");
+                gd.homeAbbr = home.getJSONObject("team").getString("abbreviation");
+                gd.awayScore = away.optString("score", "0");
+                gd.homeScore = home.optString("score", "0");
+
+                JSONObject status = comp.getJSONObject("status");
+                JSONObject statusType = status.getJSONObject("type");
+                gd.statusId = statusType.optInt("id", 1);
+                gd.statusText = statusType.optString("shortDetail", "");
+                ld.games.add(gd);
+            }
+        }
+        return ld;
+    }
+
+    /** The body as one String, read the way Response.string() reads it. */
+    static String readString(InputStream in) throws Exception {
+        Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(8192);
+        char[] buf = new char[4096];
+        int n;
+        while ((n = reader.read(buf)) != -1) {
+            sb.append(buf, 0, n);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,249 @@
+package com.glassdashboard.bench;
+
+import com.glassdashboard.GameData;
+import com.glassdashboard.LeagueData;
+import com.glassdashboard.ScoreboardParser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Desktop-JVM benchmark for ScoreboardParser against the JSONObject parsing
+ * fetchSports used before it.
+ *
+ * Parses one scoreboard per league, either generated in the shape of ESPN's
+ * response or saved ones given with --dir (one file per league, e.g.
+ * {@code curl -o nfl.json .../football/nfl/scoreboard}), and reports parse
+ * time, bytes allocated, heap still held by the parse (the body String and
+ * JSON tree for the legacy parser, just the games for the streaming one)
+ * and whether both parsers return the same games. Then finds the smallest
+ * -Xmx in which all leagues parse at once on one thread each, as the app
+ * does, by re-running each parser in child JVMs that stream from files.
+ *
+ *   bench.sh [--dir DIR] [--games N] [--no-heap-search]
+ */
+public class ScoreboardBench {
+
+    public static void main(String[] args) throws Exception {
+        int maxGames = 4;
+        boolean heapSearch = true;
+        String dir = null, once = null;
+        List<String> onceFiles = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dir":   dir = args[++i]; break;
+                case "--games": maxGames = Integer.parseInt(args[++i]); break;
+                case "--no-heap-search": heapSearch = false; break;
+                case "--once":  once = args[++i]; break;
+                case "--file":  onceFiles.add(args[++i]); break;
+                default:
+                    System.err.println("Usage: bench.sh [--dir DIR] [--games N] [--no-heap-search]");
+                    System.exit(2);
+            }
+        }
+
+        if (once != null) {
+            System.exit(parseConcurrently("legacy".equals(once), onceFiles, maxGames) ? 0 : 1);
+        }
+
+        List<String> names = new ArrayList<String>();
+        List<byte[]> payloads = new ArrayList<byte[]>();
+        List<File> files = new ArrayList<File>();
+        if (dir != null) {
+            File[] saved = new File(dir).listFiles();
+            if (saved == null || saved.length == 0) {
+                System.err.println("No scoreboards in " + dir);
+                System.exit(2);
+            }
+            java.util.Arrays.sort(saved);
+            for (File f : saved) {
+                names.add(f.getName());
+                payloads.add(Files.readAllBytes(f.toPath()));
+                files.add(f);
+            }
+        } else {
+            for (int l = 0; l < ScoreboardPayloads.LEAGUES.length; l++) {
+                byte[] payload = ScoreboardPayloads.generate(l);
+                File f = File.createTempFile("scoreboard-" + ScoreboardPayloads.LEAGUES[l], ".json");
+                f.deleteOnExit();
+                FileOutputStream out = new FileOutputStream(f);
+                out.write(payload);
+                out.close();
+                names.add(ScoreboardPayloads.LEAGUES[l]);
+                payloads.add(payload);
+                files.add(f);
+            }
+        }
+
+        System.out.printf("%d scoreboards, first %d games of each%n", payloads.size(), maxGames);
+        System.out.printf("%-10s %8s %-10s %10s %12s %14s %6s%n",
+                "league", "KB", "parser", "us/parse", "alloc KB", "retained KB", "same");
+        long totalBytes = 0;
+        for (int i = 0; i < payloads.size(); i++) {
+            byte[] payload = payloads.get(i);
+            totalBytes += payload.length;
+            LeagueData legacy = null;
+            for (boolean isLegacy : new boolean[] { true, false }) {
+                // Warm up past the JIT before measuring
+                int runs = 200;
+                for (int r = 0; r < runs; r++) parse(isLegacy, payload, maxGames);
+                long start = System.nanoTime();
+                for (int r = 0; r < runs; r++) parse(isLegacy, payload, maxGames);
+                double us = (System.nanoTime() - start) / 1e3 / runs;
+
+                long allocStart = allocated();
+                parse(isLegacy, payload, maxGames);
+                long alloc = allocated() - allocStart;
+
+                long retained = retained(isLegacy, payload, maxGames);
+                LeagueData result = parse(isLegacy, payload, maxGames);
+                String same = "";
+                if (isLegacy) {
+                    legacy = result;
+                } else {
+                    same = sameGames(legacy, result) ? "yes" : "NO";
+                }
+                System.out.printf("%-10s %8d %-10s %10.0f %12d %14d %6s%n",
+                        isLegacy ? names.get(i) : "", payload.length / 1024,
+                        isLegacy ? "legacy" : "streaming", us, alloc / 1024, retained / 1024, same);
+            }
+        }
+
+        if (heapSearch) {
+            System.out.printf("%nAll %d scoreboards (%d KB) parsed concurrently:%n",
+                    payloads.size(), totalBytes / 1024);
+            for (boolean isLegacy : new boolean[] { true, false }) {
+                System.out.printf("%-10s min -Xmx %d MB%n",
+                        isLegacy ? "legacy" : "streaming", minHeapMb(isLegacy, files, maxGames));
+            }
+        }
+    }
+
+    static LeagueData parse(boolean legacy, byte[] payload, int maxGames) throws Exception {
+        InputStream in = new ByteArrayInputStream(payload);
+        return legacy ? LegacyScoreboardParser.parse(in, "bench", maxGames)
+                : ScoreboardParser.parse(in, "bench", maxGames);
+    }
+
+    static boolean sameGames(LeagueData a, LeagueData b) {
+        if (a.games.size() != b.games.size()) return false;
+        for (int g = 0; g < a.games.size(); g++) {
+            GameData x = a.games.get(g), y = b.games.get(g);
+            if (!x.awayAbbr.equals(y.awayAbbr) || !x.homeAbbr.equals(y.homeAbbr)
+                    || !x.awayScore.equals(y.awayScore) || !x.homeScore.equals(y.homeScore)
+                    || x.statusId != y.statusId || !x.statusText.equals(y.statusText)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // --- Memory ---
+
+    // Keeps what retained() measures reachable across its GC
+    static volatile Object sink;
+
+    /**
+     * Heap held at the point the parse is done with the payload: for the
+     * legacy parser the body String and the JSONObject tree, which the old
+     * code kept reachable until the league was built, for the streaming
+     * parser the result alone.
+     */
+    static long retained(boolean legacy, byte[] payload, int maxGames) throws Exception {
+        long before = usedAfterGc();
+        if (legacy) {
+            String body = LegacyScoreboardParser.readString(new ByteArrayInputStream(payload));
+            sink = new Object[] { body, new org.json.JSONObject(body) };
+        } else {
+            sink = ScoreboardParser.parse(new ByteArrayInputStream(payload), "bench", maxGames);
+        }
+        long after = usedAfterGc();
+        sink = null;
+        return Math.max(0, after - before);
+    }
+
+    /** Parse every file on its own thread, as fetchSports does. */
+    static boolean parseConcurrently(final boolean legacy, List<String> files, final int maxGames)
+            throws InterruptedException {
+        final AtomicBoolean ok = new AtomicBoolean(true);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (final String file : files) {
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        InputStream in = new BufferedInputStream(new FileInputStream(file));
+                        try {
+                            LeagueData ld = legacy ? LegacyScoreboardParser.parse(in, "bench", maxGames)
+                                    : ScoreboardParser.parse(in, "bench", maxGames);
+                            if (ld.games.isEmpty()) ok.set(false);
+                        } finally {
+                            in.close();
+                        }
+                    } catch (Throwable e) {
+                        ok.set(false);
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        for (Thread t : threads) t.join();
+        return ok.get();
+    }
+
+    /** Smallest -Xmx, in MB, in which the concurrent parse succeeds, by bisection over child JVMs. */
+    static int minHeapMb(boolean legacy, List<File> files, int maxGames) throws Exception {
+        int lo = 2, hi = 512;
+        if (!runChild(legacy, hi, files, maxGames)) return -1;
+        while (lo < hi) {
+            int mid = (lo + hi) / 2;
+            if (runChild(legacy, mid, files, maxGames)) hi = mid; else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    static boolean runChild(boolean legacy, int heapMb, List<File> files, int maxGames) throws Exception {
+        List<String> cmd = new ArrayList<String>();
+        cmd.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        cmd.add("-Xmx" + heapMb + "m");
+        cmd.add("-XX:+UseSerialGC");
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(ScoreboardBench.class.getName());
+        cmd.add("--games");
+        cmd.add(String.valueOf(maxGames));
+        for (File f : files) {
+            cmd.add("--file");
+            cmd.add(f.getPath());
+        }
+        cmd.add("--once");
+        cmd.add(legacy ? "legacy" : "streaming");
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        return p.waitFor() == 0;
+    }
+
+    static long usedAfterGc() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    static long allocated() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
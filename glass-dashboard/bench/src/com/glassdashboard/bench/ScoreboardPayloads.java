@@ -0,0 +1,269 @@
+package com.glassdashboard.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates scoreboards in the shape of ESPN's site.api
+ * .../{sport}/{league}/scoreboard response: a "leagues" block with the
+ * season calendar, then per event the competition with venue, both
+ * competitors (team with links and logo, linescores, records, leaders with
+ * athlete objects), status, broadcasts, odds, headlines and event links.
+ * Used when no saved payloads are given with --dir.
+ */
+final class ScoreboardPayloads {
+
+    private ScoreboardPayloads() {}
+
+    static final String[] LEAGUES = { "NFL", "NBA", "MLB", "NHL" };
+    // A typical day (a week for the NFL)
+    private static final int[] GAMES = { 15, 11, 15, 13 };
+    private static final int[] PERIODS = { 4, 4, 9, 3 };
+    private static final String[] SPORTS = { "football", "basketball", "baseball", "hockey" };
+
+    static byte[] generate(int league) {
+        Random random = new Random(31 + league);
+        String slug = LEAGUES[league].toLowerCase(Locale.US);
+        StringBuilder sb = new StringBuilder(512 * 1024);
+
+        sb.append("{\"leagues\":[{\"id\":\"").append(28 + league).append("\",\"uid\":\"s:20~l:").append(28 + league)
+          .append("\",\"name\":\"").append(LEAGUES[league]).append(" League\",\"abbreviation\":\"")
+          .append(LEAGUES[league]).append("\",\"slug\":\"").append(slug)
+          .append("\",\"season\":{\"year\":2024,\"startDate\":\"2024-08-01T07:00Z\",\"endDate\":\"2025-02-13T07:59Z\",")
+          .append("\"displayName\":\"2024\",\"type\":{\"id\":\"2\",\"type\":2,\"name\":\"Regular Season\",\"abbreviation\":\"reg\"}},")
+          .append("\"logos\":[{\"href\":\"https://a.espncdn.com/i/teamlogos/leagues/500/").append(slug)
+          .append(".png\",\"width\":500,\"height\":500,\"alt\":\"\",\"rel\":[\"full\",\"default\"],\"lastUpdated\":\"2018-06-05T12:12Z\"}],")
+          .append("\"calendarType\":\"list\",\"calendarIsWhitelist\":true,")
+          .append("\"calendarStartDate\":\"2024-08-01T07:00Z\",\"calendarEndDate\":\"2025-02-13T07:59Z\",\"calendar\":[");
+        for (int s = 0; s < 3; s++) {
+            if (s > 0) sb.append(',');
+            sb.append("{\"label\":\"Season part ").append(s + 1).append("\",\"value\":\"").append(s + 1)
+              .append("\",\"startDate\":\"2024-09-01T07:00Z\",\"endDate\":\"2024-12-01T07:59Z\",\"entries\":[");
+            for (int w = 0; w < 18; w++) {
+                if (w > 0) sb.append(',');
+                sb.append("{\"label\":\"Week ").append(w + 1).append("\",\"alternateLabel\":\"Wk ").append(w + 1)
+                  .append("\",\"detail\":\"Sep ").append(5 + w).append("-").append(10 + w)
+                  .append("\",\"value\":\"").append(w + 1)
+                  .append("\",\"startDate\":\"2024-09-05T07:00Z\",\"endDate\":\"2024-09-11T06:59Z\"}");
+            }
+            sb.append("]}");
+        }
+        sb.append("]}],\"season\":{\"type\":2,\"year\":2024},\"day\":{\"date\":\"2024-10-13\"},\"events\":[");
+
+        for (int e = 0; e < GAMES[league]; e++) {
+            if (e > 0) sb.append(',');
+            event(sb, random, league, slug, e);
+        }
+        sb.append("]}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void event(StringBuilder sb, Random random, int league, String slug, int e) {
+        String id = "4016" + (71000 + league * 1000 + e);
+        String date = String.format(Locale.US, "2024-10-13T%02d:%02dZ", 16 + e % 8, (e * 5) % 60);
+        String[] abbr = { team(random), team(random) };
+        int state = e % 3; // scheduled, in progress, final
+        String stateName = state == 0 ? "pre" : state == 1 ? "in" : "post";
+        String detail = state == 0 ? "Sun, October 13th at 8:20 PM EDT"
+                : state == 1 ? "7:42 - 3rd" : "Final";
+        String shortDetail = state == 0 ? "10/13 - 8:20 PM EDT" : state == 1 ? "7:42 - 3rd" : "Final";
+
+        sb.append("{\"id\":\"").append(id).append("\",\"uid\":\"s:20~l:28~e:").append(id)
+          .append("\",\"date\":\"").append(date).append("\",\"name\":\"").append(abbr[1]).append(" City Team at ")
+          .append(abbr[0]).append(" Town Club\",\"shortName\":\"").append(abbr[1]).append(" @ ").append(abbr[0])
+          .append("\",\"season\":{\"year\":2024,\"type\":2,\"slug\":\"regular-season\"},")
+          .append("\"week\":{\"number\":6},\"competitions\":[{\"id\":\"").append(id).append("\",\"uid\":\"s:20~l:28~e:")
+          .append(id).append("~c:").append(id).append("\",\"date\":\"").append(date)
+          .append("\",\"attendance\":").append(state == 0 ? 0 : 40000 + random.nextInt(30000))
+          .append(",\"type\":{\"id\":\"1\",\"abbreviation\":\"STD\"},\"timeValid\":true,\"neutralSite\":false,")
+          .append("\"conferenceCompetition\":false,\"playByPlayAvailable\":true,\"recent\":").append(state != 0)
+          .append(",\"venue\":{\"id\":\"").append(3600 + e).append("\",\"fullName\":\"").append(abbr[0])
+          .append(" Memorial Stadium\",\"address\":{\"city\":\"Springfield\",\"state\":\"MA\",\"country\":\"USA\"},")
+          .append("\"indoor\":").append(e % 2 == 0).append("},\"competitors\":[");
+        for (int c = 0; c < 2; c++) {
+            if (c > 0) sb.append(',');
+            competitor(sb, random, league, slug, abbr[c], c == 0, state);
+        }
+        sb.append("],\"notes\":[],\"situation\":");
+        if (state == 1) {
+            sb.append("{\"lastPlay\":{\"id\":\"").append(id).append("1021\",\"type\":{\"id\":\"24\",\"text\":\"Pass Reception\",")
+              .append("\"abbreviation\":\"REC\"},\"text\":\"").append(phrase(random, 24))
+              .append("\",\"scoreValue\":0,\"team\":{\"id\":\"12\"},\"probability\":{\"tiePercentage\":0.0,")
+              .append("\"homeWinPercentage\":0.612,\"awayWinPercentage\":0.388},\"drive\":{\"description\":\"9 plays, 61 yards, 4:12\",")
+              .append("\"start\":{\"yardLine\":25,\"text\":\"KC 25\"},\"timeElapsed\":{\"displayValue\":\"4:12\"}},")
+              .append("\"start\":{\"yardLine\":71,\"team\":{\"id\":\"12\"}},\"end\":{\"yardLine\":86,\"team\":{\"id\":\"12\"}},")
+              .append("\"statYardage\":15},\"down\":1,\"yardLine\":86,\"distance\":10,\"downDistanceText\":\"1st & 10 at BUF 14\",")
+              .append("\"shortDownDistanceText\":\"1st & 10\",\"possessionText\":\"BUF 14\",\"isRedZone\":true,")
+              .append("\"homeTimeouts\":3,\"awayTimeouts\":2}");
+        } else {
+            sb.append("{}");
+        }
+        sb.append(",\"status\":");
+        status(sb, state, stateName, detail, shortDetail, PERIODS[league]);
+        sb.append(",\"broadcasts\":[{\"market\":\"national\",\"names\":[\"CBS\",\"Paramount+\"]}],\"leaders\":[");
+        for (int l = 0; l < 3; l++) {
+            if (l > 0) sb.append(',');
+            leader(sb, random, slug, l);
+        }
+        sb.append("],\"format\":{\"regulation\":{\"periods\":").append(PERIODS[league]).append("}},")
+          .append("\"tickets\":[{\"summary\":\"Tickets as low as $").append(40 + random.nextInt(200))
+          .append("\",\"numberAvailable\":").append(random.nextInt(9000))
+          .append(",\"links\":[{\"href\":\"https://www.vividseats.com/").append(slug).append("/event/").append(id)
+          .append("?wsUser=717\"}]}],\"startDate\":\"").append(date).append("\",\"broadcast\":\"CBS\",")
+          .append("\"geoBroadcasts\":[");
+        for (int g = 0; g < 3; g++) {
+            if (g > 0) sb.append(',');
+            sb.append("{\"type\":{\"id\":\"1\",\"shortName\":\"TV\"},\"market\":{\"id\":\"1\",\"type\":\"National\"},")
+              .append("\"media\":{\"shortName\":\"").append(g == 0 ? "CBS" : g == 1 ? "Paramount+" : "NFL+")
+              .append("\",\"logo\":\"https://a.espncdn.com/guid/media/logo").append(g).append(".png\",\"darkLogo\":")
+              .append("\"https://a.espncdn.com/guid/media/logo").append(g).append("-dark.png\"},\"lang\":\"en\",\"region\":\"us\"}");
+        }
+        sb.append("],\"odds\":[{\"provider\":{\"id\":\"58\",\"name\":\"ESPN BET\",\"priority\":1},")
+          .append("\"details\":\"").append(abbr[0]).append(" -3.5\",\"overUnder\":").append(40 + random.nextInt(15))
+          .append(".5,\"spread\":-3.5,\"awayTeamOdds\":{\"favorite\":false,\"underdog\":true,\"team\":{\"id\":\"2\",")
+          .append("\"uid\":\"s:20~l:28~t:2\",\"abbreviation\":\"").append(abbr[1]).append("\",\"name\":\"Visitors\",")
+          .append("\"displayName\":\"Visiting Team\",\"logo\":\"https://a.espncdn.com/i/teamlogos/").append(slug)
+          .append("/500/scoreboard/").append(abbr[1].toLowerCase(Locale.US)).append(".png\"}},")
+          .append("\"homeTeamOdds\":{\"favorite\":true,\"underdog\":false,\"team\":{\"id\":\"12\",\"uid\":\"s:20~l:28~t:12\",")
+          .append("\"abbreviation\":\"").append(abbr[0]).append("\",\"name\":\"Hosts\",\"displayName\":\"Home Team\",")
+          .append("\"logo\":\"https://a.espncdn.com/i/teamlogos/").append(slug).append("/500/scoreboard/")
+          .append(abbr[0].toLowerCase(Locale.US)).append(".png\"}},\"open\":{\"over\":{\"value\":1.91,\"displayValue\":")
+          .append("\"10/11\",\"alternateDisplayValue\":\"-110\",\"decimal\":1.91,\"fraction\":\"10/11\",\"american\":\"-110\"}},")
+          .append("\"link\":{\"language\":\"en-US\",\"rel\":[\"home\",\"desktop\",\"bets\",\"espn-bet\"],")
+          .append("\"href\":\"https://espnbet.com/sport/").append(SPORTS[league]).append("/organization/us/competition/")
+          .append(slug).append("/event/").append(id).append("\",\"text\":\"Game Lines\",\"shortText\":\"Game Lines\",")
+          .append("\"isExternal\":true,\"isPremium\":false}}]");
+        if (state == 2) {
+            sb.append(",\"headlines\":[{\"type\":\"Recap\",\"description\":\"").append(phrase(random, 55))
+              .append(" \\u2014 \\\"").append(phrase(random, 8)).append("\\\"\",\"shortLinkText\":\"")
+              .append(phrase(random, 9)).append("\",\"video\":[{\"id\":").append(41000000 + e)
+              .append(",\"source\":\"espn\",\"headline\":\"").append(phrase(random, 10))
+              .append("\",\"thumbnail\":\"https://a.espncdn.com/media/motion/2024/1013/dm_").append(id)
+              .append("/dm_").append(id).append(".jpg\",\"duration\":").append(40 + random.nextInt(120))
+              .append(",\"tracking\":{\"sportName\":\"").append(slug).append("\",\"leagueName\":\"").append(LEAGUES[league])
+              .append("\",\"coverageType\":\"Final Game Highlight\",\"trackingName\":\"").append(phrase(random, 6))
+              .append("\",\"trackingId\":\"dm_").append(id).append("\"},\"deviceRestrictions\":{\"type\":\"whitelist\",")
+              .append("\"devices\":[\"desktop\",\"settop\",\"handset\",\"tablet\"]},\"links\":{\"web\":{\"href\":")
+              .append("\"https://www.espn.com/video/clip?id=").append(41000000 + e).append("\"},\"source\":{\"href\":")
+              .append("\"https://media.video-cdn.espn.com/motion/2024/1013/dm_").append(id).append("/dm_").append(id)
+              .append(".mp4\"},\"mobile\":{\"href\":\"https://watch.auth.api.espn.com/video/auth/brightcove/")
+              .append(id).append("\"}}}]}]");
+        }
+        sb.append("}],\"links\":[");
+        String[] linkText = { "Gamecast", "Box Score", "Highlights", "Play-by-Play", "Recap" };
+        for (int l = 0; l < linkText.length; l++) {
+            if (l > 0) sb.append(',');
+            sb.append("{\"language\":\"en-US\",\"rel\":[\"summary\",\"desktop\",\"event\"],\"href\":")
+              .append("\"https://www.espn.com/").append(slug).append("/game/_/gameId/").append(id).append('/')
+              .append(abbr[1].toLowerCase(Locale.US)).append('-').append(abbr[0].toLowerCase(Locale.US))
+              .append("\",\"text\":\"").append(linkText[l]).append("\",\"shortText\":\"").append(linkText[l])
+              .append("\",\"isExternal\":false,\"isPremium\":false}");
+        }
+        sb.append("],\"weather\":{\"displayValue\":\"Partly sunny\",\"temperature\":").append(50 + random.nextInt(30))
+          .append(",\"highTemperature\":").append(60 + random.nextInt(25)).append(",\"conditionId\":\"30\",")
+          .append("\"link\":{\"language\":\"en-US\",\"rel\":[\"13600\"],\"href\":\"https://www.accuweather.com/en/us/")
+          .append("springfield-ma/01103/hourly-weather-forecast/329324?day=1&hbhhour=13&lang=en-us\",")
+          .append("\"text\":\"Weather\",\"shortText\":\"Weather\",\"isExternal\":true,\"isPremium\":false}},\"status\":");
+        status(sb, state, stateName, detail, shortDetail, PERIODS[league]);
+        sb.append('}');
+    }
+
+    private static void competitor(StringBuilder sb, Random random, int league, String slug, String abbr,
+                                   boolean home, int state) {
+        int teamId = 1 + random.nextInt(32);
+        int score = state == 0 ? 0 : random.nextInt(league == 1 ? 130 : 35);
+        String lower = abbr.toLowerCase(Locale.US);
+        sb.append("{\"id\":\"").append(teamId).append("\",\"uid\":\"s:20~l:28~t:").append(teamId)
+          .append("\",\"type\":\"team\",\"order\":").append(home ? 0 : 1).append(",\"homeAway\":\"")
+          .append(home ? "home" : "away").append('"');
+        if (state == 2) sb.append(",\"winner\":").append(home);
+        sb.append(",\"team\":{\"id\":\"").append(teamId).append("\",\"uid\":\"s:20~l:28~t:").append(teamId)
+          .append("\",\"location\":\"").append(home ? "Springfield" : "Sh\\u00e9lbyville")
+          .append("\",\"name\":\"").append(abbr).append(" Club\",\"abbreviation\":\"").append(abbr)
+          .append("\",\"displayName\":\"").append(home ? "Springfield " : "Shelbyville ").append(abbr)
+          .append(" Club\",\"shortDisplayName\":\"").append(abbr).append("\",\"color\":\"002a5c\",")
+          .append("\"alternateColor\":\"c60c30\",\"isActive\":true,\"venue\":{\"id\":\"3738\"},\"links\":[");
+        String[] rel = { "clubhouse", "roster", "stats", "schedule" };
+        for (int l = 0; l < rel.length; l++) {
+            if (l > 0) sb.append(',');
+            sb.append("{\"rel\":[\"").append(rel[l]).append("\",\"desktop\",\"team\"],\"href\":\"https://www.espn.com/")
+              .append(slug).append("/team/").append(rel[l]).append("/_/name/").append(lower).append("/").append(lower)
+              .append("-club\",\"text\":\"").append(rel[l]).append("\",\"isExternal\":false,\"isPremium\":false}");
+        }
+        sb.append("],\"logo\":\"https://a.espncdn.com/i/teamlogos/").append(slug).append("/500/scoreboard/")
+          .append(lower).append(".png\"},\"score\":\"").append(score).append("\",\"linescores\":[");
+        int periods = PERIODS[league];
+        for (int p = 0; p < (state == 0 ? 0 : periods); p++) {
+            if (p > 0) sb.append(',');
+            sb.append("{\"value\":").append(random.nextInt(10)).append(".0}");
+        }
+        sb.append("],\"statistics\":[");
+        for (int s = 0; s < 4; s++) {
+            if (s > 0) sb.append(',');
+            sb.append("{\"name\":\"stat").append(s).append("\",\"abbreviation\":\"ST").append(s)
+              .append("\",\"displayValue\":\"").append(random.nextInt(300)).append("\"}");
+        }
+        sb.append("],\"leaders\":[");
+        for (int l = 0; l < 3; l++) {
+            if (l > 0) sb.append(',');
+            leader(sb, random, slug, l);
+        }
+        sb.append("],\"records\":[{\"name\":\"overall\",\"abbreviation\":\"Game\",\"type\":\"total\",\"summary\":\"")
+          .append(random.nextInt(6)).append('-').append(random.nextInt(6))
+          .append("\"},{\"name\":\"Home\",\"type\":\"home\",\"summary\":\"2-1\"},")
+          .append("{\"name\":\"Road\",\"type\":\"road\",\"summary\":\"1-2\"}]}");
+    }
+
+    private static void leader(StringBuilder sb, Random random, String slug, int l) {
+        String[] names = { "passingYards", "rushingYards", "receivingYards" };
+        String[] display = { "Passing Leader", "Rushing Leader", "Receiving Leader" };
+        int athlete = 3000000 + random.nextInt(1000000);
+        sb.append("{\"name\":\"").append(names[l]).append("\",\"displayName\":\"").append(display[l])
+          .append("\",\"shortDisplayName\":\"").append(names[l].substring(0, 4).toUpperCase(Locale.US))
+          .append("\",\"abbreviation\":\"").append(names[l].substring(0, 3).toUpperCase(Locale.US))
+          .append("YDS\",\"leaders\":[{\"displayValue\":\"").append(random.nextInt(30)).append('/')
+          .append(random.nextInt(40)).append(", ").append(random.nextInt(400)).append(" YDS, ")
+          .append(random.nextInt(4)).append(" TD\",\"value\":").append(random.nextInt(400))
+          .append(".0,\"athlete\":{\"id\":\"").append(athlete).append("\",\"fullName\":\"Jos\\u00e9 ")
+          .append(phrase(random, 1)).append("\",\"displayName\":\"Jos\\u00e9 Player\",\"shortName\":\"J. Player\",")
+          .append("\"links\":[{\"rel\":[\"playercard\",\"desktop\",\"athlete\"],\"href\":\"https://www.espn.com/")
+          .append(slug).append("/player/_/id/").append(athlete).append("/jose-player\"},{\"rel\":[\"stats\",\"desktop\",")
+          .append("\"athlete\"],\"href\":\"https://www.espn.com/").append(slug).append("/player/stats/_/id/")
+          .append(athlete).append("/jose-player\"}],\"headshot\":\"https://a.espncdn.com/i/headshots/").append(slug)
+          .append("/players/full/").append(athlete).append(".png\",\"jersey\":\"").append(random.nextInt(99))
+          .append("\",\"position\":{\"abbreviation\":\"QB\"},\"team\":{\"id\":\"12\"},\"active\":true},")
+          .append("\"team\":{\"id\":\"12\"}}]}");
+    }
+
+    private static void status(StringBuilder sb, int state, String stateName, String detail, String shortDetail,
+                               int periods) {
+        sb.append("{\"clock\":").append(state == 1 ? "462.0" : "0.0").append(",\"displayClock\":\"")
+          .append(state == 1 ? "7:42" : "0:00").append("\",\"period\":").append(state == 0 ? 0 : state == 1 ? 3 : periods)
+          .append(",\"type\":{\"id\":\"").append(state + 1).append("\",\"name\":\"")
+          .append(state == 0 ? "STATUS_SCHEDULED" : state == 1 ? "STATUS_IN_PROGRESS" : "STATUS_FINAL")
+          .append("\",\"state\":\"").append(stateName).append("\",\"completed\":").append(state == 2)
+          .append(",\"description\":\"").append(state == 0 ? "Scheduled" : state == 1 ? "In Progress" : "Final")
+          .append("\",\"detail\":\"").append(detail).append("\",\"shortDetail\":\"").append(shortDetail).append("\"}}");
+    }
+
+    private static final String[] WORDS = {
+            "the", "drive", "touchdown", "quarter", "lead", "defense", "yards", "late", "kick", "after",
+            "season", "win", "third", "comeback", "pass", "field", "goal", "and", "a", "in",
+    };
+
+    private static String phrase(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String team(Random random) {
+        StringBuilder sb = new StringBuilder(3);
+        for (int i = 0; i < 3; i++) sb.append((char) ('A' + random.nextInt(26)));
+        return sb.toString();
+    }
+}
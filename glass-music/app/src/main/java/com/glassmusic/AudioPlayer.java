@@ -5,22 +5,61 @@ import android.media.AudioManager;
 import android.media.AudioTrack;
 import android.util.Log;
 
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 public class AudioPlayer {
 
+    /** Receives flow-control credits to pass on to the sender. */
+    public interface CreditListener {
+        void onCredit(int frames);
+    }
+
     private static final String TAG = "AudioPlayer";
-    private static final int QUEUE_CAPACITY = 200;
+    // Ring holds ~2 s of audio, preallocated once per configure(). A sender
+    // under flow control never overruns it, so 1 s is enough there.
+    private static final int RING_SECONDS = 2;
+    private static final int RING_SECONDS_FLOW_CONTROL = 1;
+    // Credits are granted in steps of at least 1/8 of the ring
+    private static final int CREDIT_STEP_DIVISOR = 8;
+    // Rate correction: cancel the estimated drift and pull the delay towards
+    // the jitter target, within what the resampler can do inaudibly. The
+    // resampler alone steers the delay error; JitterBuffer's drop/repeat
+    // only acts outside its safety band, so the two never fight
+    private static final int MAX_CORRECTION_PPM = 500;
+    private static final int CORRECTION_PPM_PER_MS = 20;
+    // Largest single AudioTrack write
+    private static final int WRITE_CHUNK = 4096;
+    // Writer wakes once this much audio is buffered (1/50 s = 20 ms)
+    private static final int LOW_WATER_DIVISOR = 50;
+    // Upper bound on a single park so pause/stop are noticed promptly
+    private static final long IDLE_WAIT_NS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long MIN_WAIT_NS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int TRACK_BUFFER_MULTIPLIER = 2;
 
-    private AudioTrack track;
+    private volatile AudioTrack track;
     private volatile boolean paused;
     private volatile boolean running;
-    private ArrayBlockingQueue<byte[]> queue;
+    private volatile ByteRing ring;
+    private volatile JitterBuffer jitter;
     private Thread writerThread;
     private int bufferSize;
+    private int frameBytes;
+
+    // Written only by the RFCOMM read thread
+    private volatile long droppedBytes;
+    private byte[] decodeBuf;
+    // Frames handed to the AudioTrack, written only by the writer thread
+    private volatile long framesQueued;
 
-    public boolean configure(int sampleRate, int channels) {
+    // Flow control: frames received (read thread) against frames granted (writer thread)
+    private volatile long receivedFrames;
+    private long grantedFrames;
+
+    /**
+     * @param credits if not null, the sender is flow controlled: it only
+     *                sends audio the ring has been promised room for
+     */
+    public boolean configure(int sampleRate, int channels, final CreditListener credits) {
         stop();
 
         int channelConfig = (channels == 2)
@@ -34,9 +73,11 @@ public class AudioPlayer {
             return false;
         }
 
-        // Large buffer for Bluetooth jitter absorption
-        bufferSize = minBuf * 16;
+        // Keep the AudioTrack buffer small; jitter is absorbed in the ring,
+        // where the playout delay can be adjusted
+        bufferSize = Math.max(minBuf * TRACK_BUFFER_MULTIPLIER, channels * 2 * sampleRate / 10);
 
+        final AudioTrack track;
         try {
             track = new AudioTrack(
                     AudioManager.STREAM_MUSIC,
@@ -53,51 +94,110 @@ public class AudioPlayer {
         if (track.getState() != AudioTrack.STATE_INITIALIZED) {
             Log.e(TAG, "AudioTrack not initialized");
             track.release();
-            track = null;
             return false;
         }
 
         paused = false;
         running = true;
-        queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        frameBytes = channels * 2;
+        droppedBytes = 0;
+        framesQueued = 0;
+        receivedFrames = 0;
+        grantedFrames = 0;
+        final ByteRing ring = new ByteRing(sampleRate * frameBytes
+                * (credits != null ? RING_SECONDS_FLOW_CONTROL : RING_SECONDS));
+        final JitterBuffer jitter = new JitterBuffer(sampleRate, frameBytes,
+                ring.capacity() / frameBytes * 3 / 4);
+        final int lowWater = Math.max(frameBytes, sampleRate / LOW_WATER_DIVISOR * frameBytes);
+        final int writeChunk = WRITE_CHUNK / frameBytes * frameBytes;
+        this.track = track;
+        this.ring = ring;
+        this.jitter = jitter;
 
-        // Must call play() before write() on API 19
+        // Must call play() before write() on API 19. No silence prefill: the
+        // writer holds back until the jitter buffer's target delay is queued.
         track.play();
-
-        // Pre-fill with silence to create a jitter buffer runway (~1.4s)
-        byte[] silence = new byte[bufferSize];
-        track.write(silence, 0, bufferSize);
         Log.i(TAG, "Configured: " + sampleRate + "Hz " + channels
-                + "ch, buffer=" + bufferSize + ", silence prefill=FULL");
+                + "ch, buffer=" + bufferSize + ", ring=" + ring.capacity());
 
-        // Writer thread drains queue into AudioTrack
+        // Writer thread drains the ring into AudioTrack
         writerThread = new Thread(() -> {
-            Log.i(TAG, "Writer thread started");
+            Log.i(TAG, "Writer thread started, lowWater=" + lowWater);
+            byte[] in = new byte[writeChunk];
+            byte[] adjusted = new byte[jitter.maxOutput(writeChunk)];
+            Resampler resampler = new Resampler(channels, adjusted.length / frameBytes);
+            byte[] out = new byte[resampler.maxOutput(adjusted.length)];
+            DriftEstimator drift = new DriftEstimator(sampleRate);
+            boolean buffering = true;
             long totalBytes = 0;
             long lastLog = System.currentTimeMillis();
+            long lastDropped = 0, lastAdjDropped = 0, lastAdjInserted = 0, lastLost = 0;
             int starveCount = 0;
             while (running) {
-                try {
-                    byte[] chunk = queue.poll(50, TimeUnit.MILLISECONDS);
-                    if (chunk != null && !paused) {
-                        track.write(chunk, 0, chunk.length);
-                        totalBytes += chunk.length;
-                    } else if (chunk == null) {
-                        starveCount++;
+                if (credits != null) grantCredits(ring, credits);
+                if (paused) {
+                    // Anything buffered before the pause is stale
+                    ring.skip(ring.available());
+                    jitter.cancelAdjust();
+                    drift.restart();
+                    buffering = true;
+                    ring.awaitAvailable(lowWater, IDLE_WAIT_NS);
+                } else if (buffering) {
+                    // Build up the target delay before (re)starting playback
+                    if (ring.awaitAvailable(jitter.getTargetFrames() * frameBytes, IDLE_WAIT_NS)) {
+                        buffering = false;
                     }
-                    // Log throughput every 5 seconds
-                    long now = System.currentTimeMillis();
-                    if (now - lastLog >= 5000) {
-                        long elapsed = now - lastLog;
-                        long bps = totalBytes * 1000 / elapsed;
-                        Log.i(TAG, "Writer: " + bps + " bytes/sec, queue=" + queue.size()
-                                + ", starves=" + starveCount);
-                        totalBytes = 0;
-                        starveCount = 0;
-                        lastLog = now;
+                } else {
+                    // Wait for the low-water mark, but no longer than the
+                    // AudioTrack can keep playing from what it already has
+                    long pending = trackPendingFrames(track);
+                    long waitNs = Math.max(MIN_WAIT_NS, pending * 1000000000L / sampleRate);
+                    if (ring.awaitAvailable(lowWater, waitNs) || ring.available() > 0) {
+                        if (jitter.update() && jitter.isWarm()) {
+                            // Fill level as it would be without our own corrections
+                            long corrected = jitter.getDroppedFrames() - jitter.getInsertedFrames()
+                                    + resampler.getNetFrames();
+                            drift.addSample(System.nanoTime() / 1e9, jitter.getDelayFrames() + corrected);
+                            double errorMs = jitter.getErrorFrames() * 1000.0 / sampleRate;
+                            long ppm = Math.round(drift.getPpm() + errorMs * CORRECTION_PPM_PER_MS);
+                            resampler.setPpm((int) Math.max(-MAX_CORRECTION_PPM, Math.min(MAX_CORRECTION_PPM, ppm)));
+                        }
+                        int n = ring.read(in, 0, Math.min(ring.available(), writeChunk) / frameBytes * frameBytes);
+                        int m = resampler.process(adjusted, jitter.process(in, n, adjusted), out);
+                        framesQueued += m / frameBytes;
+                        track.write(out, 0, m);
+                        totalBytes += n;
+                    } else if (trackPendingFrames(track) == 0) {
+                        // Ran dry: AudioTrack is playing silence until we rebuffer
+                        starveCount++;
+                        jitter.cancelAdjust();
+                        drift.restart();
+                        buffering = true;
                     }
-                } catch (InterruptedException e) {
-                    break;
+                }
+                // Log throughput every 5 seconds
+                long now = System.currentTimeMillis();
+                if (now - lastLog >= 5000) {
+                    long elapsed = now - lastLog;
+                    long bps = totalBytes * 1000 / elapsed;
+                    long dropped = droppedBytes;
+                    long adjDropped = jitter.getDroppedFrames();
+                    long adjInserted = jitter.getInsertedFrames();
+                    long lost = jitter.getLostChunks();
+                    Log.i(TAG, "Writer: " + bps + " bytes/sec, ring=" + ring.available() + "/" + ring.capacity()
+                            + ", delay=" + jitter.getDelayMs() + "ms target=" + jitter.getTargetMs()
+                            + "ms jitter=" + jitter.getJitterMs() + "ms, adjust=-" + (adjDropped - lastAdjDropped)
+                            + "/+" + (adjInserted - lastAdjInserted) + ", drift=" + Math.round(drift.getPpm())
+                            + "ppm correction=" + resampler.getPpm() + "ppm, lost=" + (lost - lastLost)
+                            + ", starves=" + starveCount + ", dropped=" + (dropped - lastDropped)
+                            + (credits != null ? ", credit=" + (grantedFrames - receivedFrames) : ""));
+                    totalBytes = 0;
+                    starveCount = 0;
+                    lastDropped = dropped;
+                    lastAdjDropped = adjDropped;
+                    lastAdjInserted = adjInserted;
+                    lastLost = lost;
+                    lastLog = now;
                 }
             }
             Log.i(TAG, "Writer thread exiting");
@@ -107,17 +207,73 @@ public class AudioPlayer {
         return true;
     }
 
-    /** Called from RFCOMM read thread. Non-blocking enqueue. */
-    public void write(byte[] data, int length) {
-        if (running && !paused) {
-            byte[] copy = new byte[length];
-            System.arraycopy(data, 0, copy, 0, length);
-            if (!queue.offer(copy)) {
-                // Queue full — drop oldest to keep latency bounded
-                queue.poll();
-                queue.offer(copy);
-            }
+    /**
+     * Writer thread. Promise the sender whatever ring space is neither
+     * filled nor already promised, once it adds up to a worthwhile step.
+     */
+    private void grantCredits(ByteRing ring, CreditListener credits) {
+        long outstanding = Math.max(0, grantedFrames - receivedFrames);
+        long room = ring.free() / frameBytes - outstanding;
+        if (room >= ring.capacity() / frameBytes / CREDIT_STEP_DIVISOR) {
+            grantedFrames += room;
+            credits.onCredit((int) room);
+        }
+    }
+
+    /** Frames handed to the AudioTrack that it has not played yet. */
+    private long trackPendingFrames(AudioTrack t) {
+        // The head position is an unsigned 32-bit frame count
+        long played = t.getPlaybackHeadPosition() & 0xFFFFFFFFL;
+        return Math.max(0, framesQueued - played);
+    }
+
+    /**
+     * Called from RFCOMM read thread. Non-blocking copy into the ring.
+     * Chunks carry whole sample frames; if the ring is full, the frames that
+     * do not fit are dropped rather than the whole chunk.
+     *
+     * @param seq       sender sequence number of the chunk
+     * @param timestamp sender sample-frame count at the chunk's first frame
+     */
+    public void write(int seq, int timestamp, byte[] data, int offset, int length) {
+        if (ring == null) return;
+        receivedFrames += length / frameBytes;
+        enqueue(seq, timestamp, data, offset, length);
+    }
+
+    /** Called from RFCOMM read thread. Decodes an IMA ADPCM chunk, then as {@link #write}. */
+    public void writeAdpcm(int seq, int timestamp, byte[] data, int offset, int length) {
+        if (ring == null) return;
+        int channels = frameBytes / 2;
+        int frames = ImaAdpcm.frameCount(length, channels);
+        if (frames < 0) {
+            Log.w(TAG, "Bad ADPCM chunk: " + length + " bytes");
+            return;
+        }
+        receivedFrames += frames;
+        if (!running || paused) return;
+        // Allocated once per chunk size, not per chunk
+        if (decodeBuf == null || decodeBuf.length < frames * frameBytes) {
+            decodeBuf = new byte[frames * frameBytes];
         }
+        int n = ImaAdpcm.decode(data, offset, length, channels, decodeBuf);
+        if (n < 0) {
+            Log.w(TAG, "Bad ADPCM chunk header");
+            return;
+        }
+        enqueue(seq, timestamp, decodeBuf, 0, n);
+    }
+
+    private void enqueue(int seq, int timestamp, byte[] data, int offset, int length) {
+        ByteRing r = ring;
+        JitterBuffer j = jitter;
+        AudioTrack t = track;
+        if (r == null || t == null || !running || paused) return;
+        int queued = (int) (r.available() / frameBytes + trackPendingFrames(t));
+        if (!j.onArrival(seq, timestamp, queued, System.nanoTime())) return;
+        int fit = Math.min(length, r.free()) / frameBytes * frameBytes;
+        int n = r.write(data, offset, fit);
+        if (n < length) droppedBytes += length - n;
     }
 
     public void pause() {
@@ -126,10 +282,13 @@ public class AudioPlayer {
         if (t != null) {
             try { t.pause(); } catch (IllegalStateException ignored) {}
         }
-        if (queue != null) queue.clear();
+        // The writer thread discards what is buffered; it owns the read side
     }
 
     public void resume() {
+        // Timestamps jump over the pause; measure the jitter afresh
+        JitterBuffer j = jitter;
+        if (j != null) j.reset();
         paused = false;
         AudioTrack t = track;
         if (t != null) {
@@ -151,10 +310,8 @@ public class AudioPlayer {
             try { writerThread.join(1000); } catch (InterruptedException ignored) {}
             writerThread = null;
         }
-        if (queue != null) {
-            queue.clear();
-            queue = null;
-        }
+        ring = null;
+        jitter = null;
         if (t != null) {
             try { t.stop(); } catch (IllegalStateException ignored) {}
             t.release();
@@ -6,6 +6,7 @@ import android.bluetooth.BluetoothServerSocket;
 import android.bluetooth.BluetoothSocket;
 import android.util.Log;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -17,6 +18,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
 
 public class AudioServer {
 
@@ -33,12 +35,28 @@ public class AudioServer {
     public static final byte TYPE_COMMAND   = 0x03;
     public static final byte TYPE_HEARTBEAT = 0x04;
     public static final byte TYPE_METADATA  = 0x05;
+    public static final byte TYPE_AUDIO_ADPCM = 0x06;
+
+    // Protocol 2 prefixes audio bodies with [u32 seq][u32 sample timestamp], big-endian
+    private static final int PROTOCOL = 2;
+    private static final int AUDIO_HEADER_SIZE = 8;
+
+    // Encodings advertised to the sender, which picks one in its CONFIG
+    public static final String ENCODING_PCM = "pcm_16bit_le";
+    public static final String ENCODING_ADPCM = "ima_adpcm";
 
     public interface Listener {
         void onClientConnected(String deviceName, String mac);
         void onClientDisconnected();
-        void onConfigReceived(int sampleRate, int channels);
-        void onAudioChunkReceived(byte[] data, int length);
+        /** @param flowControl sender transmits only within credits granted by {@link #sendCredit} */
+        void onConfigReceived(int sampleRate, int channels, boolean flowControl);
+        /**
+         * @param seq       chunk sequence number
+         * @param timestamp sender sample-frame count at the first frame of the chunk
+         */
+        void onAudioChunkReceived(int seq, int timestamp, byte[] data, int offset, int length);
+        /** Same as {@link #onAudioChunkReceived}, for an IMA ADPCM chunk. */
+        void onAdpcmChunkReceived(int seq, int timestamp, byte[] data, int offset, int length);
         void onMetadataReceived(String title, String artist);
         void onError(String error);
         void onListening(int channel);
@@ -51,6 +69,16 @@ public class AudioServer {
     private OutputStream outStream;
     private volatile boolean running;
 
+    // Outgoing COMMAND bodies, written by one thread per client so callers never block
+    private final LinkedBlockingQueue<byte[]> commands = new LinkedBlockingQueue<>();
+    private Thread commandThread;
+
+    // Set by the client's CONFIG frame; read thread only
+    private int protocol = 1;
+    private int frameBytes = 2;
+    private int nextSeq;
+    private int nextTimestamp;
+
     public AudioServer(Listener listener) {
         this.listener = listener;
         this.adapter = BluetoothAdapter.getDefaultAdapter();
@@ -82,18 +110,64 @@ public class AudioServer {
     }
 
     public void sendCommand(String cmd) {
-        OutputStream out = this.outStream;
-        if (out == null) return;
-        new Thread(() -> {
-            try {
-                JSONObject json = new JSONObject();
-                json.put("cmd", cmd);
-                byte[] body = json.toString().getBytes("UTF-8");
-                writeFrame(out, TYPE_COMMAND, body);
-            } catch (JSONException | IOException e) {
-                Log.w(TAG, "Send command failed: " + e.getMessage());
+        try {
+            JSONObject json = new JSONObject();
+            json.put("cmd", cmd);
+            queueCommand(json);
+        } catch (JSONException e) {
+            Log.w(TAG, "Send command failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Flow control: allow the sender another {@code frames} sample frames.
+     * Safe to call from the audio writer thread; it never blocks.
+     */
+    public void sendCredit(int frames) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("cmd", "credit");
+            json.put("frames", frames);
+            queueCommand(json);
+        } catch (JSONException e) {
+            Log.w(TAG, "Send credit failed: " + e.getMessage());
+        }
+    }
+
+    private void queueCommand(JSONObject json) {
+        if (outStream == null) return;
+        try {
+            commands.offer(json.toString().getBytes("UTF-8"));
+        } catch (IOException e) {
+            Log.w(TAG, "Send command failed: " + e.getMessage());
+        }
+    }
+
+    private void commandLoop(OutputStream out) {
+        try {
+            while (running) {
+                writeFrame(out, TYPE_COMMAND, commands.take());
             }
-        }, "AudioSendCmd").start();
+        } catch (InterruptedException ignored) {
+        } catch (IOException e) {
+            Log.w(TAG, "Send command failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tell the sender what this build understands. Sent as a CONFIG frame
+     * right after connecting; senders that predate it ignore it.
+     */
+    private static void sendHello(OutputStream out) {
+        try {
+            JSONObject json = new JSONObject();
+            json.put("protocol", PROTOCOL);
+            json.put("encodings", new JSONArray().put(ENCODING_PCM).put(ENCODING_ADPCM));
+            json.put("flow_control", true);
+            writeFrame(out, TYPE_CONFIG, json.toString().getBytes("UTF-8"));
+        } catch (JSONException | IOException e) {
+            Log.w(TAG, "Send hello failed: " + e.getMessage());
+        }
     }
 
     // --- Frame I/O ---
@@ -187,6 +261,12 @@ public class AudioServer {
         try {
             InputStream in = new BufferedInputStream(socket.getInputStream(), MAX_FRAME_SIZE);
             outStream = socket.getOutputStream();
+            sendHello(outStream);
+
+            commands.clear();
+            commandThread = new Thread(() -> commandLoop(outStream), "AudioSendCmd");
+            commandThread.setDaemon(true);
+            commandThread.start();
 
             // Start heartbeat thread
             Thread heartbeat = new Thread(() -> heartbeatLoop(outStream), "AudioHeartbeat");
@@ -217,7 +297,10 @@ public class AudioServer {
                         handleConfig(bodyBuf, bodyLen);
                         break;
                     case TYPE_AUDIO:
-                        listener.onAudioChunkReceived(bodyBuf, bodyLen);
+                        handleAudio(bodyBuf, bodyLen);
+                        break;
+                    case TYPE_AUDIO_ADPCM:
+                        handleAdpcm(bodyBuf, bodyLen);
                         break;
                     case TYPE_COMMAND:
                         break;
@@ -246,13 +329,54 @@ public class AudioServer {
             JSONObject config = new JSONObject(json);
             int sampleRate = config.optInt("sample_rate", 44100);
             int channels = config.optInt("channels", 1);
-            Log.i(TAG, "Config: " + sampleRate + "Hz " + channels + "ch");
-            listener.onConfigReceived(sampleRate, channels);
+            boolean flowControl = config.optBoolean("flow_control", false);
+            protocol = config.optInt("protocol", 1);
+            frameBytes = channels * 2;
+            nextSeq = 0;
+            nextTimestamp = 0;
+            Log.i(TAG, "Config: " + sampleRate + "Hz " + channels + "ch, protocol " + protocol
+                    + ", " + config.optString("encoding", ENCODING_PCM)
+                    + (flowControl ? ", flow control" : ""));
+            listener.onConfigReceived(sampleRate, channels, flowControl);
         } catch (Exception e) {
             Log.e(TAG, "Invalid config frame", e);
         }
     }
 
+    private void handleAudio(byte[] body, int len) {
+        if (protocol < 2) {
+            // Older senders: number the chunks and count frames ourselves
+            listener.onAudioChunkReceived(nextSeq++, nextTimestamp, body, 0, len);
+            nextTimestamp += len / frameBytes;
+            return;
+        }
+        if (len < AUDIO_HEADER_SIZE) {
+            Log.w(TAG, "Short audio frame: " + len);
+            return;
+        }
+        int seq = readInt(body, 0);
+        int timestamp = readInt(body, 4);
+        listener.onAudioChunkReceived(seq, timestamp, body, AUDIO_HEADER_SIZE, len - AUDIO_HEADER_SIZE);
+    }
+
+    private void handleAdpcm(byte[] body, int len) {
+        // Only senders that saw our hello use ADPCM, so the header is always there
+        if (len < AUDIO_HEADER_SIZE) {
+            Log.w(TAG, "Short audio frame: " + len);
+            return;
+        }
+        int seq = readInt(body, 0);
+        int timestamp = readInt(body, 4);
+        listener.onAdpcmChunkReceived(seq, timestamp, body, AUDIO_HEADER_SIZE, len - AUDIO_HEADER_SIZE);
+    }
+
+    private static int readInt(byte[] buf, int off) {
+        return ((buf[off] & 0xFF) << 24)
+             | ((buf[off + 1] & 0xFF) << 16)
+             | ((buf[off + 2] & 0xFF) << 8)
+             |  (buf[off + 3] & 0xFF);
+    }
+
     private void handleMetadata(byte[] body, int len) {
         try {
             String json = new String(body, 0, len, "UTF-8");
@@ -281,6 +405,10 @@ public class AudioServer {
 
     private void closeClient() {
         outStream = null;
+        if (commandThread != null) {
+            commandThread.interrupt();
+            commandThread = null;
+        }
         try {
             if (clientSocket != null) clientSocket.close();
         } catch (IOException ignored) {}
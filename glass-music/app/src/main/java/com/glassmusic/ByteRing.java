@@ -0,0 +1,109 @@
+package com.glassmusic;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated single-producer, single-consumer byte ring.
+ *
+ * The producer (RFCOMM read thread) only advances writePos and the consumer
+ * (AudioTrack writer) only advances readPos, so neither side takes a lock.
+ * A consumer that runs dry parks, and the producer unparks it once at least
+ * the requested low-water amount is buffered, so the consumer is not woken
+ * for every small write.
+ */
+public class ByteRing {
+
+    private final byte[] buf;
+    private final int mask;
+
+    private volatile long writePos;
+    private volatile long readPos;
+
+    // Parked consumer and the fill level it is waiting for
+    private volatile Thread waiter;
+    private volatile int wakeLevel;
+
+    /** @param capacity rounded up to a power of two */
+    public ByteRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        buf = new byte[size];
+        mask = size - 1;
+    }
+
+    public int capacity() {
+        return buf.length;
+    }
+
+    /** Bytes buffered. Exact for the consumer, a lower bound for the producer. */
+    public int available() {
+        return (int) (writePos - readPos);
+    }
+
+    /** Free space. Exact for the producer, a lower bound for the consumer. */
+    public int free() {
+        return buf.length - available();
+    }
+
+    // --- Producer side ---
+
+    /** Copy up to {@code len} bytes in. Returns how many fit. */
+    public int write(byte[] src, int off, int len) {
+        long w = writePos;
+        int n = Math.min(len, buf.length - (int) (w - readPos));
+        int start = (int) w & mask;
+        int first = Math.min(n, buf.length - start);
+        System.arraycopy(src, off, buf, start, first);
+        System.arraycopy(src, off + first, buf, 0, n - first);
+        writePos = w + n;
+
+        Thread t = waiter;
+        if (t != null && w + n - readPos >= wakeLevel) {
+            LockSupport.unpark(t);
+        }
+        return n;
+    }
+
+    // --- Consumer side ---
+
+    /** Copy up to {@code len} bytes out. Returns how many were read. */
+    public int read(byte[] dst, int off, int len) {
+        long r = readPos;
+        int n = Math.min(len, (int) (writePos - r));
+        int start = (int) r & mask;
+        int first = Math.min(n, buf.length - start);
+        System.arraycopy(buf, start, dst, off, first);
+        System.arraycopy(buf, 0, dst, off + first, n - first);
+        readPos = r + n;
+        return n;
+    }
+
+    /** Discard up to {@code n} buffered bytes. Returns how many were skipped. */
+    public int skip(int n) {
+        long r = readPos;
+        n = Math.min(n, (int) (writePos - r));
+        readPos = r + n;
+        return n;
+    }
+
+    /**
+     * Park until at least {@code level} bytes are buffered, the timeout
+     * passes or the thread is interrupted. Returns true if the level is met.
+     */
+    public boolean awaitAvailable(int level, long timeoutNanos) {
+        if (available() >= level) return true;
+        wakeLevel = Math.min(level, buf.length);
+        waiter = Thread.currentThread();
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            // Re-check after publishing the waiter so a write in between is not missed
+            while (available() < level) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0 || Thread.currentThread().isInterrupted()) return false;
+                LockSupport.parkNanos(this, left);
+            }
+            return true;
+        } finally {
+            waiter = null;
+        }
+    }
+}
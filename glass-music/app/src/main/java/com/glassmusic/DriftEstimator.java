@@ -0,0 +1,69 @@
+package com.glassmusic;
+
+/**
+ * Estimates the clock drift between the sender's capture clock and the
+ * AudioTrack from how the buffer fill level trends over time.
+ *
+ * Fed once a second with the playout delay plus every frame our own
+ * corrections have removed, i.e. the fill the buffer would have without
+ * them. Its least-squares slope over the last couple of minutes, relative
+ * to the sample rate, is the drift. Writer thread only.
+ */
+class DriftEstimator {
+
+    private static final int WINDOW = 120;
+    // Samples needed before the slope is trusted
+    private static final int MIN_SAMPLES = 20;
+
+    private final int sampleRate;
+    private final double[] times = new double[WINDOW];
+    private final double[] fills = new double[WINDOW];
+    private int count;
+    private int next;
+    private double ppm;
+
+    DriftEstimator(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @param seconds    time of the measurement
+     * @param fillFrames uncorrected buffer fill in frames
+     */
+    void addSample(double seconds, double fillFrames) {
+        times[next] = seconds;
+        fills[next] = fillFrames;
+        next = (next + 1) % WINDOW;
+        if (count < WINDOW) count++;
+        if (count < MIN_SAMPLES) return;
+
+        double meanT = 0, meanF = 0;
+        for (int i = 0; i < count; i++) {
+            meanT += times[i];
+            meanF += fills[i];
+        }
+        meanT /= count;
+        meanF /= count;
+        double num = 0, den = 0;
+        for (int i = 0; i < count; i++) {
+            double dt = times[i] - meanT;
+            num += dt * (fills[i] - meanF);
+            den += dt * dt;
+        }
+        if (den > 0) ppm = num / den / sampleRate * 1e6;
+    }
+
+    /**
+     * Start a new fit after a discontinuity in the fill level (underrun,
+     * pause). The last estimate stands until the new fit has enough samples.
+     */
+    void restart() {
+        count = 0;
+        next = 0;
+    }
+
+    /** Positive when the sender runs fast, i.e. the buffer would grow. */
+    double getPpm() {
+        return ppm;
+    }
+}
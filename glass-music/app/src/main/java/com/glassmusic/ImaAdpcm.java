@@ -0,0 +1,89 @@
+package com.glassmusic;
+
+/**
+ * IMA ADPCM decoder for TYPE_AUDIO_ADPCM chunks (4 bits per sample).
+ *
+ * Chunk layout, after the seq/timestamp header:
+ *
+ *   for each channel: [int16 LE predictor] [u8 step index] [u8 0]
+ *   for each channel: frames / 2 bytes of codes, high nibble first
+ *
+ * Channels are stored one after the other rather than interleaved, and the
+ * header carries the encoder state at the chunk's first sample, so every
+ * chunk decodes on its own even if the one before it was dropped.
+ */
+public final class ImaAdpcm {
+
+    public static final int HEADER_BYTES_PER_CHANNEL = 4;
+
+    private static final int[] STEP = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17,
+            19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+            50, 55, 60, 66, 73, 80, 88, 97, 107, 118,
+            130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+            337, 371, 408, 449, 494, 544, 598, 658, 724, 796,
+            876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+            2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358,
+            5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+            15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767
+    };
+
+    private static final int[] INDEX_ADJUST = {
+            -1, -1, -1, -1, 2, 4, 6, 8,
+            -1, -1, -1, -1, 2, 4, 6, 8
+    };
+
+    private ImaAdpcm() {}
+
+    /** Sample frames in a chunk of {@code len} bytes, or -1 if the length is invalid. */
+    public static int frameCount(int len, int channels) {
+        int data = len - HEADER_BYTES_PER_CHANNEL * channels;
+        if (data < 0 || data % channels != 0) return -1;
+        return data / channels * 2;
+    }
+
+    /**
+     * Decode a chunk to interleaved 16-bit little-endian PCM.
+     * Returns the number of bytes written to {@code dst}, or -1 if the chunk is malformed.
+     */
+    public static int decode(byte[] src, int off, int len, int channels, byte[] dst) {
+        int frames = frameCount(len, channels);
+        if (frames < 0) return -1;
+        int stride = channels * 2;
+        int codes = off + HEADER_BYTES_PER_CHANNEL * channels;
+        for (int ch = 0; ch < channels; ch++) {
+            int h = off + ch * HEADER_BYTES_PER_CHANNEL;
+            int predictor = (short) ((src[h] & 0xFF) | (src[h + 1] << 8));
+            int index = src[h + 2] & 0xFF;
+            if (index > 88) return -1;
+
+            int in = codes + ch * (frames / 2);
+            int out = ch * 2;
+            for (int i = 0; i < frames; i += 2) {
+                int b = src[in++];
+                for (int shift = 4; shift >= 0; shift -= 4) {
+                    int code = (b >> shift) & 0x0F;
+                    int step = STEP[index];
+                    int diff = step >> 3;
+                    if ((code & 1) != 0) diff += step >> 2;
+                    if ((code & 2) != 0) diff += step >> 1;
+                    if ((code & 4) != 0) diff += step;
+                    if ((code & 8) != 0) {
+                        predictor -= diff;
+                        if (predictor < -32768) predictor = -32768;
+                    } else {
+                        predictor += diff;
+                        if (predictor > 32767) predictor = 32767;
+                    }
+                    index += INDEX_ADJUST[code];
+                    if (index < 0) index = 0; else if (index > 88) index = 88;
+
+                    dst[out] = (byte) predictor;
+                    dst[out + 1] = (byte) (predictor >> 8);
+                    out += stride;
+                }
+            }
+        }
+        return frames * stride;
+    }
+}
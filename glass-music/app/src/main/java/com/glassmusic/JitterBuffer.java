@@ -0,0 +1,285 @@
+package com.glassmusic;
+
+/**
+ * Adaptive playout delay for audio arriving over RFCOMM.
+ *
+ * Every TYPE_AUDIO frame carries a sequence number and the sender's sample
+ * timestamp. Transit time (arrival minus media time) wanders by the link's
+ * jitter; its spread over the last half minute is how far ahead audio has
+ * to be buffered so no frame arrives after it is due. The target playout
+ * delay is that spread plus a small margin.
+ *
+ * Steering the delay towards the target is the Resampler's job: the writer
+ * thread turns {@link #getErrorFrames} into a small rate change. This class
+ * only steps in as a safety net when the error leaves a band of twice the
+ * margin either side of the target (a burst the resampler's few hundred ppm
+ * would take too long to absorb): it then drops or repeats a single sample
+ * frame at most once every {@link #SPACING} frames, which is not audible,
+ * until the delay is back at the edge of the band. Inside the band the two
+ * never act on the same error.
+ *
+ * {@link #onArrival} runs on the RFCOMM read thread; {@link #update} and
+ * {@link #process} on the AudioTrack writer thread.
+ */
+class JitterBuffer {
+
+    private static final int BUCKETS = 30;
+    private static final long BUCKET_NS = 1000000000L;
+    // Delay kept on top of the measured jitter
+    private static final int MARGIN_MS = 40;
+    // Drop/repeat only corrects errors beyond this many margins from the target
+    private static final int SAFETY_BAND_MARGINS = 2;
+    // Delay used until a couple of seconds of arrivals have been seen
+    private static final int INITIAL_DELAY_MS = 300;
+    private static final int WARM_BUCKETS = 3;
+    // At most one frame dropped or repeated per this many frames (1%)
+    static final int SPACING = 100;
+
+    private final int sampleRate;
+    private final int frameBytes;
+    private final int maxDelayFrames;
+
+    // --- Read thread state ---
+    private final long[] minTransit = new long[BUCKETS];
+    private final long[] maxTransit = new long[BUCKETS];
+    private int bucket;
+    private int filled;
+    private long bucketEnd;
+    private long baseSum;
+    private int baseCount;
+    private boolean started;
+    private int lastSeq;
+    private int lastRawTimestamp;
+    private long timestamp;
+
+    // --- Published once per bucket ---
+    private volatile int jitterFrames;
+    private volatile int delayFrames;
+    private volatile boolean warm;
+    private volatile int generation;
+    private volatile long lostChunks;
+    private volatile boolean resetRequested;
+
+    // --- Writer thread state ---
+    private int seenGeneration;
+    private int pending;        // > 0 frames to drop, < 0 frames to repeat
+    private int sinceAdjust;
+    private long droppedFrames;
+    private long insertedFrames;
+
+    JitterBuffer(int sampleRate, int frameBytes, int maxDelayFrames) {
+        this.sampleRate = sampleRate;
+        this.frameBytes = frameBytes;
+        this.maxDelayFrames = maxDelayFrames;
+    }
+
+    // --- Read thread ---
+
+    /**
+     * Record the arrival of an audio frame.
+     *
+     * @param queuedFrames audio buffered ahead of playback before this frame
+     * @return false if the frame is a duplicate or out of order and should be discarded
+     */
+    boolean onArrival(int seq, int rawTimestamp, int queuedFrames, long nowNanos) {
+        if (resetRequested) {
+            resetRequested = false;
+            started = false;
+        }
+        if (!started) {
+            started = true;
+            timestamp = rawTimestamp & 0xFFFFFFFFL;
+            bucket = 0;
+            filled = 1;
+            bucketEnd = nowNanos + BUCKET_NS;
+            clearBucket(0);
+            baseSum = 0;
+            baseCount = 0;
+        } else {
+            int gap = seq - lastSeq - 1;
+            if (gap < 0) return false;
+            if (gap > 0) lostChunks += gap;
+            // 32-bit timestamps wrap; the signed difference does not care
+            timestamp += rawTimestamp - lastRawTimestamp;
+        }
+        lastSeq = seq;
+        lastRawTimestamp = rawTimestamp;
+
+        if (nowNanos >= bucketEnd) rotate(nowNanos);
+
+        long transit = nowNanos - timestamp * 1000000000L / sampleRate;
+        if (transit < minTransit[bucket]) minTransit[bucket] = transit;
+        if (transit > maxTransit[bucket]) maxTransit[bucket] = transit;
+
+        // A frame that is late by d finds the queue d shorter than an on-time
+        // one would; adding the lateness back gives the delay itself
+        long late = transit - windowMin();
+        baseSum += queuedFrames + late * sampleRate / 1000000000L;
+        baseCount++;
+        return true;
+    }
+
+    private void rotate(long nowNanos) {
+        long min = windowMin();
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < filled; i++) {
+            if (maxTransit[i] > max) max = maxTransit[i];
+        }
+        jitterFrames = (int) ((max - min) * sampleRate / 1000000000L);
+        if (baseCount > 0) delayFrames = (int) (baseSum / baseCount);
+        warm = filled >= WARM_BUCKETS;
+        generation++;
+
+        bucket = (bucket + 1) % BUCKETS;
+        clearBucket(bucket);
+        if (filled < BUCKETS) filled++;
+        baseSum = 0;
+        baseCount = 0;
+        bucketEnd += BUCKET_NS;
+        if (bucketEnd <= nowNanos) bucketEnd = nowNanos + BUCKET_NS;
+    }
+
+    private long windowMin() {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < filled; i++) {
+            if (minTransit[i] < min) min = minTransit[i];
+        }
+        return min;
+    }
+
+    private void clearBucket(int i) {
+        minTransit[i] = Long.MAX_VALUE;
+        maxTransit[i] = Long.MIN_VALUE;
+    }
+
+    /** Forget the measured jitter, e.g. after a pause left a gap in the timestamps. */
+    void reset() {
+        warm = false;
+        resetRequested = true;
+    }
+
+    // --- Writer thread ---
+
+    /** Playout delay to build up before starting or after an underrun. */
+    int getTargetFrames() {
+        int target = warm
+                ? jitterFrames + sampleRate * MARGIN_MS / 1000
+                : sampleRate * INITIAL_DELAY_MS / 1000;
+        return Math.min(target, maxDelayFrames);
+    }
+
+    /** Measured playout delay minus the target, in frames; positive when too much is buffered. */
+    int getErrorFrames() {
+        return delayFrames - getTargetFrames();
+    }
+
+    /**
+     * Pick up a new delay measurement, if one was published, and plan a
+     * drop/repeat correction if the error is outside the safety band.
+     * Returns true if there was a new measurement.
+     */
+    boolean update() {
+        int g = generation;
+        if (g == seenGeneration) return false;
+        seenGeneration = g;
+        if (!warm) {
+            pending = 0;
+            return true;
+        }
+        int error = getErrorFrames();
+        int band = sampleRate * MARGIN_MS * SAFETY_BAND_MARGINS / 1000;
+        int maxStep = sampleRate / SPACING;
+        if (Math.abs(error) <= band) {
+            // The resampler's rate correction handles it
+            pending = 0;
+        } else {
+            // Back to the edge of the band only; the resampler takes it from there
+            int excess = error > 0 ? error - band : error + band;
+            pending = Math.max(-maxStep, Math.min(maxStep, excess));
+        }
+        return true;
+    }
+
+    /** Drop any correction in progress, e.g. while rebuffering. */
+    void cancelAdjust() {
+        pending = 0;
+    }
+
+    /**
+     * Copy {@code n} bytes of whole frames from {@code in} to {@code out},
+     * dropping or repeating frames as planned. {@code out} must have room
+     * for {@link #maxOutput}{@code (n)} bytes. Returns the bytes written.
+     */
+    int process(byte[] in, int n, byte[] out) {
+        int i = 0, o = 0;
+        while (i < n) {
+            int run = n - i;
+            if (pending != 0) run = Math.min(run, Math.max(0, SPACING - sinceAdjust) * frameBytes);
+            System.arraycopy(in, i, out, o, run);
+            i += run;
+            o += run;
+            sinceAdjust += run / frameBytes;
+            if (pending != 0 && sinceAdjust >= SPACING) {
+                if (pending > 0) {
+                    if (i >= n) break;
+                    i += frameBytes;
+                    pending--;
+                    droppedFrames++;
+                } else {
+                    if (o >= frameBytes) {
+                        System.arraycopy(out, o - frameBytes, out, o, frameBytes);
+                    } else {
+                        System.arraycopy(in, i, out, o, frameBytes);
+                    }
+                    o += frameBytes;
+                    pending++;
+                    insertedFrames++;
+                }
+                sinceAdjust = 0;
+            } else if (pending == 0) {
+                sinceAdjust = Math.min(sinceAdjust, SPACING);
+            }
+        }
+        return o;
+    }
+
+    int maxOutput(int n) {
+        return n + (n / frameBytes / SPACING + 2) * frameBytes;
+    }
+
+    // --- Stats ---
+
+    int getJitterMs() {
+        return (int) ((long) jitterFrames * 1000 / sampleRate);
+    }
+
+    int getDelayMs() {
+        return (int) ((long) delayFrames * 1000 / sampleRate);
+    }
+
+    int getDelayFrames() {
+        return delayFrames;
+    }
+
+    boolean isWarm() {
+        return warm;
+    }
+
+    int getTargetMs() {
+        return (int) ((long) getTargetFrames() * 1000 / sampleRate);
+    }
+
+    long getLostChunks() {
+        return lostChunks;
+    }
+
+    /** Writer thread only. */
+    long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /** Writer thread only. */
+    long getInsertedFrames() {
+        return insertedFrames;
+    }
+}
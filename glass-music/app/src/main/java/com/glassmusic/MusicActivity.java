@@ -99,8 +99,8 @@ public class MusicActivity extends Activity implements AudioServer.Listener {
     }
 
     @Override
-    public void onConfigReceived(int sampleRate, int channels) {
-        boolean ok = player.configure(sampleRate, channels);
+    public void onConfigReceived(int sampleRate, int channels, boolean flowControl) {
+        boolean ok = player.configure(sampleRate, channels, flowControl ? server::sendCredit : null);
         if (!ok) {
             runOnUiThread(() -> {
                 textStatus.setText("AUDIO ERROR");
@@ -110,8 +110,18 @@ public class MusicActivity extends Activity implements AudioServer.Listener {
     }
 
     @Override
-    public void onAudioChunkReceived(byte[] data, int length) {
-        player.write(data, length);
+    public void onAudioChunkReceived(int seq, int timestamp, byte[] data, int offset, int length) {
+        player.write(seq, timestamp, data, offset, length);
+        showPlaying();
+    }
+
+    @Override
+    public void onAdpcmChunkReceived(int seq, int timestamp, byte[] data, int offset, int length) {
+        player.writeAdpcm(seq, timestamp, data, offset, length);
+        showPlaying();
+    }
+
+    private void showPlaying() {
         // Update UI to PLAYING once
         if (!playingShown && !player.isPaused()) {
             playingShown = true;
@@ -0,0 +1,99 @@
+package com.glassmusic;
+
+/**
+ * Streaming resampler for small rate corrections (a few hundred ppm) on
+ * interleaved 16-bit PCM.
+ *
+ * Uses 4-point cubic Hermite interpolation, which keeps the treble flat
+ * enough that the slowly rotating interpolation phase does not flutter the
+ * way linear interpolation does. Three frames of history carry over between
+ * calls, so chunk boundaries are seamless. Writer thread only.
+ */
+class Resampler {
+
+    private static final int HISTORY = 3;
+    private static final long ONE = 1L << 32;
+
+    private final int channels;
+    private final float[] work;
+    private final int maxFrames;
+
+    // Read position in work[], 32.32 fixed point, between frame 1 and 2 of the history
+    private long pos = ONE;
+    private long step = ONE;
+    private int ppm;
+    private long inFrames;
+    private long outFrames;
+
+    /** @param maxFrames largest input, in frames, passed to {@link #process} */
+    Resampler(int channels, int maxFrames) {
+        this.channels = channels;
+        this.maxFrames = maxFrames;
+        work = new float[(maxFrames + HISTORY) * channels];
+    }
+
+    /** Consume input faster (positive) or slower (negative) than real time by this many ppm. */
+    void setPpm(int ppm) {
+        this.ppm = ppm;
+        step = ONE + Math.round(ppm * 1e-6 * ONE);
+    }
+
+    int getPpm() {
+        return ppm;
+    }
+
+    /** Largest output, in bytes, for {@code n} bytes of input. */
+    int maxOutput(int n) {
+        return n + 4 * channels * 2;
+    }
+
+    /**
+     * Resample {@code n} bytes of whole frames from {@code in} into
+     * {@code out}, which must have room for {@link #maxOutput}{@code (n)}
+     * bytes. Returns the bytes written.
+     */
+    int process(byte[] in, int n, byte[] out) {
+        int frames = n / (channels * 2);
+        if (frames > maxFrames) throw new IllegalArgumentException("Chunk too large: " + frames);
+        int base = HISTORY * channels;
+        for (int i = 0, b = 0; i < frames * channels; i++, b += 2) {
+            work[base + i] = (short) ((in[b] & 0xFF) | (in[b + 1] << 8));
+        }
+        int total = HISTORY + frames;
+
+        // Interpolating between frames k and k+1 needs k-1 and k+2 as well
+        int o = 0;
+        long end = (long) (total - 2) << 32;
+        while (pos < end) {
+            int k = (int) (pos >>> 32);
+            float t = (pos & (ONE - 1)) * (1f / ONE);
+            int f = k * channels;
+            for (int c = 0; c < channels; c++, f++) {
+                float xm1 = work[f - channels];
+                float x0 = work[f];
+                float x1 = work[f + channels];
+                float x2 = work[f + 2 * channels];
+                float c1 = 0.5f * (x1 - xm1);
+                float c2 = xm1 - 2.5f * x0 + 2f * x1 - 0.5f * x2;
+                float c3 = 0.5f * (x2 - xm1) + 1.5f * (x0 - x1);
+                int y = Math.round(((c3 * t + c2) * t + c1) * t + x0);
+                if (y > 32767) y = 32767; else if (y < -32768) y = -32768;
+                out[o++] = (byte) y;
+                out[o++] = (byte) (y >> 8);
+            }
+            pos += step;
+        }
+
+        // Keep the last frames as history for the next call
+        System.arraycopy(work, frames * channels, work, 0, base);
+        pos -= (long) frames << 32;
+        inFrames += frames;
+        outFrames += o / (channels * 2);
+        return o;
+    }
+
+    /** Frames consumed beyond those produced, i.e. how far the correction has moved the delay. */
+    long getNetFrames() {
+        return inFrames - outFrames;
+    }
+}
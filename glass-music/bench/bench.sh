@@ -0,0 +1,16 @@
+#!/bin/bash
+# Build and run the IMA ADPCM decode benchmark on the desktop JVM
+# Usage: ./bench.sh [--rate N] [--channels N] [--seconds N] [--warmup N]
+
+set -e
+
+DIR="$(cd "$(dirname "$0")" && pwd)"
+SRC="$DIR/../app/src/main/java/com/glassmusic"
+OUT="$DIR/build"
+
+mkdir -p "$OUT"
+javac -encoding UTF-8 -d "$OUT" \
+    "$SRC/ImaAdpcm.java" \
+    "$DIR"/src/com/glassmusic/bench/*.java
+
+exec java -cp "$OUT" com.glassmusic.bench.AdpcmBench "$@"
@@ -0,0 +1,159 @@
+package com.glassmusic.bench;
+
+import com.glassmusic.ImaAdpcm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Desktop-JVM decode throughput benchmark for ImaAdpcm.
+ *
+ * Synthesises a few seconds of music-like audio, encodes it into chunks
+ * the way glass_music.py does (encoder below mirrors ima_encode_channel),
+ * then decodes them in a loop the way AudioPlayer.writeAdpcm does. Reports
+ * decoded MB/s, ns per sample, how many times faster than real time that
+ * is, and the round-trip SNR as a sanity check on the codec.
+ *
+ *   bench.sh [--rate N] [--channels N] [--seconds N] [--warmup N]
+ */
+public class AdpcmBench {
+
+    // PCM bytes per chunk, as glass_music.py reads with ADPCM (4 x CHUNK_SIZE)
+    static final int CHUNK_PCM = 16384;
+    static final int AUDIO_SECONDS = 10;
+
+    public static void main(String[] args) {
+        int rate = 44100, channels = 2, seconds = 3, warmup = 2;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rate":     rate = Integer.parseInt(args[++i]); break;
+                case "--channels": channels = Integer.parseInt(args[++i]); break;
+                case "--seconds":  seconds = Integer.parseInt(args[++i]); break;
+                case "--warmup":   warmup = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Usage: bench.sh [--rate N] [--channels N] [--seconds N] [--warmup N]");
+                    System.exit(2);
+            }
+        }
+
+        short[] pcm = synth(rate, channels, AUDIO_SECONDS, 1);
+        int chunkFrames = CHUNK_PCM / (channels * 2) / 2 * 2;
+        List<byte[]> chunks = encode(pcm, channels, chunkFrames);
+        long encoded = 0;
+        for (byte[] c : chunks) encoded += c.length;
+
+        byte[] dst = new byte[chunkFrames * channels * 2];
+        run(chunks, channels, dst, warmup);
+        long start = System.nanoTime();
+        long bytes = run(chunks, channels, dst, seconds);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        double mbps = bytes / elapsed / 1e6;
+        double nsPerSample = elapsed * 1e9 / (bytes / 2.0);
+        double realtime = bytes / elapsed / (rate * channels * 2.0);
+        System.out.printf("%d Hz %d ch, %d chunks, %.1f kbps on the wire (PCM %.1f kbps)%n", rate, channels,
+                chunks.size(), encoded * 8 / 1000.0 / AUDIO_SECONDS, rate * channels * 16 / 1000.0);
+        System.out.printf("decode %8.1f MB/s %7.2f ns/sample %8.0fx realtime  SNR %.1f dB%n",
+                mbps, nsPerSample, realtime, snr(pcm, chunks, channels, dst));
+    }
+
+    /** Decode every chunk until the time is up. Returns decoded bytes. */
+    static long run(List<byte[]> chunks, int channels, byte[] dst, int seconds) {
+        long deadline = System.nanoTime() + seconds * 1000000000L;
+        long bytes = 0;
+        do {
+            for (byte[] chunk : chunks) {
+                bytes += ImaAdpcm.decode(chunk, 0, chunk.length, channels, dst);
+            }
+        } while (System.nanoTime() < deadline);
+        return bytes;
+    }
+
+    static double snr(short[] pcm, List<byte[]> chunks, int channels, byte[] dst) {
+        double signal = 0, noise = 0;
+        int pos = 0;
+        for (byte[] chunk : chunks) {
+            int n = ImaAdpcm.decode(chunk, 0, chunk.length, channels, dst);
+            for (int i = 0; i < n; i += 2) {
+                int s = pcm[pos++];
+                int d = (short) ((dst[i] & 0xFF) | (dst[i + 1] << 8));
+                signal += (double) s * s;
+                noise += (double) (s - d) * (s - d);
+            }
+        }
+        return 10 * Math.log10(signal / Math.max(noise, 1));
+    }
+
+    /** A few drifting tones, a beat and some noise, per channel. Deterministic for a seed. */
+    static short[] synth(int rate, int channels, int seconds, long seed) {
+        Random random = new Random(seed);
+        short[] out = new short[rate * seconds * channels];
+        double[] freq = { 110, 277, 440, 1250, 3300 };
+        for (int f = 0; f < out.length / channels; f++) {
+            double t = (double) f / rate;
+            double beat = (f % (rate / 2)) < rate / 50 ? random.nextGaussian() * 6000 : 0;
+            for (int ch = 0; ch < channels; ch++) {
+                double v = beat + random.nextGaussian() * 300;
+                for (int k = 0; k < freq.length; k++) {
+                    v += 3000 / (k + 1) * Math.sin(2 * Math.PI * freq[k] * (1 + 0.01 * Math.sin(t)) * t + ch);
+                }
+                out[f * channels + ch] = (short) Math.max(-32768, Math.min(32767, v));
+            }
+        }
+        return out;
+    }
+
+    // --- Encoder, as in glass_music.py ---
+
+    private static final int[] STEP = {
+            7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+            50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230,
+            253, 279, 307, 337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963,
+            1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066, 2272, 2499, 2749, 3024, 3327,
+            3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442,
+            11487, 12635, 13899, 15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794,
+            32767
+    };
+    private static final int[] INDEX_ADJUST = { -1, -1, -1, -1, 2, 4, 6, 8 };
+
+    static List<byte[]> encode(short[] pcm, int channels, int chunkFrames) {
+        int[] predictor = new int[channels];
+        int[] index = new int[channels];
+        List<byte[]> chunks = new ArrayList<>();
+        int totalFrames = pcm.length / channels;
+        for (int first = 0; first + chunkFrames <= totalFrames; first += chunkFrames) {
+            byte[] chunk = new byte[channels * (ImaAdpcm.HEADER_BYTES_PER_CHANNEL + chunkFrames / 2)];
+            for (int ch = 0; ch < channels; ch++) {
+                int h = ch * ImaAdpcm.HEADER_BYTES_PER_CHANNEL;
+                chunk[h] = (byte) predictor[ch];
+                chunk[h + 1] = (byte) (predictor[ch] >> 8);
+                chunk[h + 2] = (byte) index[ch];
+            }
+            int codes = channels * ImaAdpcm.HEADER_BYTES_PER_CHANNEL;
+            for (int ch = 0; ch < channels; ch++) {
+                int p = predictor[ch], idx = index[ch];
+                int base = codes + ch * (chunkFrames / 2);
+                for (int i = 0; i < chunkFrames; i++) {
+                    int step = STEP[idx];
+                    int diff = pcm[(first + i) * channels + ch] - p;
+                    int code = 0;
+                    if (diff < 0) { code = 8; diff = -diff; }
+                    int delta = step >> 3;
+                    if (diff >= step) { code |= 4; diff -= step; delta += step; }
+                    step >>= 1;
+                    if (diff >= step) { code |= 2; diff -= step; delta += step; }
+                    step >>= 1;
+                    if (diff >= step) { code |= 1; delta += step; }
+                    p = (code & 8) != 0 ? Math.max(-32768, p - delta) : Math.min(32767, p + delta);
+                    idx = Math.max(0, Math.min(88, idx + INDEX_ADJUST[code & 7]));
+                    chunk[base + (i >> 1)] |= (i & 1) == 0 ? code << 4 : code;
+                }
+                predictor[ch] = p;
+                index[ch] = idx;
+            }
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
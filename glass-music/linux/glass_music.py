@@ -1,13 +1,28 @@
 #!/usr/bin/env python3
 """Stream Linux audio to Google Glass over Bluetooth RFCOMM."""
-import socket, struct, json, sys, time, threading, signal, subprocess
+import socket, struct, json, sys, time, threading, signal, subprocess, array, warnings, collections
+
+try:
+    with warnings.catch_warnings():
+        warnings.simplefilter("ignore", DeprecationWarning)
+        import audioop  # C IMA ADPCM encoder; removed in Python 3.13
+except ImportError:
+    audioop = None
 
 SERVICE_UUID = "f47ac10b-58cc-4372-a567-0e02b2c3d479"
 RECONNECT_DELAY = 3
 CHUNK_SIZE = 4096   # ~93ms at 22.05kHz mono 16-bit — small chunks for smoother flow
 SAMPLE_RATE = 22050
 CHANNELS = 1
+ADPCM_SAMPLE_RATE = 44100
+ADPCM_CHANNELS = 2
 HEARTBEAT_INTERVAL = 15
+PROTOCOL = 2        # 2: audio bodies start with [u32 seq][u32 sample timestamp]
+HELLO_TIMEOUT = 2   # Seconds to wait for Glass to advertise its encodings
+MAX_BACKLOG_SECONDS = 2  # Audio held back while out of credit before the oldest is dropped
+
+ENCODING_PCM = "pcm_16bit_le"
+ENCODING_ADPCM = "ima_adpcm"
 
 # Frame types
 TYPE_CONFIG    = 0x01
@@ -15,6 +30,18 @@ TYPE_AUDIO     = 0x02
 TYPE_COMMAND   = 0x03
 TYPE_HEARTBEAT = 0x04
 TYPE_METADATA  = 0x05
+TYPE_AUDIO_ADPCM = 0x06
+
+IMA_STEP = [
+    7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+    50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230,
+    253, 279, 307, 337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963,
+    1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066, 2272, 2499, 2749, 3024, 3327,
+    3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442,
+    11487, 12635, 13899, 15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794,
+    32767,
+]
+IMA_INDEX = [-1, -1, -1, -1, 2, 4, 6, 8]
 
 
 def send_frame(sock, frame_type, body=b""):
@@ -56,6 +83,106 @@ def recv_frame(sock):
     return frame_type, body
 
 
+def ima_encode_channel(samples, state):
+    """IMA ADPCM-encode one channel's samples (high nibble first).
+
+    Same result as audioop.lin2adpcm, for Pythons without audioop.
+    Returns (codes, (predictor, index)).
+    """
+    predictor, index = state
+    out = bytearray((len(samples) + 1) // 2)
+    for i, sample in enumerate(samples):
+        step = IMA_STEP[index]
+        diff = sample - predictor
+        code = 0
+        if diff < 0:
+            code = 8
+            diff = -diff
+        delta = step >> 3
+        if diff >= step:
+            code |= 4
+            diff -= step
+            delta += step
+        step >>= 1
+        if diff >= step:
+            code |= 2
+            diff -= step
+            delta += step
+        step >>= 1
+        if diff >= step:
+            code |= 1
+            delta += step
+        predictor = predictor - delta if code & 8 else predictor + delta
+        predictor = max(-32768, min(32767, predictor))
+        index = max(0, min(88, index + IMA_INDEX[code & 7]))
+        out[i >> 1] |= code << 4 if i & 1 == 0 else code
+    return bytes(out), (predictor, index)
+
+
+class ImaAdpcmEncoder:
+    """Encodes PCM chunks to TYPE_AUDIO_ADPCM bodies.
+
+    Each chunk starts with every channel's encoder state, then each
+    channel's codes in turn, so Glass can decode any chunk on its own.
+    """
+
+    def __init__(self, channels):
+        self.channels = channels
+        self.state = [(0, 0)] * channels
+
+    def encode(self, pcm):
+        samples = array.array("h", pcm)
+        if sys.byteorder == "big":
+            samples.byteswap()
+        header = b"".join(struct.pack("<hBB", p, i, 0) for p, i in self.state)
+        codes = []
+        for ch in range(self.channels):
+            mono = samples[ch::self.channels]
+            if audioop:
+                # lin2adpcm wants native-order samples, which mono already is
+                c, self.state[ch] = audioop.lin2adpcm(mono.tobytes(), 2, self.state[ch])
+            else:
+                c, self.state[ch] = ima_encode_channel(mono, self.state[ch])
+            codes.append(c)
+        return header + b"".join(codes)
+
+
+def read_hello(sock):
+    """Wait briefly for the CONFIG Glass sends on connect.
+
+    Returns it as a dict; builds without the hello get {} (PCM only, no flow control).
+    """
+    sock.settimeout(HELLO_TIMEOUT)
+    try:
+        frame_type, body = recv_frame(sock)
+        if frame_type == TYPE_CONFIG:
+            return json.loads(body.decode("utf-8"))
+    except socket.timeout:
+        pass
+    finally:
+        sock.settimeout(None)
+    return {}
+
+
+class Credits:
+    """Sample frames Glass has promised room for (flow control)."""
+
+    def __init__(self):
+        self.frames = 0
+        self.lock = threading.Lock()
+
+    def grant(self, frames):
+        with self.lock:
+            self.frames += frames
+
+    def take(self, frames):
+        with self.lock:
+            if self.frames < frames:
+                return False
+            self.frames -= frames
+            return True
+
+
 def find_channel(addr):
     """Find RFCOMM channel via SDP lookup (PyBluez, sdptool, or channel scan)."""
     # Try PyBluez
@@ -128,8 +255,8 @@ def get_default_monitor():
     return None
 
 
-def reader_thread(sock, stop_event, paused_event):
-    """Read COMMAND frames from Glass (pause/resume)."""
+def reader_thread(sock, stop_event, paused_event, credits):
+    """Read COMMAND frames from Glass (pause/resume, flow-control credit)."""
     while not stop_event.is_set():
         try:
             frame_type, body = recv_frame(sock)
@@ -142,6 +269,8 @@ def reader_thread(sock, stop_event, paused_event):
                 elif cmd == "resume":
                     print("\n[Glass] Resumed")
                     paused_event.clear()
+                elif cmd == "credit" and credits is not None:
+                    credits.grant(int(cmd_json.get("frames", 0)))
             elif frame_type == TYPE_HEARTBEAT:
                 pass
         except (ConnectionError, OSError):
@@ -205,8 +334,13 @@ def heartbeat_thread(sock, stop_event):
             break
 
 
-def stream_audio(sock, monitor, stop_event, paused_event, sample_rate, channels):
-    """Capture audio via parec and stream to Glass."""
+def stream_audio(sock, monitor, stop_event, paused_event, sample_rate, channels, encoding,
+                 credits=None):
+    """Capture audio via parec and stream to Glass.
+
+    With credits, chunks wait in a backlog until Glass has granted room for
+    them; if the backlog outgrows MAX_BACKLOG_SECONDS the oldest is dropped.
+    """
     cmd = [
         "parec",
         "--device=" + monitor,
@@ -216,15 +350,51 @@ def stream_audio(sock, monitor, stop_event, paused_event, sample_rate, channels)
     ]
     proc = subprocess.Popen(cmd, stdout=subprocess.PIPE, stderr=subprocess.DEVNULL)
 
+    frame_bytes = channels * 2
+    encoder = None
+    frame_type = TYPE_AUDIO
+    chunk_size = CHUNK_SIZE
+    if encoding == ENCODING_ADPCM:
+        # 4:1, so read four times as much PCM for the same size on the wire
+        encoder = ImaAdpcmEncoder(channels)
+        frame_type = TYPE_AUDIO_ADPCM
+        chunk_size = CHUNK_SIZE * 4
+    # Whole sample frames only; ADPCM packs two frames per byte per channel
+    align = frame_bytes * 2
+    chunk_size = chunk_size // align * align
+    seq = 0
+    timestamp = 0  # Sample frames captured so far, including ones dropped while paused
+    backlog = collections.deque()  # (frame type, body, frames) awaiting credit
+    backlog_frames = 0
+    dropped = 0
+
     try:
         while not stop_event.is_set():
-            chunk = proc.stdout.read(CHUNK_SIZE)
-            if not chunk:
+            chunk = proc.stdout.read(chunk_size)
+            if len(chunk) < align:
                 break
+            chunk = chunk[:len(chunk) // align * align]
+            frames = len(chunk) // frame_bytes
             if paused_event.is_set():
+                timestamp += frames
+                backlog.clear()
+                backlog_frames = 0
                 continue  # Drop audio while paused
+            header = struct.pack(">II", seq & 0xFFFFFFFF, timestamp & 0xFFFFFFFF)
+            body = encoder.encode(chunk) if encoder else chunk
+            seq += 1
+            timestamp += frames
+            backlog.append((frame_type, header + body, frames))
+            backlog_frames += frames
+            while backlog_frames > sample_rate * MAX_BACKLOG_SECONDS:
+                backlog_frames -= backlog.popleft()[2]
+                dropped += 1
+                print(f"\rOut of credit, dropped {dropped} chunk(s)", end="", flush=True)
             try:
-                send_frame(sock, TYPE_AUDIO, chunk)
+                while backlog and (credits is None or credits.take(backlog[0][2])):
+                    ftype, payload, n = backlog.popleft()
+                    backlog_frames -= n
+                    send_frame(sock, ftype, payload)
             except (ConnectionError, OSError):
                 break
     finally:
@@ -242,28 +412,47 @@ def connect(addr, channel):
     return sock
 
 
-def stream_session(addr, channel, monitor, sample_rate=SAMPLE_RATE, channels=CHANNELS):
-    """Run one streaming session with auto-reconnect."""
+def stream_session(addr, channel, monitor, sample_rate=None, channels=None, encoding="auto"):
+    """Run one streaming session with auto-reconnect.
+
+    sample_rate/channels of None pick a default for the negotiated encoding:
+    44.1 kHz stereo for ADPCM, 22.05 kHz mono for PCM (about the same bitrate).
+    """
     while True:
         try:
             print(f"Connecting to {addr} channel {channel}...")
             sock = connect(addr, channel)
             print("Connected!")
 
+            # Negotiate the encoding from what Glass advertises
+            hello = read_hello(sock)
+            accepted = hello.get("encodings", [ENCODING_PCM])
+            credits = Credits() if hello.get("flow_control") else None
+            if encoding == "pcm" or ENCODING_ADPCM not in accepted:
+                if encoding == "adpcm":
+                    print("Glass does not accept ADPCM; sending PCM")
+                chosen = ENCODING_PCM
+            else:
+                chosen = ENCODING_ADPCM
+            rate = sample_rate or (ADPCM_SAMPLE_RATE if chosen == ENCODING_ADPCM else SAMPLE_RATE)
+            chans = channels or (ADPCM_CHANNELS if chosen == ENCODING_ADPCM else CHANNELS)
+
             # Send CONFIG frame
             config = json.dumps({
-                "sample_rate": sample_rate,
-                "channels": channels,
-                "encoding": "pcm_16bit_le",
+                "sample_rate": rate,
+                "channels": chans,
+                "encoding": chosen,
+                "protocol": PROTOCOL,
+                "flow_control": credits is not None,
             }).encode("utf-8")
             send_frame(sock, TYPE_CONFIG, config)
-            print(f"Streaming: {sample_rate}Hz {channels}ch 16-bit from {monitor}")
+            print(f"Streaming: {rate}Hz {chans}ch {chosen} from {monitor}")
 
             stop = threading.Event()
             paused = threading.Event()
 
             reader = threading.Thread(
-                target=reader_thread, args=(sock, stop, paused), daemon=True)
+                target=reader_thread, args=(sock, stop, paused, credits), daemon=True)
             reader.start()
 
             hb = threading.Thread(
@@ -275,7 +464,7 @@ def stream_session(addr, channel, monitor, sample_rate=SAMPLE_RATE, channels=CHA
             meta.start()
 
             # Stream audio (blocks until disconnect or stop)
-            stream_audio(sock, monitor, stop, paused, sample_rate, channels)
+            stream_audio(sock, monitor, stop, paused, rate, chans, chosen, credits)
 
             stop.set()
             sock.close()
@@ -296,10 +485,12 @@ def main():
                         help="RFCOMM channel (auto-detect if omitted)")
     parser.add_argument("-d", "--device", type=str,
                         help="PulseAudio monitor source (auto-detect if omitted)")
-    parser.add_argument("--rate", type=int, default=SAMPLE_RATE,
-                        help=f"Sample rate (default: {SAMPLE_RATE})")
-    parser.add_argument("--channels", type=int, default=CHANNELS,
-                        help=f"Channel count (default: {CHANNELS})")
+    parser.add_argument("--rate", type=int,
+                        help=f"Sample rate (default: {ADPCM_SAMPLE_RATE} with ADPCM, {SAMPLE_RATE} with PCM)")
+    parser.add_argument("--channels", type=int,
+                        help=f"Channel count (default: {ADPCM_CHANNELS} with ADPCM, {CHANNELS} with PCM)")
+    parser.add_argument("--encoding", choices=["auto", "adpcm", "pcm"], default="auto",
+                        help="Audio encoding (default: ADPCM if Glass accepts it)")
     parser.add_argument("--scan", action="store_true",
                         help="Scan for nearby Bluetooth devices")
     args = parser.parse_args()
@@ -348,7 +539,7 @@ def main():
     # Handle Ctrl+C
     signal.signal(signal.SIGINT, lambda *_: sys.exit(0))
 
-    stream_session(addr, channel, monitor, sample_rate, channels)
+    stream_session(addr, channel, monitor, sample_rate, channels, args.encoding)
 
 
 if __name__ == "__main__":
@@ -0,0 +1,151 @@
+package com.example.glassrss;
+
+import android.util.Log;
+
+import com.glasscommon.io.IoUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * On-disk cache of each feed's parsed items and HTTP validators.
+ *
+ * Lets a cold start show the last items without touching the network, and
+ * lets a refresh send If-None-Match / If-Modified-Since so an unchanged
+ * feed costs a 304 instead of a download and a parse. One small binary
+ * file per feed URL, replaced atomically on every store.
+ */
+class FeedCache {
+
+    private static final String TAG = "GlassRSS";
+    private static final int MAGIC = 0x52535331; // "RSS1"
+    private static final String SUFFIX = ".feed";
+
+    /** Cached state of one feed. */
+    static class Entry {
+        final String url;
+        final String etag;
+        final String lastModified;
+        final List<FeedItem> items;
+        long fetchedAt;
+
+        Entry(String url, String etag, String lastModified, List<FeedItem> items, long fetchedAt) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.items = items;
+            this.fetchedAt = fetchedAt;
+        }
+
+        /** True while the entry is younger than {@code ttlMs} and needs no revalidation. */
+        boolean isFresh(long ttlMs, long now) {
+            return now - fetchedAt >= 0 && now - fetchedAt < ttlMs;
+        }
+    }
+
+    private final File dir;
+
+    FeedCache(File dir) {
+        this.dir = dir;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Cannot create cache dir " + dir);
+        }
+    }
+
+    /** Cached entry for a feed, or null if there is none or it is unreadable. */
+    Entry load(String url) {
+        File file = fileFor(url);
+        if (!file.exists()) return null;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC) return null;
+            // Guard against a hash collision with another URL
+            if (!url.equals(IoUtils.readString(in))) return null;
+            String etag = IoUtils.readString(in);
+            String lastModified = IoUtils.readString(in);
+            long fetchedAt = in.readLong();
+            int count = in.readInt();
+            List<FeedItem> items = new ArrayList<FeedItem>(count);
+            for (int i = 0; i < count; i++) {
+                String title = IoUtils.readString(in);
+                String description = IoUtils.readString(in);
+                String source = IoUtils.readString(in);
+                String link = IoUtils.readString(in);
+                long timestamp = in.readLong();
+                items.add(FeedItem.ofPlainText(title, description, source, link, timestamp));
+            }
+            return new Entry(url, etag, lastModified, items, fetchedAt);
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable cache for " + url + ": " + e.getMessage());
+            file.delete();
+            return null;
+        } finally {
+            IoUtils.closeQuietly(in);
+        }
+    }
+
+    /** Write an entry, replacing any previous one for the same URL. */
+    void store(Entry entry) {
+        File file = fileFor(entry.url);
+        File tmp = new File(dir, file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            IoUtils.writeString(out, entry.url);
+            IoUtils.writeString(out, entry.etag);
+            IoUtils.writeString(out, entry.lastModified);
+            out.writeLong(entry.fetchedAt);
+            out.writeInt(entry.items.size());
+            for (FeedItem item : entry.items) {
+                IoUtils.writeString(out, item.getTitle());
+                IoUtils.writeString(out, item.getDescription());
+                IoUtils.writeString(out, item.getSource());
+                IoUtils.writeString(out, item.getLink());
+                out.writeLong(item.getTimestamp());
+            }
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file)) {
+                throw new IOException("rename failed");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to cache " + entry.url + ": " + e.getMessage());
+            tmp.delete();
+        } finally {
+            IoUtils.closeQuietly(out);
+        }
+    }
+
+    /** Delete entries for feeds that are no longer configured. */
+    void retain(Collection<String> urls) {
+        Set<String> keep = new HashSet<String>();
+        for (String url : urls) {
+            keep.add(fileFor(url).getName());
+        }
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        for (File f : files) {
+            if (f.getName().endsWith(SUFFIX) && !keep.contains(f.getName())) {
+                Log.d(TAG, "Removing cache for unconfigured feed: " + f.getName());
+                f.delete();
+            }
+        }
+    }
+
+    private File fileFor(String url) {
+        return new File(dir, IoUtils.sha1(url) + SUFFIX);
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.glassrss;
+
+/**
+ * Parser for the dates found in RSS and Atom feeds.
+ *
+ * Handles RFC 822 ("Tue, 10 Jun 2003 04:00:00 GMT", with or without day
+ * name and seconds, numeric or named zone, 2- or 4-digit year) and ISO 8601
+ * ("2003-12-13T18:30:02.25+01:00", also with a space instead of the T, no
+ * zone or no time at all). Stateless and allocation-free: it walks the
+ * string once and does the calendar arithmetic itself, so it is safe to
+ * call from every feed thread at once.
+ */
+public final class FeedDates {
+
+    private static final String MONTHS = "janfebmaraprmayjunjulaugsepoctnovdec";
+
+    private FeedDates() {}
+
+    /** Millis since epoch, or 0 if the string is not a date we recognise. */
+    public static long parse(String s) {
+        if (s == null) return 0;
+        int n = s.length();
+        int i = skipSpace(s, 0, n);
+        if (i == n) return 0;
+        if (n - i >= 10 && isDigit(s, i) && isDigit(s, i + 3) && s.charAt(i + 4) == '-') {
+            return parseIso(s, i, n);
+        }
+        return parseRfc822(s, i, n);
+    }
+
+    // --- ISO 8601 ---
+
+    private static long parseIso(String s, int i, int n) {
+        int year = digits(s, i, 4);
+        if (year < 0 || s.charAt(i + 4) != '-') return 0;
+        int month = digits(s, i + 5, 2);
+        if (month < 0 || s.charAt(i + 7) != '-') return 0;
+        int day = digits(s, i + 8, 2);
+        if (day < 0) return 0;
+        i += 10;
+
+        int hour = 0, minute = 0, second = 0, millis = 0;
+        if (i < n && (s.charAt(i) == 'T' || s.charAt(i) == 't' || s.charAt(i) == ' ')
+                && i + 6 <= n && isDigit(s, i + 1)) {
+            hour = digits(s, i + 1, 2);
+            if (hour < 0 || s.charAt(i + 3) != ':') return 0;
+            minute = digits(s, i + 4, 2);
+            if (minute < 0) return 0;
+            i += 6;
+            if (i < n && s.charAt(i) == ':') {
+                second = digits(s, i + 1, 2);
+                if (second < 0) return 0;
+                i += 3;
+                if (i < n && (s.charAt(i) == '.' || s.charAt(i) == ',')) {
+                    i++;
+                    int scale = 100;
+                    while (i < n && isDigit(s, i)) {
+                        millis += (s.charAt(i) - '0') * scale;
+                        scale /= 10;
+                        i++;
+                    }
+                }
+            }
+        }
+
+        long offset = 0;
+        if (i < n) {
+            char c = s.charAt(i);
+            if (c == 'Z' || c == 'z') {
+                i++;
+            } else if (c == '+' || c == '-') {
+                offset = numericOffset(s, i, n);
+                if (offset == Long.MIN_VALUE) return 0;
+                i = offsetEnd(s, i, n);
+            }
+        }
+        if (skipSpace(s, i, n) != n) return 0;
+        return toMillis(year, month, day, hour, minute, second, millis, offset);
+    }
+
+    // --- RFC 822 ---
+
+    private static long parseRfc822(String s, int i, int n) {
+        // Optional day name, e.g. "Tue," or "Tuesday,"
+        if (isLetter(s, i)) {
+            while (i < n && isLetter(s, i)) i++;
+            if (i < n && s.charAt(i) == ',') i++;
+            i = skipSpace(s, i, n);
+        }
+
+        int start = i;
+        int day = 0;
+        while (i < n && isDigit(s, i) && i - start < 2) day = day * 10 + (s.charAt(i++) - '0');
+        if (i == start || i == n || (s.charAt(i) != ' ' && s.charAt(i) != '-')) return 0;
+        i = skipSeparator(s, i, n);
+
+        if (n - i < 3) return 0;
+        int month = monthOf(s, i);
+        if (month < 0) return 0;
+        while (i < n && isLetter(s, i)) i++;
+        if (i < n && s.charAt(i) == '.') i++;
+        i = skipSeparator(s, i, n);
+
+        start = i;
+        int year = 0;
+        while (i < n && isDigit(s, i) && i - start < 4) year = year * 10 + (s.charAt(i++) - '0');
+        if (i - start == 2) {
+            year += year < 50 ? 2000 : 1900;
+        } else if (i - start != 4) {
+            return 0;
+        }
+        if (i == n) return toMillis(year, month, day, 0, 0, 0, 0, 0);
+        if (s.charAt(i) != ' ') return 0;
+        i = skipSpace(s, i, n);
+
+        start = i;
+        int hour = 0;
+        while (i < n && isDigit(s, i) && i - start < 2) hour = hour * 10 + (s.charAt(i++) - '0');
+        if (i == start || i == n || s.charAt(i) != ':') return 0;
+        int minute = digits(s, i + 1, 2);
+        if (minute < 0) return 0;
+        i += 3;
+        int second = 0;
+        if (i < n && s.charAt(i) == ':') {
+            second = digits(s, i + 1, 2);
+            if (second < 0) return 0;
+            i += 3;
+        }
+        i = skipSpace(s, i, n);
+
+        long offset = 0;
+        if (i < n) {
+            char c = s.charAt(i);
+            if (c == '+' || c == '-') {
+                offset = numericOffset(s, i, n);
+                if (offset == Long.MIN_VALUE) return 0;
+                i = offsetEnd(s, i, n);
+            } else if (isLetter(s, i)) {
+                int end = i;
+                while (end < n && isLetter(s, end)) end++;
+                offset = namedOffset(s, i, end - i);
+                i = end;
+                // "GMT+0100" and the like
+                if (i < n && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+                    long extra = numericOffset(s, i, n);
+                    if (extra == Long.MIN_VALUE) return 0;
+                    offset += extra;
+                    i = offsetEnd(s, i, n);
+                }
+            } else {
+                return 0;
+            }
+        }
+        if (skipSpace(s, i, n) != n) return 0;
+        return toMillis(year, month, day, hour, minute, second, 0, offset);
+    }
+
+    /** Month 1-12 from its English name or abbreviation at {@code i}, or -1. */
+    private static int monthOf(String s, int i) {
+        for (int m = 0; m < 12; m++) {
+            if (s.regionMatches(true, i, MONTHS, m * 3, 3)) return m + 1;
+        }
+        return -1;
+    }
+
+    /** Offset of a zone abbreviation in millis. Unknown names are taken as UTC. */
+    private static long namedOffset(String s, int i, int len) {
+        // US zones: [ECMP][SD]T
+        if (len == 3 && (s.charAt(i + 2) == 'T' || s.charAt(i + 2) == 't')) {
+            char kind = Character.toUpperCase(s.charAt(i + 1));
+            if (kind == 'S' || kind == 'D') {
+                int hours;
+                switch (Character.toUpperCase(s.charAt(i))) {
+                    case 'E': hours = -5; break;
+                    case 'C': hours = -6; break;
+                    case 'M': hours = -7; break;
+                    case 'P': hours = -8; break;
+                    default: return 0;
+                }
+                return (kind == 'D' ? hours + 1 : hours) * 3600000L;
+            }
+        }
+        // GMT, UT, UTC, Z and anything we do not know
+        return 0;
+    }
+
+    // --- Shared helpers ---
+
+    /**
+     * Offset of "+hh:mm", "+hhmm" or "+hh" at {@code i} in millis, or
+     * Long.MIN_VALUE if malformed.
+     */
+    private static long numericOffset(String s, int i, int n) {
+        int sign = s.charAt(i) == '-' ? -1 : 1;
+        int hours = digits(s, i + 1, 2);
+        if (hours < 0) return Long.MIN_VALUE;
+        int minutes = 0;
+        int j = i + 3;
+        if (j < n && s.charAt(j) == ':') j++;
+        if (j < n && isDigit(s, j)) {
+            minutes = digits(s, j, 2);
+            if (minutes < 0) return Long.MIN_VALUE;
+        }
+        return sign * (hours * 3600000L + minutes * 60000L);
+    }
+
+    private static int offsetEnd(String s, int i, int n) {
+        int j = i + 3;
+        if (j < n && s.charAt(j) == ':') j++;
+        if (j + 1 < n && isDigit(s, j) && isDigit(s, j + 1)) j += 2;
+        return j;
+    }
+
+    /** Value of exactly {@code count} digits at {@code i}, or -1. */
+    private static int digits(String s, int i, int count) {
+        if (i + count > s.length()) return -1;
+        int v = 0;
+        for (int k = 0; k < count; k++) {
+            char c = s.charAt(i + k);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    private static boolean isDigit(String s, int i) {
+        char c = s.charAt(i);
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(String s, int i) {
+        char c = s.charAt(i);
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static int skipSpace(String s, int i, int n) {
+        while (i < n && s.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static int skipSeparator(String s, int i, int n) {
+        if (i < n && s.charAt(i) == '-') return i + 1;
+        return skipSpace(s, i, n);
+    }
+
+    private static long toMillis(int year, int month, int day, int hour, int minute, int second,
+                                 int millis, long offset) {
+        if (month < 1 || month > 12 || day < 1 || day > 31
+                || hour > 23 || minute > 59 || second > 60) {
+            return 0;
+        }
+        long seconds = daysFromCivil(year, month, day) * 86400L + hour * 3600 + minute * 60 + second;
+        return seconds * 1000 + millis - offset;
+    }
+
+    /** Days since 1970-01-01 in the proleptic Gregorian calendar. */
+    private static long daysFromCivil(int y, int m, int d) {
+        if (m <= 2) y--;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+}
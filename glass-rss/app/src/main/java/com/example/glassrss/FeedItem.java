@@ -10,6 +10,7 @@ public class FeedItem implements Comparable<FeedItem> {
     private final String source;
     private final String link;
     private final long timestamp; // millis since epoch, 0 if unknown
+    private final long key;
 
     public FeedItem(String title, String description, String source, String link, long timestamp) {
         this.title = title != null ? title.trim() : "";
@@ -17,6 +18,28 @@ public class FeedItem implements Comparable<FeedItem> {
         this.source = source != null ? source.trim() : "";
         this.link = link != null ? link.trim() : "";
         this.timestamp = timestamp;
+        this.key = keyOf(this.link, this.title);
+    }
+
+    // Fields already trimmed, stripped of HTML and not null
+    private FeedItem(String title, String description, String source, String link, long timestamp, long key) {
+        this.title = title;
+        this.description = description;
+        this.source = source;
+        this.link = link;
+        this.timestamp = timestamp;
+        this.key = key;
+    }
+
+    /**
+     * Create an item from fields that are already trimmed plain text, e.g.
+     * read back from FeedCache or stripped by FeedParser while parsing.
+     */
+    static FeedItem ofPlainText(String title, String description, String source, String link, long timestamp) {
+        String t = title != null ? title : "";
+        String l = link != null ? link : "";
+        return new FeedItem(t, description != null ? description : "", source != null ? source : "",
+                l, timestamp, keyOf(l, t));
     }
 
     public String getTitle() { return title; }
@@ -25,12 +48,73 @@ public class FeedItem implements Comparable<FeedItem> {
     public String getLink() { return link; }
     public long getTimestamp() { return timestamp; }
 
+    /**
+     * Identity of the story across feeds and refreshes: a hash of the
+     * normalized link, or of the normalized title if there is no link.
+     */
+    public long getKey() { return key; }
+
     /** Sort newest first. */
     @Override
     public int compareTo(FeedItem other) {
         return Long.compare(other.timestamp, this.timestamp);
     }
 
+    // --- Keys ---
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    static long keyOf(String link, String title) {
+        return link.length() > 0 ? hashLink(link) : hashTitle(title);
+    }
+
+    /**
+     * FNV-1a of the link without scheme, "www.", fragment, utm_* tracking
+     * parameters and trailing slash, host lowercased, so that the same
+     * article linked from two feeds gets the same key.
+     */
+    private static long hashLink(String link) {
+        int start = link.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        if (link.regionMatches(true, start, "www.", 0, 4)) start += 4;
+        int end = link.indexOf('#');
+        if (end < 0) end = link.length();
+        int query = link.indexOf('?', start);
+        if (query < 0 || query > end) query = end;
+        int path = link.indexOf('/', start);
+        if (path < 0 || path > query) path = query;
+        int pathEnd = query;
+        while (pathEnd > path + 1 && link.charAt(pathEnd - 1) == '/') pathEnd--;
+
+        long h = FNV_OFFSET;
+        for (int i = start; i < path; i++) h = (h ^ Character.toLowerCase(link.charAt(i))) * FNV_PRIME;
+        for (int i = path; i < pathEnd; i++) h = (h ^ link.charAt(i)) * FNV_PRIME;
+
+        // Query parameters, minus tracking ones
+        int p = query + 1;
+        while (p < end) {
+            int amp = link.indexOf('&', p);
+            if (amp < 0 || amp > end) amp = end;
+            if (!link.regionMatches(true, p, "utm_", 0, 4)) {
+                h = (h ^ '&') * FNV_PRIME;
+                for (int i = p; i < amp; i++) h = (h ^ link.charAt(i)) * FNV_PRIME;
+            }
+            p = amp + 1;
+        }
+        return h;
+    }
+
+    /** FNV-1a of the lowercased letters and digits of the title. */
+    private static long hashTitle(String title) {
+        long h = FNV_OFFSET;
+        for (int i = 0; i < title.length(); i++) {
+            char c = title.charAt(i);
+            if (Character.isLetterOrDigit(c)) h = (h ^ Character.toLowerCase(c)) * FNV_PRIME;
+        }
+        return h;
+    }
+
     /** Strip HTML tags and decode common entities. */
     private static String stripHtml(String html) {
         String text = html.replaceAll("<[^>]+>", " ");
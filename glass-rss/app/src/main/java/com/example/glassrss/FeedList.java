@@ -0,0 +1,65 @@
+package com.example.glassrss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Items of all feeds, newest first, each story once.
+ *
+ * Feeds are merged in as they arrive: items whose key is already present
+ * are skipped and the rest are placed by binary search, so a refresh that
+ * brings two new stories costs two insertions rather than a sort of the
+ * whole list. The oldest items fall off beyond a fixed size. Sync thread
+ * only.
+ */
+class FeedList {
+
+    private final int maxItems;
+    private final List<FeedItem> items = new ArrayList<FeedItem>();
+    private final Set<Long> keys = new HashSet<Long>();
+
+    FeedList(int maxItems) {
+        this.maxItems = maxItems;
+    }
+
+    /** Insert the items not already in the list. Returns how many were added. */
+    int addAll(List<FeedItem> feed) {
+        int added = 0;
+        for (FeedItem item : feed) {
+            if (keys.contains(item.getKey())) continue;
+            int pos = Collections.binarySearch(items, item);
+            if (pos < 0) {
+                pos = -pos - 1;
+            } else {
+                // Same timestamp: go after the items already there
+                while (pos < items.size() && items.get(pos).compareTo(item) == 0) pos++;
+            }
+            if (pos >= maxItems) continue;
+
+            items.add(pos, item);
+            keys.add(item.getKey());
+            added++;
+            if (items.size() > maxItems) {
+                keys.remove(items.remove(items.size() - 1).getKey());
+            }
+        }
+        return added;
+    }
+
+    void clear() {
+        items.clear();
+        keys.clear();
+    }
+
+    boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    /** Copy for handing to the UI thread. */
+    List<FeedItem> snapshot() {
+        return new ArrayList<FeedItem>(items);
+    }
+}
@@ -1,29 +1,83 @@
 package com.example.glassrss;
 
+import android.content.Context;
 import android.os.Environment;
 import android.util.Log;
 
+import com.glasscommon.net.Http;
+import com.glasscommon.net.Request;
+import com.glasscommon.net.Response;
+
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
-import java.io.InputStream;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Loads feed URLs from config file, fetches all feeds in parallel,
- * and returns a merged, sorted list of FeedItems.
+ * Loads feed URLs from config file, fetches all feeds in parallel on a
+ * small shared pool, and returns a merged, sorted list of FeedItems.
+ *
+ * Parsed items and HTTP validators are kept in a {@link FeedCache}: cached
+ * items are delivered first, then feeds whose TTL has run out are
+ * revalidated with a conditional GET. New items are merged into a
+ * long-lived {@link FeedList}, which drops stories already shown by
+ * another feed, and a {@link SeenIndex} remembers which items were read.
  */
 public class FeedManager {
 
     private static final String TAG = "GlassRSS";
     private static final String CONFIG_FILE = "glass-rss-feeds.txt";
+    private static final String CACHE_DIR = "feeds";
+    private static final String SEEN_FILE = "seen.idx";
+    private static final int MAX_LIST_ITEMS = 200;
+
+    // How long cached items count as fresh unless the config line says otherwise
+    private static final long DEFAULT_TTL_MS = 10 * 60 * 1000;
+
+    // Feeds fetched at once; Glass has two cores and one slow radio
+    private static final int FETCH_THREADS = 3;
+    // Whole refresh, after which slow feeds are left to finish in the background
+    private static final long DEADLINE_MS = 20000;
+    // Connect and read timeout of a single feed
+    private static final int FEED_TIMEOUT_MS = 8000;
+
+    private static final ExecutorService syncExecutor =
+            Executors.newSingleThreadExecutor(namedThreads("FeedSync"));
+    private static final ThreadPoolExecutor fetchExecutor = new ThreadPoolExecutor(
+            FETCH_THREADS, FETCH_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), namedThreads("FeedFetch"));
+
+    static {
+        // Let the pool drain between refreshes instead of idling for 15 minutes
+        fetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    // Marks a feed that was unchanged or failed in the per-feed results queue
+    private static final List<FeedItem> UNCHANGED = Collections.emptyList();
+
+    // --- Sync thread state, kept across refreshes ---
+    private static final FeedList feedList = new FeedList(MAX_LIST_ITEMS);
+    private static List<String> lastUrls;
+    private static volatile SeenIndex seenIndex;
 
     private static final String DEFAULT_CONFIG =
             "# Glass RSS Feeds — one URL per line, # for comments\n" +
+            "# Append ttl=<minutes> to a URL to change how long it is cached (default 10)\n" +
             "\n" +
             "# Tech\n" +
             "https://hnrss.org/frontpage\n" +
@@ -38,92 +92,302 @@ public class FeedManager {
 
     /** Callback for feed fetch completion. */
     public interface FeedCallback {
+        /**
+         * Called with cached items as soon as they are read, then again each
+         * time a revalidated feed adds new items, and once more at the end
+         * of the refresh if nothing was delivered after the cached items.
+         */
         void onFeedsLoaded(List<FeedItem> items);
         void onError(String message);
     }
 
+    /** A configured feed and how long its cached items stay fresh. */
+    private static class FeedSource {
+        final String url;
+        final long ttlMs;
+
+        FeedSource(String url, long ttlMs) {
+            this.url = url;
+            this.ttlMs = ttlMs;
+        }
+    }
+
     /**
      * Fetch all configured feeds in parallel on a background thread.
-     * Calls back on the calling thread (use Handler to post to main thread).
+     * Calls back on a background thread (use Handler to post to main thread).
+     * Overlapping calls run one after the other.
+     *
+     * @param force revalidate every feed, even those still within their TTL
      */
-    public static void fetchAll(final FeedCallback callback) {
-        new Thread(new Runnable() {
+    public static void fetchAll(Context context, final boolean force, final FeedCallback callback) {
+        final File cacheDir = context.getCacheDir();
+        final File filesDir = context.getFilesDir();
+        syncExecutor.execute(new Runnable() {
             @Override
             public void run() {
                 try {
-                    List<String> urls = loadFeedUrls();
-                    if (urls.isEmpty()) {
-                        callback.onError("No feed URLs configured");
-                        return;
-                    }
+                    sync(cacheDir, filesDir, force, callback);
+                } catch (Exception e) {
+                    Log.e(TAG, "Feed fetch failed", e);
+                    callback.onError(e.getMessage());
+                }
+            }
+        });
+    }
 
-                    Log.d(TAG, "Fetching " + urls.size() + " feeds");
-
-                    final List<FeedItem> allItems =
-                            Collections.synchronizedList(new ArrayList<FeedItem>());
-                    final CountDownLatch latch = new CountDownLatch(urls.size());
-
-                    for (final String url : urls) {
-                        new Thread(new Runnable() {
-                            @Override
-                            public void run() {
-                                try {
-                                    InputStream stream = HttpUtil.fetchStream(url);
-                                    List<FeedItem> items = FeedParser.parse(stream, null);
-                                    stream.close();
-                                    allItems.addAll(items);
-                                } catch (Exception e) {
-                                    Log.w(TAG, "Failed to fetch " + url + ": " + e.getMessage());
-                                } finally {
-                                    latch.countDown();
-                                }
+    /** Whether the item has been read, as far as the index loaded so far knows. */
+    public static boolean isRead(FeedItem item) {
+        SeenIndex index = seenIndex;
+        return index != null && index.isRead(item.getKey());
+    }
+
+    /** Mark an item read and persist that in the background. */
+    public static void markRead(FeedItem item) {
+        final SeenIndex index = seenIndex;
+        if (index == null || !index.markRead(item.getKey())) return;
+        syncExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                index.save();
+            }
+        });
+    }
+
+    private static void sync(File cacheDir, File filesDir, boolean force, FeedCallback callback)
+            throws Exception {
+        List<FeedSource> sources = loadFeedSources();
+        if (sources.isEmpty()) {
+            callback.onError("No feed URLs configured");
+            return;
+        }
+        if (seenIndex == null) {
+            seenIndex = new SeenIndex(new File(filesDir, SEEN_FILE));
+        }
+        try {
+            sync(sources, cacheDir, force, callback);
+        } finally {
+            seenIndex.save();
+            Http.metrics().log();
+        }
+    }
+
+    private static void sync(List<FeedSource> sources, File cacheDir, boolean force, FeedCallback callback)
+            throws Exception {
+        final FeedCache cache = new FeedCache(new File(cacheDir, CACHE_DIR));
+        final Map<String, FeedCache.Entry> entries =
+                Collections.synchronizedMap(new HashMap<String, FeedCache.Entry>());
+        List<String> urls = new ArrayList<String>();
+        List<FeedSource> stale = new ArrayList<FeedSource>();
+        long now = System.currentTimeMillis();
+        for (FeedSource source : sources) {
+            urls.add(source.url);
+            FeedCache.Entry entry = cache.load(source.url);
+            if (entry != null) entries.put(source.url, entry);
+            if (force || entry == null || !entry.isFresh(source.ttlMs, now)) {
+                stale.add(source);
+            }
+        }
+        cache.retain(urls);
+
+        // Items of feeds taken out of the config have to go
+        if (!urls.equals(lastUrls)) {
+            feedList.clear();
+            lastUrls = urls;
+        }
+        int cachedAdded = 0;
+        for (FeedCache.Entry entry : entries.values()) {
+            cachedAdded += add(entry.items);
+        }
+        if (!feedList.isEmpty()) {
+            Log.d(TAG, "Cached items: " + cachedAdded + " new from " + entries.size() + " feeds");
+            callback.onFeedsLoaded(feedList.snapshot());
+        }
+        if (stale.isEmpty()) {
+            Log.d(TAG, "All " + sources.size() + " feeds fresh");
+            return;
+        }
+
+        Log.d(TAG, "Revalidating " + stale.size() + " of " + sources.size() + " feeds");
+
+        // One task per host, fetching its feeds in turn, so the second feed
+        // from a host reuses the kept-alive connection of the first
+        Map<String, List<FeedSource>> byHost = new LinkedHashMap<String, List<FeedSource>>();
+        for (FeedSource source : stale) {
+            String host = hostOf(source.url);
+            List<FeedSource> group = byHost.get(host);
+            if (group == null) {
+                group = new ArrayList<FeedSource>();
+                byHost.put(host, group);
+            }
+            group.add(source);
+        }
+
+        final long deadline = System.nanoTime() + DEADLINE_MS * 1000000L;
+        // One element per feed when it is done: its new items, or UNCHANGED
+        final BlockingQueue<List<FeedItem>> done = new LinkedBlockingQueue<List<FeedItem>>();
+
+        for (final List<FeedSource> group : byHost.values()) {
+            fetchExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (FeedSource source : group) {
+                        List<FeedItem> changed = UNCHANGED;
+                        try {
+                            long remainingMs = (deadline - System.nanoTime()) / 1000000L;
+                            if (remainingMs <= 0) {
+                                Log.w(TAG, "Deadline passed, skipping " + source.url);
+                            } else {
+                                int timeoutMs = (int) Math.min(FEED_TIMEOUT_MS, remainingMs);
+                                changed = revalidate(cache, source.url, entries, timeoutMs);
                             }
-                        }).start();
+                        } catch (Exception e) {
+                            Log.w(TAG, "Failed to fetch " + source.url + ": " + e.getMessage());
+                        } finally {
+                            done.add(changed);
+                        }
                     }
+                }
+            });
+        }
 
-                    latch.await();
+        // Merge each feed as it lands rather than after the slowest
+        boolean delivered = false;
+        int pending = stale.size();
+        while (pending > 0) {
+            long remainingMs = (deadline - System.nanoTime()) / 1000000L;
+            List<FeedItem> changed = remainingMs > 0 ? done.poll(remainingMs, TimeUnit.MILLISECONDS) : null;
+            if (changed == null) {
+                // Late feeds still update the cache for next time
+                Log.w(TAG, pending + " feeds missed the " + DEADLINE_MS + " ms deadline");
+                break;
+            }
+            pending--;
+            int added = add(changed);
+            if (added > 0) {
+                Log.d(TAG, added + " new items, " + pending + " feeds pending");
+                callback.onFeedsLoaded(feedList.snapshot());
+                delivered = true;
+            }
+        }
 
-                    Collections.sort(allItems);
-                    Log.d(TAG, "Total items: " + allItems.size());
-                    callback.onFeedsLoaded(allItems);
+        // Let the UI know the refresh is over even if it brought nothing new
+        if (!delivered) {
+            callback.onFeedsLoaded(feedList.snapshot());
+        }
+    }
 
-                } catch (Exception e) {
-                    Log.e(TAG, "Feed fetch failed", e);
-                    callback.onError(e.getMessage());
-                }
+    /** Merge a feed's items into the list and note them in the index. Returns items added. */
+    private static int add(List<FeedItem> items) {
+        long now = System.currentTimeMillis();
+        for (FeedItem item : items) {
+            seenIndex.markSeen(item.getKey(), now);
+        }
+        return feedList.addAll(items);
+    }
+
+    private static String hostOf(String url) {
+        try {
+            return new URL(url).getHost();
+        } catch (Exception e) {
+            return url;
+        }
+    }
+
+    /**
+     * Conditional GET for one feed. On 304 only the cache timestamp moves;
+     * otherwise the body is parsed and replaces the cached entry.
+     * Returns the feed's items, or UNCHANGED on 304.
+     */
+    private static List<FeedItem> revalidate(FeedCache cache, String url, Map<String, FeedCache.Entry> entries,
+                                      int timeoutMs) throws Exception {
+        FeedCache.Entry old = entries.get(url);
+        // Validators are our own: the feed cache, not the HTTP cache, holds the items
+        Request request = new Request(url).timeout(timeoutMs).noCache();
+        if (old != null) {
+            request.header("If-None-Match", old.etag).header("If-Modified-Since", old.lastModified);
+        }
+        Response response = Http.execute(request);
+        long now = System.currentTimeMillis();
+
+        List<FeedItem> items;
+        try {
+            if (response.isNotModified()) {
+                Log.d(TAG, "Not modified: " + url);
+                old.fetchedAt = now;
+                cache.store(old);
+                return UNCHANGED;
             }
-        }).start();
+            items = FeedParser.parse(response.body(), null);
+        } finally {
+            response.close();
+        }
+        FeedCache.Entry entry = new FeedCache.Entry(url, response.header("ETag"), response.header("Last-Modified"),
+                items, now);
+        cache.store(entry);
+        entries.put(url, entry);
+        return items;
     }
 
-    /** Load feed URLs from config file, creating default if needed. */
-    private static List<String> loadFeedUrls() {
+    private static ThreadFactory namedThreads(final String name) {
+        return new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Load feed URLs from config file, creating default if needed. A line is
+     * a URL optionally followed by {@code ttl=<minutes>}.
+     */
+    private static List<FeedSource> loadFeedSources() {
         File configFile = new File(Environment.getExternalStorageDirectory(), CONFIG_FILE);
 
         if (!configFile.exists()) {
             writeDefaultConfig(configFile);
         }
 
-        List<String> urls = new ArrayList<String>();
+        List<FeedSource> sources = new ArrayList<FeedSource>();
         try {
             BufferedReader reader = new BufferedReader(new FileReader(configFile));
             String line;
             while ((line = reader.readLine()) != null) {
                 line = line.trim();
                 if (line.length() > 0 && !line.startsWith("#")) {
-                    urls.add(line);
+                    sources.add(parseSource(line));
                 }
             }
             reader.close();
         } catch (Exception e) {
             Log.e(TAG, "Failed to read config", e);
             // Fall back to hardcoded defaults
-            urls.add("https://hnrss.org/frontpage");
-            urls.add("https://feeds.arstechnica.com/arstechnica/index");
-            urls.add("https://www.theverge.com/rss/index.xml");
+            sources.add(new FeedSource("https://hnrss.org/frontpage", DEFAULT_TTL_MS));
+            sources.add(new FeedSource("https://feeds.arstechnica.com/arstechnica/index", DEFAULT_TTL_MS));
+            sources.add(new FeedSource("https://www.theverge.com/rss/index.xml", DEFAULT_TTL_MS));
         }
 
-        Log.d(TAG, "Loaded " + urls.size() + " feed URLs");
-        return urls;
+        Log.d(TAG, "Loaded " + sources.size() + " feed URLs");
+        return sources;
+    }
+
+    private static FeedSource parseSource(String line) {
+        String[] parts = line.split("\\s+");
+        long ttlMs = DEFAULT_TTL_MS;
+        for (int i = 1; i < parts.length; i++) {
+            if (parts[i].startsWith("ttl=")) {
+                try {
+                    ttlMs = Long.parseLong(parts[i].substring(4)) * 60 * 1000;
+                } catch (NumberFormatException e) {
+                    Log.w(TAG, "Bad ttl in config line: " + line);
+                }
+            }
+        }
+        return new FeedSource(parts[0], ttlMs);
     }
 
     private static void writeDefaultConfig(File file) {
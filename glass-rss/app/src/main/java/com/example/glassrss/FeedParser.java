@@ -6,43 +6,33 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.io.InputStream;
-import java.io.StringReader;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 
 /**
  * Parses RSS 2.0 and Atom feeds using XmlPullParser.
+ *
+ * Memory stays bounded however large the feed: only text of the fields a
+ * card shows is collected, descriptions are stripped of HTML and cut to
+ * {@link #MAX_DESCRIPTION_CHARS} as the text streams past, and parsing
+ * stops as soon as {@link #MAX_ITEMS_PER_FEED} items are complete.
  */
 public class FeedParser {
 
     private static final String TAG = "GlassRSS";
     private static final int MAX_ITEMS_PER_FEED = 20;
+    // More than a card can show; the rest of an article is never kept
+    static final int MAX_DESCRIPTION_CHARS = 500;
+    // Titles, links and dates longer than this are junk
+    private static final int MAX_FIELD_CHARS = 1024;
 
-    // Common date formats in RSS/Atom feeds
-    private static final SimpleDateFormat[] DATE_FORMATS;
-
-    static {
-        String[] patterns = {
-            "EEE, dd MMM yyyy HH:mm:ss Z",     // RFC 822 (RSS)
-            "EEE, dd MMM yyyy HH:mm:ss zzz",   // RFC 822 variant
-            "yyyy-MM-dd'T'HH:mm:ssZ",          // ISO 8601 (Atom)
-            "yyyy-MM-dd'T'HH:mm:ss'Z'",        // ISO 8601 UTC
-            "yyyy-MM-dd'T'HH:mm:ss.SSSZ",      // ISO 8601 with millis
-            "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'",    // ISO 8601 with millis UTC
-            "yyyy-MM-dd HH:mm:ss",              // Simple
-            "yyyy-MM-dd",                        // Date only
-        };
-        DATE_FORMATS = new SimpleDateFormat[patterns.length];
-        for (int i = 0; i < patterns.length; i++) {
-            DATE_FORMATS[i] = new SimpleDateFormat(patterns[i], Locale.US);
-            DATE_FORMATS[i].setTimeZone(TimeZone.getTimeZone("UTC"));
-        }
-    }
+    // Fields whose text is collected
+    private static final int FIELD_NONE = 0;
+    private static final int FIELD_FEED_TITLE = 1;
+    private static final int FIELD_TITLE = 2;
+    private static final int FIELD_DESCRIPTION = 3;
+    private static final int FIELD_LINK = 4;
+    private static final int FIELD_DATE = 5;
 
     /**
      * Parse a feed from an InputStream. Detects RSS vs Atom automatically.
@@ -65,76 +55,125 @@ public class FeedParser {
         String description = null;
         String link = null;
         String dateStr = null;
-        String currentTag = null;
+
+        // Field being collected, and how deep inside it we are (XHTML content nests)
+        int field = FIELD_NONE;
+        int fieldDepth = 0;
         StringBuilder textBuffer = new StringBuilder();
+        PlainText plain = new PlainText(MAX_DESCRIPTION_CHARS);
+        int[] range = new int[2];
 
         List<FeedItem> items = new ArrayList<FeedItem>();
 
         int eventType = parser.getEventType();
         while (eventType != XmlPullParser.END_DOCUMENT) {
             if (eventType == XmlPullParser.START_TAG) {
-                currentTag = parser.getName();
+                if (fieldDepth > 0) {
+                    // Markup inside a field, e.g. <content type="xhtml"><p>
+                    fieldDepth++;
+                    if (field == FIELD_DESCRIPTION) plain.space();
+                    eventType = parser.next();
+                    continue;
+                }
 
-                if ("feed".equals(currentTag)) {
+                String tag = parser.getName();
+                field = FIELD_NONE;
+                if ("feed".equals(tag)) {
                     isAtom = true;
-                } else if ("item".equals(currentTag) || "entry".equals(currentTag)) {
+                } else if ("item".equals(tag) || "entry".equals(tag)) {
                     insideItem = true;
                     title = null;
                     description = null;
                     link = null;
                     dateStr = null;
-                } else if (insideItem && "link".equals(currentTag) && isAtom) {
-                    // Atom <link href="..." />
-                    String href = parser.getAttributeValue(null, "href");
-                    String rel = parser.getAttributeValue(null, "rel");
-                    if (href != null && (rel == null || "alternate".equals(rel))) {
-                        link = href;
+                } else if (insideItem) {
+                    if ("title".equals(tag)) {
+                        field = FIELD_TITLE;
+                    } else if ("description".equals(tag) || "summary".equals(tag) || "content".equals(tag)) {
+                        field = FIELD_DESCRIPTION;
+                    } else if ("link".equals(tag)) {
+                        if (isAtom) {
+                            // Atom <link href="..." />
+                            String href = parser.getAttributeValue(null, "href");
+                            String rel = parser.getAttributeValue(null, "rel");
+                            if (href != null && (rel == null || "alternate".equals(rel))) {
+                                link = href;
+                            }
+                        } else {
+                            field = FIELD_LINK;
+                        }
+                    } else if (dateStr == null && ("pubDate".equals(tag) || "published".equals(tag)
+                            || "updated".equals(tag) || "dc:date".equals(tag))) {
+                        field = FIELD_DATE;
                     }
+                } else if ("title".equals(tag) && feedTitle == null) {
+                    field = FIELD_FEED_TITLE;
                 }
-                textBuffer.setLength(0);
 
-            } else if (eventType == XmlPullParser.TEXT) {
-                textBuffer.append(parser.getText());
-
-            } else if (eventType == XmlPullParser.END_TAG) {
-                String tag = parser.getName();
-                String text = textBuffer.toString().trim();
-
-                if (!insideItem && "title".equals(tag) && feedTitle == null && text.length() > 0) {
-                    feedTitle = text;
+                if (field != FIELD_NONE) {
+                    fieldDepth = 1;
+                    textBuffer.setLength(0);
+                    plain.reset();
                 }
 
-                if (insideItem) {
-                    if ("title".equals(tag)) {
-                        title = text;
-                    } else if ("description".equals(tag) || "summary".equals(tag) || "content".equals(tag)) {
-                        if (description == null || text.length() > description.length()) {
-                            description = text;
-                        }
-                    } else if ("link".equals(tag) && !isAtom) {
-                        link = text;
-                    } else if ("pubDate".equals(tag) || "published".equals(tag)
-                            || "updated".equals(tag) || "dc:date".equals(tag)) {
-                        if (dateStr == null) {
-                            dateStr = text;
-                        }
+            } else if (eventType == XmlPullParser.TEXT) {
+                // Read straight from the parser's buffer instead of via getText()
+                if (field == FIELD_DESCRIPTION) {
+                    if (!plain.isFull()) {
+                        char[] chars = parser.getTextCharacters(range);
+                        plain.append(chars, range[0], range[1]);
                     }
+                } else if (fieldDepth > 0 && textBuffer.length() < MAX_FIELD_CHARS) {
+                    char[] chars = parser.getTextCharacters(range);
+                    textBuffer.append(chars, range[0], Math.min(range[1], MAX_FIELD_CHARS - textBuffer.length()));
                 }
 
-                if ("item".equals(tag) || "entry".equals(tag)) {
-                    insideItem = false;
-                    if (title != null && title.length() > 0) {
-                        String src = (sourceName != null && sourceName.length() > 0)
-                                ? sourceName : (feedTitle != null ? feedTitle : "Unknown");
-                        long ts = parseDate(dateStr);
-                        items.add(new FeedItem(title, description, src, link, ts));
+            } else if (eventType == XmlPullParser.END_TAG) {
+                if (fieldDepth > 1) {
+                    fieldDepth--;
+                    if (field == FIELD_DESCRIPTION) plain.space();
+                } else if (fieldDepth == 1) {
+                    fieldDepth = 0;
+                    switch (field) {
+                        case FIELD_FEED_TITLE: {
+                            String text = textBuffer.toString().trim();
+                            if (text.length() > 0) feedTitle = text;
+                            break;
+                        }
+                        case FIELD_TITLE:
+                            title = textBuffer.toString().trim();
+                            break;
+                        case FIELD_DESCRIPTION:
+                            // Several of description/summary/content: keep the longest
+                            if (description == null || plain.length() > description.length()) {
+                                description = plain.toString();
+                            }
+                            break;
+                        case FIELD_LINK:
+                            link = textBuffer.toString().trim();
+                            break;
+                        case FIELD_DATE:
+                            dateStr = textBuffer.toString().trim();
+                            break;
                     }
-                    if (items.size() >= MAX_ITEMS_PER_FEED) {
-                        break;
+                    field = FIELD_NONE;
+                } else {
+                    String tag = parser.getName();
+                    if ("item".equals(tag) || "entry".equals(tag)) {
+                        insideItem = false;
+                        if (title != null && title.length() > 0) {
+                            String src = (sourceName != null && sourceName.length() > 0)
+                                    ? sourceName : (feedTitle != null ? feedTitle : "Unknown");
+                            long ts = parseDate(dateStr);
+                            items.add(FeedItem.ofPlainText(title, description, src.trim(),
+                                    link != null ? link.trim() : null, ts));
+                        }
+                        if (items.size() >= MAX_ITEMS_PER_FEED) {
+                            // Leave the rest of the body unread
+                            break;
+                        }
                     }
                 }
-
-                currentTag = null;
             }
 
             eventType = parser.next();
@@ -145,22 +184,157 @@ public class FeedParser {
         return items;
     }
 
-    /** Try all known date formats, return millis or 0 if unparseable. */
+    /** Parse an RSS or Atom date, return millis or 0 if unparseable. */
     static long parseDate(String dateStr) {
         if (dateStr == null || dateStr.length() == 0) return 0;
 
-        // Normalize timezone offset format for ISO 8601
-        // "+00:00" → "+0000"
-        String normalized = dateStr.replaceAll("([+-]\\d{2}):(\\d{2})$", "$1$2");
+        long ts = FeedDates.parse(dateStr);
+        if (ts == 0) {
+            Log.w(TAG, "Unparseable date: " + dateStr);
+        }
+        return ts;
+    }
+
+    /**
+     * Builds the plain text of a description fed in pieces: drops HTML
+     * tags, decodes the common entities, collapses whitespace and stops
+     * collecting at a fixed length, ending with an ellipsis if cut.
+     * Tags and entities may be split across pieces.
+     */
+    static class PlainText {
+
+        private static final int MAX_ENTITY = 10;
 
-        for (SimpleDateFormat fmt : DATE_FORMATS) {
-            try {
-                Date d = fmt.parse(normalized);
-                if (d != null) return d.getTime();
-            } catch (ParseException ignored) {}
+        private final int limit;
+        private final StringBuilder out;
+        private final StringBuilder entity = new StringBuilder(MAX_ENTITY);
+        private boolean inTag;
+        private boolean pendingLt;
+        private boolean inEntity;
+        private boolean space;
+        private boolean full;
+
+        PlainText(int limit) {
+            this.limit = limit;
+            out = new StringBuilder(limit + 1);
+        }
+
+        void reset() {
+            out.setLength(0);
+            entity.setLength(0);
+            inTag = false;
+            pendingLt = false;
+            inEntity = false;
+            space = false;
+            full = false;
+        }
+
+        boolean isFull() {
+            return full;
+        }
+
+        int length() {
+            return out.length();
         }
 
-        Log.w(TAG, "Unparseable date: " + dateStr);
-        return 0;
+        /** Word break, e.g. between block elements. */
+        void space() {
+            space = true;
+        }
+
+        void append(char[] chars, int start, int length) {
+            int end = start + length;
+            for (int i = start; i < end && !full; i++) {
+                char c = chars[i];
+                if (pendingLt) {
+                    pendingLt = false;
+                    if (isTagStart(c)) {
+                        inTag = true;
+                        continue;
+                    }
+                    emit('<');
+                }
+                if (inTag) {
+                    if (c == '>') {
+                        inTag = false;
+                        space = true;
+                    }
+                } else if (inEntity) {
+                    if (c == ';') {
+                        inEntity = false;
+                        decodeEntity();
+                    } else if (entity.length() < MAX_ENTITY && (Character.isLetterOrDigit(c) || c == '#')) {
+                        entity.append(c);
+                    } else {
+                        // Not an entity after all
+                        inEntity = false;
+                        emit('&');
+                        for (int k = 0; k < entity.length(); k++) emit(entity.charAt(k));
+                        i--;
+                    }
+                } else if (c == '<') {
+                    pendingLt = true;
+                } else if (c == '&') {
+                    inEntity = true;
+                    entity.setLength(0);
+                } else {
+                    emit(c);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return out.toString();
+        }
+
+        private static boolean isTagStart(char c) {
+            return Character.isLetter(c) || c == '/' || c == '!' || c == '?';
+        }
+
+        private void decodeEntity() {
+            String name = entity.toString();
+            char c;
+            if ("amp".equals(name)) c = '&';
+            else if ("lt".equals(name)) c = '<';
+            else if ("gt".equals(name)) c = '>';
+            else if ("quot".equals(name)) c = '"';
+            else if ("apos".equals(name)) c = '\'';
+            else if ("nbsp".equals(name)) c = ' ';
+            else if (name.startsWith("#")) {
+                try {
+                    int code = name.startsWith("#x") || name.startsWith("#X")
+                            ? Integer.parseInt(name.substring(2), 16)
+                            : Integer.parseInt(name.substring(1));
+                    c = Character.isBmpCodePoint(code) ? (char) code : '?';
+                } catch (NumberFormatException e) {
+                    c = '?';
+                }
+            } else {
+                // Unknown named entity: keep it as written
+                emit('&');
+                for (int k = 0; k < name.length(); k++) emit(name.charAt(k));
+                c = ';';
+            }
+            emit(c);
+        }
+
+        private void emit(char c) {
+            if (c <= ' ' || c == '\u00A0') {
+                space = true;
+                return;
+            }
+            if (space && out.length() > 0) {
+                out.append(' ');
+            }
+            space = false;
+            if (out.length() >= limit) {
+                out.setLength(limit - 1);
+                out.append('\u2026');
+                full = true;
+                return;
+            }
+            out.append(c);
+        }
     }
 }
@@ -7,7 +7,6 @@ import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.view.KeyEvent;
-import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.HorizontalScrollView;
@@ -17,8 +16,10 @@ import android.widget.TextView;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Main RSS reader activity for Google Glass.
@@ -32,6 +33,7 @@ public class RssActivity extends Activity {
     private static final long TAP_TIMEOUT_MS = 300;
     private static final long LONG_PRESS_MS = 800;
     private static final long REFRESH_INTERVAL_MS = 15 * 60 * 1000; // 15 min
+    private static final int READ_TITLE_COLOR = 0x99FFFFFF;
 
     private HorizontalScrollView scrollView;
     private LinearLayout cardContainer;
@@ -42,6 +44,7 @@ public class RssActivity extends Activity {
     private final Handler handler = new Handler(Looper.getMainLooper());
     private List<FeedItem> items = new ArrayList<FeedItem>();
     private int selectedIndex = 0;
+    private int unreadCount = 0;
 
     // Gesture tracking
     private float downX, downY;
@@ -67,7 +70,7 @@ public class RssActivity extends Activity {
     private final Runnable refreshRunnable = new Runnable() {
         @Override
         public void run() {
-            loadFeeds();
+            loadFeeds(false);
             handler.postDelayed(this, REFRESH_INTERVAL_MS);
         }
     };
@@ -86,7 +89,7 @@ public class RssActivity extends Activity {
         statusText.setVisibility(View.VISIBLE);
         statusText.setText(R.string.loading);
 
-        loadFeeds();
+        loadFeeds(false);
     }
 
     @Override
@@ -102,18 +105,22 @@ public class RssActivity extends Activity {
         handler.removeCallbacks(refreshRunnable);
     }
 
-    private void loadFeeds() {
-        FeedManager.fetchAll(new FeedManager.FeedCallback() {
+    /**
+     * Show cached items at once and refresh stale feeds behind them.
+     * @param force revalidate every feed regardless of its TTL (long press)
+     */
+    private void loadFeeds(boolean force) {
+        FeedManager.fetchAll(this, force, new FeedManager.FeedCallback() {
             @Override
             public void onFeedsLoaded(final List<FeedItem> feedItems) {
                 handler.post(new Runnable() {
                     @Override
                     public void run() {
+                        // Keep the selected item in view when new items land before it
+                        long selectedKey = items.isEmpty() ? 0 : items.get(selectedIndex).getKey();
                         items = feedItems;
-                        if (selectedIndex >= items.size()) {
-                            selectedIndex = 0;
-                        }
-                        populateCards();
+                        selectedIndex = indexOfKey(selectedKey);
+                        updateCards();
                     }
                 });
             }
@@ -131,10 +138,22 @@ public class RssActivity extends Activity {
         });
     }
 
-    private void populateCards() {
-        cardContainer.removeAllViews();
+    private int indexOfKey(long key) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getKey() == key) return i;
+        }
+        return 0;
+    }
 
+    /**
+     * Bring the cards in line with {@link #items}. Each card is tagged with
+     * its item's key; cards of items still in the list are kept (moved if
+     * need be), new items get a new card in place, and cards whose items
+     * are gone end up past the end and are removed.
+     */
+    private void updateCards() {
         if (items.isEmpty()) {
+            cardContainer.removeAllViews();
             statusText.setVisibility(View.VISIBLE);
             statusText.setText(R.string.no_items);
             statusSource.setText("");
@@ -144,6 +163,44 @@ public class RssActivity extends Activity {
 
         statusText.setVisibility(View.GONE);
 
+        Map<Long, View> cards = new HashMap<Long, View>();
+        for (int i = 0; i < cardContainer.getChildCount(); i++) {
+            View card = cardContainer.getChildAt(i);
+            cards.put((Long) card.getTag(), card);
+        }
+
+        int created = 0;
+        unreadCount = 0;
+        for (int i = 0; i < items.size(); i++) {
+            FeedItem item = items.get(i);
+            View card = cards.get(item.getKey());
+            if (card == null) {
+                card = createCard(item);
+                cardContainer.addView(card, i);
+                created++;
+            } else {
+                if (cardContainer.getChildAt(i) != card) {
+                    cardContainer.removeView(card);
+                    cardContainer.addView(card, i);
+                }
+                // Relative times move on between refreshes
+                bindDate(card, item);
+            }
+            boolean read = FeedManager.isRead(item);
+            bindRead(card, read);
+            if (!read) unreadCount++;
+        }
+        int removed = cardContainer.getChildCount() - items.size();
+        if (removed > 0) {
+            cardContainer.removeViews(items.size(), removed);
+        }
+        Log.d(TAG, "Cards: " + created + " added, " + Math.max(0, removed) + " removed, "
+                + items.size() + " total");
+
+        highlightSelected();
+    }
+
+    private View createCard(FeedItem item) {
         // Compute card width from actual screen pixels — Glass is hdpi (density
         // 240) so hard-coded dp values get scaled by 1.5x and overflow 640px.
         int screenWidth = getResources().getDisplayMetrics().widthPixels;
@@ -152,45 +209,48 @@ public class RssActivity extends Activity {
         int cardWidthPx = screenWidth - (2 * marginPx);
         int maxTextWidthPx = cardWidthPx - (2 * padPx);
 
-        LayoutInflater inflater = getLayoutInflater();
-        for (int i = 0; i < items.size(); i++) {
-            FeedItem item = items.get(i);
-            View card = inflater.inflate(R.layout.item_card, cardContainer, false);
+        View card = getLayoutInflater().inflate(R.layout.item_card, cardContainer, false);
+        card.setTag(item.getKey());
 
-            // Override card width from XML with computed pixel value
-            LinearLayout.LayoutParams lp = (LinearLayout.LayoutParams) card.getLayoutParams();
-            lp.width = cardWidthPx;
-            card.setLayoutParams(lp);
+        // Override card width from XML with computed pixel value
+        LinearLayout.LayoutParams lp = (LinearLayout.LayoutParams) card.getLayoutParams();
+        lp.width = cardWidthPx;
+        card.setLayoutParams(lp);
 
-            TextView source = (TextView) card.findViewById(R.id.card_source);
-            TextView title = (TextView) card.findViewById(R.id.card_title);
-            TextView date = (TextView) card.findViewById(R.id.card_date);
-            TextView desc = (TextView) card.findViewById(R.id.card_desc);
+        TextView source = (TextView) card.findViewById(R.id.card_source);
+        TextView title = (TextView) card.findViewById(R.id.card_title);
+        TextView desc = (TextView) card.findViewById(R.id.card_desc);
 
-            title.setMaxWidth(maxTextWidthPx);
-            desc.setMaxWidth(maxTextWidthPx);
+        title.setMaxWidth(maxTextWidthPx);
+        desc.setMaxWidth(maxTextWidthPx);
 
-            source.setText(item.getSource());
-            title.setText(item.getTitle());
+        source.setText(item.getSource());
+        title.setText(item.getTitle());
+        bindDate(card, item);
 
-            String timeStr = relativeTime(item.getTimestamp());
-            if (timeStr.length() > 0) {
-                date.setText(timeStr);
-            } else {
-                date.setVisibility(View.GONE);
-            }
-
-            String description = item.getDescription();
-            if (description.length() > 0) {
-                desc.setText(description);
-            } else {
-                desc.setVisibility(View.GONE);
-            }
+        String description = item.getDescription();
+        if (description.length() > 0) {
+            desc.setText(description);
+        } else {
+            desc.setVisibility(View.GONE);
+        }
+        return card;
+    }
 
-            cardContainer.addView(card);
+    private void bindDate(View card, FeedItem item) {
+        TextView date = (TextView) card.findViewById(R.id.card_date);
+        String timeStr = relativeTime(item.getTimestamp());
+        if (timeStr.length() > 0) {
+            date.setText(timeStr);
+            date.setVisibility(View.VISIBLE);
+        } else {
+            date.setVisibility(View.GONE);
         }
+    }
 
-        highlightSelected();
+    private void bindRead(View card, boolean read) {
+        TextView title = (TextView) card.findViewById(R.id.card_title);
+        title.setTextColor(read ? READ_TITLE_COLOR : Color.WHITE);
     }
 
     private void highlightSelected() {
@@ -205,10 +265,22 @@ public class RssActivity extends Activity {
             }
         }
 
-        // Update status bar
+        // Looking at a card counts as reading it
         FeedItem current = items.get(selectedIndex);
+        if (!FeedManager.isRead(current)) {
+            FeedManager.markRead(current);
+            bindRead(cardContainer.getChildAt(selectedIndex), true);
+            unreadCount--;
+        }
+
+        // Update status bar
         statusSource.setText(current.getSource());
-        statusPosition.setText((selectedIndex + 1) + "/" + items.size());
+        if (unreadCount > 0) {
+            statusPosition.setText(getString(R.string.position_unread,
+                    selectedIndex + 1, items.size(), unreadCount));
+        } else {
+            statusPosition.setText((selectedIndex + 1) + "/" + items.size());
+        }
 
         // Scroll to center selected card
         final View selected = cardContainer.getChildAt(selectedIndex);
@@ -269,7 +341,7 @@ public class RssActivity extends Activity {
                     Log.d(TAG, "Long press — refreshing feeds");
                     statusText.setVisibility(View.VISIBLE);
                     statusText.setText(R.string.refresh);
-                    loadFeeds();
+                    loadFeeds(true);
                 }
                 return true;
 
@@ -0,0 +1,143 @@
+package com.example.glassrss;
+
+import android.util.Log;
+
+import com.glasscommon.io.IoUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Persistent index of the items seen in the last month, keyed by
+ * {@link FeedItem#getKey()}, with when each was first and last seen and
+ * whether it has been read. Survives restarts so read state sticks.
+ * Thread-safe; {@link #save} writes only when something changed.
+ */
+class SeenIndex {
+
+    private static final String TAG = "GlassRSS";
+    private static final int MAGIC = 0x53454531; // "SEE1"
+    // Forget items that have not been in any feed for this long
+    private static final long RETAIN_MS = 30L * 24 * 60 * 60 * 1000;
+
+    private static class Record {
+        long firstSeen;
+        long lastSeen;
+        boolean read;
+    }
+
+    private final File file;
+    private final Map<Long, Record> records = new HashMap<Long, Record>();
+    private boolean dirty;
+
+    SeenIndex(File file) {
+        this.file = file;
+        load();
+    }
+
+    /** Note that an item is in a feed. Returns true the first time it is seen. */
+    synchronized boolean markSeen(long key, long now) {
+        Record r = records.get(key);
+        boolean isNew = r == null;
+        if (isNew) {
+            r = new Record();
+            r.firstSeen = now;
+            records.put(key, r);
+            dirty = true;
+        }
+        // lastSeen only matters at day granularity; avoid a write per refresh
+        if (now - r.lastSeen > RETAIN_MS / 30) {
+            r.lastSeen = now;
+            dirty = true;
+        }
+        return isNew;
+    }
+
+    /** Returns true if this changed the item's state. */
+    synchronized boolean markRead(long key) {
+        Record r = records.get(key);
+        if (r == null) {
+            r = new Record();
+            r.firstSeen = r.lastSeen = System.currentTimeMillis();
+            records.put(key, r);
+        } else if (r.read) {
+            return false;
+        }
+        r.read = true;
+        dirty = true;
+        return true;
+    }
+
+    synchronized boolean isRead(long key) {
+        Record r = records.get(key);
+        return r != null && r.read;
+    }
+
+    /** Drop old records and write the index if it changed. Blocks — call off the UI thread. */
+    synchronized void save() {
+        if (!dirty) return;
+        long cutoff = System.currentTimeMillis() - RETAIN_MS;
+        for (Iterator<Record> it = records.values().iterator(); it.hasNext(); ) {
+            if (it.next().lastSeen < cutoff) it.remove();
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            out.writeInt(MAGIC);
+            out.writeInt(records.size());
+            for (Map.Entry<Long, Record> e : records.entrySet()) {
+                Record r = e.getValue();
+                out.writeLong(e.getKey());
+                out.writeLong(r.firstSeen);
+                out.writeLong(r.lastSeen);
+                out.writeBoolean(r.read);
+            }
+            out.close();
+            out = null;
+            if (!tmp.renameTo(file)) throw new IOException("rename failed");
+            dirty = false;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to save seen index: " + e.getMessage());
+            tmp.delete();
+        } finally {
+            IoUtils.closeQuietly(out);
+        }
+    }
+
+    private void load() {
+        if (!file.exists()) return;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC) return;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long key = in.readLong();
+                Record r = new Record();
+                r.firstSeen = in.readLong();
+                r.lastSeen = in.readLong();
+                r.read = in.readBoolean();
+                records.put(key, r);
+            }
+            Log.d(TAG, "Seen index: " + records.size() + " items");
+        } catch (EOFException e) {
+            Log.w(TAG, "Seen index truncated, keeping " + records.size() + " items");
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to load seen index: " + e.getMessage());
+        } finally {
+            IoUtils.closeQuietly(in);
+        }
+    }
+}
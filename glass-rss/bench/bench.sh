@@ -0,0 +1,28 @@
+#!/bin/bash
+# Build and run the feed date and parser benchmarks or correctness checks on the desktop JVM
+# Usage: ./bench.sh [--seconds N] [--warmup N] [--threads N]
+#        ./bench.sh correctness
+#        ./bench.sh parse [--items N] [--kb N] [--atom] [--no-heap-search]
+
+set -e
+
+DIR="$(cd "$(dirname "$0")" && pwd)"
+SRC="$DIR/../app/src/main/java/com/example/glassrss"
+OUT="$DIR/build"
+
+mkdir -p "$OUT"
+# shim/ stands in for android.util.Log and org.xmlpull (backed by StAX)
+javac -encoding UTF-8 -d "$OUT" -sourcepath "$DIR/shim" \
+    "$SRC/FeedDates.java" \
+    "$SRC/FeedItem.java" \
+    "$SRC/FeedParser.java" \
+    "$DIR"/src/com/example/glassrss/bench/*.java
+
+if [ "$1" = "correctness" ]; then
+    exec java -cp "$OUT" com.example.glassrss.bench.DateCorrectness
+fi
+if [ "$1" = "parse" ]; then
+    shift
+    exec java -cp "$OUT" com.example.glassrss.bench.FeedBench "$@"
+fi
+exec java -cp "$OUT" com.example.glassrss.bench.DateBench "$@"
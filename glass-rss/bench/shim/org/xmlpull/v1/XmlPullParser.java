@@ -0,0 +1,21 @@
+package org.xmlpull.v1;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** The part of the XmlPullParser API that FeedParser uses. */
+public interface XmlPullParser {
+    int START_DOCUMENT = 0;
+    int END_DOCUMENT = 1;
+    int START_TAG = 2;
+    int END_TAG = 3;
+    int TEXT = 4;
+
+    void setInput(InputStream input, String encoding) throws XmlPullParserException;
+    int getEventType() throws XmlPullParserException;
+    int next() throws XmlPullParserException, IOException;
+    String getName();
+    String getText();
+    char[] getTextCharacters(int[] holderForStartAndLength);
+    String getAttributeValue(String namespace, String name);
+}
@@ -0,0 +1,9 @@
+package org.xmlpull.v1;
+
+public class XmlPullParserException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    public XmlPullParserException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
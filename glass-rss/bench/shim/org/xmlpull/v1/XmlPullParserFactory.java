@@ -0,0 +1,109 @@
+package org.xmlpull.v1;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Desktop stand-in for Android's XmlPullParserFactory, backed by the JDK's
+ * StAX parser, so FeedParser runs unchanged on the desktop JVM. Like
+ * Android's kXML it reports prefixed names ("dc:date") when not namespace
+ * aware and delivers CDATA and whitespace as TEXT.
+ */
+public class XmlPullParserFactory {
+
+    private boolean namespaceAware;
+
+    public static XmlPullParserFactory newInstance() {
+        return new XmlPullParserFactory();
+    }
+
+    public void setNamespaceAware(boolean namespaceAware) {
+        this.namespaceAware = namespaceAware;
+    }
+
+    public XmlPullParser newPullParser() {
+        return new StaxPullParser(namespaceAware);
+    }
+
+    private static class StaxPullParser implements XmlPullParser {
+
+        private final boolean namespaceAware;
+        private XMLStreamReader reader;
+        private int eventType = START_DOCUMENT;
+
+        StaxPullParser(boolean namespaceAware) {
+            this.namespaceAware = namespaceAware;
+        }
+
+        @Override
+        public void setInput(InputStream input, String encoding) throws XmlPullParserException {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, namespaceAware);
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+            try {
+                reader = encoding != null
+                        ? factory.createXMLStreamReader(input, encoding)
+                        : factory.createXMLStreamReader(input);
+            } catch (XMLStreamException e) {
+                throw new XmlPullParserException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public int getEventType() {
+            return eventType;
+        }
+
+        @Override
+        public int next() throws XmlPullParserException {
+            try {
+                while (reader.hasNext()) {
+                    switch (reader.next()) {
+                        case XMLStreamConstants.START_ELEMENT: return eventType = START_TAG;
+                        case XMLStreamConstants.END_ELEMENT: return eventType = END_TAG;
+                        case XMLStreamConstants.CHARACTERS:
+                        case XMLStreamConstants.CDATA:
+                        case XMLStreamConstants.SPACE: return eventType = TEXT;
+                        case XMLStreamConstants.END_DOCUMENT: return eventType = END_DOCUMENT;
+                        default: break;
+                    }
+                }
+                return eventType = END_DOCUMENT;
+            } catch (XMLStreamException e) {
+                throw new XmlPullParserException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public String getName() {
+            String prefix = reader.getPrefix();
+            String local = reader.getLocalName();
+            return namespaceAware || prefix == null || prefix.isEmpty() ? local : prefix + ":" + local;
+        }
+
+        @Override
+        public String getText() {
+            return reader.getText();
+        }
+
+        @Override
+        public char[] getTextCharacters(int[] holderForStartAndLength) {
+            holderForStartAndLength[0] = reader.getTextStart();
+            holderForStartAndLength[1] = reader.getTextLength();
+            return reader.getTextCharacters();
+        }
+
+        @Override
+        public String getAttributeValue(String namespace, String name) {
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+                if (name.equals(reader.getAttributeLocalName(i))) return reader.getAttributeValue(i);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.glassrss.bench;
+
+import com.example.glassrss.FeedDates;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Desktop-JVM throughput benchmark for FeedDates against the
+ * SimpleDateFormat parser it replaced.
+ *
+ * Parses the valid samples from DateSamples in a loop, weighted towards
+ * RFC 822 the way real feed lists are, and reports ns per date and bytes
+ * allocated per date (HotSpot's per-thread allocation counter).
+ *
+ *   bench.sh [--seconds N] [--warmup N] [--threads N]
+ */
+public class DateBench {
+
+    public static void main(String[] args) throws Exception {
+        int seconds = 3, warmup = 2, threads = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seconds": seconds = Integer.parseInt(args[++i]); break;
+                case "--warmup":  warmup = Integer.parseInt(args[++i]); break;
+                case "--threads": threads = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Usage: bench.sh [--seconds N] [--warmup N] [--threads N]");
+                    System.exit(2);
+            }
+        }
+
+        int valid = 0;
+        for (String[] sample : DateSamples.SAMPLES) {
+            if (sample[1] != null) valid++;
+        }
+        String[] dates = new String[valid];
+        for (int i = 0, j = 0; i < DateSamples.SAMPLES.length; i++) {
+            if (DateSamples.SAMPLES[i][1] != null) dates[j++] = DateSamples.SAMPLES[i][0];
+        }
+
+        System.out.printf("%d sample dates, %d thread(s)%n", dates.length, threads);
+        for (boolean legacy : new boolean[] { true, false }) {
+            run(legacy, dates, 1, warmup);
+            Result r = run(legacy, dates, threads, seconds);
+            System.out.printf("%-16s %8.0f ns/date %10.0f dates/s %8.1f bytes/date%n",
+                    legacy ? "SimpleDateFormat" : "FeedDates", r.nanos / r.count, r.count * 1e9 / r.nanos * threads,
+                    r.bytes / r.count);
+        }
+    }
+
+    static class Result {
+        double nanos;
+        double count;
+        double bytes;
+    }
+
+    static Result run(final boolean legacy, final String[] dates, int threads, final int seconds)
+            throws InterruptedException {
+        final Result result = new Result();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long allocStart = allocated();
+                    long start = System.nanoTime();
+                    long deadline = start + seconds * 1000000000L;
+                    long count = 0;
+                    long sink = 0;
+                    do {
+                        for (String d : dates) {
+                            sink += legacy ? DateSamples.legacyParse(d) : FeedDates.parse(d);
+                        }
+                        count += dates.length;
+                    } while (System.nanoTime() < deadline);
+                    long nanos = System.nanoTime() - start;
+                    long bytes = allocated() - allocStart;
+                    synchronized (result) {
+                        result.nanos += nanos;
+                        result.count += count;
+                        result.bytes += bytes;
+                    }
+                    if (sink == 42) System.out.print("");
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread t : workers) t.join();
+        return result;
+    }
+
+    static long allocated() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
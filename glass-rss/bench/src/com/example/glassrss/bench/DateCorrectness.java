@@ -0,0 +1,86 @@
+package com.example.glassrss.bench;
+
+import com.example.glassrss.FeedDates;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks FeedDates against the real-feed samples in DateSamples, then
+ * parses them from several threads at once to show the shared
+ * SimpleDateFormat parser going wrong where FeedDates does not.
+ * Exits non-zero if FeedDates gets any sample wrong.
+ */
+public class DateCorrectness {
+
+    static final int THREADS = 8;
+    static final int ROUNDS = 5000;
+
+    public static void main(String[] args) throws Exception {
+        int failures = 0;
+        int legacyMisses = 0;
+        for (String[] sample : DateSamples.SAMPLES) {
+            long expected = expected(sample);
+            long got = FeedDates.parse(sample[0]);
+            boolean ok = got == expected;
+            if (!ok) failures++;
+            if (DateSamples.legacyParse(sample[0]) != expected) legacyMisses++;
+            System.out.printf("%-4s %-40s %s%n", ok ? "ok" : "FAIL", quote(sample[0]),
+                    ok ? "" : "got " + (got == 0 ? "0" : Instant.ofEpochMilli(got).toString())
+                            + ", expected " + sample[1]);
+        }
+        System.out.printf("%n%d/%d samples correct (SimpleDateFormat parser: %d/%d)%n",
+                DateSamples.SAMPLES.length - failures, DateSamples.SAMPLES.length,
+                DateSamples.SAMPLES.length - legacyMisses, DateSamples.SAMPLES.length);
+
+        long legacyWrong = concurrent(true);
+        long wrong = concurrent(false);
+        long total = (long) THREADS * ROUNDS * DateSamples.SAMPLES.length;
+        System.out.printf("%d threads, %d parses each: SimpleDateFormat %d wrong, FeedDates %d wrong%n",
+                THREADS, total / THREADS, legacyWrong, wrong);
+
+        if (failures > 0 || wrong > 0) System.exit(1);
+    }
+
+    /**
+     * Parse every sample on THREADS threads at once. Counts results that
+     * differ from what the same parser returns single-threaded.
+     */
+    static long concurrent(final boolean legacy) throws InterruptedException {
+        final long[] reference = new long[DateSamples.SAMPLES.length];
+        for (int i = 0; i < reference.length; i++) {
+            reference[i] = parse(legacy, DateSamples.SAMPLES[i][0]);
+        }
+        final AtomicLong wrong = new AtomicLong();
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long bad = 0;
+                    for (int r = 0; r < ROUNDS; r++) {
+                        for (int i = 0; i < reference.length; i++) {
+                            if (parse(legacy, DateSamples.SAMPLES[i][0]) != reference[i]) bad++;
+                        }
+                    }
+                    wrong.addAndGet(bad);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) t.join();
+        return wrong.get();
+    }
+
+    static long parse(boolean legacy, String s) {
+        return legacy ? DateSamples.legacyParse(s) : FeedDates.parse(s);
+    }
+
+    static long expected(String[] sample) {
+        return sample[1] == null ? 0 : Instant.parse(sample[1]).toEpochMilli();
+    }
+
+    static String quote(String s) {
+        return '"' + s.replace("\n", "\\n") + '"';
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.glassrss.bench;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Date strings as they appear in real feeds, with the instant each one
+ * means, plus the SimpleDateFormat parser FeedParser used before FeedDates.
+ */
+final class DateSamples {
+
+    private DateSamples() {}
+
+    /** { input, expected instant (ISO, UTC) or null if it must be rejected } */
+    static final String[][] SAMPLES = {
+            // hnrss.org, Ars Technica, NYT, WordPress: RFC 822 with numeric zone
+            { "Mon, 14 Oct 2024 18:22:31 +0000", "2024-10-14T18:22:31Z" },
+            { "Mon, 14 Oct 2024 17:45:12 +0000", "2024-10-14T17:45:12Z" },
+            { "Tue, 15 Oct 2024 06:01:56 -0400", "2024-10-15T10:01:56Z" },
+            { "Wed, 16 Oct 2024 09:30:00 +0530", "2024-10-16T04:00:00Z" },
+            // RSS 2.0 spec, BBC, Yahoo Finance: named zones
+            { "Tue, 10 Jun 2003 04:00:00 GMT", "2003-06-10T04:00:00Z" },
+            { "Sat, 07 Sep 2002 00:00:01 GMT", "2002-09-07T00:00:01Z" },
+            { "Mon, 14 Oct 2024 17:33:25 GMT", "2024-10-14T17:33:25Z" },
+            { "Mon, 14 Oct 2024 12:00:00 UT", "2024-10-14T12:00:00Z" },
+            { "Mon, 14 Oct 2024 12:00:00 UTC", "2024-10-14T12:00:00Z" },
+            { "Mon, 14 Oct 2024 12:00:00 EDT", "2024-10-14T16:00:00Z" },
+            { "Thu, 12 Dec 2024 12:00:00 EST", "2024-12-12T17:00:00Z" },
+            { "Mon, 14 Oct 2024 12:00:00 PDT", "2024-10-14T19:00:00Z" },
+            { "Thu, 12 Dec 2024 12:00:00 CST", "2024-12-12T18:00:00Z" },
+            { "Thu, 12 Dec 2024 12:00:00 MST", "2024-12-12T19:00:00Z" },
+            { "Mon, 14 Oct 2024 12:00:00 Z", "2024-10-14T12:00:00Z" },
+            // Looser RFC 822 seen in the wild
+            { "Mon, 7 Oct 2024 08:05:09 +0000", "2024-10-07T08:05:09Z" },
+            { "14 Oct 2024 18:20:45 +0000", "2024-10-14T18:20:45Z" },
+            { "Mon, 14 Oct 24 18:20:45 GMT", "2024-10-14T18:20:45Z" },
+            { "Monday, 14 October 2024 18:20 PDT", "2024-10-15T01:20:00Z" },
+            { "Mon, 14 Oct 2024 8:20:45 +0100", "2024-10-14T07:20:45Z" },
+            { "Mon,14 Oct 2024 18:20:45 GMT", "2024-10-14T18:20:45Z" },
+            { "Mon, 14 Oct 2024 18:20:45 GMT+0200", "2024-10-14T16:20:45Z" },
+            { "  Mon, 14 Oct 2024 18:20:45 +0000\n", "2024-10-14T18:20:45Z" },
+            { "Thu, 29 Feb 2024 23:59:59 -0800", "2024-03-01T07:59:59Z" },
+            { "Fri, 31 Dec 1999 23:59:60 GMT", "2000-01-01T00:00:00Z" },
+            // Atom (The Verge, GitHub, Reddit, YouTube), dc:date
+            { "2024-10-14T13:30:00-04:00", "2024-10-14T17:30:00Z" },
+            { "2024-10-14T18:20:45Z", "2024-10-14T18:20:45Z" },
+            { "2024-10-14T18:20:45+00:00", "2024-10-14T18:20:45Z" },
+            { "2024-10-14T09:15:00+09:00", "2024-10-14T00:15:00Z" },
+            { "2003-12-13T18:30:02Z", "2003-12-13T18:30:02Z" },
+            { "2003-12-13T18:30:02.25Z", "2003-12-13T18:30:02.250Z" },
+            { "2003-12-13T18:30:02.25+01:00", "2003-12-13T17:30:02.250Z" },
+            { "2024-10-14T18:20:45.123Z", "2024-10-14T18:20:45.123Z" },
+            { "2024-10-14T18:20:45.123456+0530", "2024-10-14T12:50:45.123Z" },
+            { "2024-10-14T18:20:45-0700", "2024-10-15T01:20:45Z" },
+            { "2024-10-14T18:20Z", "2024-10-14T18:20:00Z" },
+            { "2024-10-14T18:20:45", "2024-10-14T18:20:45Z" },
+            { "2024-10-14 18:20:45", "2024-10-14T18:20:45Z" },
+            { "2024-10-14", "2024-10-14T00:00:00Z" },
+            { "1969-07-20T20:17:40Z", "1969-07-20T20:17:40Z" },
+            // Garbage must come back as 0
+            { "", null },
+            { "yesterday", null },
+            { "Mon, 32 Oct 2024 18:20:45 GMT", null },
+            { "Mon, 14 Foo 2024 18:20:45 GMT", null },
+            { "Mon, 14 Oct 2024 25:20:45 GMT", null },
+            { "2024-13-01T00:00:00Z", null },
+            { "2024-10-14T18:20:45 and then some", null },
+            { "2024/10/14", null },
+    };
+
+    // --- The parser FeedParser used before FeedDates ---
+
+    private static final SimpleDateFormat[] DATE_FORMATS;
+
+    static {
+        String[] patterns = {
+            "EEE, dd MMM yyyy HH:mm:ss Z",
+            "EEE, dd MMM yyyy HH:mm:ss zzz",
+            "yyyy-MM-dd'T'HH:mm:ssZ",
+            "yyyy-MM-dd'T'HH:mm:ss'Z'",
+            "yyyy-MM-dd'T'HH:mm:ss.SSSZ",
+            "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'",
+            "yyyy-MM-dd HH:mm:ss",
+            "yyyy-MM-dd",
+        };
+        DATE_FORMATS = new SimpleDateFormat[patterns.length];
+        for (int i = 0; i < patterns.length; i++) {
+            DATE_FORMATS[i] = new SimpleDateFormat(patterns[i], Locale.US);
+            DATE_FORMATS[i].setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+    }
+
+    /** The old FeedParser.parseDate, shared formats and all. */
+    static long legacyParse(String dateStr) {
+        if (dateStr == null || dateStr.length() == 0) return 0;
+        String normalized = dateStr.replaceAll("([+-]\\d{2}):(\\d{2})$", "$1$2");
+        for (SimpleDateFormat fmt : DATE_FORMATS) {
+            try {
+                Date d = fmt.parse(normalized);
+                if (d != null) return d.getTime();
+            } catch (ParseException ignored) {
+            } catch (RuntimeException ignored) {
+                // Concurrent use corrupts the shared calendar and can throw anything
+            }
+        }
+        return 0;
+    }
+}
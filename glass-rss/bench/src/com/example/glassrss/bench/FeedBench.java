@@ -0,0 +1,230 @@
+package com.example.glassrss.bench;
+
+import com.example.glassrss.FeedItem;
+import com.example.glassrss.FeedParser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Desktop-JVM memory benchmark for FeedParser on a multi-megabyte feed.
+ *
+ * Generates an RSS feed (or Atom with --atom) whose items each carry a
+ * whole article twice, as escaped HTML in the description and as CDATA in
+ * content:encoded, the way WordPress feeds do. Parses it with the current
+ * FeedParser and with the pre-streaming parser and reports parse time,
+ * bytes read from the stream, bytes allocated, heap still held by the
+ * result, and the smallest -Xmx each parser completes in (found by
+ * re-running it in child JVMs that stream the feed from a file, so the
+ * feed itself is never on their heap).
+ *
+ *   bench.sh parse [--items N] [--kb N] [--atom] [--no-heap-search]
+ */
+public class FeedBench {
+
+    public static void main(String[] args) throws Exception {
+        int items = 40, kb = 120;
+        boolean atom = false, heapSearch = true;
+        String once = null, file = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--items": items = Integer.parseInt(args[++i]); break;
+                case "--kb":    kb = Integer.parseInt(args[++i]); break;
+                case "--atom":  atom = true; break;
+                case "--no-heap-search": heapSearch = false; break;
+                case "--once":  once = args[++i]; break;
+                case "--file":  file = args[++i]; break;
+                default:
+                    System.err.println("Usage: bench.sh parse [--items N] [--kb N] [--atom] [--no-heap-search]");
+                    System.exit(2);
+            }
+        }
+
+        if (once != null) {
+            // Child JVM of the heap search: parse once, streaming from the file
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            List<FeedItem> result = "legacy".equals(once)
+                    ? LegacyFeedParser.parse(in, null) : FeedParser.parse(in, null);
+            in.close();
+            System.exit(result.isEmpty() ? 1 : 0);
+        }
+
+        byte[] feed = generate(items, kb, atom);
+        File feedFile = File.createTempFile("feedbench", ".xml");
+        feedFile.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(feedFile);
+        out.write(feed);
+        out.close();
+
+        System.out.printf("%s feed, %d items of %d KB articles, %.1f MB%n",
+                atom ? "Atom" : "RSS", items, kb, feed.length / 1e6);
+        System.out.printf("%-10s %8s %10s %12s %12s %12s %10s%n",
+                "parser", "ms", "read MB", "alloc MB", "retained KB", "max desc", "min -Xmx");
+        for (boolean legacy : new boolean[] { true, false }) {
+            for (int i = 0; i < 3; i++) parse(legacy, feed);
+
+            long heapBefore = usedAfterGc();
+            long allocStart = allocated();
+            long start = System.nanoTime();
+            CountingStream in = new CountingStream(new ByteArrayInputStream(feed));
+            List<FeedItem> result = legacy ? LegacyFeedParser.parse(in, null) : FeedParser.parse(in, null);
+            double ms = (System.nanoTime() - start) / 1e6;
+            long alloc = allocated() - allocStart;
+            long retained = usedAfterGc() - heapBefore;
+            int maxDesc = 0;
+            for (FeedItem item : result) maxDesc = Math.max(maxDesc, item.getDescription().length());
+
+            String minHeap = heapSearch ? minHeapMb(legacy, feedFile) + " MB" : "-";
+            System.out.printf("%-10s %8.1f %10.2f %12.1f %12d %12d %10s%n",
+                    legacy ? "legacy" : "streaming", ms, in.count / 1e6, alloc / 1e6,
+                    Math.max(0, retained) / 1024, maxDesc, minHeap);
+        }
+    }
+
+    static List<FeedItem> parse(boolean legacy, byte[] feed) throws Exception {
+        InputStream in = new ByteArrayInputStream(feed);
+        return legacy ? LegacyFeedParser.parse(in, null) : FeedParser.parse(in, null);
+    }
+
+    // --- Peak memory ---
+
+    /** Smallest -Xmx, in MB, in which one parse succeeds, by bisection over child JVMs. */
+    static int minHeapMb(boolean legacy, File feed) throws Exception {
+        int lo = 2, hi = 512;
+        if (!runChild(legacy, hi, feed)) return -1;
+        while (lo < hi) {
+            int mid = (lo + hi) / 2;
+            if (runChild(legacy, mid, feed)) hi = mid; else lo = mid + 1;
+        }
+        return lo;
+    }
+
+    static boolean runChild(boolean legacy, int heapMb, File feed) throws Exception {
+        List<String> cmd = new ArrayList<String>();
+        cmd.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        cmd.add("-Xmx" + heapMb + "m");
+        cmd.add("-XX:+UseSerialGC");
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(FeedBench.class.getName());
+        cmd.add("--file");
+        cmd.add(feed.getPath());
+        cmd.add("--once");
+        cmd.add(legacy ? "legacy" : "streaming");
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        return p.waitFor() == 0;
+    }
+
+    static long usedAfterGc() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    static long allocated() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    static class CountingStream extends FilterInputStream {
+        long count;
+
+        CountingStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    // --- Feed generator ---
+
+    static final String[] WORDS = {
+            "glass", "display", "battery", "launch", "market", "update", "report", "engine", "quarter",
+            "network", "the", "of", "and", "a", "to", "in", "is", "for", "on", "with", "new", "data",
+    };
+
+    static byte[] generate(int items, int kb, boolean atom) {
+        Random random = new Random(7);
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        if (atom) {
+            sb.append("<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>Bench Atom</title>\n");
+        } else {
+            sb.append("<rss version=\"2.0\" xmlns:content=\"http://purl.org/rss/1.0/modules/content/\"")
+              .append(" xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><channel><title>Bench RSS</title>\n");
+        }
+        for (int i = 0; i < items; i++) {
+            String article = article(random, kb * 1024);
+            String date = String.format("2024-10-%02dT%02d:15:00Z", 1 + i % 28, i % 24);
+            if (atom) {
+                sb.append("<entry><title>Story number ").append(i).append("</title>")
+                  .append("<link rel=\"alternate\" href=\"https://example.com/story/").append(i).append("\"/>")
+                  .append("<updated>").append(date).append("</updated>")
+                  .append("<summary type=\"html\">").append(escape(article.substring(0, 600))).append("</summary>")
+                  .append("<content type=\"html\">").append(escape(article)).append("</content></entry>\n");
+            } else {
+                sb.append("<item><title>Story number ").append(i).append("</title>")
+                  .append("<link>https://example.com/story/").append(i).append("</link>")
+                  .append("<dc:date>").append(date).append("</dc:date>")
+                  .append("<description>").append(escape(article)).append("</description>")
+                  .append("<content:encoded><![CDATA[").append(article).append("]]></content:encoded>")
+                  .append("</item>\n");
+            }
+        }
+        sb.append(atom ? "</feed>\n" : "</channel></rss>\n");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String article(Random random, int size) {
+        StringBuilder sb = new StringBuilder(size + 200);
+        while (sb.length() < size) {
+            sb.append("<p>");
+            int words = 40 + random.nextInt(60);
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (random.nextInt(30) == 0) {
+                    sb.append("<a href=\"https://example.com/").append(word).append("\">").append(word).append("</a>");
+                } else if (random.nextInt(50) == 0) {
+                    sb.append(word).append(" &amp; co");
+                } else {
+                    sb.append(word);
+                }
+                sb.append(' ');
+            }
+            sb.append("</p>\n");
+            if (random.nextInt(4) == 0) sb.append("<img src=\"https://example.com/i.jpg\" alt=\"x\"/>\n");
+        }
+        return sb.toString();
+    }
+
+    static String escape(String html) {
+        return html.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
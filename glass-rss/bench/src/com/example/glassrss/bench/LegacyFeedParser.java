@@ -0,0 +1,110 @@
+package com.example.glassrss.bench;
+
+import com.example.glassrss.FeedDates;
+import com.example.glassrss.FeedItem;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FeedParser.parse as it was before descriptions were bounded: every
+ * element's text is collected in full, the longest description is kept
+ * whole and FeedItem strips its HTML with regexes afterwards. Dates go
+ * through FeedDates so only the text handling differs.
+ */
+final class LegacyFeedParser {
+
+    private static final int MAX_ITEMS_PER_FEED = 20;
+
+    private LegacyFeedParser() {}
+
+    static List<FeedItem> parse(InputStream input, String sourceName) throws Exception {
+        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(false);
+        XmlPullParser parser = factory.newPullParser();
+        parser.setInput(input, null);
+
+        boolean isAtom = false;
+        boolean insideItem = false;
+        String feedTitle = null;
+
+        String title = null;
+        String description = null;
+        String link = null;
+        String dateStr = null;
+        StringBuilder textBuffer = new StringBuilder();
+
+        List<FeedItem> items = new ArrayList<FeedItem>();
+
+        int eventType = parser.getEventType();
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG) {
+                String currentTag = parser.getName();
+
+                if ("feed".equals(currentTag)) {
+                    isAtom = true;
+                } else if ("item".equals(currentTag) || "entry".equals(currentTag)) {
+                    insideItem = true;
+                    title = null;
+                    description = null;
+                    link = null;
+                    dateStr = null;
+                } else if (insideItem && "link".equals(currentTag) && isAtom) {
+                    String href = parser.getAttributeValue(null, "href");
+                    String rel = parser.getAttributeValue(null, "rel");
+                    if (href != null && (rel == null || "alternate".equals(rel))) {
+                        link = href;
+                    }
+                }
+                textBuffer.setLength(0);
+
+            } else if (eventType == XmlPullParser.TEXT) {
+                textBuffer.append(parser.getText());
+
+            } else if (eventType == XmlPullParser.END_TAG) {
+                String tag = parser.getName();
+                String text = textBuffer.toString().trim();
+
+                if (!insideItem && "title".equals(tag) && feedTitle == null && text.length() > 0) {
+                    feedTitle = text;
+                }
+
+                if (insideItem) {
+                    if ("title".equals(tag)) {
+                        title = text;
+                    } else if ("description".equals(tag) || "summary".equals(tag) || "content".equals(tag)) {
+                        if (description == null || text.length() > description.length()) {
+                            description = text;
+                        }
+                    } else if ("link".equals(tag) && !isAtom) {
+                        link = text;
+                    } else if ("pubDate".equals(tag) || "published".equals(tag)
+                            || "updated".equals(tag) || "dc:date".equals(tag)) {
+                        if (dateStr == null) {
+                            dateStr = text;
+                        }
+                    }
+                }
+
+                if ("item".equals(tag) || "entry".equals(tag)) {
+                    insideItem = false;
+                    if (title != null && title.length() > 0) {
+                        String src = (sourceName != null && sourceName.length() > 0)
+                                ? sourceName : (feedTitle != null ? feedTitle : "Unknown");
+                        items.add(new FeedItem(title, description, src, link, FeedDates.parse(dateStr)));
+                    }
+                    if (items.size() >= MAX_ITEMS_PER_FEED) {
+                        break;
+                    }
+                }
+            }
+
+            eventType = parser.next();
+        }
+        return items;
+    }
+}
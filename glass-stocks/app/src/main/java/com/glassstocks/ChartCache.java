@@ -0,0 +1,134 @@
+package com.glassstocks;
+
+import android.util.Log;
+
+import com.glasscommon.io.DiskLruStore;
+import com.glasscommon.io.IoUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Chart images on disk, keyed by URL and evicted least recently used first
+ * once they pass a byte budget.
+ *
+ * Each image is kept as the PNG the server sent, so it can be decoded
+ * straight from the file (whole or by region), next to a small .meta file
+ * with its ETag and Last-Modified for revalidation and a CRC of the bytes,
+ * which tells a re-sent identical image from a new one. Both files are
+ * replaced atomically on every store.
+ */
+class ChartCache {
+
+    private static final String TAG = "Stocks";
+    private static final int MAGIC = 0x43485431; // "CHT1"
+    // Parts of an entry in the store
+    private static final int IMAGE = 0;
+    private static final int META = 1;
+
+    /** A stored image. */
+    static class Entry {
+        final String url;
+        final String etag;
+        final String lastModified;
+        final long crc;
+        final File file;
+
+        Entry(String url, String etag, String lastModified, long crc, File file) {
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.crc = crc;
+            this.file = file;
+        }
+    }
+
+    private final DiskLruStore store;
+
+    ChartCache(File dir, long maxBytes) {
+        this.store = new DiskLruStore(dir, maxBytes, ".png", ".meta");
+    }
+
+    /** Stored image for a URL, or null. Marks it as recently used. */
+    synchronized Entry get(String url) {
+        if (!store.contains(url)) return null;
+        File image = store.file(url, IMAGE);
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(store.file(url, META))));
+            if (in.readInt() != MAGIC) throw new IOException("bad magic");
+            if (!url.equals(IoUtils.readString(in))) return null;
+            String etag = IoUtils.readString(in);
+            String lastModified = IoUtils.readString(in);
+            long crc = in.readLong();
+            if (in.readLong() != image.length()) throw new IOException("image size mismatch");
+            store.touch(url);
+            return new Entry(url, etag, lastModified, crc, image);
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable chart for " + url + ": " + e.getMessage());
+            IoUtils.closeQuietly(in);
+            in = null;
+            store.remove(url);
+            return null;
+        } finally {
+            IoUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Store an image read from {@code body}, replacing any previous one for
+     * the URL once it is complete; a failed download leaves the old one. A
+     * decoder that already has the old file open keeps reading it. Calls
+     * for the same URL must not overlap.
+     */
+    Entry put(String url, String etag, String lastModified, InputStream body) throws IOException {
+        File imageTmp = store.tmpFile(url, IMAGE);
+        File metaTmp = store.tmpFile(url, META);
+
+        CRC32 crc = new CRC32();
+        OutputStream out = null;
+        DataOutputStream metaOut = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(imageTmp));
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = body.read(buf)) != -1) {
+                crc.update(buf, 0, n);
+                out.write(buf, 0, n);
+            }
+            out.close();
+            out = null;
+
+            metaOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(metaTmp)));
+            metaOut.writeInt(MAGIC);
+            IoUtils.writeString(metaOut, url);
+            IoUtils.writeString(metaOut, etag);
+            IoUtils.writeString(metaOut, lastModified);
+            metaOut.writeLong(crc.getValue());
+            metaOut.writeLong(imageTmp.length());
+            metaOut.close();
+            metaOut = null;
+        } catch (IOException e) {
+            imageTmp.delete();
+            metaTmp.delete();
+            throw e;
+        } finally {
+            IoUtils.closeQuietly(out);
+            IoUtils.closeQuietly(metaOut);
+        }
+
+        synchronized (this) {
+            store.commit(url);
+        }
+        return new Entry(url, etag, lastModified, crc.getValue(), store.file(url, IMAGE));
+    }
+}
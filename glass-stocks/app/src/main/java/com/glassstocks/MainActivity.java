@@ -3,26 +3,29 @@ package com.glassstocks;
 import android.app.Activity;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
-import android.graphics.Matrix;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.PowerManager;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.LruCache;
 import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.io.InputStream;
-import java.net.URL;
-import java.security.cert.X509Certificate;
+import com.glasscommon.net.Http;
+import com.glasscommon.net.Request;
+import com.glasscommon.net.Response;
 
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends Activity {
 
@@ -32,18 +35,36 @@ public class MainActivity extends Activity {
     private static final long REFRESH_INTERVAL_MS = 60000;
     private static final String BASE_URL = "https://stockcharts.com/voyeur/voyeur";
 
+    // Downloaded charts kept across launches; the ten in rotation are a few hundred KB
+    private static final long DISK_CACHE_BYTES = 4 * 1024 * 1024;
+    // Decoded bitmaps, whatever the number of charts
+    private static final int MEMORY_CACHE_BYTES = 6 * 1024 * 1024;
+    // Glass display, used until the real metrics are known
+    private static final int DEFAULT_WIDTH = 640;
+    private static final int DEFAULT_HEIGHT = 360;
+
     private ImageView chartImage;
     private TextView counterText;
     private Handler handler;
     private PowerManager.WakeLock wakeLock;
 
-    private final Bitmap[] bitmaps = new Bitmap[IMAGE_COUNT];
+    private ChartCache chartCache;
+    private LruCache<String, Bitmap> bitmapCache;
+    // Downloads run one round at a time; decoding never waits on the network
+    private final ExecutorService fetchExecutor = Executors.newSingleThreadExecutor();
+    private final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor();
+    private int displayWidth = DEFAULT_WIDTH;
+    private int displayHeight = DEFAULT_HEIGHT;
+    // Bumped when a chart changes, so a decode of the old file is not cached
+    private final int[] versions = new int[IMAGE_COUNT];
+
     private int currentIndex = 0;
     private boolean running = false;
 
     private static final int ZOOM_FIT = 0;
     private static final int ZOOM_FILL = 1;
     private static final int ZOOM_CLOSE = 2;
+    private static final float CLOSE_SCALE = 2.5f;
     private int zoomLevel = ZOOM_FIT;
     private float touchDownX, touchDownY;
     private long touchDownTime;
@@ -60,6 +81,22 @@ public class MainActivity extends Activity {
         PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
         wakeLock = pm.newWakeLock(PowerManager.SCREEN_DIM_WAKE_LOCK, TAG + ":wl");
 
+        DisplayMetrics dm = getResources().getDisplayMetrics();
+        if (dm.widthPixels > 0 && dm.heightPixels > 0) {
+            displayWidth = Math.max(dm.widthPixels, dm.heightPixels);
+            displayHeight = Math.min(dm.widthPixels, dm.heightPixels);
+        }
+
+        chartCache = new ChartCache(new File(getCacheDir(), "charts"), DISK_CACHE_BYTES);
+        bitmapCache = new LruCache<String, Bitmap>(MEMORY_CACHE_BYTES) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+
+        // Last launch's charts from disk while the first round downloads
+        showCurrentImage();
         fetchAllImages();
     }
 
@@ -80,66 +117,212 @@ public class MainActivity extends Activity {
         if (wakeLock.isHeld()) {
             wakeLock.release();
         }
+        Http.metrics().log();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        fetchExecutor.shutdownNow();
+        decodeExecutor.shutdownNow();
+    }
+
+    private static String imageUrl(int index) {
+        return BASE_URL + (index + 1) + ".png";
+    }
+
+    // ========== FETCHING ==========
+
+    /**
+     * Revalidate every chart against the disk cache. An unchanged chart
+     * costs a 304, or a download whose bytes match the stored ones; either
+     * way its decoded bitmaps are kept.
+     */
     private void fetchAllImages() {
-        new Thread(new Runnable() {
+        fetchExecutor.execute(new Runnable() {
             @Override
             public void run() {
-                try {
-                    TrustManager[] trustAll = new TrustManager[] {
-                        new X509TrustManager() {
-                            public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
-                            public void checkClientTrusted(X509Certificate[] certs, String type) {}
-                            public void checkServerTrusted(X509Certificate[] certs, String type) {}
-                        }
-                    };
-                    SSLContext sc = SSLContext.getInstance("TLS");
-                    sc.init(null, trustAll, new java.security.SecureRandom());
-
-                    long timestamp = System.currentTimeMillis();
-                    for (int i = 0; i < IMAGE_COUNT; i++) {
-                        String urlStr = BASE_URL + (i + 1) + ".png?rnd=" + timestamp;
-                        URL url = new URL(urlStr);
-                        HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-                        conn.setSSLSocketFactory(sc.getSocketFactory());
-                        conn.setConnectTimeout(10000);
-                        conn.setReadTimeout(10000);
-
-                        try {
-                            InputStream in = conn.getInputStream();
-                            Bitmap bmp = BitmapFactory.decodeStream(in);
-                            in.close();
-                            if (bmp != null) {
-                                bitmaps[i] = bmp;
-                            }
-                            Log.d(TAG, "Fetched image " + (i + 1));
-                        } finally {
-                            conn.disconnect();
-                        }
+                final boolean[] changed = new boolean[IMAGE_COUNT];
+                for (int i = 0; i < IMAGE_COUNT; i++) {
+                    try {
+                        changed[i] = revalidate(imageUrl(i));
+                    } catch (Exception e) {
+                        Log.e(TAG, "Image fetch failed for " + (i + 1), e);
                     }
-
-                    handler.post(new Runnable() {
-                        @Override
-                        public void run() {
-                            showCurrentImage();
-                        }
-                    });
-                } catch (Exception e) {
-                    Log.e(TAG, "Image fetch failed", e);
                 }
+
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onImagesFetched(changed);
+                    }
+                });
             }
-        }).start();
+        });
     }
 
-    private void showCurrentImage() {
-        Bitmap bmp = bitmaps[currentIndex];
+    /** Bring one chart's disk copy up to date; true if its image changed. */
+    private boolean revalidate(String url) throws IOException {
+        ChartCache.Entry cached = chartCache.get(url);
+        // Replaces the old rnd cache-buster: caches on the way must check with the server
+        Request request = new Request(url).noCache().header("Cache-Control", "no-cache");
+        if (cached != null) {
+            request.header("If-None-Match", cached.etag)
+                    .header("If-Modified-Since", cached.lastModified);
+        }
+        Response response = Http.execute(request);
+        try {
+            if (response.isNotModified()) return false;
+            ChartCache.Entry stored = chartCache.put(url, response.header("ETag"),
+                    response.header("Last-Modified"), response.body());
+            return cached == null || stored.crc != cached.crc;
+        } finally {
+            response.close();
+        }
+    }
+
+    private void onImagesFetched(boolean[] changed) {
+        for (int i = 0; i < IMAGE_COUNT; i++) {
+            if (!changed[i]) continue;
+            versions[i]++;
+            String url = imageUrl(i);
+            for (int zoom = ZOOM_FIT; zoom <= ZOOM_CLOSE; zoom++) {
+                bitmapCache.remove(cacheKey(url, zoom));
+            }
+        }
+        // A zoomed chart is left as it is until the user moves on
+        if (changed[currentIndex] && zoomLevel == ZOOM_FIT) {
+            showCurrentImage();
+        }
+    }
+
+    // ========== DECODING ==========
+
+    private static String cacheKey(String url, int zoom) {
+        return zoom == ZOOM_FIT ? url : url + "#" + zoom;
+    }
+
+    /**
+     * Show the current chart at the current zoom level, decoding it from
+     * disk if it is not in memory. The image on screen stays until the new
+     * one is ready.
+     */
+    private void showBitmap(int index, int zoom) {
+        Bitmap bmp = bitmapCache.get(cacheKey(imageUrl(index), zoom));
         if (bmp != null) {
             chartImage.setScaleType(ImageView.ScaleType.FIT_CENTER);
             chartImage.setImageBitmap(bmp);
-            zoomLevel = ZOOM_FIT;
+            return;
         }
+        decodeAsync(index, zoom, true);
+    }
+
+    private void decodeAsync(final int index, final int zoom, final boolean show) {
+        final int version = versions[index];
+        decodeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final String url = imageUrl(index);
+                ChartCache.Entry entry = chartCache.get(url);
+                if (entry == null) return;
+                final Bitmap bmp;
+                try {
+                    bmp = zoom == ZOOM_FIT ? decodeFit(entry.file) : decodeRegion(entry.file, zoom);
+                } catch (IOException e) {
+                    Log.e(TAG, "Decode failed for " + (index + 1), e);
+                    return;
+                }
+                if (bmp == null) return;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (version != versions[index]) return;
+                        bitmapCache.put(cacheKey(url, zoom), bmp);
+                        if (show && index == currentIndex && zoom == zoomLevel) {
+                            chartImage.setScaleType(ImageView.ScaleType.FIT_CENTER);
+                            chartImage.setImageBitmap(bmp);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /** The whole chart, subsampled to no more than the display needs. */
+    private Bitmap decodeFit(File file) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) return null;
+
+        // Size of the chart once fitted to the screen
+        float fit = Math.min((float) displayWidth / bounds.outWidth, (float) displayHeight / bounds.outHeight);
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight,
+                Math.round(bounds.outWidth * fit), Math.round(bounds.outHeight * fit));
+        // Charts are opaque; half the memory of ARGB_8888
+        opts.inPreferredConfig = Bitmap.Config.RGB_565;
+        return BitmapFactory.decodeFile(file.getPath(), opts);
+    }
+
+    /**
+     * Just the part of the chart a zoom level shows, with the display's
+     * aspect ratio so it fills the screen: the centre for Fill, the top-left
+     * corner with the symbol for Close-up, at native resolution.
+     */
+    private Bitmap decodeRegion(File file, int zoom) throws IOException {
+        BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(file.getPath(), false);
+        try {
+            int width = decoder.getWidth();
+            int height = decoder.getHeight();
+            Rect region;
+            if (zoom == ZOOM_CLOSE) {
+                region = new Rect(0, 0,
+                        Math.min(width, Math.round(displayWidth / CLOSE_SCALE)),
+                        Math.min(height, Math.round(displayHeight / CLOSE_SCALE)));
+            } else {
+                // Largest centred rectangle with the display's aspect ratio
+                int cropWidth = width;
+                int cropHeight = Math.round((float) width * displayHeight / displayWidth);
+                if (cropHeight > height) {
+                    cropHeight = height;
+                    cropWidth = Math.round((float) height * displayWidth / displayHeight);
+                }
+                int left = (width - cropWidth) / 2;
+                int top = (height - cropHeight) / 2;
+                region = new Rect(left, top, left + cropWidth, top + cropHeight);
+            }
+
+            BitmapFactory.Options opts = new BitmapFactory.Options();
+            opts.inSampleSize = sampleSize(region.width(), region.height(), displayWidth, displayHeight);
+            opts.inPreferredConfig = Bitmap.Config.RGB_565;
+            return decoder.decodeRegion(region, opts);
+        } finally {
+            decoder.recycle();
+        }
+    }
+
+    /** Largest power of two that keeps the decoded image at least {@code reqWidth} x {@code reqHeight}. */
+    private static int sampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int sample = 1;
+        while (width / (sample * 2) >= reqWidth && height / (sample * 2) >= reqHeight) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    // ========== SLIDESHOW ==========
+
+    private void showCurrentImage() {
+        zoomLevel = ZOOM_FIT;
+        showBitmap(currentIndex, ZOOM_FIT);
         counterText.setText((currentIndex + 1) + " / " + IMAGE_COUNT);
+
+        // Have the next chart ready when the slideshow gets there
+        int next = (currentIndex + 1) % IMAGE_COUNT;
+        if (bitmapCache.get(cacheKey(imageUrl(next), ZOOM_FIT)) == null) {
+            decodeAsync(next, ZOOM_FIT, false);
+        }
     }
 
     private void advanceSlideshow() {
@@ -233,27 +416,12 @@ public class MainActivity extends Activity {
     }
 
     private void applyZoom() {
-        switch (zoomLevel) {
-            case ZOOM_FIT:
-                chartImage.setScaleType(ImageView.ScaleType.FIT_CENTER);
-                startSlideshow();
-                break;
-            case ZOOM_FILL:
-                chartImage.setScaleType(ImageView.ScaleType.CENTER_CROP);
-                handler.removeCallbacks(slideshowRunnable);
-                break;
-            case ZOOM_CLOSE:
-                // 2.5x zoom anchored top-left to read the symbol
-                Bitmap bmp = bitmaps[currentIndex];
-                if (bmp != null) {
-                    float scale = 2.5f;
-                    Matrix m = new Matrix();
-                    m.setScale(scale, scale);
-                    chartImage.setScaleType(ImageView.ScaleType.MATRIX);
-                    chartImage.setImageMatrix(m);
-                }
-                handler.removeCallbacks(slideshowRunnable);
-                break;
+        // Fill and Close-up decode only the region they show; see decodeRegion
+        showBitmap(currentIndex, zoomLevel);
+        if (zoomLevel == ZOOM_FIT) {
+            startSlideshow();
+        } else {
+            handler.removeCallbacks(slideshowRunnable);
         }
     }
 
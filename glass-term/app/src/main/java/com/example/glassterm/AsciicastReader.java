@@ -0,0 +1,142 @@
+package com.example.glassterm;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal reader for asciicast v2 files: a JSON header line, then one
+ * {@code [time, "o", "data"]} event per line. Event types other than
+ * output are skipped. Pure Java so the desktop benchmark can use it too.
+ */
+public class AsciicastReader implements Closeable {
+
+    private final BufferedReader in;
+    private final int width;
+    private final int height;
+    private int lineNumber = 1;
+
+    private double time;
+    private String data;
+
+    // Parse position within the current event line
+    private String line;
+    private int pos;
+
+    public AsciicastReader(Reader reader) throws IOException {
+        in = new BufferedReader(reader);
+        String header = in.readLine();
+        if (header == null || !header.contains("\"version\": 2") && !header.contains("\"version\":2")) {
+            throw new IOException("Not an asciicast v2 file");
+        }
+        width = headerInt(header, "width");
+        height = headerInt(header, "height");
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    /** Seconds since the start of the recording, for the current event. */
+    public double getTime() { return time; }
+
+    /** Output text of the current event. */
+    public String getData() { return data; }
+
+    /** Advance to the next output event. Returns false at end of file. */
+    public boolean next() throws IOException {
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) continue;
+            pos = 0;
+            expect('[');
+            time = parseNumber();
+            expect(',');
+            String type = parseString();
+            expect(',');
+            String value = parseString();
+            expect(']');
+            if (type.equals("o")) {
+                data = value;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // --- Private helpers ---
+
+    private static int headerInt(String header, String key) throws IOException {
+        int i = header.indexOf("\"" + key + "\"");
+        if (i < 0) throw new IOException("asciicast header has no " + key);
+        i = header.indexOf(':', i) + 1;
+        while (i < header.length() && header.charAt(i) == ' ') i++;
+        int start = i;
+        while (i < header.length() && Character.isDigit(header.charAt(i))) i++;
+        if (start == i) throw new IOException("asciicast header has a bad " + key);
+        return Integer.parseInt(header.substring(start, i));
+    }
+
+    private void skipSpaces() {
+        while (pos < line.length() && line.charAt(pos) == ' ') pos++;
+    }
+
+    private void expect(char c) throws IOException {
+        skipSpaces();
+        if (pos >= line.length() || line.charAt(pos) != c) throw error();
+        pos++;
+    }
+
+    private double parseNumber() throws IOException {
+        skipSpaces();
+        int start = pos;
+        while (pos < line.length() && "0123456789.eE+-".indexOf(line.charAt(pos)) >= 0) pos++;
+        try {
+            return Double.parseDouble(line.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error();
+        }
+    }
+
+    private String parseString() throws IOException {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (pos < line.length()) {
+            char c = line.charAt(pos++);
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (pos >= line.length()) break;
+            char e = line.charAt(pos++);
+            switch (e) {
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (pos + 4 > line.length()) throw error();
+                    try {
+                        sb.append((char) Integer.parseInt(line.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw error();
+                    }
+                    pos += 4;
+                    break;
+                default: sb.append(e); break; // \" \\ \/
+            }
+        }
+        throw error();
+    }
+
+    private IOException error() {
+        return new IOException("Bad asciicast event at line " + lineNumber);
+    }
+}
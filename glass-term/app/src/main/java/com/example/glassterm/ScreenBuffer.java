@@ -1,40 +1,22 @@
 package com.example.glassterm;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ScreenBuffer {
 
-    public static class Cell {
-        public char ch;
-        public int fg;
-        public int bg;
-        public boolean bold;
-        public boolean underline;
-        public boolean inverse;
+    // Packed cell attributes: fg index in bits 0-7, bg index in bits 8-15, flags above
+    public static final int ATTR_BOLD = 1 << 16;
+    public static final int ATTR_UNDERLINE = 1 << 17;
+    public static final int ATTR_INVERSE = 1 << 18;
+    public static final int DEFAULT_ATTR = 7; // white on black, no flags
 
-        public Cell() {
-            reset();
-        }
-
-        public void reset() {
-            ch = ' ';
-            fg = 7;  // white
-            bg = 0;  // black
-            bold = false;
-            underline = false;
-            inverse = false;
-        }
-
-        public void copyFrom(Cell other) {
-            ch = other.ch;
-            fg = other.fg;
-            bg = other.bg;
-            bold = other.bold;
-            underline = other.underline;
-            inverse = other.inverse;
-        }
-    }
+    public static int attrFg(int attr) { return attr & 0xFF; }
+    public static int attrBg(int attr) { return (attr >> 8) & 0xFF; }
+    public static boolean attrBold(int attr) { return (attr & ATTR_BOLD) != 0; }
+    public static boolean attrUnderline(int attr) { return (attr & ATTR_UNDERLINE) != 0; }
+    public static boolean attrInverse(int attr) { return (attr & ATTR_INVERSE) != 0; }
 
     // Standard 16-color ANSI palette (0xAARRGGBB)
     public static final int[] PALETTE = {
@@ -58,26 +40,51 @@ public class ScreenBuffer {
 
     private final int columns;
     private final int rows;
-    private Cell[][] grid;
+
+    // Visible grid: one char[] and one packed-attribute int[] per row.
+    // Scrolling within the grid swaps row references; nothing is reallocated.
+    private final char[][] chars;
+    private final int[][] attrs;
+
+    // Per-row change counters; a snapshot row is stale when its copy differs
+    private final long[] rowVersions;
+
+    // Published snapshots. back is only touched under this buffer's lock,
+    // front only by the renderer; ready is the hand-off between them.
+    private ScreenSnapshot back;
+    private final AtomicReference<ScreenSnapshot> ready;
+    private ScreenSnapshot front;
 
     private int cursorRow;
     private int cursorCol;
     private boolean cursorVisible = true;
 
-    // Current text attributes
-    private int currentFg = 7;
-    private int currentBg = 0;
-    private boolean currentBold = false;
-    private boolean currentUnderline = false;
-    private boolean currentInverse = false;
+    // Current text attributes, packed like a cell
+    private int currentAttr = DEFAULT_ATTR;
 
     // Scroll region (inclusive, 0-indexed)
     private int scrollTop;
     private int scrollBottom;
 
-    // Scrollback
-    private static final int MAX_SCROLLBACK = 500;
-    private final List<Cell[]> scrollback = new ArrayList<Cell[]>();
+    // Scrollback: fixed-capacity ring of recycled rows, oldest at sbStart.
+    // Rows are allocated as the ring first fills, then reused on eviction.
+    // Lines with only default attributes store no attribute row at all
+    // (sbPlain), so typical shell output costs 2 bytes per cell.
+    private static final int MAX_SCROLLBACK = 5000;
+    private final char[][] sbChars = new char[MAX_SCROLLBACK][];
+    private final int[][] sbAttrs = new int[MAX_SCROLLBACK][];
+    private final boolean[] sbPlain = new boolean[MAX_SCROLLBACK];
+    private int sbStart;
+    private int sbSize;
+    private long sbTotal;
+    private final int[] plainAttrs;
+    // Attributes of lines copied by copyHistoryChars, discarded; guarded by this
+    private final int[] historyAttrs;
+
+    // Optional disk tier: lines evicted from the ring spill here. Store line
+    // 0 is scrollback line storeBase.
+    private ScrollbackStore store;
+    private long storeBase;
 
     // 256-color support: -1 means use palette index, otherwise direct ARGB
     private int currentFgDirect = -1;
@@ -89,37 +96,184 @@ public class ScreenBuffer {
         this.scrollTop = 0;
         this.scrollBottom = rows - 1;
 
-        grid = new Cell[rows][columns];
+        chars = new char[rows][columns];
+        attrs = new int[rows][columns];
+        rowVersions = new long[rows];
         for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < columns; c++) {
-                grid[r][c] = new Cell();
-            }
+            clearLine(r);
         }
+        plainAttrs = new int[columns];
+        Arrays.fill(plainAttrs, DEFAULT_ATTR);
+        historyAttrs = new int[columns];
+
+        back = new ScreenSnapshot(columns, rows);
+        ready = new AtomicReference<>(new ScreenSnapshot(columns, rows));
+        front = new ScreenSnapshot(columns, rows);
+        publish();
     }
 
-    public synchronized int getColumns() { return columns; }
-    public synchronized int getRows() { return rows; }
+    public int getColumns() { return columns; }
+    public int getRows() { return rows; }
     public synchronized int getCursorRow() { return cursorRow; }
     public synchronized int getCursorCol() { return cursorCol; }
     public synchronized boolean isCursorVisible() { return cursorVisible; }
     public synchronized void setCursorVisible(boolean v) { cursorVisible = v; }
 
-    public synchronized Cell getCell(int row, int col) {
+    public synchronized char getChar(int row, int col) {
         if (row >= 0 && row < rows && col >= 0 && col < columns) {
-            return grid[row][col];
+            return chars[row][col];
+        }
+        return ' ';
+    }
+
+    public synchronized int getAttr(int row, int col) {
+        if (row >= 0 && row < rows && col >= 0 && col < columns) {
+            return attrs[row][col];
+        }
+        return DEFAULT_ATTR;
+    }
+
+    /**
+     * Characters of a visible row. The array is live: callers must hold the
+     * buffer's lock while reading it and must not modify it.
+     */
+    public char[] getRowChars(int row) {
+        return chars[row];
+    }
+
+    /** Packed attributes of a visible row; same rules as {@link #getRowChars}. */
+    public int[] getRowAttrs(int row) {
+        return attrs[row];
+    }
+
+    // --- Snapshots ---
+
+    /**
+     * Copy rows changed since the back snapshot was last filled, plus the
+     * cursor, and make it the ready snapshot. Called by whichever thread
+     * feeds the emulator, once per batch of output.
+     */
+    public synchronized void publish() {
+        ScreenSnapshot b = back;
+        for (int r = 0; r < rows; r++) {
+            if (b.rowVersions[r] != rowVersions[r]) {
+                System.arraycopy(chars[r], 0, b.chars[r], 0, columns);
+                System.arraycopy(attrs[r], 0, b.attrs[r], 0, columns);
+                b.rowVersions[r] = rowVersions[r];
+            }
+        }
+        b.cursorRow = cursorRow;
+        b.cursorCol = cursorCol;
+        b.cursorVisible = cursorVisible;
+        b.scrollbackTotal = sbTotal;
+        b.fresh = true;
+        back = ready.getAndSet(b);
+    }
+
+    /**
+     * Latest published snapshot. Renderer thread only; the result stays valid
+     * and unchanged until the next call. Never blocks.
+     */
+    public ScreenSnapshot acquireSnapshot() {
+        if (ready.get().fresh) {
+            front.fresh = false;
+            front = ready.getAndSet(front);
         }
-        return new Cell();
+        return front;
+    }
+
+    /**
+     * Copy a scrollback line into {@code outChars}/{@code outAttrs}. Lines
+     * are numbered from the first one ever pushed, as in
+     * {@link ScreenSnapshot#scrollbackTotal}. Returns false once evicted.
+     */
+    public synchronized boolean copyScrollbackLine(long line, char[] outChars, int[] outAttrs) {
+        long index = line - (sbTotal - sbSize);
+        if (index < 0) {
+            return store != null && store.read(line - storeBase, outChars, outAttrs);
+        }
+        if (index >= sbSize) return false;
+        System.arraycopy(getScrollbackChars((int) index), 0, outChars, 0, columns);
+        System.arraycopy(getScrollbackAttrs((int) index), 0, outAttrs, 0, columns);
+        return true;
+    }
+
+    /**
+     * Copy the characters of scrollback lines {@code from} down to {@code to}
+     * (inclusive, newest first), numbered as in {@link #copyScrollbackLine},
+     * into the rows of {@code out}, so a search can scan them without the
+     * lock. Stops early at a line no longer available, and so at every older
+     * one. Returns the number of rows copied.
+     */
+    public synchronized int copyHistoryChars(long from, long to, char[][] out) {
+        int n = 0;
+        for (long line = from; line >= to && n < out.length; line--) {
+            if (!copyScrollbackLine(line, out[n], historyAttrs)) break;
+            n++;
+        }
+        return n;
+    }
+
+    /** Lowercased form of a search query, to match with {@link #rowContains}. */
+    public static char[] searchKey(String query) {
+        return query.toLowerCase(Locale.ROOT).toCharArray();
+    }
+
+    /** True if {@code row} contains {@code key} (from {@link #searchKey}), ignoring case. */
+    public static boolean rowContains(char[] row, char[] key) {
+        for (int start = 0; start + key.length <= row.length; start++) {
+            int j = 0;
+            while (j < key.length && Character.toLowerCase(row[start + j]) == key[j]) j++;
+            if (j == key.length) return true;
+        }
+        return false;
     }
 
     public synchronized int getScrollbackSize() {
-        return scrollback.size();
+        return sbSize;
     }
 
-    public synchronized Cell getScrollbackCell(int line, int col) {
-        if (line >= 0 && line < scrollback.size() && col >= 0 && col < columns) {
-            return scrollback.get(line)[col];
+    /**
+     * Attach a disk tier for lines evicted from the in-memory scrollback, or
+     * detach it with null. The caller owns the store and closes it.
+     */
+    public synchronized void setScrollbackStore(ScrollbackStore store) {
+        this.store = store;
+        if (store != null) {
+            storeBase = sbTotal - sbSize - store.getEnd();
         }
-        return new Cell();
+    }
+
+    /** Lines ever pushed to scrollback; the next one pushed gets this number. */
+    public synchronized long getScrollbackTotal() {
+        return sbTotal;
+    }
+
+    /** Oldest scrollback line still available, in memory or on disk. */
+    public synchronized long getHistoryStart() {
+        long start = sbTotal - sbSize;
+        if (store != null && store.getEnd() > store.getStart()) {
+            start = Math.min(start, storeBase + store.getStart());
+        }
+        return start;
+    }
+
+    /** Scrollback lines available, in memory and on disk. */
+    public synchronized long getHistorySize() {
+        return sbTotal - getHistoryStart();
+    }
+
+    /**
+     * Characters of a scrollback line, 0 = oldest. Live array; hold the lock.
+     */
+    public char[] getScrollbackChars(int line) {
+        return sbChars[(sbStart + line) % MAX_SCROLLBACK];
+    }
+
+    /** Packed attributes of a scrollback line; same rules as {@link #getScrollbackChars}. */
+    public int[] getScrollbackAttrs(int line) {
+        int slot = (sbStart + line) % MAX_SCROLLBACK;
+        return sbPlain[slot] ? plainAttrs : sbAttrs[slot];
     }
 
     // --- Cursor movement ---
@@ -157,16 +311,37 @@ public class ScreenBuffer {
                 scrollUp(1);
             }
         }
-        Cell cell = grid[cursorRow][cursorCol];
-        cell.ch = ch;
-        cell.fg = currentFg;
-        cell.bg = currentBg;
-        cell.bold = currentBold;
-        cell.underline = currentUnderline;
-        cell.inverse = currentInverse;
+        chars[cursorRow][cursorCol] = ch;
+        attrs[cursorRow][cursorCol] = currentAttr;
+        rowVersions[cursorRow]++;
         cursorCol++;
     }
 
+    /**
+     * Write a run of characters with the current attributes, wrapping like
+     * repeated putChar calls but copying a whole row segment at a time.
+     */
+    public synchronized void putChars(char[] buf, int offset, int length) {
+        while (length > 0) {
+            if (cursorCol >= columns) {
+                // Auto-wrap
+                cursorCol = 0;
+                cursorRow++;
+                if (cursorRow > scrollBottom) {
+                    cursorRow = scrollBottom;
+                    scrollUp(1);
+                }
+            }
+            int n = Math.min(length, columns - cursorCol);
+            System.arraycopy(buf, offset, chars[cursorRow], cursorCol, n);
+            Arrays.fill(attrs[cursorRow], cursorCol, cursorCol + n, currentAttr);
+            rowVersions[cursorRow]++;
+            cursorCol += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
     public synchronized void carriageReturn() {
         cursorCol = 0;
     }
@@ -208,22 +383,12 @@ public class ScreenBuffer {
         for (int i = 0; i < n; i++) {
             // Save top line to scrollback if scrolling the full screen
             if (scrollTop == 0) {
-                Cell[] saved = new Cell[columns];
-                for (int c = 0; c < columns; c++) {
-                    saved[c] = new Cell();
-                    saved[c].copyFrom(grid[scrollTop][c]);
-                }
-                scrollback.add(saved);
-                if (scrollback.size() > MAX_SCROLLBACK) {
-                    scrollback.remove(0);
-                }
+                pushScrollback(scrollTop);
             }
 
             // Shift lines up within scroll region
             for (int r = scrollTop; r < scrollBottom; r++) {
-                Cell[] temp = grid[r];
-                grid[r] = grid[r + 1];
-                grid[r + 1] = temp;
+                swapRows(r, r + 1);
             }
             // Clear the bottom line
             clearLine(scrollBottom);
@@ -234,9 +399,7 @@ public class ScreenBuffer {
         for (int i = 0; i < n; i++) {
             // Shift lines down within scroll region
             for (int r = scrollBottom; r > scrollTop; r--) {
-                Cell[] temp = grid[r];
-                grid[r] = grid[r - 1];
-                grid[r - 1] = temp;
+                swapRows(r, r - 1);
             }
             clearLine(scrollTop);
         }
@@ -246,7 +409,6 @@ public class ScreenBuffer {
 
     public synchronized void insertLines(int n) {
         if (cursorRow < scrollTop || cursorRow > scrollBottom) return;
-        int savedBottom = scrollBottom;
         // Temporarily adjust scroll region
         int savedTop = scrollTop;
         scrollTop = cursorRow;
@@ -262,6 +424,37 @@ public class ScreenBuffer {
         scrollTop = savedTop;
     }
 
+    // --- Insert/Delete/Erase characters ---
+
+    public synchronized void deleteChars(int n) {
+        if (cursorCol >= columns) return;
+        int col = cursorCol;
+        n = Math.min(n, columns - col);
+        char[] ch = chars[cursorRow];
+        int[] at = attrs[cursorRow];
+        System.arraycopy(ch, col + n, ch, col, columns - col - n);
+        System.arraycopy(at, col + n, at, col, columns - col - n);
+        rowVersions[cursorRow]++;
+        clearCells(cursorRow, columns - n, columns);
+    }
+
+    public synchronized void insertChars(int n) {
+        if (cursorCol >= columns) return;
+        int col = cursorCol;
+        n = Math.min(n, columns - col);
+        char[] ch = chars[cursorRow];
+        int[] at = attrs[cursorRow];
+        System.arraycopy(ch, col, ch, col + n, columns - col - n);
+        System.arraycopy(at, col, at, col + n, columns - col - n);
+        rowVersions[cursorRow]++;
+        clearCells(cursorRow, col, col + n);
+    }
+
+    public synchronized void eraseChars(int n) {
+        if (cursorCol >= columns) return;
+        clearCells(cursorRow, cursorCol, Math.min(columns, cursorCol + n));
+    }
+
     // --- Erase ---
 
     public synchronized void eraseInDisplay(int mode) {
@@ -281,14 +474,10 @@ public class ScreenBuffer {
     public synchronized void eraseInLine(int mode) {
         switch (mode) {
             case 0: // cursor to end of line
-                for (int c = cursorCol; c < columns; c++) {
-                    grid[cursorRow][c].reset();
-                }
+                if (cursorCol < columns) clearCells(cursorRow, cursorCol, columns);
                 break;
             case 1: // start of line to cursor
-                for (int c = 0; c <= cursorCol && c < columns; c++) {
-                    grid[cursorRow][c].reset();
-                }
+                clearCells(cursorRow, 0, Math.min(cursorCol + 1, columns));
                 break;
             case 2: // entire line
                 clearLine(cursorRow);
@@ -299,12 +488,12 @@ public class ScreenBuffer {
     // --- SGR (text attributes) ---
 
     public synchronized void setFg(int colorIndex) {
-        currentFg = colorIndex;
+        currentAttr = (currentAttr & ~0xFF) | (colorIndex & 0xFF);
         currentFgDirect = -1;
     }
 
     public synchronized void setBg(int colorIndex) {
-        currentBg = colorIndex;
+        currentAttr = (currentAttr & ~0xFF00) | ((colorIndex & 0xFF) << 8);
         currentBgDirect = -1;
     }
 
@@ -316,16 +505,12 @@ public class ScreenBuffer {
         currentBgDirect = argb;
     }
 
-    public synchronized void setBold(boolean v) { currentBold = v; }
-    public synchronized void setUnderline(boolean v) { currentUnderline = v; }
-    public synchronized void setInverse(boolean v) { currentInverse = v; }
+    public synchronized void setBold(boolean v) { setFlag(ATTR_BOLD, v); }
+    public synchronized void setUnderline(boolean v) { setFlag(ATTR_UNDERLINE, v); }
+    public synchronized void setInverse(boolean v) { setFlag(ATTR_INVERSE, v); }
 
     public synchronized void resetAttributes() {
-        currentFg = 7;
-        currentBg = 0;
-        currentBold = false;
-        currentUnderline = false;
-        currentInverse = false;
+        currentAttr = DEFAULT_ATTR;
         currentFgDirect = -1;
         currentBgDirect = -1;
     }
@@ -333,46 +518,40 @@ public class ScreenBuffer {
     /**
      * Resolve a cell's foreground color to an ARGB int.
      */
-    public int resolveFg(Cell cell) {
-        if (cell.inverse) {
-            return resolveBgColor(cell);
+    public int resolveFg(int attr) {
+        if (attrInverse(attr)) {
+            return resolveBgColor(attr);
         }
-        return resolveFgColor(cell);
+        return resolveFgColor(attr);
     }
 
     /**
      * Resolve a cell's background color to an ARGB int.
      */
-    public int resolveBg(Cell cell) {
-        if (cell.inverse) {
-            return resolveFgColor(cell);
+    public int resolveBg(int attr) {
+        if (attrInverse(attr)) {
+            return resolveFgColor(attr);
         }
-        return resolveBgColor(cell);
+        return resolveBgColor(attr);
     }
 
-    private int resolveFgColor(Cell cell) {
-        int idx = cell.fg;
-        if (cell.bold && idx < 8) {
+    private int resolveFgColor(int attr) {
+        int idx = attrFg(attr);
+        if (attrBold(attr) && idx < 8) {
             idx += 8; // Bold brightens normal colors
         }
-        if (idx >= 0 && idx < 16) {
+        if (idx < 16) {
             return PALETTE[idx];
         }
-        if (idx >= 16 && idx < 256) {
-            return color256(idx);
-        }
-        return PALETTE[7];
+        return color256(idx);
     }
 
-    private int resolveBgColor(Cell cell) {
-        int idx = cell.bg;
-        if (idx >= 0 && idx < 16) {
+    private int resolveBgColor(int attr) {
+        int idx = attrBg(attr);
+        if (idx < 16) {
             return PALETTE[idx];
         }
-        if (idx >= 16 && idx < 256) {
-            return color256(idx);
-        }
-        return PALETTE[0];
+        return color256(idx);
     }
 
     /**
@@ -397,18 +576,76 @@ public class ScreenBuffer {
 
     // --- Private helpers ---
 
-    private void clearLine(int row) {
+    private void setFlag(int flag, boolean v) {
+        currentAttr = v ? (currentAttr | flag) : (currentAttr & ~flag);
+    }
+
+    /**
+     * Copy a grid row into the scrollback ring, evicting the oldest line
+     * in place once the ring is full. O(columns), no allocation after warm-up.
+     */
+    private void pushScrollback(int row) {
+        int slot;
+        if (sbSize < MAX_SCROLLBACK) {
+            slot = (sbStart + sbSize) % MAX_SCROLLBACK;
+            sbSize++;
+        } else {
+            slot = sbStart;
+            sbStart = (sbStart + 1) % MAX_SCROLLBACK;
+            if (store != null) {
+                store.append(sbChars[slot], sbPlain[slot] ? null : sbAttrs[slot]);
+            }
+        }
+        sbTotal++;
+        if (sbChars[slot] == null) {
+            sbChars[slot] = new char[columns];
+        }
+        System.arraycopy(chars[row], 0, sbChars[slot], 0, columns);
+
+        int[] src = attrs[row];
+        boolean plain = true;
         for (int c = 0; c < columns; c++) {
-            grid[row][c].reset();
+            if (src[c] != DEFAULT_ATTR) {
+                plain = false;
+                break;
+            }
         }
+        sbPlain[slot] = plain;
+        if (!plain) {
+            if (sbAttrs[slot] == null) {
+                sbAttrs[slot] = new int[columns];
+            }
+            System.arraycopy(src, 0, sbAttrs[slot], 0, columns);
+        }
+    }
+
+    private void swapRows(int a, int b) {
+        char[] tc = chars[a];
+        chars[a] = chars[b];
+        chars[b] = tc;
+        int[] ta = attrs[a];
+        attrs[a] = attrs[b];
+        attrs[b] = ta;
+        rowVersions[a]++;
+        rowVersions[b]++;
+    }
+
+    private void clearCells(int row, int fromCol, int toCol) {
+        Arrays.fill(chars[row], fromCol, toCol, ' ');
+        Arrays.fill(attrs[row], fromCol, toCol, DEFAULT_ATTR);
+        rowVersions[row]++;
+    }
+
+    private void clearLine(int row) {
+        clearCells(row, 0, columns);
     }
 
     private void clearRange(int r1, int c1, int r2, int c2) {
         for (int r = r1; r <= r2 && r < rows; r++) {
             int startC = (r == r1) ? c1 : 0;
             int endC = (r == r2) ? c2 : columns - 1;
-            for (int c = startC; c <= endC && c < columns; c++) {
-                grid[r][c].reset();
+            if (startC < columns && startC <= endC) {
+                clearCells(r, startC, Math.min(endC + 1, columns));
             }
         }
     }
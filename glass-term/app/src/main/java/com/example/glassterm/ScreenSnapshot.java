@@ -0,0 +1,38 @@
+package com.example.glassterm;
+
+import java.util.Arrays;
+
+/**
+ * A copy of the visible screen handed from the emulator thread to the
+ * renderer. ScreenBuffer rotates three of these (back, ready, front): the
+ * writer fills the back one and swaps it into ready, the renderer swaps ready
+ * into front. Neither side ever waits for the other.
+ */
+public class ScreenSnapshot {
+    final int columns;
+    final int rows;
+    final char[][] chars;
+    final int[][] attrs;
+
+    // ScreenBuffer's change counter for each row when it was copied here
+    final long[] rowVersions;
+
+    int cursorRow;
+    int cursorCol;
+    boolean cursorVisible;
+
+    // Lines ever pushed to scrollback, so scrolled-back views stay anchored
+    long scrollbackTotal;
+
+    // Set when published, cleared when the renderer hands the snapshot back
+    boolean fresh;
+
+    ScreenSnapshot(int columns, int rows) {
+        this.columns = columns;
+        this.rows = rows;
+        chars = new char[rows][columns];
+        attrs = new int[rows][columns];
+        rowVersions = new long[rows];
+        Arrays.fill(rowVersions, -1);
+    }
+}
@@ -0,0 +1,256 @@
+package com.example.glassterm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Disk tier for scrollback: lines evicted from ScreenBuffer's in-memory ring
+ * are appended to a memory-mapped file, one file per session.
+ *
+ * The file is a ring of fixed-size segments. When the last one fills, the
+ * oldest segment is dropped and reused. Records are compact: trailing blanks
+ * are trimmed, chars take one byte when they fit in Latin-1, and attributes
+ * are stored as runs (none at all for plain lines).
+ *
+ * Each segment keeps the offset of every INDEX_STRIDE-th record, so finding
+ * a line costs a short skip, not a scan. Not thread-safe; ScreenBuffer calls
+ * it under its own lock. Pure Java, so the desktop benchmark can build it.
+ */
+public class ScrollbackStore {
+
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+    private static final int MAX_SEGMENTS = 32;
+    private static final int INDEX_STRIDE = 16;
+
+    // Record layout: flags byte, char count short, chars, then optional runs
+    private static final int FLAG_WIDE = 1;
+    private static final int FLAG_ATTRS = 2;
+
+    private static class Segment {
+        MappedByteBuffer buf;
+        long firstLine;
+        int lines;
+        int[] index = new int[64];
+    }
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final int columns;
+    private final int maxRecordSize;
+
+    private final Segment[] segments = new Segment[MAX_SEGMENTS];
+    private int oldestSegment;
+    private int segmentCount;
+    private long firstLine;
+    private long nextLine;
+    private boolean failed;
+    private IOException error;
+
+    public ScrollbackStore(File file, int columns) throws IOException {
+        this.file = file;
+        this.columns = columns;
+        this.raf = new RandomAccessFile(file, "rw");
+        raf.setLength(0);
+        // Worst case: wide chars plus one run per cell
+        maxRecordSize = 3 + columns * 2 + 2 + columns * 6;
+    }
+
+    /** Number of lines ever appended; line numbers run from 0. */
+    public long getEnd() {
+        return nextLine;
+    }
+
+    /** Oldest line still on disk. */
+    public long getStart() {
+        return firstLine;
+    }
+
+    /**
+     * Append one row. {@code attrs} may be null for a line with only
+     * default attributes.
+     */
+    public void append(char[] chars, int[] attrs) {
+        if (failed) return;
+        Segment seg = segmentCount == 0 ? null : segments[(oldestSegment + segmentCount - 1) % MAX_SEGMENTS];
+        if (seg == null || SEGMENT_SIZE - seg.buf.position() < maxRecordSize) {
+            seg = nextSegment();
+            if (seg == null) return;
+        }
+
+        // Trim trailing default blanks
+        int n = columns;
+        while (n > 0 && chars[n - 1] == ' ' && (attrs == null || attrs[n - 1] == ScreenBuffer.DEFAULT_ATTR)) n--;
+        boolean wide = false;
+        for (int c = 0; c < n; c++) {
+            if (chars[c] > 0xFF) {
+                wide = true;
+                break;
+            }
+        }
+
+        MappedByteBuffer buf = seg.buf;
+        if (seg.lines % INDEX_STRIDE == 0) {
+            int slot = seg.lines / INDEX_STRIDE;
+            if (slot == seg.index.length) {
+                int[] grown = new int[slot * 2];
+                System.arraycopy(seg.index, 0, grown, 0, slot);
+                seg.index = grown;
+            }
+            seg.index[slot] = buf.position();
+        }
+        buf.put((byte) ((wide ? FLAG_WIDE : 0) | (attrs != null ? FLAG_ATTRS : 0)));
+        buf.putShort((short) n);
+        for (int c = 0; c < n; c++) {
+            if (wide) {
+                buf.putChar(chars[c]);
+            } else {
+                buf.put((byte) chars[c]);
+            }
+        }
+        if (attrs != null) {
+            int countPos = buf.position();
+            buf.putShort((short) 0);
+            int runs = 0;
+            int c = 0;
+            while (c < n) {
+                int end = c + 1;
+                while (end < n && attrs[end] == attrs[c]) end++;
+                buf.putShort((short) (end - c));
+                buf.putInt(attrs[c]);
+                runs++;
+                c = end;
+            }
+            buf.putShort(countPos, (short) runs);
+        }
+        seg.lines++;
+        nextLine++;
+    }
+
+    /**
+     * Decode a line into full-width {@code outChars}/{@code outAttrs}.
+     * Returns false if the line has been dropped or never existed.
+     */
+    public boolean read(long line, char[] outChars, int[] outAttrs) {
+        Segment seg = segmentFor(line);
+        if (seg == null) return false;
+        int pos = position(seg, (int) (line - seg.firstLine));
+        MappedByteBuffer buf = seg.buf;
+
+        int flags = buf.get(pos);
+        int n = buf.getShort(pos + 1);
+        pos += 3;
+        boolean wide = (flags & FLAG_WIDE) != 0;
+        for (int c = 0; c < n; c++) {
+            outChars[c] = wide ? buf.getChar(pos + c * 2) : (char) (buf.get(pos + c) & 0xFF);
+        }
+        for (int c = n; c < columns; c++) {
+            outChars[c] = ' ';
+        }
+        pos += wide ? n * 2 : n;
+
+        int c = 0;
+        if ((flags & FLAG_ATTRS) != 0) {
+            int runs = buf.getShort(pos);
+            pos += 2;
+            for (int r = 0; r < runs; r++) {
+                int len = buf.getShort(pos);
+                int attr = buf.getInt(pos + 2);
+                pos += 6;
+                for (int end = c + len; c < end; c++) {
+                    outAttrs[c] = attr;
+                }
+            }
+        }
+        for (; c < columns; c++) {
+            outAttrs[c] = ScreenBuffer.DEFAULT_ATTR;
+        }
+        return true;
+    }
+
+    /** Why the store stopped taking lines, or null if it has not. */
+    public IOException getError() {
+        return error;
+    }
+
+    /** Release the mapping and delete the file. */
+    public void close() {
+        failed = true;
+        for (int i = 0; i < MAX_SEGMENTS; i++) {
+            segments[i] = null;
+        }
+        segmentCount = 0;
+        try {
+            raf.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        file.delete();
+    }
+
+    // --- Private helpers ---
+
+    /** Start a new segment, dropping the oldest once the ring is full. */
+    private Segment nextSegment() {
+        int slot;
+        if (segmentCount < MAX_SEGMENTS) {
+            slot = (oldestSegment + segmentCount) % MAX_SEGMENTS;
+            segmentCount++;
+        } else {
+            slot = oldestSegment;
+            oldestSegment = (oldestSegment + 1) % MAX_SEGMENTS;
+            Segment next = segments[oldestSegment];
+            firstLine = next.firstLine;
+        }
+
+        Segment seg = segments[slot];
+        if (seg == null) {
+            seg = new Segment();
+            try {
+                seg.buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                        (long) slot * SEGMENT_SIZE, SEGMENT_SIZE);
+            } catch (IOException e) {
+                // Disk tier stops here; the in-memory ring keeps working
+                error = e;
+                failed = true;
+                segmentCount--;
+                return null;
+            }
+            segments[slot] = seg;
+        }
+        seg.buf.clear();
+        seg.firstLine = nextLine;
+        seg.lines = 0;
+        if (segmentCount == 1) firstLine = nextLine;
+        return seg;
+    }
+
+    private Segment segmentFor(long line) {
+        if (line < firstLine || line >= nextLine) return null;
+        // Newest first: scrolling and searching start at the recent end
+        for (int i = segmentCount - 1; i >= 0; i--) {
+            Segment seg = segments[(oldestSegment + i) % MAX_SEGMENTS];
+            if (line >= seg.firstLine) {
+                return line < seg.firstLine + seg.lines ? seg : null;
+            }
+        }
+        return null;
+    }
+
+    /** Byte offset of record {@code i} in a segment: index lookup plus a short skip. */
+    private int position(Segment seg, int i) {
+        MappedByteBuffer buf = seg.buf;
+        int pos = seg.index[i / INDEX_STRIDE];
+        for (int skip = i % INDEX_STRIDE; skip > 0; skip--) {
+            int flags = buf.get(pos);
+            int n = buf.getShort(pos + 1);
+            pos += 3 + ((flags & FLAG_WIDE) != 0 ? n * 2 : n);
+            if ((flags & FLAG_ATTRS) != 0) {
+                pos += 2 + buf.getShort(pos) * 6;
+            }
+        }
+        return pos;
+    }
+}
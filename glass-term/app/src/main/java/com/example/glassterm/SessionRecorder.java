@@ -0,0 +1,175 @@
+package com.example.glassterm;
+
+import android.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records terminal output to an asciicast v2 file (asciinema's format).
+ *
+ * write() only copies the bytes and queues them with a timestamp; decoding,
+ * JSON escaping and file I/O happen on a background writer thread. If the
+ * writer falls more than MAX_PENDING_BYTES behind, output is dropped from
+ * the recording rather than stalling the terminal.
+ */
+public class SessionRecorder {
+
+    private static final String TAG = "SessionRecorder";
+    private static final int MAX_PENDING_BYTES = 4 * 1024 * 1024;
+
+    private static class Chunk {
+        final long nanos;
+        final byte[] data;
+
+        Chunk(long nanos, byte[] data) {
+            this.nanos = nanos;
+            this.data = data;
+        }
+    }
+
+    private static final Chunk END = new Chunk(0, null);
+
+    private final File file;
+    private final Writer out;
+    private final long startNanos;
+    private final LinkedBlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger pendingBytes = new AtomicInteger();
+    private final AtomicLong droppedBytes = new AtomicLong();
+    private volatile boolean closed = false;
+
+    public SessionRecorder(File file, int columns, int rows) throws IOException {
+        this.file = file;
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024);
+        out.write("{\"version\": 2, \"width\": " + columns + ", \"height\": " + rows
+                + ", \"timestamp\": " + (System.currentTimeMillis() / 1000) + "}\n");
+        startNanos = System.nanoTime();
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "session-recorder");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /** Queue a copy of output bytes. Never blocks; safe from any thread. */
+    public void write(byte[] data, int offset, int length) {
+        if (closed || length <= 0) return;
+        if (pendingBytes.addAndGet(length) > MAX_PENDING_BYTES) {
+            pendingBytes.addAndGet(-length);
+            droppedBytes.addAndGet(length);
+            return;
+        }
+        queue.offer(new Chunk(System.nanoTime(), Arrays.copyOfRange(data, offset, offset + length)));
+    }
+
+    /** Stop recording; the writer drains what is queued, then closes the file. */
+    public void close() {
+        if (closed) return;
+        closed = true;
+        queue.offer(END);
+    }
+
+    private void writeLoop() {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        // Holds a multi-byte sequence split across reads until the rest arrives
+        ByteBuffer in = ByteBuffer.allocate(16 * 1024);
+        CharBuffer chars = CharBuffer.allocate(16 * 1024);
+        StringBuilder line = new StringBuilder();
+        long events = 0;
+
+        try {
+            while (true) {
+                Chunk chunk = queue.take();
+                boolean end = chunk == END;
+                if (!end) {
+                    pendingBytes.addAndGet(-chunk.data.length);
+                    if (in.remaining() < chunk.data.length) {
+                        ByteBuffer grown = ByteBuffer.allocate(in.position() + chunk.data.length);
+                        in.flip();
+                        grown.put(in);
+                        in = grown;
+                    }
+                    in.put(chunk.data);
+                }
+
+                in.flip();
+                if (chars.capacity() < in.remaining()) {
+                    chars = CharBuffer.allocate(in.remaining());
+                }
+                chars.clear();
+                decoder.decode(in, chars, end);
+                if (end) decoder.flush(chars);
+                in.compact();
+                chars.flip();
+
+                if (chars.hasRemaining()) {
+                    long nanos = (end ? System.nanoTime() : chunk.nanos) - startNanos;
+                    line.setLength(0);
+                    line.append('[').append(String.format(Locale.US, "%.6f", nanos / 1e9)).append(", \"o\", \"");
+                    appendEscaped(line, chars);
+                    line.append("\"]\n");
+                    out.append(line);
+                    events++;
+                }
+                if (end) break;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Recording write failed", e);
+        } catch (InterruptedException e) {
+            // Shutting down
+        } finally {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            Log.i(TAG, "Recorded " + events + " events to " + file
+                    + (droppedBytes.get() > 0 ? ", dropped " + droppedBytes.get() + " bytes" : ""));
+        }
+    }
+
+    private static void appendEscaped(StringBuilder sb, CharBuffer chars) {
+        while (chars.hasRemaining()) {
+            char c = chars.get();
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\b': sb.append("\\b"); break;
+                case '\f': sb.append("\\f"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format(Locale.US, "\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.glassterm;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Plays an asciicast recording back through the emulator, either at the
+ * recorded pace (long pauses cut to MAX_IDLE_SECONDS) or as fast as the
+ * emulator will take it. Output goes through the same publish/render path
+ * as a live shell, so a fast replay measures on-device throughput.
+ */
+public class SessionReplay {
+
+    private static final String TAG = "SessionReplay";
+    private static final double MAX_IDLE_SECONDS = 2.0;
+
+    private final TerminalEmulator emulator;
+    private final TerminalView view;
+    private final File file;
+    private final boolean realtime;
+    private volatile boolean running = false;
+    private Thread thread;
+
+    public SessionReplay(TerminalEmulator emulator, TerminalView view, File file, boolean realtime) {
+        this.emulator = emulator;
+        this.view = view;
+        this.file = file;
+        this.realtime = realtime;
+    }
+
+    public void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                replayLoop();
+            }
+        }, "session-replay");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void replayLoop() {
+        ScreenBuffer screen = emulator.getScreen();
+        long startMs = SystemClock.uptimeMillis();
+        long bytes = 0;
+        double clock = 0;
+        double lastTime = 0;
+
+        try (AsciicastReader reader = new AsciicastReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            if (reader.getWidth() != screen.getColumns() || reader.getHeight() != screen.getRows()) {
+                Log.w(TAG, "Recording is " + reader.getWidth() + "x" + reader.getHeight()
+                        + ", terminal is " + screen.getColumns() + "x" + screen.getRows());
+            }
+            while (running && reader.next()) {
+                if (realtime) {
+                    clock += Math.min(reader.getTime() - lastTime, MAX_IDLE_SECONDS);
+                    lastTime = reader.getTime();
+                    long wait = startMs + (long) (clock * 1000) - SystemClock.uptimeMillis();
+                    if (wait > 0) Thread.sleep(wait);
+                }
+                byte[] data = reader.getData().getBytes(StandardCharsets.UTF_8);
+                emulator.process(data, 0, data.length);
+                bytes += data.length;
+                screen.publish();
+                view.requestRender();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Replay failed: " + file, e);
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+
+        long ms = Math.max(1, SystemClock.uptimeMillis() - startMs);
+        Log.i(TAG, "Replayed " + bytes + " bytes in " + ms + " ms"
+                + (realtime ? "" : " (" + (bytes * 1000 / ms / 1024) + " KB/s)"));
+        running = false;
+    }
+}
@@ -1,7 +1,7 @@
 package com.example.glassterm;
 
+import android.os.SystemClock;
 import android.util.Log;
-import android.view.View;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -15,6 +15,11 @@ public class ShellProcess {
     }
 
     private static final String TAG = "ShellProcess";
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    // Without recent input, parse up to this much already-buffered output per frame request
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+    private static final long INTERACTIVE_WINDOW_MS = 500;
+    private static final long STATS_INTERVAL_MS = 5000;
 
     private Process process;
     private OutputStream stdin;
@@ -22,13 +27,15 @@ public class ShellProcess {
     private volatile boolean running = false;
     private String lastError = null;
     private OutputCallback outputCallback;
+    private volatile long lastUserInput;
+    private volatile SessionRecorder recorder;
 
     private final TerminalEmulator emulator;
-    private final View view;
+    private final TerminalView view;
     private final int columns;
     private final int rows;
 
-    public ShellProcess(TerminalEmulator emulator, View view, int columns, int rows) {
+    public ShellProcess(TerminalEmulator emulator, TerminalView view, int columns, int rows) {
         this.emulator = emulator;
         this.view = view;
         this.columns = columns;
@@ -113,6 +120,16 @@ public class ShellProcess {
         }
     }
 
+    /** Tee raw output into a recorder, or stop with null. */
+    public void setRecorder(SessionRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /** Called on key input; keeps output batches small while the user is typing. */
+    public void noteUserInput() {
+        lastUserInput = SystemClock.uptimeMillis();
+    }
+
     public boolean isRunning() {
         return running;
     }
@@ -122,18 +139,46 @@ public class ShellProcess {
     }
 
     private void readLoop() {
-        byte[] buf = new byte[4096];
+        byte[] buf = new byte[READ_BUFFER_SIZE];
         InputStream stdout = process.getInputStream();
+        long parsedBytes = 0;
+        long lastStats = SystemClock.uptimeMillis();
 
         try {
             while (running) {
                 int n = stdout.read(buf);
                 if (n == -1) break;
+                SessionRecorder rec = recorder;
+                if (rec != null) rec.write(buf, 0, n);
                 emulator.process(buf, 0, n);
-                view.postInvalidate();
+                int batch = n;
+
+                // Flooding with nobody typing: keep parsing what is already
+                // buffered instead of waking the renderer for every read
+                boolean interactive = SystemClock.uptimeMillis() - lastUserInput < INTERACTIVE_WINDOW_MS;
+                while (!interactive && batch < MAX_BATCH_BYTES && stdout.available() > 0) {
+                    n = stdout.read(buf);
+                    if (n == -1) break;
+                    if (rec != null) rec.write(buf, 0, n);
+                    emulator.process(buf, 0, n);
+                    batch += n;
+                }
+                parsedBytes += batch;
+
+                emulator.getScreen().publish();
+                view.requestRender();
                 if (outputCallback != null) {
                     outputCallback.onOutput();
                 }
+
+                long now = SystemClock.uptimeMillis();
+                if (now - lastStats >= STATS_INTERVAL_MS) {
+                    Log.i(TAG, "Output: " + (parsedBytes * 1000 / (now - lastStats)) + " bytes/sec parsed, "
+                            + view.takeRenderRequestsCoalesced() + " render requests coalesced");
+                    parsedBytes = 0;
+                    lastStats = now;
+                }
+                if (n == -1) break;
             }
         } catch (IOException e) {
             if (running) {
@@ -15,6 +15,9 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class TerminalActivity extends Activity {
 
@@ -24,11 +27,18 @@ public class TerminalActivity extends Activity {
     private static final String PROMPT = "$ ";
     private static final int NUM_FAVORITES = 5;
     private static final String PREFS_NAME = "ssh_favorites";
+    private static final String SCROLLBACK_PREFIX = "scrollback-";
+    // Scrollback lines copied out per hold of the buffer lock while searching
+    private static final int SEARCH_SLICE = 500;
+    private static final long SEARCH_CANCELLED = -2;
 
     private ScreenBuffer screen;
     private TerminalEmulator emulator;
     private ShellProcess shell;
     private TerminalView terminalView;
+    private ScrollbackStore scrollbackStore;
+    private SessionRecorder recorder;
+    private SessionReplay replay;
 
     // Local line buffer for echo (no PTY = no echo from shell)
     private StringBuilder lineBuffer = new StringBuilder();
@@ -67,6 +77,18 @@ public class TerminalActivity extends Activity {
         return c; // numbers, space, etc unchanged
     }
 
+    // Scrollback search (Ctrl+Shift+F): incremental, newest match first. Runs on
+    // its own thread over slices of lines copied out of the buffer, so
+    // neither the UI nor the shell reader waits on it. Each keystroke starts
+    // a new generation; older runs stop at their next slice.
+    private boolean searching = false;
+    private final StringBuilder searchQuery = new StringBuilder();
+    private long searchMatch = -1;
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger searchGeneration = new AtomicInteger();
+    // Only touched on the search thread
+    private final char[][] searchRows = new char[SEARCH_SLICE][COLUMNS];
+
     // Glass touchpad swipe detection
     private float touchStartY;
 
@@ -91,6 +113,7 @@ public class TerminalActivity extends Activity {
 
         screen = new ScreenBuffer(COLUMNS, ROWS);
         emulator = new TerminalEmulator(screen);
+        openScrollbackStore();
 
         terminalView = new TerminalView(this);
         terminalView.setScreen(screen);
@@ -108,10 +131,20 @@ public class TerminalActivity extends Activity {
                 promptHandler.postDelayed(showPrompt, 150);
             }
         });
-        shell.start();
-
         terminalView.startCursorBlink();
 
+        // adb shell am start -n com.example.glassterm/.TerminalActivity -e replay FILE [--ez replay_fast true]
+        String replayPath = getIntent().getStringExtra("replay");
+        if (replayPath != null) {
+            // Replay instead of a live shell; the shell is never started
+            replay = new SessionReplay(emulator, terminalView, new File(replayPath),
+                    !getIntent().getBooleanExtra("replay_fast", false));
+            replay.start();
+            return;
+        }
+
+        shell.start();
+
         // Show initial prompt
         localEcho(PROMPT);
     }
@@ -119,7 +152,18 @@ public class TerminalActivity extends Activity {
     @Override
     protected void onDestroy() {
         terminalView.stopCursorBlink();
+        searchGeneration.incrementAndGet();
+        searchExecutor.shutdown();
+        if (replay != null) replay.stop();
+        stopRecording();
         shell.destroy();
+        if (scrollbackStore != null) {
+            screen.setScrollbackStore(null);
+            if (scrollbackStore.getError() != null) {
+                Log.w(TAG, "Disk scrollback stopped early", scrollbackStore.getError());
+            }
+            scrollbackStore.close();
+        }
         super.onDestroy();
     }
 
@@ -128,8 +172,151 @@ public class TerminalActivity extends Activity {
      */
     private void localEcho(String s) {
         byte[] bytes = s.getBytes();
+        if (recorder != null) recorder.write(bytes, 0, bytes.length);
         emulator.process(bytes, 0, bytes.length);
-        terminalView.postInvalidate();
+        screen.publish();
+        terminalView.requestRender();
+    }
+
+    /**
+     * Spill scrollback beyond the in-memory ring to a per-session file in the
+     * cache dir. Leftovers from sessions that died without onDestroy are
+     * removed first. Without a file the terminal keeps the in-memory ring only.
+     */
+    private void openScrollbackStore() {
+        File[] stale = getCacheDir().listFiles();
+        if (stale != null) {
+            for (File f : stale) {
+                if (f.getName().startsWith(SCROLLBACK_PREFIX)) f.delete();
+            }
+        }
+        try {
+            File file = new File(getCacheDir(), SCROLLBACK_PREFIX + System.currentTimeMillis());
+            scrollbackStore = new ScrollbackStore(file, COLUMNS);
+            screen.setScrollbackStore(scrollbackStore);
+        } catch (IOException e) {
+            Log.w(TAG, "Disk scrollback unavailable: " + e.getMessage());
+        }
+    }
+
+    // --- Session recording ---
+
+    /**
+     * Start an asciicast recording of everything drawn: shell output plus
+     * local echo, since without a PTY the shell never echoes input. Files go
+     * to the app's external files dir so they can be pulled with adb.
+     */
+    private void startRecording() {
+        File dir = getExternalFilesDir("recordings");
+        if (dir == null) dir = new File(getFilesDir(), "recordings");
+        dir.mkdirs();
+        File file = new File(dir, "session-" + System.currentTimeMillis() + ".cast");
+        try {
+            recorder = new SessionRecorder(file, COLUMNS, ROWS);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not start recording", e);
+            return;
+        }
+        shell.setRecorder(recorder);
+        terminalView.setRecording(true);
+        Log.i(TAG, "Recording to " + file);
+    }
+
+    private void stopRecording() {
+        if (recorder == null) return;
+        shell.setRecorder(null);
+        recorder.close();
+        recorder = null;
+        terminalView.setRecording(false);
+    }
+
+    // --- Scrollback search ---
+
+    private void startSearch(final long fromLine) {
+        final int generation = searchGeneration.incrementAndGet();
+        if (searchQuery.length() == 0) {
+            terminalView.setSearchStatus("/");
+            return;
+        }
+        final String query = searchQuery.toString();
+        searchExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long hit = searchHistory(ScreenBuffer.searchKey(query), fromLine, generation);
+                if (hit == SEARCH_CANCELLED) return;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!searching || generation != searchGeneration.get()) return;
+                        if (hit >= 0) {
+                            searchMatch = hit;
+                            terminalView.scrollToHistoryLine(hit);
+                            terminalView.setSearchStatus("/" + query + "  ("
+                                    + (screen.getScrollbackTotal() - hit) + " up)");
+                        } else {
+                            terminalView.setSearchStatus("/" + query + "  (not found)");
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Newest line at or below {@code from} containing {@code key}, -1 if
+     * none, or SEARCH_CANCELLED once a newer search has started. Runs on the
+     * search thread.
+     */
+    private long searchHistory(char[] key, long from, int generation) {
+        if (key.length == 0 || key.length > COLUMNS) return -1;
+        long line = from;
+        while (generation == searchGeneration.get()) {
+            long start = screen.getHistoryStart();
+            line = Math.min(line, screen.getScrollbackTotal() - 1);
+            if (line < start) return -1;
+            long to = Math.max(start, line - SEARCH_SLICE + 1);
+            int n = screen.copyHistoryChars(line, to, searchRows);
+            for (int i = 0; i < n; i++) {
+                if (ScreenBuffer.rowContains(searchRows[i], key)) return line - i;
+            }
+            // Lines below a missing one were evicted too
+            if (n < line - to + 1) return -1;
+            line = to - 1;
+        }
+        return SEARCH_CANCELLED;
+    }
+
+    private void endSearch() {
+        searching = false;
+        searchGeneration.incrementAndGet();
+        terminalView.setSearchStatus(null);
+        terminalView.resetScroll();
+        terminalView.invalidate();
+    }
+
+    /** Keys while searching: type to refine, Enter/Ctrl+Shift+F for older matches, Esc to leave. */
+    private boolean handleSearchKey(KeyEvent event, int keyCode, boolean ctrl) {
+        if (keyCode == KeyEvent.KEYCODE_ESCAPE) {
+            endSearch();
+        } else if (keyCode == KeyEvent.KEYCODE_ENTER || (ctrl && keyCode == KeyEvent.KEYCODE_F)) {
+            if (searchMatch >= 0) startSearch(searchMatch - 1);
+        } else if (keyCode == KeyEvent.KEYCODE_DEL) {
+            if (searchQuery.length() > 0) searchQuery.deleteCharAt(searchQuery.length() - 1);
+            searchMatch = -1;
+            startSearch(screen.getScrollbackTotal() - 1);
+        } else if (keyCode == KeyEvent.KEYCODE_PAGE_UP || keyCode == KeyEvent.KEYCODE_PAGE_DOWN) {
+            return false;
+        } else {
+            int unicodeChar = event.getUnicodeChar(event.getMetaState());
+            if (unicodeChar != 0 && !ctrl) {
+                char ch = (char) unicodeChar;
+                if (dvorakMode) ch = qwertyToDvorak(ch);
+                searchQuery.append(ch);
+                searchMatch = -1;
+                startSearch(screen.getScrollbackTotal() - 1);
+            }
+        }
+        return true;
     }
 
     private void extractDbclient() {
@@ -243,6 +430,8 @@ public class TerminalActivity extends Activity {
             return super.dispatchKeyEvent(event);
         }
 
+        shell.noteUserInput();
+
         int keyCode = event.getKeyCode();
         boolean ctrl = (event.getMetaState() & KeyEvent.META_CTRL_ON) != 0;
         boolean shift = (event.getMetaState() & KeyEvent.META_SHIFT_ON) != 0;
@@ -254,6 +443,20 @@ public class TerminalActivity extends Activity {
             return true;
         }
 
+        // Ctrl+Shift+F — search scrollback. Terminal commands take Shift so
+        // plain Ctrl+F and Ctrl+R still reach readline (forward-char,
+        // reverse-i-search), locally and over ssh
+        if (!searching && ctrl && shift && keyCode == KeyEvent.KEYCODE_F) {
+            searching = true;
+            searchQuery.setLength(0);
+            searchMatch = -1;
+            terminalView.setSearchStatus("/");
+            return true;
+        }
+        if (searching && handleSearchKey(event, keyCode, ctrl)) {
+            return true;
+        }
+
         // Reset scroll on any keypress (except shift+pgup/pgdn)
         if (keyCode != KeyEvent.KEYCODE_PAGE_UP && keyCode != KeyEvent.KEYCODE_PAGE_DOWN) {
             terminalView.resetScroll();
@@ -322,6 +525,16 @@ public class TerminalActivity extends Activity {
                     return true;
                 }
 
+                // Ctrl+Shift+R — start/stop session recording
+                if (ctrl && shift && keyCode == KeyEvent.KEYCODE_R) {
+                    if (recorder == null) {
+                        startRecording();
+                    } else {
+                        stopRecording();
+                    }
+                    return true;
+                }
+
                 // Ctrl+C — send interrupt and start new line
                 if (ctrl && keyCode == KeyEvent.KEYCODE_C) {
                     lineBuffer.setLength(0);
@@ -21,14 +21,98 @@ public class TerminalEmulator {
     private int savedCursorRow = 0;
     private int savedCursorCol = 0;
 
+    // UTF-8 decoder state, carried across process() calls; guarded by this
+    private int utf8Codepoint;
+    private int utf8Remaining;
+    private int utf8Min;
+
+    // Decoded printable run, written to the screen in one locked call; guarded by this
+    private final char[] runBuf = new char[256];
+
     public TerminalEmulator(ScreenBuffer screen) {
         this.screen = screen;
     }
 
-    public void process(byte[] data, int offset, int length) {
-        for (int i = offset; i < offset + length; i++) {
-            processByte(data[i] & 0xFF);
+    public ScreenBuffer getScreen() {
+        return screen;
+    }
+
+    /**
+     * Parse output into the screen. Called from the shell's reader thread and
+     * from the UI thread for local echo, so calls are serialized: the parser,
+     * UTF-8 decoder and run buffer belong to one call at a time.
+     */
+    public synchronized void process(byte[] data, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (state == STATE_NORMAL) {
+                i = processPrintable(data, i, end);
+                if (i >= end) break;
+            }
+            processByte(data[i++] & 0xFF);
+        }
+    }
+
+    /**
+     * Fast path: decode a run of printable UTF-8 starting at {@code i} and
+     * write it with ScreenBuffer.putChars, one lock per run instead of per
+     * character. Returns the index of the first byte not consumed (a control
+     * byte or ESC), or {@code end}. Sequences split across reads carry over.
+     */
+    private int processPrintable(byte[] data, int i, int end) {
+        int n = 0;
+        while (i < end) {
+            int b = data[i] & 0xFF;
+            if (utf8Remaining > 0) {
+                if ((b & 0xC0) == 0x80) {
+                    utf8Codepoint = (utf8Codepoint << 6) | (b & 0x3F);
+                    i++;
+                    if (--utf8Remaining == 0) {
+                        int cp = utf8Codepoint;
+                        // Overlong, surrogate and non-BMP code points don't fit a cell
+                        boolean valid = cp >= utf8Min && cp <= 0xFFFF && (cp < 0xD800 || cp > 0xDFFF);
+                        runBuf[n++] = valid ? (char) cp : '\uFFFD';
+                    }
+                } else {
+                    // Truncated sequence: replace it, then reconsider this byte
+                    utf8Remaining = 0;
+                    runBuf[n++] = '\uFFFD';
+                }
+            } else if (b >= 0x20 && b < 0x80) {
+                runBuf[n++] = (char) b;
+                i++;
+            } else if (b >= 0xC2 && b <= 0xF4) {
+                if (b < 0xE0) {
+                    utf8Codepoint = b & 0x1F;
+                    utf8Remaining = 1;
+                    utf8Min = 0x80;
+                } else if (b < 0xF0) {
+                    utf8Codepoint = b & 0x0F;
+                    utf8Remaining = 2;
+                    utf8Min = 0x800;
+                } else {
+                    utf8Codepoint = b & 0x07;
+                    utf8Remaining = 3;
+                    utf8Min = 0x10000;
+                }
+                i++;
+            } else if (b >= 0x80) {
+                // Stray continuation or invalid lead byte
+                runBuf[n++] = '\uFFFD';
+                i++;
+            } else {
+                break; // C0 control or ESC
+            }
+            if (n == runBuf.length) {
+                screen.putChars(runBuf, 0, n);
+                n = 0;
+            }
         }
+        if (n > 0) {
+            screen.putChars(runBuf, 0, n);
+        }
+        return i;
     }
 
     private void processByte(int b) {
@@ -74,9 +158,7 @@ public class TerminalEmulator {
                 screen.carriageReturn();
                 break;
             default:
-                if (b >= 0x20) {
-                    screen.putChar((char) b);
-                }
+                // Printable bytes never get here; process() hands them to processPrintable
                 break;
         }
     }
@@ -201,13 +283,13 @@ public class TerminalEmulator {
                 screen.setCursor(0, 0);
                 break;
             case 'P': // Delete characters
-                deleteChars(Math.max(1, param(params, 0, 1)));
+                screen.deleteChars(Math.max(1, param(params, 0, 1)));
                 break;
             case '@': // Insert characters
-                insertChars(Math.max(1, param(params, 0, 1)));
+                screen.insertChars(Math.max(1, param(params, 0, 1)));
                 break;
             case 'X': // Erase characters
-                eraseChars(Math.max(1, param(params, 0, 1)));
+                screen.eraseChars(Math.max(1, param(params, 0, 1)));
                 break;
             case 'S': // Scroll up
                 screen.scrollUp(Math.max(1, param(params, 0, 1)));
@@ -330,43 +412,6 @@ public class TerminalEmulator {
         }
     }
 
-    // --- Helpers for character insert/delete/erase ---
-
-    private void deleteChars(int n) {
-        int row = screen.getCursorRow();
-        int col = screen.getCursorCol();
-        int cols = screen.getColumns();
-        for (int c = col; c < cols; c++) {
-            if (c + n < cols) {
-                screen.getCell(row, c).copyFrom(screen.getCell(row, c + n));
-            } else {
-                screen.getCell(row, c).reset();
-            }
-        }
-    }
-
-    private void insertChars(int n) {
-        int row = screen.getCursorRow();
-        int col = screen.getCursorCol();
-        int cols = screen.getColumns();
-        for (int c = cols - 1; c >= col; c--) {
-            if (c - n >= col) {
-                screen.getCell(row, c).copyFrom(screen.getCell(row, c - n));
-            } else {
-                screen.getCell(row, c).reset();
-            }
-        }
-    }
-
-    private void eraseChars(int n) {
-        int row = screen.getCursorRow();
-        int col = screen.getCursorCol();
-        int cols = screen.getColumns();
-        for (int c = col; c < col + n && c < cols; c++) {
-            screen.getCell(row, c).reset();
-        }
-    }
-
     // --- Parameter parsing ---
 
     private int[] parseParams() {
@@ -1,13 +1,18 @@
 package com.example.glassterm;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Typeface;
 import android.os.Handler;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.View;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class TerminalView extends View {
 
     private ScreenBuffer screen;
@@ -18,6 +23,41 @@ public class TerminalView extends View {
     private float cellHeight;
     private float textBaseline;
 
+    // Terminal rows are painted into a cached bitmap from the buffer's latest
+    // snapshot; only rows whose version changed (or all rows after a
+    // scroll/resize) are repainted.
+    private Bitmap backing;
+    private Canvas backingCanvas;
+    private long[] paintedVersions;
+    private boolean fullRepaint = true;
+    private int paintedScrollOffset;
+    private long paintedScrollbackTotal;
+    private char[] scrollbackChars;
+    private int[] scrollbackAttrs;
+
+    // Frame render time, smoothed, shown in the favorites bar
+    private float renderMsAvg;
+
+    // Frame pacing: output requests a render from any thread, and at most one
+    // invalidate is scheduled per display frame. Requests that arrive while a
+    // frame is already pending are coalesced into it and counted.
+    private Choreographer choreographer;
+    private final AtomicBoolean framePending = new AtomicBoolean();
+    private final AtomicInteger renderRequestsCoalesced = new AtomicInteger();
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            framePending.set(false);
+            invalidate();
+        }
+    };
+    private final Runnable scheduleFrame = new Runnable() {
+        @Override
+        public void run() {
+            choreographer.postFrameCallback(frameCallback);
+        }
+    };
+
     private boolean cursorBlinkOn = true;
     private final Handler blinkHandler = new Handler();
     private final Runnable blinkRunnable = new Runnable() {
@@ -40,6 +80,12 @@ public class TerminalView extends View {
     // Keyboard layout indicator
     private boolean dvorakMode = false;
 
+    // Scrollback search prompt, replaces the favorites while searching
+    private String searchStatus;
+
+    // Session recording indicator
+    private boolean recording = false;
+
     public TerminalView(Context context) {
         super(context);
         init();
@@ -51,6 +97,7 @@ public class TerminalView extends View {
     }
 
     private void init() {
+        choreographer = Choreographer.getInstance();
         textPaint.setTypeface(Typeface.MONOSPACE);
         textPaint.setColor(0xFFAAAAAA);
         bgPaint.setStyle(Paint.Style.FILL);
@@ -61,6 +108,23 @@ public class TerminalView extends View {
         invalidate();
     }
 
+    /**
+     * Ask for a redraw on the next display frame. Safe from any thread;
+     * repeated calls before that frame are coalesced.
+     */
+    public void requestRender() {
+        if (framePending.compareAndSet(false, true)) {
+            post(scheduleFrame);
+        } else {
+            renderRequestsCoalesced.incrementAndGet();
+        }
+    }
+
+    /** Render requests merged into an already pending frame since the last call; no frame is dropped. */
+    public int takeRenderRequestsCoalesced() {
+        return renderRequestsCoalesced.getAndSet(0);
+    }
+
     public void startCursorBlink() {
         blinkHandler.removeCallbacks(blinkRunnable);
         cursorBlinkOn = true;
@@ -77,7 +141,7 @@ public class TerminalView extends View {
 
     public void scrollBack(int lines) {
         if (screen == null) return;
-        scrollOffset = Math.min(scrollOffset + lines, screen.getScrollbackSize());
+        scrollOffset = (int) Math.min(scrollOffset + lines, screen.getHistorySize());
         invalidate();
     }
 
@@ -90,6 +154,25 @@ public class TerminalView extends View {
         scrollOffset = 0;
     }
 
+    /** Scroll so a scrollback line (numbered as in ScreenBuffer) sits a third of the way down. */
+    public void scrollToHistoryLine(long line) {
+        if (screen == null) return;
+        long offset = screen.getScrollbackTotal() - line + screen.getRows() / 3;
+        scrollOffset = (int) Math.max(0, Math.min(offset, screen.getHistorySize()));
+        invalidate();
+    }
+
+    public void setRecording(boolean recording) {
+        this.recording = recording;
+        postInvalidate();
+    }
+
+    /** Text shown in place of the favorites bar, or null to show favorites. */
+    public void setSearchStatus(String status) {
+        searchStatus = status;
+        invalidate();
+    }
+
     public void setFavorites(SshFavorite[] favorites) {
         this.favorites = favorites;
         postInvalidate();
@@ -135,64 +218,77 @@ public class TerminalView extends View {
         Paint.FontMetrics fm = textPaint.getFontMetrics();
         cellHeight = (float) h / screen.getRows();
         textBaseline = -fm.top; // Distance from top of cell to baseline
+
+        if (backing != null) backing.recycle();
+        backing = null;
+        backingCanvas = null;
+        if (w > 0 && h > 0) {
+            backing = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            backingCanvas = new Canvas(backing);
+        }
+        paintedVersions = new long[screen.getRows()];
+        scrollbackChars = new char[screen.getColumns()];
+        scrollbackAttrs = new int[screen.getColumns()];
+        fullRepaint = true;
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
-        if (screen == null) return;
-
-        canvas.drawColor(0xFF000000); // Black background
-
-        int rows = screen.getRows();
-        int cols = screen.getColumns();
-        char[] charBuf = new char[1];
-
-        synchronized (screen) {
-            for (int row = 0; row < rows; row++) {
-                int sourceRow = row - scrollOffset;
-                float y = row * cellHeight;
-
-                for (int col = 0; col < cols; col++) {
-                    float x = col * cellWidth;
-                    ScreenBuffer.Cell cell;
-
-                    if (sourceRow >= 0) {
-                        cell = screen.getCell(sourceRow, col);
-                    } else {
-                        // Drawing from scrollback
-                        int scrollbackLine = screen.getScrollbackSize() + sourceRow;
-                        cell = screen.getScrollbackCell(scrollbackLine, col);
-                    }
-
-                    int bgColor = screen.resolveBg(cell);
-                    int fgColor = screen.resolveFg(cell);
-
-                    // Draw cell background if not black
-                    if (bgColor != 0xFF000000) {
-                        bgPaint.setColor(bgColor);
-                        canvas.drawRect(x, y, x + cellWidth, y + cellHeight, bgPaint);
-                    }
-
-                    // Draw cursor
-                    if (scrollOffset == 0 && sourceRow == screen.getCursorRow()
-                            && col == screen.getCursorCol()
-                            && screen.isCursorVisible() && cursorBlinkOn) {
-                        bgPaint.setColor(0xFFAAAAAA);
-                        canvas.drawRect(x, y, x + cellWidth, y + cellHeight, bgPaint);
-                        fgColor = 0xFF000000;
-                    }
-
-                    // Draw character
-                    if (cell.ch != ' ' && cell.ch != 0) {
-                        textPaint.setColor(fgColor);
-                        textPaint.setFakeBoldText(cell.bold);
-                        textPaint.setUnderlineText(cell.underline);
-                        charBuf[0] = cell.ch;
-                        canvas.drawText(charBuf, 0, 1, x, y + textBaseline, textPaint);
-                    }
+        if (screen == null || backing == null) return;
+        long startNanos = System.nanoTime();
+
+        // Never takes the buffer's lock unless scrolled back into history
+        ScreenSnapshot snap = screen.acquireSnapshot();
+        int rows = snap.rows;
+
+        // While scrolled back, every row shifts when scrollback grows
+        boolean all = fullRepaint || scrollOffset != paintedScrollOffset
+                || (scrollOffset != 0 && snap.scrollbackTotal != paintedScrollbackTotal);
+
+        for (int row = 0; row < rows; row++) {
+            int sourceRow = row - scrollOffset;
+            if (sourceRow >= 0) {
+                long version = snap.rowVersions[sourceRow];
+                if (!all && version == paintedVersions[sourceRow]) continue;
+                drawRow(row, snap.chars[sourceRow], snap.attrs[sourceRow]);
+                paintedVersions[sourceRow] = version;
+            } else if (all) {
+                // Drawing from scrollback
+                long scrollbackLine = snap.scrollbackTotal + sourceRow;
+                if (scrollbackLine >= 0
+                        && screen.copyScrollbackLine(scrollbackLine, scrollbackChars, scrollbackAttrs)) {
+                    drawRow(row, scrollbackChars, scrollbackAttrs);
+                } else {
+                    drawRow(row, null, null);
                 }
             }
         }
+        fullRepaint = false;
+        paintedScrollOffset = scrollOffset;
+        paintedScrollbackTotal = snap.scrollbackTotal;
+
+        int cursorRow = snap.cursorRow;
+        int cursorCol = snap.cursorCol;
+        boolean showCursor = scrollOffset == 0 && cursorCol < snap.columns
+                && snap.cursorVisible && cursorBlinkOn;
+
+        canvas.drawBitmap(backing, 0, 0, null);
+
+        // Cursor is drawn over the cached rows so blinking never dirties them
+        if (showCursor) {
+            float x = cursorCol * cellWidth;
+            float y = cursorRow * cellHeight;
+            bgPaint.setColor(0xFFAAAAAA);
+            canvas.drawRect(x, y, x + cellWidth, y + cellHeight, bgPaint);
+            char ch = snap.chars[cursorRow][cursorCol];
+            int attr = snap.attrs[cursorRow][cursorCol];
+            if (ch != ' ' && ch != 0) {
+                textPaint.setColor(0xFF000000);
+                textPaint.setFakeBoldText(ScreenBuffer.attrBold(attr));
+                textPaint.setUnderlineText(ScreenBuffer.attrUnderline(attr));
+                canvas.drawText(snap.chars[cursorRow], cursorCol, 1, x, y + textBaseline, textPaint);
+            }
+        }
 
         // SSH favorites bar at bottom
         if (favorites != null) {
@@ -203,28 +299,33 @@ public class TerminalView extends View {
             textPaint.setFakeBoldText(false);
             textPaint.setUnderlineText(false);
 
-            float slotWidth = (float) getWidth() / 5;
-            for (int i = 0; i < 5; i++) {
-                SshFavorite fav = (i < favorites.length) ? favorites[i] : null;
-                boolean active = fav != null && !fav.isEmpty();
-                String label;
-                if (active) {
-                    label = (i + 1) + ":" + fav.name;
-                } else {
-                    label = (i + 1) + ":     ";
-                }
+            if (searchStatus != null) {
+                textPaint.setColor(0xFFFFFFFF);
+                canvas.drawText(searchStatus, 4, barY + textBaseline, textPaint);
+            } else {
+                float slotWidth = (float) getWidth() / 5;
+                for (int i = 0; i < 5; i++) {
+                    SshFavorite fav = (i < favorites.length) ? favorites[i] : null;
+                    boolean active = fav != null && !fav.isEmpty();
+                    String label;
+                    if (active) {
+                        label = (i + 1) + ":" + fav.name;
+                    } else {
+                        label = (i + 1) + ":     ";
+                    }
 
-                // Pick color: flash overrides normal color
-                if (i == flashSlot) {
-                    textPaint.setColor(flashSuccess ? 0xFF00FF00 : 0xFFFF4444);
-                } else if (active) {
-                    textPaint.setColor(0xFF00FFFF);
-                } else {
-                    textPaint.setColor(0xFF666666);
-                }
+                    // Pick color: flash overrides normal color
+                    if (i == flashSlot) {
+                        textPaint.setColor(flashSuccess ? 0xFF00FF00 : 0xFFFF4444);
+                    } else if (active) {
+                        textPaint.setColor(0xFF00FFFF);
+                    } else {
+                        textPaint.setColor(0xFF666666);
+                    }
 
-                float x = i * slotWidth + 4;
-                canvas.drawText(label, x, barY + textBaseline, textPaint);
+                    float x = i * slotWidth + 4;
+                    canvas.drawText(label, x, barY + textBaseline, textPaint);
+                }
             }
 
             // Keyboard layout indicator at far right
@@ -232,6 +333,86 @@ public class TerminalView extends View {
             textPaint.setColor(0xFFFFFF00);
             float labelWidth = textPaint.measureText(layoutLabel);
             canvas.drawText(layoutLabel, getWidth() - labelWidth - 4, barY + textBaseline, textPaint);
+
+            // Frame render time, left of the layout indicator
+            int tenths = Math.round(renderMsAvg * 10);
+            String renderLabel = (tenths / 10) + "." + (tenths % 10) + "ms";
+            textPaint.setColor(0xFF888888);
+            float renderWidth = textPaint.measureText(renderLabel);
+            canvas.drawText(renderLabel, getWidth() - labelWidth - renderWidth - 12,
+                    barY + textBaseline, textPaint);
+
+            if (recording) {
+                textPaint.setColor(0xFFFF4444);
+                float recWidth = textPaint.measureText("REC");
+                canvas.drawText("REC", getWidth() - labelWidth - renderWidth - recWidth - 20,
+                        barY + textBaseline, textPaint);
+            }
+        }
+
+        float renderMs = (System.nanoTime() - startNanos) / 1000000f;
+        renderMsAvg = renderMsAvg == 0 ? renderMs : renderMsAvg * 0.9f + renderMs * 0.1f;
+    }
+
+    /**
+     * Repaint one terminal row into the backing bitmap. Cells are grouped into
+     * runs of equal attributes: one background rect and, for ASCII, one
+     * drawText per run.
+     * A null row paints blank.
+     */
+    private void drawRow(int row, char[] chars, int[] attrs) {
+        float y = row * cellHeight;
+        bgPaint.setColor(0xFF000000);
+        backingCanvas.drawRect(0, y, backing.getWidth(), y + cellHeight, bgPaint);
+        if (chars == null) return;
+
+        int cols = chars.length;
+        int col = 0;
+        while (col < cols) {
+            int attr = attrs[col];
+            int end = col + 1;
+            while (end < cols && attrs[end] == attr) end++;
+
+            int bgColor = screen.resolveBg(attr);
+            if (bgColor != 0xFF000000) {
+                bgPaint.setColor(bgColor);
+                backingCanvas.drawRect(col * cellWidth, y, end * cellWidth, y + cellHeight, bgPaint);
+            }
+
+            // Trim blanks at both ends of the run; interior spaces stay in the text
+            int start = col;
+            int stop = end;
+            while (start < stop && (chars[start] == ' ' || chars[start] == 0)) start++;
+            while (stop > start && (chars[stop - 1] == ' ' || chars[stop - 1] == 0)) stop--;
+            if (start < stop) {
+                textPaint.setColor(screen.resolveFg(attr));
+                textPaint.setFakeBoldText(ScreenBuffer.attrBold(attr));
+                textPaint.setUnderlineText(ScreenBuffer.attrUnderline(attr));
+                drawCells(chars, start, stop, y + textBaseline);
+            }
+            col = end;
+        }
+    }
+
+    /**
+     * Draw cells {@code start..stop} of a row. Printable ASCII is drawn in
+     * runs, whose advances match the measured cell width; anything else
+     * (decoded UTF-8, drawn from a fallback font with its own advances) is
+     * drawn one cell at a time so the cells after it stay on the grid.
+     */
+    private void drawCells(char[] chars, int start, int stop, float baseline) {
+        int col = start;
+        while (col < stop) {
+            char c = chars[col];
+            if (c >= 0x20 && c <= 0x7E) {
+                int end = col + 1;
+                while (end < stop && chars[end] >= 0x20 && chars[end] <= 0x7E) end++;
+                backingCanvas.drawText(chars, col, end - col, col * cellWidth, baseline, textPaint);
+                col = end;
+            } else {
+                if (c != 0) backingCanvas.drawText(chars, col, 1, col * cellWidth, baseline, textPaint);
+                col++;
+            }
         }
     }
 }
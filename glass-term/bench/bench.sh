@@ -0,0 +1,24 @@
+#!/bin/bash
+# Build and run the TerminalEmulator benchmark or conformance checks on the desktop JVM
+# Usage: ./bench.sh [--workload plain|sgr|top|scroll|mixed] [--mb N] [--seconds N] [--warmup N] [--replay FILE.cast]
+#        ./bench.sh conformance
+
+set -e
+
+DIR="$(cd "$(dirname "$0")" && pwd)"
+SRC="$DIR/../app/src/main/java/com/example/glassterm"
+OUT="$DIR/build"
+
+mkdir -p "$OUT"
+javac -encoding UTF-8 -d "$OUT" \
+    "$SRC/ScreenBuffer.java" \
+    "$SRC/ScreenSnapshot.java" \
+    "$SRC/ScrollbackStore.java" \
+    "$SRC/TerminalEmulator.java" \
+    "$SRC/AsciicastReader.java" \
+    "$DIR"/src/com/example/glassterm/bench/*.java
+
+if [ "$1" = "conformance" ]; then
+    exec java -cp "$OUT" com.example.glassterm.bench.Conformance
+fi
+exec java -cp "$OUT" com.example.glassterm.bench.EmulatorBench "$@"
@@ -0,0 +1,259 @@
+package com.example.glassterm.bench;
+
+import com.example.glassterm.ScreenBuffer;
+import com.example.glassterm.TerminalEmulator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * Conformance checks for TerminalEmulator + ScreenBuffer, run on the desktop
+ * JVM before and after performance work:
+ *
+ *   1. Hand-written escape sequences with the expected screen text, cursor
+ *      and attributes.
+ *   2. Each benchmark workload fed whole, in 4 KB reads and in random 1-7
+ *      byte slivers; all three must end in the same state.
+ *   3. That state's digest must equal the recorded one below. Update the
+ *      table only for an intended behaviour change, never for a speedup.
+ *
+ *   bench.sh conformance
+ */
+public class Conformance {
+
+    private static final int COLUMNS = EmulatorBench.COLUMNS;
+    private static final int ROWS = EmulatorBench.ROWS;
+    private static final int WORKLOAD_SIZE = 1024 * 1024;
+
+    // Final-state digests of each workload (1 MB, seed 1, 53x18)
+    private static final String[] GOLDEN_NAMES = Workloads.NAMES;
+    private static final int[] GOLDEN_DIGESTS = {
+        0x2548d764, 0x0322cf31, 0x2cbd1f63, 0x78a82502, 0x6b725c22,
+    };
+
+    private static int failures = 0;
+
+    public static void main(String[] args) {
+        screenChecks();
+        workloadChecks();
+        if (failures > 0) {
+            System.out.println(failures + " conformance check(s) FAILED");
+            System.exit(1);
+        }
+        System.out.println("All conformance checks passed");
+    }
+
+    // --- Hand-written cases ---
+
+    private static void screenChecks() {
+        text("plain lines", "hello\r\nworld", 1, 5, "hello", "world");
+        text("autowrap", repeat('a', COLUMNS) + "b", 1, 1, repeat('a', COLUMNS), "b");
+        text("pending wrap holds at margin", repeat('a', COLUMNS), 0, COLUMNS, repeat('a', COLUMNS));
+        text("backspace and overwrite", "abc\b\bX", 0, 2, "aXc");
+        text("tab stops", "a\tb\tc", 0, 17, "a       b       c");
+        text("CUP is 1-based", "\033[3;5HX", 2, 5, "", "", "    X");
+        text("CUP clamps", "\033[99;99HX", ROWS - 1, COLUMNS, rowsWith(ROWS - 1, repeat(' ', COLUMNS - 1) + "X"));
+        text("EL 0", "abcdef\033[1;3H\033[K", 0, 2, "ab");
+        text("EL 1", "abcdef\033[1;3H\033[1K", 0, 2, "   def");
+        text("EL 2", "abcdef\033[1;3H\033[2K", 0, 2, "");
+        text("ED 0", "aaa\r\nbbb\r\nccc\033[2;2H\033[J", 1, 1, "aaa", "b");
+        text("ED 1", "aaa\r\nbbb\r\nccc\033[2;2H\033[1J", 1, 1, "", "  b", "ccc");
+        text("ED 2", "aaa\r\nbbb\033[2J", 1, 3, "");
+        text("CUU/CUD/CUF/CUB", "\033[5;5H\033[2A\033[3C\033[1B\033[6DX", 3, 2, "", "", "", " X");
+        text("CHA and VPA", "\033[7G\033[3dX", 2, 7, "", "", "      X");
+        text("DCH", "abcdef\033[1;2H\033[2P", 0, 1, "adef");
+        text("ICH", "abcdef\033[1;2H\033[2@", 0, 1, "a  bcdef");
+        text("ECH", "abcdef\033[1;2H\033[3X", 0, 1, "a   ef");
+        text("save/restore cursor", "ab\0337\033[5;5Hx\0338c", 0, 3, "abc", "", "", "", "    x");
+        text("reverse index at top", "top\033[H\033Mnew", 0, 3, "new", "top");
+        text("IL", "a\r\nb\r\nc\033[2;1H\033[L", 1, 0, "a", "", "b", "c");
+        text("DL", "a\r\nb\r\nc\033[1;1H\033[M", 0, 0, "b", "c");
+        text("scroll region keeps outside rows",
+                "top\033[" + ROWS + ";1Hbottom\033[2;4r\033[4;1Hx\r\ny\r\nz", 3, 1,
+                rowsWith(0, "top", 1, "x", 2, "y", 3, "z", ROWS - 1, "bottom"));
+        text("SU/SD", "a\r\nb\r\nc\033[S", 2, 1, "b", "c");
+        text("OSC title ignored", "\033]0;title\007ok", 0, 2, "ok");
+        text("unknown CSI ignored", "a\033[5~b", 0, 2, "ab");
+        text("UTF-8 text", "héllo € →", 0, 9, "héllo € →");
+        text("UTF-8 invalid bytes", new byte[] { 'a', (byte) 0xC3, 'b', (byte) 0xFF, 'c' }, 0, 5,
+                "a�b�c");
+
+        attr("SGR bold red", "\033[1;31mX", 0, 0, ScreenBuffer.ATTR_BOLD | 1);
+        attr("SGR reset", "\033[1;31m\033[0mX", 0, 0, ScreenBuffer.DEFAULT_ATTR);
+        attr("SGR background", "\033[44mX", 0, 0, (4 << 8) | 7);
+        attr("SGR bright", "\033[92;103mX", 0, 0, (11 << 8) | 10);
+        attr("SGR 256 colour", "\033[38;5;196;48;5;21mX", 0, 0, (21 << 8) | 196);
+        attr("SGR inverse/underline", "\033[4;7mX", 0, 0,
+                ScreenBuffer.ATTR_UNDERLINE | ScreenBuffer.ATTR_INVERSE | 7);
+        attr("SGR 39/49 defaults", "\033[31;42m\033[39;49mX", 0, 0, ScreenBuffer.DEFAULT_ATTR);
+        attr("erase uses default attributes", "\033[41mab\033[1;1H\033[K", 0, 0, ScreenBuffer.DEFAULT_ATTR);
+
+        ScreenBuffer screen = feed("\033[?25l".getBytes(StandardCharsets.UTF_8));
+        expect("cursor hide", !screen.isCursorVisible());
+        screen = feed("\033[?25l\033c".getBytes(StandardCharsets.UTF_8));
+        expect("full reset shows cursor", screen.isCursorVisible());
+
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 30; i++) lines.append("L").append(i).append("\r\n");
+        screen = feed(lines.toString().getBytes(StandardCharsets.UTF_8));
+        expect("scrollback count", screen.getScrollbackSize() == 30 - ROWS + 1);
+        expect("scrollback oldest", new String(screen.getScrollbackChars(0)).trim().equals("L0"));
+        expect("screen after scroll", rowText(screen, 0).equals("L" + (30 - ROWS + 1)));
+
+        screen = feed(("\033[2;5r" + lines).getBytes(StandardCharsets.UTF_8));
+        expect("region scroll skips scrollback", screen.getScrollbackSize() == 0);
+    }
+
+    // --- Workloads ---
+
+    private static void workloadChecks() {
+        Random random = new Random(7);
+        for (int w = 0; w < GOLDEN_NAMES.length; w++) {
+            String name = GOLDEN_NAMES[w];
+            byte[] input = Workloads.generate(name, WORKLOAD_SIZE, 1, COLUMNS, ROWS);
+
+            int whole = digest(feed(input));
+            int chunked = digest(feedChunks(input, EmulatorBench.CHUNK, null));
+            int slivers = digest(feedChunks(input, 7, random));
+            expect(name + ": 4 KB reads match whole input", chunked == whole);
+            expect(name + ": 1-7 byte reads match whole input", slivers == whole);
+            if (whole != GOLDEN_DIGESTS[w]) {
+                fail(name + ": digest " + hex(whole) + ", expected " + hex(GOLDEN_DIGESTS[w]));
+            } else {
+                System.out.println("ok    " + name + " " + hex(whole));
+            }
+        }
+    }
+
+    /**
+     * CRC of everything the renderer can see: size, cursor, every cell's
+     * char and attributes, and the in-memory scrollback.
+     */
+    static int digest(ScreenBuffer screen) {
+        CRC32 crc = new CRC32();
+        update(crc, screen.getColumns());
+        update(crc, screen.getRows());
+        update(crc, screen.getCursorRow());
+        update(crc, screen.getCursorCol());
+        update(crc, screen.isCursorVisible() ? 1 : 0);
+        for (int r = 0; r < screen.getRows(); r++) {
+            for (int c = 0; c < screen.getColumns(); c++) {
+                update(crc, screen.getChar(r, c));
+                update(crc, screen.getAttr(r, c));
+            }
+        }
+        synchronized (screen) {
+            update(crc, screen.getScrollbackSize());
+            for (int line = 0; line < screen.getScrollbackSize(); line++) {
+                char[] chars = screen.getScrollbackChars(line);
+                int[] attrs = screen.getScrollbackAttrs(line);
+                for (int c = 0; c < chars.length; c++) {
+                    update(crc, chars[c]);
+                    update(crc, attrs[c]);
+                }
+            }
+        }
+        return (int) crc.getValue();
+    }
+
+    // --- Helpers ---
+
+    private static ScreenBuffer feed(byte[] input) {
+        ScreenBuffer screen = new ScreenBuffer(COLUMNS, ROWS);
+        new TerminalEmulator(screen).process(input, 0, input.length);
+        return screen;
+    }
+
+    /** Feed in fixed-size chunks, or random 1..chunkSize chunks when given a Random. */
+    private static ScreenBuffer feedChunks(byte[] input, int chunkSize, Random random) {
+        ScreenBuffer screen = new ScreenBuffer(COLUMNS, ROWS);
+        TerminalEmulator emulator = new TerminalEmulator(screen);
+        int off = 0;
+        while (off < input.length) {
+            int n = Math.min(input.length - off, random != null ? 1 + random.nextInt(chunkSize) : chunkSize);
+            emulator.process(input, off, n);
+            off += n;
+        }
+        return screen;
+    }
+
+    private static void text(String name, String input, int cursorRow, int cursorCol, String... rows) {
+        text(name, input.getBytes(StandardCharsets.UTF_8), cursorRow, cursorCol, rows);
+    }
+
+    /** Rows not listed must be blank; trailing blanks are ignored. */
+    private static void text(String name, byte[] input, int cursorRow, int cursorCol, String... rows) {
+        ScreenBuffer screen = feed(input);
+        for (int r = 0; r < ROWS; r++) {
+            String want = r < rows.length && rows[r] != null ? rows[r] : "";
+            String got = rowText(screen, r);
+            if (!got.equals(want)) {
+                fail(name + ": row " + r + " is \"" + got + "\", expected \"" + want + "\"");
+                return;
+            }
+        }
+        if (screen.getCursorRow() != cursorRow || screen.getCursorCol() != cursorCol) {
+            fail(name + ": cursor at " + screen.getCursorRow() + "," + screen.getCursorCol()
+                    + ", expected " + cursorRow + "," + cursorCol);
+            return;
+        }
+        System.out.println("ok    " + name);
+    }
+
+    private static void attr(String name, String input, int row, int col, int expected) {
+        int got = feed(input.getBytes(StandardCharsets.UTF_8)).getAttr(row, col);
+        if (got != expected) {
+            fail(name + ": attr " + hex(got) + ", expected " + hex(expected));
+        } else {
+            System.out.println("ok    " + name);
+        }
+    }
+
+    private static void expect(String name, boolean ok) {
+        if (ok) {
+            System.out.println("ok    " + name);
+        } else {
+            fail(name);
+        }
+    }
+
+    private static void fail(String message) {
+        System.out.println("FAIL  " + message);
+        failures++;
+    }
+
+    private static String rowText(ScreenBuffer screen, int row) {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < screen.getColumns(); c++) sb.append(screen.getChar(row, c));
+        int end = sb.length();
+        while (end > 0 && sb.charAt(end - 1) == ' ') end--;
+        return sb.substring(0, end);
+    }
+
+    /** Expected rows given as (row, text) pairs; everything else blank. */
+    private static String[] rowsWith(Object... pairs) {
+        String[] rows = new String[ROWS];
+        for (int i = 0; i < pairs.length; i += 2) {
+            rows[(Integer) pairs[i]] = (String) pairs[i + 1];
+        }
+        return rows;
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) sb.append(c);
+        return sb.toString();
+    }
+
+    private static void update(CRC32 crc, int v) {
+        crc.update(v >>> 24);
+        crc.update(v >>> 16);
+        crc.update(v >>> 8);
+        crc.update(v);
+    }
+
+    private static String hex(int v) {
+        return String.format("%08x", v);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.glassterm.bench;
+
+import com.example.glassterm.AsciicastReader;
+import com.example.glassterm.ScreenBuffer;
+import com.example.glassterm.TerminalEmulator;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Desktop-JVM throughput benchmark for TerminalEmulator + ScreenBuffer.
+ *
+ * Feeds each canned workload (see Workloads) through fresh emulators in
+ * 4 KB chunks, the way ShellProcess.readLoop does, and reports MB/s, ns per
+ * byte and a digest of the final screen. Digests must match the ones
+ * Conformance checks; a faster implementation that changes them is wrong.
+ * With --replay, an asciicast recording (e.g. one made on Glass with
+ * Ctrl+Shift+R) is fed event by event instead.
+ *
+ *   bench.sh [--workload NAME] [--mb N] [--seconds N] [--warmup N] [--replay FILE.cast]
+ */
+public class EmulatorBench {
+
+    static final int COLUMNS = 53;
+    static final int ROWS = 18;
+    static final int CHUNK = 4096;
+
+    public static void main(String[] args) throws IOException {
+        int mb = 8, seconds = 3, warmup = 2;
+        String replay = null;
+        String workload = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workload": workload = args[++i]; break;
+                case "--mb":       mb = Integer.parseInt(args[++i]); break;
+                case "--seconds":  seconds = Integer.parseInt(args[++i]); break;
+                case "--warmup":   warmup = Integer.parseInt(args[++i]); break;
+                case "--replay":   replay = args[++i]; break;
+                default:
+                    System.err.println("Usage: bench.sh [--workload plain|sgr|top|scroll|mixed] [--mb N]"
+                            + " [--seconds N] [--warmup N] [--replay FILE.cast]");
+                    System.exit(2);
+            }
+        }
+
+        System.out.printf("%-8s %8s %9s %9s  %s%n", "workload", "MB", "MB/s", "ns/byte", "digest");
+        if (replay != null) {
+            List<byte[]> chunks = new ArrayList<>();
+            int columns, rows;
+            try (AsciicastReader reader = new AsciicastReader(
+                    new InputStreamReader(new FileInputStream(replay), StandardCharsets.UTF_8))) {
+                columns = reader.getWidth();
+                rows = reader.getHeight();
+                while (reader.next()) {
+                    chunks.add(reader.getData().getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            report("replay", chunks, columns, rows, warmup, seconds);
+            return;
+        }
+
+        String[] names = workload != null ? new String[] { workload } : Workloads.NAMES;
+        for (String name : names) {
+            byte[] input = Workloads.generate(name, mb * 1024 * 1024, 1, COLUMNS, ROWS);
+            report(name, split(input, CHUNK), COLUMNS, ROWS, warmup, seconds);
+        }
+    }
+
+    private static void report(String name, List<byte[]> chunks, int columns, int rows, int warmup, int seconds) {
+        long size = 0;
+        for (byte[] chunk : chunks) size += chunk.length;
+        run(chunks, columns, rows, warmup);
+        double mbps = run(chunks, columns, rows, seconds);
+
+        ScreenBuffer screen = new ScreenBuffer(columns, rows);
+        TerminalEmulator emulator = new TerminalEmulator(screen);
+        for (byte[] chunk : chunks) emulator.process(chunk, 0, chunk.length);
+
+        System.out.printf("%-8s %8.1f %9.1f %9.2f  %08x%n", name, size / 1e6, mbps, 1000 / mbps,
+                Conformance.digest(screen));
+    }
+
+    /** Push the chunks through fresh emulators until the time is up. Returns MB/s. */
+    static double run(List<byte[]> chunks, int columns, int rows, int seconds) {
+        long deadline = System.nanoTime() + seconds * 1000000000L;
+        long bytes = 0;
+        long start = System.nanoTime();
+        do {
+            ScreenBuffer screen = new ScreenBuffer(columns, rows);
+            TerminalEmulator emulator = new TerminalEmulator(screen);
+            for (byte[] chunk : chunks) {
+                emulator.process(chunk, 0, chunk.length);
+                bytes += chunk.length;
+            }
+        } while (System.nanoTime() < deadline);
+        return bytes / ((System.nanoTime() - start) / 1e9) / 1e6;
+    }
+
+    static List<byte[]> split(byte[] input, int chunkSize) {
+        List<byte[]> chunks = new ArrayList<>();
+        for (int off = 0; off < input.length; off += chunkSize) {
+            byte[] chunk = new byte[Math.min(chunkSize, input.length - off)];
+            System.arraycopy(input, off, chunk, 0, chunk.length);
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.glassterm.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Canned terminal output for the benchmark and the conformance digests.
+ * Every generator is deterministic for a given size and seed, so digests of
+ * the resulting screen are stable across runs and implementations.
+ */
+public class Workloads {
+
+    static final String[] NAMES = { "plain", "sgr", "top", "scroll", "mixed" };
+
+    private static final String[] WORDS = { "compile", "src/main/java", "warning:", "ok", "[INFO]", "Building",
+            "täst", "naïve", "→", "0x7f3a", "done", "glass-term", "résumé", "12.5%" };
+
+    static byte[] generate(String name, int size, long seed, int columns, int rows) {
+        switch (name) {
+            case "plain":  return plainFlood(size, seed);
+            case "sgr":    return sgrHeavy(size, seed);
+            case "top":    return topLike(size, seed, columns, rows);
+            case "scroll": return scrollRegion(size, seed, rows);
+            case "mixed":  return mixedAnsi(size, seed, rows);
+            default: throw new IllegalArgumentException("Unknown workload: " + name);
+        }
+    }
+
+    /** `cat` of a big log: ASCII lines of varying length, no escapes. */
+    static byte[] plainFlood(int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder out = new StringBuilder(size + 256);
+        while (out.length() < size) {
+            int n = random.nextInt(120);
+            for (int i = 0; i < n; i++) out.append((char) (' ' + random.nextInt(95)));
+            out.append("\r\n");
+        }
+        return bytes(out);
+    }
+
+    /** `ls --color` / compiler diagnostics: an SGR change every word or two. */
+    static byte[] sgrHeavy(int size, long seed) {
+        Random random = new Random(seed);
+        StringBuilder out = new StringBuilder(size + 256);
+        while (out.length() < size) {
+            int n = 2 + random.nextInt(8);
+            for (int i = 0; i < n; i++) {
+                switch (random.nextInt(5)) {
+                    case 0: out.append("\033[").append(30 + random.nextInt(8)).append('m'); break;
+                    case 1: out.append("\033[1;").append(90 + random.nextInt(8)).append(";4").append(random.nextInt(8)).append('m'); break;
+                    case 2: out.append("\033[38;5;").append(random.nextInt(256)).append('m'); break;
+                    case 3: out.append("\033[7m"); break;
+                    default: out.append("\033[0m"); break;
+                }
+                out.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            out.append("\033[m\r\n");
+        }
+        return bytes(out);
+    }
+
+    /**
+     * `top`: full-screen frames drawn with cursor addressing. Each frame
+     * homes, rewrites a header, an inverse column title row, and every
+     * process row with CUP + text + EL, leaving the cursor parked.
+     */
+    static byte[] topLike(int size, long seed, int columns, int rows) {
+        Random random = new Random(seed);
+        StringBuilder out = new StringBuilder(size + 4096);
+        out.append("\033[?25l\033[H\033[2J");
+        int frame = 0;
+        while (out.length() < size) {
+            out.append("\033[H\033[1mtop\033[m - up ").append(frame / 60).append(" min, load average: ")
+                    .append(random.nextInt(4)).append('.').append(random.nextInt(100)).append("\033[K\r\n");
+            out.append("Tasks: ").append(100 + random.nextInt(50)).append(" total, ")
+                    .append(random.nextInt(5)).append(" running\033[K\r\n");
+            out.append("\033[3;1H\033[7m  PID USER      %CPU %MEM COMMAND");
+            for (int c = 32; c < columns; c++) out.append(' ');
+            out.append("\033[m");
+            for (int r = 4; r <= rows; r++) {
+                out.append("\033[").append(r).append(";1H");
+                if (random.nextInt(6) == 0) out.append("\033[1;32m");
+                out.append(String.format(Locale.ROOT, "%5d %-9s %4d %4d %s", 100 + random.nextInt(30000),
+                        random.nextBoolean() ? "root" : "glass", random.nextInt(100), random.nextInt(40),
+                        WORDS[random.nextInt(WORDS.length)]));
+                out.append("\033[m\033[K");
+            }
+            out.append("\033[").append(rows).append(";1H");
+            frame++;
+        }
+        out.append("\033[?25h");
+        return bytes(out);
+    }
+
+    /**
+     * Pager/editor scrolling inside a region: lines fed at the bottom of a
+     * scroll region, reverse index at its top, IL/DL and SU/SD, with fixed
+     * status lines above and below that must never move.
+     */
+    static byte[] scrollRegion(int size, long seed, int rows) {
+        Random random = new Random(seed);
+        StringBuilder out = new StringBuilder(size + 256);
+        int top = 3, bottom = rows - 2;
+        out.append("\033[H\033[2J\033[7m status top \033[m\033[").append(rows).append(";1H\033[7m status bottom \033[m");
+        out.append("\033[").append(top).append(';').append(bottom).append('r');
+        int line = 0;
+        while (out.length() < size) {
+            switch (random.nextInt(8)) {
+                case 0: // Reverse-scroll a line in at the top
+                    out.append("\033[").append(top).append(";1H\033M").append("up ").append(line++);
+                    break;
+                case 1: // Insert/delete lines mid-region
+                    out.append("\033[").append(top + random.nextInt(bottom - top)).append(";1H\033[")
+                            .append(1 + random.nextInt(3)).append(random.nextBoolean() ? 'L' : 'M');
+                    break;
+                case 2: // Scroll up/down by count
+                    out.append("\033[").append(1 + random.nextInt(3)).append(random.nextBoolean() ? 'S' : 'T');
+                    break;
+                default: // Feed lines at the bottom of the region
+                    out.append("\033[").append(bottom).append(";1H");
+                    for (int i = 1 + random.nextInt(4); i > 0; i--) {
+                        out.append("\n\rline ").append(line++).append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+                    }
+                    break;
+            }
+        }
+        out.append("\033[r");
+        return bytes(out);
+    }
+
+    /**
+     * Roughly what a build log or `ls --color` session looks like: mostly
+     * plain lines, some coloured words, an occasional status line redrawn in
+     * place, and a little non-ASCII text.
+     */
+    static byte[] mixedAnsi(int size, long seed, int rows) {
+        Random random = new Random(seed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size + 256);
+        StringBuilder line = new StringBuilder();
+        while (out.size() < size) {
+            line.setLength(0);
+            int kind = random.nextInt(10);
+            if (kind < 6) {
+                // Plain text line
+                int n = 3 + random.nextInt(8);
+                for (int i = 0; i < n; i++) line.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            } else if (kind < 9) {
+                // Coloured words
+                int n = 2 + random.nextInt(6);
+                for (int i = 0; i < n; i++) {
+                    line.append("\033[").append(random.nextBoolean() ? "1;" : "")
+                            .append(30 + random.nextInt(8)).append('m')
+                            .append(WORDS[random.nextInt(WORDS.length)]).append("\033[0m ");
+                }
+            } else {
+                // Progress line redrawn in place
+                line.append("\0337\033[").append(1 + random.nextInt(rows)).append(";1H\033[2K\033[7m")
+                        .append(random.nextInt(100)).append("% \033[0m\0338");
+            }
+            line.append("\r\n");
+            byte[] b = line.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(b, 0, b.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(StringBuilder sb) {
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
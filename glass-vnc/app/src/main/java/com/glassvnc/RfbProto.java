@@ -111,10 +111,12 @@ public class RfbProto {
                 doVncAuth(password);
             }
 
-            if (minor >= 8) {
-                // SecurityResult
+            if (minor >= 8 || chosen == 2) {
+                // SecurityResult (3.7 only sends it after VNC auth)
                 int result = in.readInt();
-                if (result != 0) {
+                if (result != 0 && minor < 8) {
+                    throw new IOException("VNC authentication failed");
+                } else if (result != 0) {
                     // Try to read reason
                     try {
                         int reasonLen = in.readInt();
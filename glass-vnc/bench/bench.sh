@@ -0,0 +1,17 @@
+#!/bin/bash
+# Build and run the RfbProto benchmark / stand-in VNC server on the desktop JVM
+# Usage: ./bench.sh bench  [--encoding raw|zlib|copyrect|mixed] [--replay FILE] [--seconds N]
+#        ./bench.sh serve  [--port 5900] [--password P]     (then: adb reverse tcp:5900 tcp:5900)
+#        ./bench.sh record --host 192.168.x.x [--password P] [--seconds N] --out session.rec
+
+set -e
+
+DIR="$(cd "$(dirname "$0")" && pwd)"
+OUT="$DIR/build"
+
+mkdir -p "$OUT"
+javac -encoding UTF-8 -d "$OUT" \
+    "$DIR/../app/src/main/java/com/glassvnc/RfbProto.java" \
+    "$DIR"/src/com/glassvnc/bench/*.java
+
+exec java -cp "$OUT" com.glassvnc.bench.RfbBench "$@"
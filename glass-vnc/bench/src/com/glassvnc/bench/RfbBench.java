@@ -0,0 +1,202 @@
+package com.glassvnc.bench;
+
+import com.glassvnc.RfbProto;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.SocketException;
+
+/**
+ * Headless driver for RfbProto against RfbTestServer.
+ *
+ *   bench   [options]                 decode updates over loopback and report throughput
+ *   serve   [options] [--port N]      run the stand-in server for the Glass app (adb reverse)
+ *   record  --host H [--port N] [--password P] [--seconds N] --out FILE
+ *
+ * Options:
+ *   --replay FILE        serve a recording instead of the synthetic desktop
+ *   --realtime           pace a replay at its recorded timing
+ *   --encoding MIX       raw | zlib | copyrect | mixed (synthetic only, default mixed)
+ *   --size WxH           synthetic desktop size (default 1920x1080)
+ *   --rfb 3.3|3.7|3.8    protocol version the server offers (default 3.8)
+ *   --password P         require VNC auth with this password (default None auth)
+ *   --seconds N          measured duration (default 10)
+ *   --warmup N           unmeasured seconds before measuring (default 3)
+ */
+public class RfbBench {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            return;
+        }
+        String cmd = args[0];
+        String replay = null, encoding = "mixed", host = null, password = null, outFile = null;
+        int width = 1920, height = 1080, minor = 8, port = -1, seconds = 10, warmup = 3;
+        boolean realtime = false;
+
+        for (int i = 1; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "--replay":   replay = args[++i]; break;
+                case "--realtime": realtime = true; break;
+                case "--encoding": encoding = args[++i]; break;
+                case "--host":     host = args[++i]; break;
+                case "--port":     port = Integer.parseInt(args[++i]); break;
+                case "--password": password = args[++i]; break;
+                case "--seconds":  seconds = Integer.parseInt(args[++i]); break;
+                case "--warmup":   warmup = Integer.parseInt(args[++i]); break;
+                case "--out":      outFile = args[++i]; break;
+                case "--rfb":
+                    String v = args[++i];
+                    minor = v.endsWith(".8") ? 8 : v.endsWith(".7") ? 7 : 3;
+                    break;
+                case "--size":
+                    String[] wh = args[++i].split("x");
+                    width = Integer.parseInt(wh[0]);
+                    height = Integer.parseInt(wh[1]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + a);
+                    usage();
+                    System.exit(2);
+            }
+        }
+
+        if ("record".equals(cmd)) {
+            if (host == null || outFile == null) {
+                usage();
+                System.exit(2);
+            }
+            RfbRecording rec = RfbRecording.record(host, port < 0 ? 5900 : port, password, seconds);
+            rec.save(new File(outFile));
+            System.out.println("Recorded " + rec.size() + " messages, " + rec.width + "x" + rec.height
+                    + " \"" + rec.name + "\" -> " + outFile);
+            return;
+        }
+
+        RfbTestServer server;
+        if (replay != null) {
+            server = new RfbTestServer(minor, password, RfbRecording.load(new File(replay)), realtime);
+        } else {
+            server = new RfbTestServer(minor, password, width, height, encoding);
+        }
+
+        if ("serve".equals(cmd)) {
+            int bound = server.start(InetAddress.getByName("0.0.0.0"), port < 0 ? 5900 : port);
+            System.out.println("Serving " + server.getWidth() + "x" + server.getHeight()
+                    + (replay != null ? " replay of " + replay : " synthetic " + encoding)
+                    + " on port " + bound + " (RFB 3." + minor + ", "
+                    + (password != null ? "VNC auth" : "no auth") + ")");
+            Thread.currentThread().join();
+        } else if ("bench".equals(cmd)) {
+            bench(server, password, warmup, seconds);
+        } else {
+            usage();
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Mirrors VncView's worker loop minus the Canvas blit: full-desktop viewport,
+     * one incremental request per FramebufferUpdate.
+     */
+    private static void bench(RfbTestServer server, String password, int warmup, int seconds) throws Exception {
+        int port = server.start(0);
+        RfbProto rfb = new RfbProto();
+        rfb.connect("127.0.0.1", port);
+        rfb.handshake(password);
+        rfb.setPixelFormat();
+        rfb.setEncodings();
+
+        int w = rfb.desktopWidth;
+        int h = rfb.desktopHeight;
+        int[] framebuffer = new int[w * h];
+        rfb.requestUpdate(0, 0, w, h, false);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+
+        long warmupEnd = System.nanoTime() + warmup * 1000000000L;
+        long end = warmupEnd + seconds * 1000000000L;
+        boolean measuring = false;
+        long t0 = 0, alloc0 = 0, gc0 = 0, updates0 = 0, pixels0 = 0, wire0 = 0;
+        long updates = 0;
+        long decodeNanos = 0;
+
+        try {
+            while (true) {
+                long now = System.nanoTime();
+                if (!measuring && now >= warmupEnd) {
+                    measuring = true;
+                    t0 = now;
+                    alloc0 = threads.getThreadAllocatedBytes(tid);
+                    gc0 = gcCount();
+                    updates0 = updates;
+                    pixels0 = server.pixelBytesSent.get();
+                    wire0 = server.wireBytesSent.get();
+                    decodeNanos = 0;
+                }
+                if (now >= end) break;
+
+                int msgType = rfb.readServerMessage();
+                switch (msgType) {
+                    case 0:
+                        long d0 = System.nanoTime();
+                        rfb.readFramebufferUpdate(framebuffer);
+                        decodeNanos += System.nanoTime() - d0;
+                        updates++;
+                        rfb.requestUpdate(0, 0, w, h, true);
+                        break;
+                    case 1: rfb.skipSetColourMap(); break;
+                    case 2: rfb.skipBell(); break;
+                    case 3: rfb.skipServerCutText(); break;
+                    default: throw new IOException("Unknown server message: " + msgType);
+                }
+            }
+        } catch (EOFException | SocketException e) {
+            // Replay finished
+        }
+
+        long elapsed = System.nanoTime() - t0;
+        rfb.close();
+        server.stop();
+        if (!measuring || elapsed <= 0) {
+            System.out.println("Session ended during warmup after " + updates + " updates; lower --warmup");
+            return;
+        }
+
+        double secs = elapsed / 1e9;
+        long n = updates - updates0;
+        long pixelBytes = server.pixelBytesSent.get() - pixels0;
+        long wireBytes = server.wireBytesSent.get() - wire0;
+        long allocBytes = threads.getThreadAllocatedBytes(tid) - alloc0;
+
+        System.out.printf("desktop        %dx%d%n", w, h);
+        System.out.printf("updates        %d in %.2f s  (%.1f updates/s)%n", n, secs, n / secs);
+        System.out.printf("decoded        %.1f MB/s  (%.1f MB/s on the wire)%n",
+                pixelBytes / secs / 1e6, wireBytes / secs / 1e6);
+        System.out.printf("decode time    %.3f ms/update  (%.0f%% of wall time)%n",
+                n > 0 ? decodeNanos / 1e6 / n : 0.0, 100.0 * decodeNanos / elapsed);
+        System.out.printf("allocation     %.1f MB/s  (%d bytes/update)%n",
+                allocBytes / secs / 1e6, n > 0 ? allocBytes / n : 0);
+        System.out.printf("gc collections %d%n", gcCount() - gc0);
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(gc.getCollectionCount(), 0);
+        }
+        return total;
+    }
+
+    private static void usage() {
+        System.err.println("Usage: bench.sh bench|serve|record [options]  (see RfbBench.java or README)");
+    }
+}
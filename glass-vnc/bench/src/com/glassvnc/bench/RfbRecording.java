@@ -0,0 +1,294 @@
+package com.glassvnc.bench;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recorded server-to-client RFB session.
+ *
+ * File layout (big-endian):
+ *   "GVNCREC1", u16 width, u16 height, u32 nameLen, name,
+ *   then per server message: u32 timeMs, u32 length, message bytes.
+ *
+ * Messages are stored exactly as the server sent them after ServerInit, in
+ * the 32bpp BGRA pixel format and encoding list RfbProto negotiates, so a
+ * replay decodes through the same code paths as a live session. Zlib state
+ * carries across messages, so replays always start from the first message.
+ */
+public class RfbRecording {
+
+    private static final byte[] MAGIC = { 'G', 'V', 'N', 'C', 'R', 'E', 'C', '1' };
+
+    /** Same list and order RfbProto.setEncodings() sends. */
+    private static final int[] ENCODINGS = {
+            RfbTestServer.ENCODING_ZLIB, RfbTestServer.ENCODING_COPYRECT,
+            RfbTestServer.ENCODING_RAW, RfbTestServer.ENCODING_DESKTOP_SIZE };
+
+    public static class Message {
+        public final int timeMs;
+        public final byte[] data;
+        /** Decoded pixel bytes carried by this message (0 for non-update messages). */
+        public final long pixelBytes;
+
+        Message(int timeMs, byte[] data, long pixelBytes) {
+            this.timeMs = timeMs;
+            this.data = data;
+            this.pixelBytes = pixelBytes;
+        }
+    }
+
+    public final int width;
+    public final int height;
+    public final String name;
+    private final List<Message> messages = new ArrayList<>();
+
+    public RfbRecording(int width, int height, String name) {
+        this.width = width;
+        this.height = height;
+        this.name = name;
+    }
+
+    public int size() { return messages.size(); }
+    public Message get(int i) { return messages.get(i); }
+
+    public void add(int timeMs, byte[] data) {
+        messages.add(new Message(timeMs, data, pixelBytes(data)));
+    }
+
+    public static RfbRecording load(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!java.util.Arrays.equals(magic, MAGIC)) throw new IOException("Not a glass-vnc recording: " + file);
+            int w = in.readUnsignedShort();
+            int h = in.readUnsignedShort();
+            byte[] nameBytes = new byte[in.readInt()];
+            in.readFully(nameBytes);
+            RfbRecording rec = new RfbRecording(w, h, new String(nameBytes, "UTF-8"));
+            while (in.available() > 0) {
+                int timeMs = in.readInt();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                rec.add(timeMs, data);
+            }
+            return rec;
+        } finally {
+            in.close();
+        }
+    }
+
+    public void save(File file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+        try {
+            out.write(MAGIC);
+            out.writeShort(width);
+            out.writeShort(height);
+            byte[] nameBytes = name.getBytes("UTF-8");
+            out.writeInt(nameBytes.length);
+            out.write(nameBytes);
+            for (Message m : messages) {
+                out.writeInt(m.timeMs);
+                out.writeInt(m.data.length);
+                out.write(m.data);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /** Sum of w*h*4 over the Raw and Zlib rects of a FramebufferUpdate. */
+    private static long pixelBytes(byte[] msg) {
+        if (msg.length == 0 || msg[0] != 0) return 0;
+        ByteBuffer buf = ByteBuffer.wrap(msg);
+        buf.position(2);
+        int numRects = buf.getShort() & 0xFFFF;
+        long total = 0;
+        for (int i = 0; i < numRects; i++) {
+            buf.position(buf.position() + 4);
+            int w = buf.getShort() & 0xFFFF;
+            int h = buf.getShort() & 0xFFFF;
+            int encoding = buf.getInt();
+            if (encoding == RfbTestServer.ENCODING_RAW) {
+                buf.position(buf.position() + w * h * 4);
+                total += (long) w * h * 4;
+            } else if (encoding == RfbTestServer.ENCODING_ZLIB) {
+                buf.position(buf.position() + 4 + buf.getInt(buf.position()));
+                total += (long) w * h * 4;
+            } else if (encoding == RfbTestServer.ENCODING_COPYRECT) {
+                buf.position(buf.position() + 4);
+            }
+        }
+        return total;
+    }
+
+    // --- Recorder ---
+
+    /**
+     * Connect to a real VNC server, negotiate exactly like RfbProto, and record
+     * every server message for the given duration while requesting incremental
+     * updates of the full desktop.
+     */
+    public static RfbRecording record(String host, int port, String password, int seconds) throws IOException {
+        Socket socket = new Socket(host, port);
+        try {
+            socket.setTcpNoDelay(true);
+            CaptureInputStream capture = new CaptureInputStream(
+                    new BufferedInputStream(socket.getInputStream(), 256 * 1024));
+            DataInputStream in = new DataInputStream(capture);
+            OutputStream out = socket.getOutputStream();
+
+            byte[] ver = new byte[12];
+            in.readFully(ver);
+            String serverVersion = new String(ver, "ASCII");
+            int minor = serverVersion.contains("003.008") ? 8 : serverVersion.contains("003.007") ? 7 : 3;
+            out.write(String.format("RFB %03d.%03d\n", 3, minor).getBytes("ASCII"));
+
+            int secType;
+            if (minor >= 7) {
+                byte[] types = new byte[in.readUnsignedByte()];
+                if (types.length == 0) throw new IOException("Server refused connection");
+                in.readFully(types);
+                secType = -1;
+                for (byte t : types) {
+                    if (t == 1) { secType = 1; break; }
+                    if (t == 2) secType = 2;
+                }
+                if (secType < 0) throw new IOException("No supported security type");
+                out.write(secType);
+            } else {
+                secType = in.readInt();
+            }
+            if (secType == 2) {
+                if (password == null || password.isEmpty()) throw new IOException("Server requires password");
+                byte[] challenge = new byte[16];
+                in.readFully(challenge);
+                out.write(RfbTestServer.vncAuthResponse(password, challenge));
+            }
+            if (minor >= 8 || secType == 2) {
+                if (in.readInt() != 0) throw new IOException("VNC authentication failed");
+            }
+
+            out.write(1); // ClientInit shared
+            int w = in.readUnsignedShort();
+            int h = in.readUnsignedShort();
+            in.skipBytes(16);
+            byte[] nameBytes = new byte[in.readInt()];
+            in.readFully(nameBytes);
+            RfbRecording rec = new RfbRecording(w, h, new String(nameBytes, "ASCII"));
+
+            // Same SetPixelFormat as RfbProto: 32bpp true colour, R/G/B shifts 16/8/0
+            out.write(new byte[] { 0, 0, 0, 0, 32, 24, 0, 1, 0, (byte) 255, 0, (byte) 255, 0, (byte) 255,
+                    16, 8, 0, 0, 0, 0 });
+            ByteBuffer enc = ByteBuffer.allocate(4 + ENCODINGS.length * 4);
+            enc.put((byte) 2).put((byte) 0).putShort((short) ENCODINGS.length);
+            for (int e : ENCODINGS) enc.putInt(e);
+            out.write(enc.array());
+            out.write(updateRequest(false, w, h));
+            out.flush();
+
+            long start = System.currentTimeMillis();
+            long deadline = start + seconds * 1000L;
+            while (System.currentTimeMillis() < deadline) {
+                capture.clear();
+                int type = in.readUnsignedByte();
+                switch (type) {
+                    case 0:
+                        skipFramebufferUpdate(in);
+                        out.write(updateRequest(true, w, h));
+                        out.flush();
+                        break;
+                    case 1:
+                        in.skipBytes(3);
+                        in.skipBytes(in.readUnsignedShort() * 6);
+                        break;
+                    case 2:
+                        break;
+                    case 3:
+                        in.skipBytes(3);
+                        in.skipBytes(in.readInt());
+                        break;
+                    default:
+                        throw new IOException("Unknown server message: " + type);
+                }
+                rec.add((int) (System.currentTimeMillis() - start), capture.take());
+            }
+            return rec;
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static void skipFramebufferUpdate(DataInputStream in) throws IOException {
+        in.skipBytes(1);
+        int numRects = in.readUnsignedShort();
+        for (int i = 0; i < numRects; i++) {
+            in.skipBytes(4);
+            int w = in.readUnsignedShort();
+            int h = in.readUnsignedShort();
+            int encoding = in.readInt();
+            if (encoding == RfbTestServer.ENCODING_RAW) {
+                in.readFully(new byte[w * h * 4]);
+            } else if (encoding == RfbTestServer.ENCODING_ZLIB) {
+                in.readFully(new byte[in.readInt()]);
+            } else if (encoding == RfbTestServer.ENCODING_COPYRECT) {
+                in.skipBytes(4);
+            } else if (encoding != RfbTestServer.ENCODING_DESKTOP_SIZE) {
+                throw new IOException("Unsupported encoding: " + encoding);
+            }
+        }
+    }
+
+    private static byte[] updateRequest(boolean incremental, int w, int h) {
+        ByteBuffer buf = ByteBuffer.allocate(10);
+        buf.put((byte) 3).put((byte) (incremental ? 1 : 0));
+        buf.putShort((short) 0).putShort((short) 0).putShort((short) w).putShort((short) h);
+        return buf.array();
+    }
+
+    /** Keeps a copy of everything read since the last clear(). */
+    private static class CaptureInputStream extends FilterInputStream {
+        private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+
+        CaptureInputStream(InputStream in) { super(in); }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) captured.write(b);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0) captured.write(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] tmp = new byte[(int) Math.min(n, 8192)];
+            int r = read(tmp, 0, tmp.length);
+            return Math.max(r, 0);
+        }
+
+        void clear() { captured.reset(); }
+
+        byte[] take() { return captured.toByteArray(); }
+    }
+}
@@ -0,0 +1,456 @@
+package com.glassvnc.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Stand-in RFB server for benchmarking RfbProto and VncView without a live desktop.
+ *
+ * Speaks RFB 3.3/3.7/3.8 with None or VNC password auth, and serves either a
+ * synthesized desktop (Raw, Zlib, CopyRect and DesktopSize rectangles) or a
+ * session captured with RfbRecording. Pixels are always sent as 32bpp BGRA,
+ * the only format RfbProto asks for.
+ */
+public class RfbTestServer {
+
+    public static final int ENCODING_RAW = 0;
+    public static final int ENCODING_COPYRECT = 1;
+    public static final int ENCODING_ZLIB = 6;
+    public static final int ENCODING_DESKTOP_SIZE = -223;
+
+    /** Synthetic update mixes, picked with --encoding. */
+    public static final String[] MIXES = { "raw", "zlib", "copyrect", "mixed" };
+
+    private static final int TILE = 128;
+    private static final int SCROLL_STEP = 16;
+
+    private final int minor;
+    private final String password;
+    private final String mix;
+    private final RfbRecording recording;
+    private final boolean realtime;
+    private final int width;
+    private final int height;
+
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+    private volatile boolean running;
+
+    public final AtomicLong updatesSent = new AtomicLong();
+    public final AtomicLong pixelBytesSent = new AtomicLong();
+    public final AtomicLong wireBytesSent = new AtomicLong();
+
+    /** Serve a synthesized desktop of the given size. */
+    public RfbTestServer(int minor, String password, int width, int height, String mix) {
+        this.minor = minor;
+        this.password = password;
+        this.width = width;
+        this.height = height;
+        this.mix = mix;
+        this.recording = null;
+        this.realtime = false;
+    }
+
+    /** Replay a recorded session, one FramebufferUpdate per client request. */
+    public RfbTestServer(int minor, String password, RfbRecording recording, boolean realtime) {
+        this.minor = minor;
+        this.password = password;
+        this.width = recording.width;
+        this.height = recording.height;
+        this.mix = null;
+        this.recording = recording;
+        this.realtime = realtime;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    /** Bind to loopback. Pass port 0 for an ephemeral port. */
+    public int start(int port) throws IOException {
+        return start(InetAddress.getLoopbackAddress(), port);
+    }
+
+    public int start(InetAddress bindAddr, int port) throws IOException {
+        serverSocket = new ServerSocket(port, 4, bindAddr);
+        running = true;
+        acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() { acceptLoop(); }
+        }, "RfbTestServer");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        return serverSocket.getLocalPort();
+    }
+
+    public void stop() {
+        running = false;
+        try { if (serverSocket != null) serverSocket.close(); } catch (IOException e) { /* ignore */ }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            final Socket client;
+            try {
+                client = serverSocket.accept();
+            } catch (IOException e) {
+                if (running) System.err.println("accept failed: " + e.getMessage());
+                break;
+            }
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        serve(client);
+                    } catch (IOException e) {
+                        // Client hung up or the recording ran out
+                    } finally {
+                        try { client.close(); } catch (IOException e) { /* ignore */ }
+                    }
+                }
+            }, "RfbTestClient");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    // --- Handshake ---
+
+    private void serve(Socket socket) throws IOException {
+        socket.setTcpNoDelay(true);
+        DataInputStream in = new DataInputStream(socket.getInputStream());
+        DataOutputStream out = new DataOutputStream(
+                new CountingOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024), wireBytesSent));
+
+        out.write(String.format("RFB %03d.%03d\n", 3, minor).getBytes("ASCII"));
+        out.flush();
+        byte[] clientVersion = new byte[12];
+        in.readFully(clientVersion);
+
+        boolean vncAuth = password != null && !password.isEmpty();
+        int secType = vncAuth ? 2 : 1;
+        if (minor >= 7) {
+            out.write(1);
+            out.write(secType);
+            out.flush();
+            int chosen = in.readUnsignedByte();
+            if (chosen != secType) throw new IOException("Client chose security type " + chosen);
+        } else {
+            out.writeInt(secType);
+            out.flush();
+        }
+
+        if (vncAuth) {
+            byte[] challenge = new byte[16];
+            new SecureRandom().nextBytes(challenge);
+            out.write(challenge);
+            out.flush();
+            byte[] response = new byte[16];
+            in.readFully(response);
+            boolean ok = Arrays.equals(response, vncAuthResponse(password, challenge));
+            out.writeInt(ok ? 0 : 1);
+            if (!ok && minor >= 8) {
+                byte[] reason = "Authentication failed".getBytes("ASCII");
+                out.writeInt(reason.length);
+                out.write(reason);
+            }
+            out.flush();
+            if (!ok) return;
+        } else if (minor >= 8) {
+            out.writeInt(0);
+            out.flush();
+        }
+
+        in.readUnsignedByte(); // ClientInit shared flag
+
+        // ServerInit: 32bpp little-endian true colour, R/G/B shifts 16/8/0
+        out.writeShort(width);
+        out.writeShort(height);
+        out.write(new byte[] { 32, 24, 0, 1, 0, (byte) 255, 0, (byte) 255, 0, (byte) 255, 16, 8, 0, 0, 0, 0 });
+        String name = recording != null ? recording.name : "glass-vnc test desktop";
+        byte[] nameBytes = name.getBytes("UTF-8");
+        out.writeInt(nameBytes.length);
+        out.write(nameBytes);
+        out.flush();
+
+        UpdateSource source = recording != null
+                ? new ReplaySource(recording, realtime)
+                : new SyntheticSource(width, height, mix);
+        messageLoop(in, out, source);
+    }
+
+    private void messageLoop(DataInputStream in, DataOutputStream out, UpdateSource source) throws IOException {
+        while (running) {
+            int type = in.readUnsignedByte();
+            switch (type) {
+                case 0: // SetPixelFormat
+                    in.skipBytes(3);
+                    byte[] pf = new byte[16];
+                    in.readFully(pf);
+                    if (pf[0] != 32 || pf[3] == 0 || pf[10] != 16 || pf[11] != 8 || pf[12] != 0) {
+                        throw new IOException("Only 32bpp BGRA is served");
+                    }
+                    break;
+                case 2: // SetEncodings
+                    in.skipBytes(1);
+                    int n = in.readUnsignedShort();
+                    in.skipBytes(n * 4);
+                    break;
+                case 3: // FramebufferUpdateRequest
+                    boolean incremental = in.readUnsignedByte() != 0;
+                    int x = in.readUnsignedShort();
+                    int y = in.readUnsignedShort();
+                    int w = in.readUnsignedShort();
+                    int h = in.readUnsignedShort();
+                    if (!source.sendUpdate(out, incremental, x, y, w, h)) return;
+                    out.flush();
+                    updatesSent.incrementAndGet();
+                    break;
+                case 4: // KeyEvent
+                    in.skipBytes(7);
+                    break;
+                case 5: // PointerEvent
+                    in.skipBytes(5);
+                    break;
+                case 6: // ClientCutText
+                    in.skipBytes(3);
+                    in.skipBytes(in.readInt());
+                    break;
+                default:
+                    throw new IOException("Unknown client message: " + type);
+            }
+        }
+    }
+
+    /**
+     * VNC auth response: DES-ECB of the challenge, keyed with the password
+     * padded to 8 bytes and each key byte bit-reversed.
+     */
+    static byte[] vncAuthResponse(String password, byte[] challenge) throws IOException {
+        byte[] key = new byte[8];
+        byte[] pw = password.getBytes("ASCII");
+        System.arraycopy(pw, 0, key, 0, Math.min(pw.length, 8));
+        for (int i = 0; i < 8; i++) {
+            key[i] = (byte) (Integer.reverse(key[i] & 0xFF) >>> 24);
+        }
+        try {
+            javax.crypto.Cipher cipher = javax.crypto.Cipher.getInstance("DES/ECB/NoPadding");
+            cipher.init(javax.crypto.Cipher.ENCRYPT_MODE, new javax.crypto.spec.SecretKeySpec(key, "DES"));
+            return cipher.doFinal(challenge);
+        } catch (Exception e) {
+            throw new IOException("DES encryption failed", e);
+        }
+    }
+
+    // --- Update sources ---
+
+    private interface UpdateSource {
+        /** Write one FramebufferUpdate. Returns false when there is nothing left to send. */
+        boolean sendUpdate(DataOutputStream out, boolean incremental, int x, int y, int w, int h) throws IOException;
+    }
+
+    /**
+     * Desktop-like content: flat panels with rows of noisy "text". Each update
+     * either scrolls the requested region (CopyRect plus a fresh strip) or
+     * repaints a tile that walks across it, depending on the mix.
+     */
+    private class SyntheticSource implements UpdateSource {
+        private final int dw, dh;
+        private final int[] desktop;
+        private final String mix;
+        private final Random random = new Random(42);
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private byte[] pixelBuf = new byte[0];
+        private byte[] zlibBuf = new byte[64 * 1024];
+        private int frame;
+        private int tileX, tileY;
+
+        SyntheticSource(int dw, int dh, String mix) {
+            this.dw = dw;
+            this.dh = dh;
+            this.mix = mix;
+            this.desktop = new int[dw * dh];
+            for (int row = 0; row < dh; row++) paintRow(row);
+        }
+
+        private void paintRow(int row) {
+            int panel = ((row / 96) & 1) == 0 ? 0xFF202830 : 0xFFE8E8E8;
+            int ink = panel == 0xFFE8E8E8 ? 0xFF101010 : 0xFFC0D0FF;
+            boolean textLine = (row % 16) >= 3 && (row % 16) <= 12;
+            int off = row * dw;
+            for (int col = 0; col < dw; col++) {
+                int c = panel;
+                if (textLine && (col % 640) < 560 && random.nextInt(4) == 0) c = ink;
+                desktop[off + col] = c;
+            }
+        }
+
+        @Override
+        public boolean sendUpdate(DataOutputStream out, boolean incremental, int x, int y, int w, int h) throws IOException {
+            w = Math.min(w, dw - x);
+            h = Math.min(h, dh - y);
+            if (w <= 0 || h <= 0) {
+                writeHeader(out, 0);
+                return true;
+            }
+            if (!incremental) {
+                boolean announce = frame == 0;
+                writeHeader(out, announce ? 2 : 1);
+                if (announce) writeRectHeader(out, 0, 0, dw, dh, ENCODING_DESKTOP_SIZE);
+                writePixels(out, x, y, w, h, "zlib".equals(mix) || "mixed".equals(mix) ? ENCODING_ZLIB : ENCODING_RAW);
+                frame++;
+                return true;
+            }
+
+            String kind = mix;
+            if ("mixed".equals(mix)) kind = MIXES[frame % 3];
+            frame++;
+
+            if ("copyrect".equals(kind) && h > SCROLL_STEP) {
+                // Scroll the region up, then paint the exposed strip at the bottom
+                int keep = h - SCROLL_STEP;
+                for (int row = 0; row < keep; row++) {
+                    System.arraycopy(desktop, (y + row + SCROLL_STEP) * dw + x, desktop, (y + row) * dw + x, w);
+                }
+                for (int row = y + keep; row < y + h; row++) paintRow(row);
+                writeHeader(out, 2);
+                writeRectHeader(out, x, y, w, keep, ENCODING_COPYRECT);
+                out.writeShort(x);
+                out.writeShort(y + SCROLL_STEP);
+                writePixels(out, x, y + keep, w, SCROLL_STEP, ENCODING_RAW);
+                return true;
+            }
+
+            int tw = Math.min(TILE, w);
+            int th = Math.min(TILE, h);
+            tileX += tw;
+            if (tileX + tw > w) {
+                tileX = 0;
+                tileY += th;
+                if (tileY + th > h) tileY = 0;
+            }
+            int tx = x + tileX;
+            int ty = y + tileY;
+            int tint = (frame * 0x050301) & 0x3F3F3F;
+            for (int row = ty; row < ty + th; row++) {
+                int off = row * dw + tx;
+                for (int col = 0; col < tw; col++) {
+                    desktop[off + col] ^= tint;
+                }
+            }
+            writeHeader(out, 1);
+            writePixels(out, tx, ty, tw, th, "zlib".equals(kind) ? ENCODING_ZLIB : ENCODING_RAW);
+            return true;
+        }
+
+        private void writePixels(DataOutputStream out, int x, int y, int w, int h, int encoding) throws IOException {
+            int len = w * h * 4;
+            if (pixelBuf.length < len) pixelBuf = new byte[len];
+            int i = 0;
+            for (int row = y; row < y + h; row++) {
+                int off = row * dw + x;
+                for (int col = 0; col < w; col++) {
+                    int c = desktop[off + col];
+                    pixelBuf[i++] = (byte) c;
+                    pixelBuf[i++] = (byte) (c >> 8);
+                    pixelBuf[i++] = (byte) (c >> 16);
+                    pixelBuf[i++] = 0;
+                }
+            }
+            writeRectHeader(out, x, y, w, h, encoding);
+            if (encoding == ENCODING_ZLIB) {
+                // One deflate stream per connection, flushed per rect, as RfbProto expects
+                deflater.setInput(pixelBuf, 0, len);
+                int total = 0;
+                while (true) {
+                    if (zlibBuf.length - total < 1024) zlibBuf = Arrays.copyOf(zlibBuf, zlibBuf.length * 2);
+                    int space = zlibBuf.length - total;
+                    int n = deflater.deflate(zlibBuf, total, space, Deflater.SYNC_FLUSH);
+                    total += n;
+                    if (n < space) break;
+                }
+                out.writeInt(total);
+                out.write(zlibBuf, 0, total);
+            } else {
+                out.write(pixelBuf, 0, len);
+            }
+            pixelBytesSent.addAndGet(len);
+        }
+    }
+
+    /** Sends recorded server messages in order, one FramebufferUpdate per request. */
+    private class ReplaySource implements UpdateSource {
+        private final RfbRecording recording;
+        private final boolean realtime;
+        private int next;
+        private long startNanos;
+
+        ReplaySource(RfbRecording recording, boolean realtime) {
+            this.recording = recording;
+            this.realtime = realtime;
+        }
+
+        @Override
+        public boolean sendUpdate(DataOutputStream out, boolean incremental, int x, int y, int w, int h) throws IOException {
+            if (startNanos == 0) startNanos = System.nanoTime();
+            while (next < recording.size()) {
+                RfbRecording.Message msg = recording.get(next++);
+                if (realtime) {
+                    long dueMs = msg.timeMs - (System.nanoTime() - startNanos) / 1000000;
+                    if (dueMs > 0) {
+                        try { Thread.sleep(dueMs); } catch (InterruptedException e) { return false; }
+                    }
+                }
+                out.write(msg.data);
+                pixelBytesSent.addAndGet(msg.pixelBytes);
+                if (msg.data[0] == 0) return true;
+            }
+            return false;
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out, int numRects) throws IOException {
+        out.write(0); // FramebufferUpdate
+        out.write(0); // padding
+        out.writeShort(numRects);
+    }
+
+    private static void writeRectHeader(DataOutputStream out, int x, int y, int w, int h, int encoding) throws IOException {
+        out.writeShort(x);
+        out.writeShort(y);
+        out.writeShort(w);
+        out.writeShort(h);
+        out.writeInt(encoding);
+    }
+
+    /** Counts bytes on their way to the socket for the MB/s-on-the-wire figure. */
+    private static class CountingOutputStream extends java.io.FilterOutputStream {
+        private final AtomicLong counter;
+
+        CountingOutputStream(java.io.OutputStream out, AtomicLong counter) {
+            super(out);
+            this.counter = counter;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            counter.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            counter.addAndGet(len);
+        }
+    }
+}
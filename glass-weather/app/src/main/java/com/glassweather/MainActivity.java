@@ -18,28 +18,31 @@ import android.view.View;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
+import com.glasscommon.net.Http;
+import com.glasscommon.net.Request;
+
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.security.cert.X509Certificate;
-import java.text.SimpleDateFormat;
+import java.io.File;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.Locale;
 
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLContext;
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.X509TrustManager;
-
 public class MainActivity extends Activity {
 
     private static final String TAG = "GlassWeather";
     private static final long REFRESH_INTERVAL_MS = 15 * 60 * 1000; // 15 minutes
+    private static final long HOUR_MS = 60 * 60 * 1000;
+
+    // Open-Meteo's default models publish a new run about every hour, some
+    // minutes past it; fetching in between returns the same forecast
+    private static final long MODEL_UPDATE_MS = HOUR_MS;
+    private static final long MODEL_DELAY_MS = 15 * 60 * 1000;
+    // How far ahead a cached forecast must reach for the fetch to be skipped
+    private static final long COVER_AHEAD_MS = 6 * HOUR_MS;
+    private static final int HOURLY_COLUMNS = 24;
+    private static final int STALE_COLOR = 0xFFFFB74D;
 
     private static final String DEFAULT_LOCATION_NAME = "Albuquerque, NM";
     private static final double DEFAULT_LAT = 35.0844;
@@ -50,6 +53,13 @@ public class MainActivity extends Activity {
     private static final String PREF_LON = "lon";
     private static final String PREF_CITY = "city";
     private static final String GEOCODE_URL = "https://geocoding-api.open-meteo.com/v1/search?name=%s&count=1";
+    // Coordinates rounded like the cache key, so the cached forecast is the one for that spot
+    private static final String FORECAST_URL = "https://api.open-meteo.com/v1/forecast?"
+            + "latitude=%.2f&longitude=%.2f"
+            + "&current=temperature_2m,weathercode,windspeed_10m,relative_humidity_2m"
+            + "&hourly=temperature_2m,weathercode,windspeed_10m,relative_humidity_2m"
+            + "&forecast_days=2&timeformat=unixtime&temperature_unit=fahrenheit&windspeed_unit=mph";
+    private static final String CACHE_FILE = "weather_cache.bin";
 
     private TextView statusText;
     private View weatherContent;
@@ -61,6 +71,7 @@ public class MainActivity extends Activity {
 
     private LocationManager locationManager;
     private Handler handler;
+    private WeatherCache cache;
     private double lastLat = Double.NaN;
     private double lastLon = Double.NaN;
 
@@ -72,7 +83,7 @@ public class MainActivity extends Activity {
         @Override
         public void run() {
             if (!Double.isNaN(lastLat)) {
-                fetchWeather(lastLat, lastLon);
+                loadWeather(lastLat, lastLon, false);
             }
             handler.postDelayed(this, REFRESH_INTERVAL_MS);
         }
@@ -83,7 +94,7 @@ public class MainActivity extends Activity {
         public void onLocationChanged(Location location) {
             lastLat = location.getLatitude();
             lastLon = location.getLongitude();
-            fetchWeather(lastLat, lastLon);
+            loadWeather(lastLat, lastLon, false);
             // Stop updates after getting a fix - we'll use the refresh timer
             locationManager.removeUpdates(this);
         }
@@ -110,6 +121,8 @@ public class MainActivity extends Activity {
         hourlyContainer = (LinearLayout) findViewById(R.id.hourlyContainer);
 
         handler = new Handler(Looper.getMainLooper());
+        Http.init(this);
+        cache = new WeatherCache(new File(getFilesDir(), CACHE_FILE));
         locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
 
         // Priority: 1) --es city "Name"  2) --ef lat/lon  3) SharedPreferences  4) GPS/default
@@ -124,7 +137,7 @@ public class MainActivity extends Activity {
                 lastLat = intentLat;
                 lastLon = intentLon;
                 saveLocation(lastLat, lastLon, null);
-                fetchWeather(lastLat, lastLon);
+                loadWeather(lastLat, lastLon, false);
                 handler.postDelayed(refreshRunnable, REFRESH_INTERVAL_MS);
             } else {
                 // Check SharedPreferences for saved location
@@ -136,7 +149,7 @@ public class MainActivity extends Activity {
                     lastLon = savedLon;
                     String savedCity = prefs.getString(PREF_CITY, null);
                     if (savedCity != null) locationName.setText(savedCity);
-                    fetchWeather(lastLat, lastLon);
+                    loadWeather(lastLat, lastLon, false);
                     handler.postDelayed(refreshRunnable, REFRESH_INTERVAL_MS);
                 } else {
                     requestLocation();
@@ -171,7 +184,7 @@ public class MainActivity extends Activity {
         if (lastKnown != null) {
             lastLat = lastKnown.getLatitude();
             lastLon = lastKnown.getLongitude();
-            fetchWeather(lastLat, lastLon);
+            loadWeather(lastLat, lastLon, false);
         }
 
         // Request fresh location updates from any available provider
@@ -194,7 +207,7 @@ public class MainActivity extends Activity {
             lastLat = DEFAULT_LAT;
             lastLon = DEFAULT_LON;
             locationName.setText(DEFAULT_LOCATION_NAME);
-            fetchWeather(lastLat, lastLon);
+            loadWeather(lastLat, lastLon, false);
         }
 
         // Start auto-refresh timer
@@ -211,6 +224,11 @@ public class MainActivity extends Activity {
     }
 
     private void geocodeCity(final String city) {
+        WeatherCache.Place place = cache.getPlace(city);
+        if (place != null) {
+            showPlace(place.lat, place.lon, place.name);
+            return;
+        }
         new Thread(new Runnable() {
             @Override
             public void run() {
@@ -218,33 +236,7 @@ public class MainActivity extends Activity {
                     String encoded = java.net.URLEncoder.encode(city, "UTF-8");
                     String urlStr = String.format(Locale.US, GEOCODE_URL, encoded);
 
-                    TrustManager[] trustAll = new TrustManager[] {
-                        new X509TrustManager() {
-                            public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
-                            public void checkClientTrusted(X509Certificate[] certs, String type) {}
-                            public void checkServerTrusted(X509Certificate[] certs, String type) {}
-                        }
-                    };
-                    SSLContext sc = SSLContext.getInstance("TLS");
-                    sc.init(null, trustAll, new java.security.SecureRandom());
-
-                    URL url = new URL(urlStr);
-                    HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-                    conn.setSSLSocketFactory(sc.getSocketFactory());
-                    conn.setConnectTimeout(10000);
-                    conn.setReadTimeout(10000);
-
-                    BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(conn.getInputStream()));
-                    StringBuilder sb = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        sb.append(line);
-                    }
-                    reader.close();
-                    conn.disconnect();
-
-                    JSONObject json = new JSONObject(sb.toString());
+                    JSONObject json = new JSONObject(Http.fetchString(urlStr));
                     JSONArray results = json.optJSONArray("results");
                     if (results != null && results.length() > 0) {
                         JSONObject result = results.getJSONObject(0);
@@ -257,12 +249,8 @@ public class MainActivity extends Activity {
                         handler.post(new Runnable() {
                             @Override
                             public void run() {
-                                lastLat = lat;
-                                lastLon = lon;
-                                locationName.setText(displayName);
-                                saveLocation(lat, lon, displayName);
-                                fetchWeather(lat, lon);
-                                handler.postDelayed(refreshRunnable, REFRESH_INTERVAL_MS);
+                                cache.putPlace(city, lat, lon, displayName);
+                                showPlace(lat, lon, displayName);
                             }
                         });
                     } else {
@@ -286,51 +274,52 @@ public class MainActivity extends Activity {
         }).start();
     }
 
+    private void showPlace(double lat, double lon, String displayName) {
+        lastLat = lat;
+        lastLon = lon;
+        locationName.setText(displayName);
+        saveLocation(lat, lon, displayName);
+        loadWeather(lat, lon, false);
+        handler.postDelayed(refreshRunnable, REFRESH_INTERVAL_MS);
+    }
+
+    /**
+     * Show the cached forecast for a location at once, then fetch a new one
+     * unless the cached one is from the latest model run and still reaches
+     * the next few hours.
+     */
+    private void loadWeather(double lat, double lon, boolean force) {
+        long now = System.currentTimeMillis();
+        WeatherCache.Forecast cached = cache.getForecast(lat, lon);
+        if (cached != null) showForecast(cached);
+        if (!force && cached != null && cached.isFresh(now, now + COVER_AHEAD_MS)) {
+            Log.d(TAG, "Forecast for " + cached.key + " is current, not fetching");
+            return;
+        }
+        fetchWeather(lat, lon);
+    }
+
     private void fetchWeather(final double lat, final double lon) {
         new Thread(new Runnable() {
             @Override
             public void run() {
                 try {
-                    String urlStr = String.format(Locale.US,
-                            "https://api.open-meteo.com/v1/forecast?"
-                                    + "latitude=%.4f&longitude=%.4f"
-                                    + "&current=temperature_2m,weathercode,windspeed_10m,relative_humidity_2m"
-                                    + "&hourly=temperature_2m,weathercode"
-                                    + "&forecast_days=1&temperature_unit=fahrenheit&windspeed_unit=mph",
-                            lat, lon);
-
-                    // Glass has outdated CA certs — trust all for weather API
-                    TrustManager[] trustAll = new TrustManager[] {
-                        new X509TrustManager() {
-                            public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
-                            public void checkClientTrusted(X509Certificate[] certs, String type) {}
-                            public void checkServerTrusted(X509Certificate[] certs, String type) {}
-                        }
-                    };
-                    SSLContext sc = SSLContext.getInstance("TLS");
-                    sc.init(null, trustAll, new java.security.SecureRandom());
-
-                    URL url = new URL(urlStr);
-                    HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-                    conn.setSSLSocketFactory(sc.getSocketFactory());
-                    conn.setConnectTimeout(10000);
-                    conn.setReadTimeout(10000);
-
-                    BufferedReader reader = new BufferedReader(
-                            new InputStreamReader(conn.getInputStream()));
-                    StringBuilder sb = new StringBuilder();
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        sb.append(line);
-                    }
-                    reader.close();
-                    conn.disconnect();
-
-                    final JSONObject json = new JSONObject(sb.toString());
+                    String urlStr = String.format(Locale.US, FORECAST_URL,
+                            WeatherCache.round(lat), WeatherCache.round(lon));
+
+                    // Cached here by location and model run, not by the HTTP cache
+                    final String body = Http.execute(new Request(urlStr).noCache()).string();
+                    JSONArray times = new JSONObject(body).getJSONObject("hourly").getJSONArray("time");
+                    final long coversUntil = times.length() > 0
+                            ? times.getLong(times.length() - 1) * 1000 + HOUR_MS : 0;
                     handler.post(new Runnable() {
                         @Override
                         public void run() {
-                            updateUI(json);
+                            long now = System.currentTimeMillis();
+                            cache.putForecast(lat, lon, now, nextModelRun(now), coversUntil, body);
+                            if (isCurrentLocation(lat, lon)) {
+                                showForecast(cache.getForecast(lat, lon));
+                            }
                         }
                     });
                 } catch (final Exception e) {
@@ -338,6 +327,9 @@ public class MainActivity extends Activity {
                     handler.post(new Runnable() {
                         @Override
                         public void run() {
+                            // Keep showing the cached forecast, marked with its age
+                            WeatherCache.Forecast cached = cache.getForecast(lat, lon);
+                            if (cached != null && showForecast(cached)) return;
                             statusText.setVisibility(View.VISIBLE);
                             statusText.setText("Error: " + e.getMessage());
                         }
@@ -347,59 +339,97 @@ public class MainActivity extends Activity {
         }).start();
     }
 
-    private void updateUI(JSONObject json) {
-        try {
-            JSONObject current = json.getJSONObject("current");
-            int temp = (int) Math.round(current.getDouble("temperature_2m"));
-            int code = current.getInt("weathercode");
-            int wind = (int) Math.round(current.getDouble("windspeed_10m"));
-            int humidity = current.getInt("relative_humidity_2m");
+    /** When the next model run should be out, after a fetch at {@code now}. */
+    private static long nextModelRun(long now) {
+        return ((now - MODEL_DELAY_MS) / MODEL_UPDATE_MS + 1) * MODEL_UPDATE_MS + MODEL_DELAY_MS;
+    }
 
-            currentTemp.setText(temp + "°");
-            currentCondition.setText(weatherCodeToLabel(code));
-            currentDetails.setText("Wind " + wind + " mph   Humidity " + humidity + "%");
+    private boolean isCurrentLocation(double lat, double lon) {
+        return !Double.isNaN(lastLat)
+                && WeatherCache.locationKey(lat, lon).equals(WeatherCache.locationKey(lastLat, lastLon));
+    }
 
-            // Hourly forecast
+    /**
+     * Render a forecast from the current hour on. Once its current
+     * conditions are over an hour old, as with a cached forecast shown
+     * offline, the hourly forecast for now stands in for them. Returns
+     * false if the forecast doesn't reach the current hour.
+     */
+    private boolean showForecast(WeatherCache.Forecast forecast) {
+        long now = System.currentTimeMillis();
+        try {
+            JSONObject json = new JSONObject(forecast.json);
             JSONObject hourly = json.getJSONObject("hourly");
             JSONArray times = hourly.getJSONArray("time");
             JSONArray temps = hourly.getJSONArray("temperature_2m");
             JSONArray codes = hourly.getJSONArray("weathercode");
 
-            hourlyContainer.removeAllViews();
-
-            // Find current hour index
-            Calendar cal = Calendar.getInstance();
-            int currentHour = cal.get(Calendar.HOUR_OF_DAY);
-
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm", Locale.US);
-
+            // First hour that isn't over yet
+            int first = -1;
             for (int i = 0; i < times.length(); i++) {
-                String timeStr = times.getString(i);
-                Date date = sdf.parse(timeStr);
-                Calendar entryCal = Calendar.getInstance();
-                entryCal.setTime(date);
-                int entryHour = entryCal.get(Calendar.HOUR_OF_DAY);
+                if (times.getLong(i) * 1000 + HOUR_MS > now) {
+                    first = i;
+                    break;
+                }
+            }
+            if (first < 0) return false;
 
-                // Only show from current hour onward
-                if (entryHour < currentHour) continue;
+            JSONObject current = json.getJSONObject("current");
+            double temp, wind;
+            int code, humidity;
+            if (now - current.getLong("time") * 1000 < HOUR_MS) {
+                temp = current.getDouble("temperature_2m");
+                code = current.getInt("weathercode");
+                wind = current.getDouble("windspeed_10m");
+                humidity = current.getInt("relative_humidity_2m");
+            } else {
+                temp = temps.getDouble(first);
+                code = codes.getInt(first);
+                wind = hourly.getJSONArray("windspeed_10m").getDouble(first);
+                humidity = hourly.getJSONArray("relative_humidity_2m").getInt(first);
+            }
 
-                int hTemp = (int) Math.round(temps.getDouble(i));
-                int hCode = codes.getInt(i);
+            currentTemp.setText((int) Math.round(temp) + "°");
+            currentCondition.setText(weatherCodeToLabel(code));
+            String details = "Wind " + Math.round(wind) + " mph   Humidity " + humidity + "%";
+            if (now >= forecast.expiresAt) {
+                // Not from the latest model run: offline, or the fetch is still under way
+                currentDetails.setText(details + "   " + ago(forecast.fetchedAt));
+                currentDetails.setTextColor(STALE_COLOR);
+            } else {
+                currentDetails.setText(details);
+                currentDetails.setTextColor(getResources().getColor(R.color.dim_grey));
+            }
 
+            // Hourly forecast
+            hourlyContainer.removeAllViews();
+            Calendar cal = Calendar.getInstance();
+            for (int i = first; i < times.length() && i < first + HOURLY_COLUMNS; i++) {
+                cal.setTimeInMillis(times.getLong(i) * 1000);
                 addHourlyColumn(
-                        i == currentHour ? "Now" : formatHour(entryHour),
-                        hTemp + "°",
-                        weatherCodeToShort(hCode));
+                        i == first ? "Now" : formatHour(cal.get(Calendar.HOUR_OF_DAY)),
+                        (int) Math.round(temps.getDouble(i)) + "°",
+                        weatherCodeToShort(codes.getInt(i)));
             }
 
             statusText.setVisibility(View.GONE);
             weatherContent.setVisibility(View.VISIBLE);
-        } catch (Exception e) {
+            return true;
+        } catch (JSONException e) {
             Log.e(TAG, "Parse error", e);
             statusText.setText("Parse error");
+            return false;
         }
     }
 
+    private static String ago(long timeMs) {
+        long diffMin = (System.currentTimeMillis() - timeMs) / (60 * 1000);
+        if (diffMin < 60) return Math.max(diffMin, 1) + " min ago";
+        long diffHr = diffMin / 60;
+        if (diffHr < 24) return diffHr + "h ago";
+        return (diffHr / 24) + "d ago";
+    }
+
     private void addHourlyColumn(String timeLabel, String tempLabel, String condLabel) {
         LinearLayout col = new LinearLayout(this);
         col.setOrientation(LinearLayout.VERTICAL);
@@ -496,7 +526,7 @@ public class MainActivity extends Activity {
                 if (Math.abs(dx) < 50 && Math.abs(dy) < 50) {
                     // Tap = refresh
                     if (!Double.isNaN(lastLat)) {
-                        fetchWeather(lastLat, lastLon);
+                        loadWeather(lastLat, lastLon, true);
                     } else {
                         requestLocation();
                     }
@@ -523,5 +553,6 @@ public class MainActivity extends Activity {
         super.onDestroy();
         handler.removeCallbacks(refreshRunnable);
         locationManager.removeUpdates(locationListener);
+        Http.metrics().log();
     }
 }
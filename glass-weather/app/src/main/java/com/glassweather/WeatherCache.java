@@ -0,0 +1,191 @@
+package com.glassweather;
+
+import android.util.Log;
+
+import com.glasscommon.io.FileSaver;
+import com.glasscommon.io.IoUtils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Forecasts by location and geocoded cities by name, kept in one small
+ * file so a launch without network still has something to show.
+ *
+ * Forecasts are keyed by latitude and longitude rounded to 0.01 degrees,
+ * about 1 km, so small GPS jitter hits the same entry. Each records when it
+ * was fetched, when a newer model run may be out, and the last hour its
+ * hourly data reaches. Cities never move, so geocode results are kept
+ * until evicted. Both are least recently used first.
+ *
+ * Used from the UI thread only; the file is read in the constructor and
+ * written with FileSaver on its background thread.
+ */
+class WeatherCache {
+
+    private static final String TAG = "GlassWeather";
+    private static final int MAGIC = 0x57544831; // "WTH1"
+
+    private static final int MAX_FORECASTS = 8;
+    private static final int MAX_PLACES = 32;
+
+    /** A forecast response for one location. */
+    static class Forecast {
+        final String key;
+        final long fetchedAt;
+        final long expiresAt;
+        final long coversUntil;
+        final String json;
+
+        Forecast(String key, long fetchedAt, long expiresAt, long coversUntil, String json) {
+            this.key = key;
+            this.fetchedAt = fetchedAt;
+            this.expiresAt = expiresAt;
+            this.coversUntil = coversUntil;
+            this.json = json;
+        }
+
+        /** True if no newer run is expected yet and the hourly data reaches {@code until}. */
+        boolean isFresh(long now, long until) {
+            return now < expiresAt && coversUntil >= until;
+        }
+    }
+
+    /** A geocoded city. */
+    static class Place {
+        final double lat;
+        final double lon;
+        final String name;
+
+        Place(double lat, double lon, String name) {
+            this.lat = lat;
+            this.lon = lon;
+            this.name = name;
+        }
+    }
+
+    private final File file;
+    private final LinkedHashMap<String, Forecast> forecasts = lru(MAX_FORECASTS);
+    private final LinkedHashMap<String, Place> places = lru(MAX_PLACES);
+
+    WeatherCache(File file) {
+        this.file = file;
+        load();
+    }
+
+    /** Coordinate rounded to the cache's grid of about 1 km. */
+    static double round(double degrees) {
+        return Math.round(degrees * 100) / 100.0;
+    }
+
+    static String locationKey(double lat, double lon) {
+        return String.format(Locale.US, "%.2f,%.2f", round(lat), round(lon));
+    }
+
+    Forecast getForecast(double lat, double lon) {
+        return forecasts.get(locationKey(lat, lon));
+    }
+
+    void putForecast(double lat, double lon, long fetchedAt, long expiresAt, long coversUntil, String json) {
+        String key = locationKey(lat, lon);
+        forecasts.put(key, new Forecast(key, fetchedAt, expiresAt, coversUntil, json));
+        saveAsync();
+    }
+
+    Place getPlace(String city) {
+        return places.get(placeKey(city));
+    }
+
+    void putPlace(String city, double lat, double lon, String name) {
+        places.put(placeKey(city), new Place(lat, lon, name));
+        saveAsync();
+    }
+
+    private static String placeKey(String city) {
+        return city.trim().toLowerCase(Locale.US);
+    }
+
+    // --- Storage ---
+
+    private void load() {
+        if (!file.exists()) return;
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC) return;
+            // Written oldest first, so inserting in order restores the LRU order
+            int forecastCount = in.readInt();
+            for (int i = 0; i < forecastCount; i++) {
+                String key = in.readUTF();
+                long fetchedAt = in.readLong();
+                long expiresAt = in.readLong();
+                long coversUntil = in.readLong();
+                String json = IoUtils.readString(in);
+                if (json == null) throw new IOException("forecast without a body");
+                forecasts.put(key, new Forecast(key, fetchedAt, expiresAt, coversUntil, json));
+            }
+            int placeCount = in.readInt();
+            for (int i = 0; i < placeCount; i++) {
+                String key = in.readUTF();
+                double lat = in.readDouble();
+                double lon = in.readDouble();
+                String name = in.readUTF();
+                places.put(key, new Place(lat, lon, name));
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable weather cache: " + e.getMessage());
+            forecasts.clear();
+            places.clear();
+            file.delete();
+        } finally {
+            IoUtils.closeQuietly(in);
+        }
+    }
+
+    private void saveAsync() {
+        // Entries are immutable, so copies of the maps can be written elsewhere
+        final List<Forecast> forecastList = new ArrayList<Forecast>(forecasts.values());
+        final List<String> placeKeys = new ArrayList<String>(places.keySet());
+        final List<Place> placeList = new ArrayList<Place>(places.values());
+        FileSaver.saveAsync(file, new FileSaver.Contents() {
+            @Override
+            public void writeTo(DataOutputStream out) throws IOException {
+                out.writeInt(MAGIC);
+                out.writeInt(forecastList.size());
+                for (Forecast f : forecastList) {
+                    out.writeUTF(f.key);
+                    out.writeLong(f.fetchedAt);
+                    out.writeLong(f.expiresAt);
+                    out.writeLong(f.coversUntil);
+                    IoUtils.writeString(out, f.json);
+                }
+                out.writeInt(placeList.size());
+                for (int i = 0; i < placeList.size(); i++) {
+                    Place p = placeList.get(i);
+                    out.writeUTF(placeKeys.get(i));
+                    out.writeDouble(p.lat);
+                    out.writeDouble(p.lon);
+                    out.writeUTF(p.name);
+                }
+            }
+        });
+    }
+
+    private static <V> LinkedHashMap<String, V> lru(final int maxEntries) {
+        return new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}